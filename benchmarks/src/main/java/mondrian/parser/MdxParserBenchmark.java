@@ -0,0 +1,122 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package mondrian.parser;
+
+import mondrian.olap.*;
+import mondrian.olap.fun.BuiltinFunTable;
+import mondrian.server.Statement;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of MDX parsing by {@link JavaccParserValidatorImpl}.
+ *
+ * <p>Measures the parser alone: the parse tree is built but not turned into
+ * a {@link Query}, so no connection or schema is needed.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MdxParserBenchmark {
+    private static final String SIMPLE_QUERY =
+        "select {[Measures].[Unit Sales]} on columns,\n"
+        + " {[Store].[Store State].Members} on rows\n"
+        + "from [Sales]\n"
+        + "where [Time].[1997]";
+
+    private static final String COMPLEX_QUERY =
+        "with member [Measures].[Profit] as\n"
+        + "  '[Measures].[Store Sales] - [Measures].[Store Cost]',\n"
+        + "  format_string = '$#,##0.00'\n"
+        + " set [Top Products] as\n"
+        + "  'TopCount([Product].[Product Name].Members, 10,"
+        + " [Measures].[Profit])'\n"
+        + "select {[Measures].[Unit Sales], [Measures].[Profit]} on columns,\n"
+        + " non empty Order(\n"
+        + "  Filter(\n"
+        + "   CrossJoin([Top Products],"
+        + " [Customers].[State Province].Members),\n"
+        + "   [Measures].[Unit Sales] > 100),\n"
+        + "  [Measures].[Profit], BDESC) on rows\n"
+        + "from [Sales]\n"
+        + "where ([Time].[1997].[Q1], [Store].[USA].[CA])";
+
+    @Param({"simple", "complex"})
+    public String query;
+
+    String mdx;
+    JavaccParserValidatorImpl parser;
+    FunTable funTable;
+
+    @Setup
+    public void setup() {
+        mdx = query.equals("simple") ? SIMPLE_QUERY : COMPLEX_QUERY;
+        parser = new JavaccParserValidatorImpl(new NullFactory());
+        funTable = BuiltinFunTable.instance();
+    }
+
+    @Benchmark
+    public QueryPart parse() {
+        return parser.parseInternal(null, mdx, false, funTable, false);
+    }
+
+    /**
+     * Factory that does not create queries, so that parsing does not need
+     * a connection.
+     */
+    private static class NullFactory
+        implements MdxParserValidator.QueryPartFactory
+    {
+        public Query makeQuery(
+            Statement statement,
+            Formula[] formulae,
+            QueryAxis[] axes,
+            String cube,
+            Exp slicer,
+            QueryPart[] cellProps,
+            boolean strictValidation)
+        {
+            return null;
+        }
+
+        public DmvQuery makeDmvQuery(
+            String tableName,
+            List<String> columns,
+            Exp whereExpression)
+        {
+            return null;
+        }
+
+        public DrillThrough makeDrillThrough(
+            Query query,
+            int maxRowCount,
+            int firstRowOrdinal,
+            List<Exp> returnList)
+        {
+            return null;
+        }
+
+        public Explain makeExplain(QueryPart query) {
+            return null;
+        }
+    }
+}
+
+// End MdxParserBenchmark.java
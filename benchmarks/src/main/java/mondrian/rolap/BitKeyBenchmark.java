@@ -0,0 +1,89 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link BitKey} operations, for keys of the sizes used by
+ * small, medium and large stars. Key sizes of 64 or less use the
+ * single-word implementations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitKeyBenchmark {
+    @Param({"10", "64", "200"})
+    public int size;
+
+    BitKey a;
+    BitKey b;
+    BitKey subset;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1234);
+        a = BitKey.Factory.makeBitKey(size);
+        b = BitKey.Factory.makeBitKey(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextBoolean()) {
+                a.set(i);
+            }
+            if (random.nextBoolean()) {
+                b.set(i);
+            }
+        }
+        subset = a.and(b);
+    }
+
+    @Benchmark
+    public BitKey and() {
+        return a.and(b);
+    }
+
+    @Benchmark
+    public BitKey or() {
+        return a.or(b);
+    }
+
+    @Benchmark
+    public boolean isSuperSetOf() {
+        return a.isSuperSetOf(subset);
+    }
+
+    @Benchmark
+    public boolean intersects() {
+        return a.intersects(b);
+    }
+
+    @Benchmark
+    public int hashCodeAndEquals() {
+        return a.equals(b) ? 0 : a.hashCode();
+    }
+
+    @Benchmark
+    public void nextSetBit(Blackhole blackhole) {
+        for (int i = a.nextSetBit(0); i >= 0; i = a.nextSetBit(i + 1)) {
+            blackhole.consume(i);
+        }
+    }
+}
+
+// End BitKeyBenchmark.java
@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap;
+
+import mondrian.rolap.agg.CellMap;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link CellKey} generation, and of storing cells in a
+ * {@link CellMap} compared with a {@code HashMap<CellKey, Object>}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellKeyBenchmark {
+    private static final int CELL_COUNT = 100000;
+
+    /** Number of axes; 5 or more uses {@code CellKey.Many}. */
+    @Param({"2", "4", "6"})
+    public int axisCount;
+
+    int[] axisSizes;
+    int[][] positions;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1234);
+        axisSizes = new int[axisCount];
+        for (int i = 0; i < axisCount; i++) {
+            axisSizes[i] = 20 + random.nextInt(100);
+        }
+        positions = new int[CELL_COUNT][axisCount];
+        for (int[] pos : positions) {
+            for (int i = 0; i < axisCount; i++) {
+                pos[i] = random.nextInt(axisSizes[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELL_COUNT)
+    public int newCellKey() {
+        int h = 0;
+        for (int[] pos : positions) {
+            h += CellKey.Generator.newCellKey(pos).hashCode();
+        }
+        return h;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELL_COUNT)
+    public Object hashMapPutGet() {
+        final Map<CellKey, Object> map = new HashMap<CellKey, Object>();
+        for (int i = 0; i < positions.length; i++) {
+            map.put(CellKey.Generator.newCellKey(positions[i]), (double) i);
+        }
+        Object o = null;
+        for (int[] pos : positions) {
+            o = map.get(CellKey.Generator.newCellKey(pos));
+        }
+        return o;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELL_COUNT)
+    public Object cellMapPutGet() {
+        final CellMap map = new CellMap(axisSizes);
+        for (int i = 0; i < positions.length; i++) {
+            map.put(positions[i], (double) i);
+        }
+        Object o = null;
+        for (int[] pos : positions) {
+            o = map.get(pos);
+        }
+        return o;
+    }
+}
+
+// End CellKeyBenchmark.java
@@ -0,0 +1,129 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.BitKey;
+import mondrian.rolap.CellKey;
+import mondrian.rolap.RolapAggregator;
+import mondrian.spi.Dialect;
+import mondrian.spi.SegmentBody;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+import mondrian.util.ArraySortedSet;
+import mondrian.util.ByteString;
+import mondrian.util.Pair;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of segment rollup in {@link SegmentBuilder#rollup}, rolling a
+ * three-column segment up to two columns.
+ *
+ * <p>The dense segment has 50 &times; 40 &times; 20 cells, all populated.
+ * The sparse segment has 200 &times; 100 &times; 50 cells, of which 2% are
+ * populated.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentBuilderBenchmark {
+    private static final String[] COLUMNS = {"col0", "col1", "col2"};
+
+    @Param({"dense", "sparse"})
+    public String shape;
+
+    Map<SegmentHeader, SegmentBody> map;
+    Set<String> keepColumns;
+
+    @Setup
+    public void setup() {
+        final boolean sparse = shape.equals("sparse");
+        final int[] axisSizes =
+            sparse ? new int[] {200, 100, 50} : new int[] {50, 40, 20};
+        final List<Pair<SortedSet<Comparable>, Boolean>> axes =
+            new ArrayList<Pair<SortedSet<Comparable>, Boolean>>();
+        final List<SegmentColumn> columns = new ArrayList<SegmentColumn>();
+        for (int i = 0; i < axisSizes.length; i++) {
+            final Comparable[] values = new Comparable[axisSizes[i]];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = j;
+            }
+            final SortedSet<Comparable> valueSet = new ArraySortedSet(values);
+            axes.add(Pair.of(valueSet, false));
+            columns.add(new SegmentColumn(COLUMNS[i], values.length, null));
+        }
+
+        final SegmentBody body;
+        final Random random = new Random(1234);
+        if (sparse) {
+            final Map<CellKey, Object> cells = new HashMap<CellKey, Object>();
+            final int cellCount =
+                axisSizes[0] * axisSizes[1] * axisSizes[2] / 50;
+            while (cells.size() < cellCount) {
+                cells.put(
+                    CellKey.Generator.newCellKey(
+                        new int[] {
+                            random.nextInt(axisSizes[0]),
+                            random.nextInt(axisSizes[1]),
+                            random.nextInt(axisSizes[2])
+                        }),
+                    random.nextDouble());
+            }
+            body = new SparseSegmentBody(cells, axes);
+        } else {
+            final double[] values =
+                new double[axisSizes[0] * axisSizes[1] * axisSizes[2]];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextDouble();
+            }
+            body = new DenseDoubleSegmentBody(new BitSet(), values, axes);
+        }
+
+        final BitKey bitKey = BitKey.Factory.makeBitKey(COLUMNS.length);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            bitKey.set(i);
+        }
+        final SegmentHeader header =
+            new SegmentHeader(
+                "FoodMart",
+                new ByteString(new byte[] {1, 2}),
+                "Sales",
+                "Unit Sales",
+                columns,
+                Collections.<String>emptyList(),
+                "sales_fact_1997",
+                bitKey,
+                Collections.<SegmentColumn>emptyList());
+        map = Collections.singletonMap(header, body);
+        keepColumns = new HashSet<String>(Arrays.asList("col0", "col1"));
+    }
+
+    @Benchmark
+    public Pair<SegmentHeader, SegmentBody> rollup() {
+        return SegmentBuilder.rollup(
+            map,
+            keepColumns,
+            null,
+            RolapAggregator.Sum,
+            Dialect.Datatype.Numeric);
+    }
+}
+
+// End SegmentBuilderBenchmark.java
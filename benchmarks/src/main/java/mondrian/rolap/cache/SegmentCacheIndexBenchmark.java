@@ -0,0 +1,113 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package mondrian.rolap.cache;
+
+import mondrian.rolap.BitKey;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+import mondrian.util.ArraySortedSet;
+import mondrian.util.ByteString;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link SegmentCacheIndexImpl#locate}, for an index holding
+ * many segments of the same measure and dimensionality that differ in
+ * the values of their constrained columns, such as after a dashboard has
+ * sliced a cube by many states and years.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentCacheIndexBenchmark {
+    private static final ByteString CHECKSUM =
+        new ByteString(new byte[] {1, 2});
+
+    /** Number of segment headers in the index. */
+    @Param({"100", "1000", "10000"})
+    public int headerCount;
+
+    SegmentCacheIndexImpl index;
+    BitKey bitKey;
+    Map<String, Comparable> hit;
+    Map<String, Comparable> miss;
+
+    @Setup
+    public void setup() {
+        index = new SegmentCacheIndexImpl(Thread.currentThread());
+        bitKey = BitKey.Factory.makeBitKey(2);
+        bitKey.set(0);
+        bitKey.set(1);
+        for (int i = 0; i < headerCount; i++) {
+            final SegmentHeader header =
+                new SegmentHeader(
+                    "FoodMart",
+                    CHECKSUM,
+                    "Sales",
+                    "Unit Sales",
+                    Arrays.asList(
+                        new SegmentColumn(
+                            "store_state",
+                            headerCount,
+                            new ArraySortedSet(
+                                new Comparable[] {"S" + i, "S" + (i + 1)})),
+                        new SegmentColumn(
+                            "the_year",
+                            2,
+                            new ArraySortedSet(
+                                new Comparable[] {1997, 1998}))),
+                    Collections.<String>emptyList(),
+                    "sales_fact_1997",
+                    bitKey,
+                    Collections.<SegmentColumn>emptyList());
+            index.add(header, null, false);
+        }
+        hit = new HashMap<String, Comparable>();
+        hit.put("store_state", "S" + headerCount / 2);
+        hit.put("the_year", 1997);
+        miss = new HashMap<String, Comparable>();
+        miss.put("store_state", "none");
+        miss.put("the_year", 1997);
+    }
+
+    @Benchmark
+    public List<SegmentHeader> locateHit() {
+        return locate(hit);
+    }
+
+    @Benchmark
+    public List<SegmentHeader> locateMiss() {
+        return locate(miss);
+    }
+
+    private List<SegmentHeader> locate(Map<String, Comparable> coordinates) {
+        return index.locate(
+            "FoodMart",
+            CHECKSUM,
+            "Sales",
+            "Unit Sales",
+            "sales_fact_1997",
+            bitKey,
+            coordinates,
+            Collections.<String>emptyList());
+    }
+}
+
+// End SegmentCacheIndexBenchmark.java
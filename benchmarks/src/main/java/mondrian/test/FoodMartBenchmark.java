@@ -0,0 +1,113 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package mondrian.test;
+
+import mondrian.olap.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of MDX execution against the FoodMart database, in process.
+ *
+ * <p>The database is given by the {@link MondrianProperties#TestConnectString
+ * mondrian.test.connectString} system property, for example a FoodMart data
+ * set loaded into HSQLDB or H2:</p>
+ *
+ * <blockquote><code>java -Dmondrian.test.connectString="Provider=mondrian;
+ * Jdbc=jdbc:hsqldb:file:foodmart/foodmart;JdbcUser=sa;
+ * Catalog=file:demo/FoodMart.xml" -jar benchmarks.jar FoodMartBenchmark
+ * </code></blockquote>
+ *
+ * <p>The connection is shared by all invocations, so after the first
+ * invocation cells come from the segment cache; the benchmark measures
+ * evaluation in {@link mondrian.rolap.RolapResult}, including
+ * {@link mondrian.olap.fun.CrossJoinFunDef} and
+ * {@link mondrian.olap.fun.sort.Sorter}, rather than SQL.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FoodMartBenchmark {
+    private static final String BASIC_QUERY =
+        "select {[Measures].[Unit Sales], [Measures].[Store Sales]}"
+        + " on columns,\n"
+        + " {[Store].[Store City].Members} on rows\n"
+        + "from [Sales]\n"
+        + "where [Time].[1997]";
+
+    private static final String CROSSJOIN_QUERY =
+        "select {[Measures].[Unit Sales]} on columns,\n"
+        + " non empty CrossJoin(\n"
+        + "  [Customers].[City].Members,\n"
+        + "  CrossJoin([Gender].[Gender].Members,"
+        + " [Product].[Product Family].Members)) on rows\n"
+        + "from [Sales]";
+
+    private static final String ORDER_QUERY =
+        "select {[Measures].[Store Sales]} on columns,\n"
+        + " Order([Product].[Product Name].Members,"
+        + " [Measures].[Store Sales], BDESC) on rows\n"
+        + "from [Sales]";
+
+    Connection connection;
+
+    @Setup
+    public void setup() {
+        final String connectString =
+            MondrianProperties.instance().TestConnectString.get();
+        if (connectString == null || connectString.isEmpty()) {
+            throw new IllegalStateException(
+                "Set " + MondrianProperties.instance().TestConnectString
+                    .getPath()
+                + " to the connect string of a FoodMart database");
+        }
+        connection = DriverManager.getConnection(connectString, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        connection.close();
+    }
+
+    @Benchmark
+    public int basic() {
+        return execute(BASIC_QUERY);
+    }
+
+    @Benchmark
+    public int crossJoin() {
+        return execute(CROSSJOIN_QUERY);
+    }
+
+    @Benchmark
+    public int order() {
+        return execute(ORDER_QUERY);
+    }
+
+    private int execute(String mdx) {
+        final Result result = connection.execute(connection.parseQuery(mdx));
+        try {
+            return result.getAxes()[1].getPositions().size();
+        } finally {
+            result.close();
+        }
+    }
+}
+
+// End FoodMartBenchmark.java
@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.olap;
+
+import mondrian.rolap.RolapConnection;
+import mondrian.test.FoodMartTestCase;
+import mondrian.test.TestContext;
+
+/**
+ * Test case for {@link QueryPlanCache}.
+ */
+public class QueryPlanCacheTest extends FoodMartTestCase {
+    public void testNormalize() {
+        assertEquals(
+            "select {[Measures].[Unit Sales]} on 0 from [Sales]",
+            QueryPlanCache.normalize(
+                "  select {[Measures].[Unit Sales]}\n"
+                + "\ton 0\r\n  from [Sales]\n"));
+        // White space in names and strings is significant.
+        assertEquals(
+            "with member [Measures].[A  B] as ' 1  + 2 ' select",
+            QueryPlanCache.normalize(
+                "with  member [Measures].[A  B]  as ' 1  + 2 '\nselect"));
+    }
+
+    /**
+     * Tests that parsing the same query twice uses the cache, and that the
+     * cached query gives the same result as the original.
+     */
+    public void testCache() {
+        propSaver.set(propSaver.properties.QueryPlanCacheSize, 10);
+        final RolapConnection connection =
+            (RolapConnection) getTestContext().withFreshConnection()
+                .getConnection();
+        final QueryPlanCache cache = connection.getSchema().getQueryPlanCache();
+        cache.clear();
+        final String mdx =
+            "with member [Measures].[Profit Ratio] as\n"
+            + " '[Measures].[Store Sales] / [Measures].[Store Cost]'\n"
+            + "select {[Measures].[Unit Sales], [Measures].[Profit Ratio]}"
+            + " on 0,\n"
+            + " [Gender].Members on 1\n"
+            + "from [Sales]\n"
+            + "where [Time].[1997].[Q1]";
+        final Query query = connection.parseQuery(mdx);
+        assertEquals(1, cache.size());
+        final String expected =
+            TestContext.toString(connection.execute(query));
+
+        final Query query2 =
+            connection.parseQuery(mdx.replace("\n", "\n    "));
+        assertNotSame(query, query2);
+        assertNotSame(query.getAxes()[0], query2.getAxes()[0]);
+        assertEquals(1, cache.size());
+        // The second query is neither validated nor compiled again.
+        assertSame(
+            query.getFormulas()[0].getMdxMember(),
+            query2.getFormulas()[0].getMdxMember());
+        assertSame(query.axisCalcs[0], query2.axisCalcs[0]);
+        assertSame(query.slicerCalc, query2.slicerCalc);
+        assertEquals(expected, TestContext.toString(connection.execute(query2)));
+
+        // Changing the original query does not change the cached one.
+        query.addFormula(
+            new Id(new Id.NameSegment("Measures")).append(
+                new Id.NameSegment("Foo")),
+            Literal.create(1));
+        final Query query3 = connection.parseQuery(mdx);
+        assertEquals(1, query3.getFormulas().length);
+        assertEquals(expected, TestContext.toString(connection.execute(query3)));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that a query that defines parameters is cached, and that each
+     * query built from the cache has its own copy of the parameters.
+     */
+    public void testParameter() {
+        propSaver.set(propSaver.properties.QueryPlanCacheSize, 10);
+        final RolapConnection connection =
+            (RolapConnection) getTestContext().withFreshConnection()
+                .getConnection();
+        final QueryPlanCache cache = connection.getSchema().getQueryPlanCache();
+        cache.clear();
+        final String mdx =
+            "select {[Measures].[Unit Sales]} on 0,\n"
+            + " {Parameter(\"G\", [Gender], [Gender].[F])} on 1\n"
+            + "from [Sales]";
+        final Query query = connection.parseQuery(mdx);
+        assertEquals(1, cache.size());
+        query.setParameter("G", "[Gender].[M]");
+
+        final Query query2 = connection.parseQuery(mdx);
+        assertEquals(1, cache.size());
+        assertEquals(1, query2.getParameters().length);
+        assertNotSame(query.getParameters()[0], query2.getParameters()[0]);
+        assertNotSame(query.axisCalcs[1], query2.axisCalcs[1]);
+        assertFalse(query2.getParameters()[0].isSet());
+
+        assertEquals("M", firstRow(connection.execute(query)));
+        assertEquals("F", firstRow(connection.execute(query2)));
+        query2.setParameter("G", "[Gender].[All Gender]");
+        assertEquals("All Gender", firstRow(connection.execute(query2)));
+        assertEquals("M", firstRow(connection.execute(query)));
+    }
+
+    /**
+     * Tests that a query is not cached if a calculated member that it
+     * defines uses a parameter, because the queries built from the cache
+     * would share the member.
+     */
+    public void testParameterInFormulaNotCached() {
+        propSaver.set(propSaver.properties.QueryPlanCacheSize, 10);
+        final RolapConnection connection =
+            (RolapConnection) getTestContext().withFreshConnection()
+                .getConnection();
+        final QueryPlanCache cache = connection.getSchema().getQueryPlanCache();
+        cache.clear();
+        connection.parseQuery(
+            "with member [Measures].[X] as\n"
+            + " 'Parameter(\"P\", NUMERIC, 1) * [Measures].[Unit Sales]'\n"
+            + "select {[Measures].[X]} on 0 from [Sales]");
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that no query is cached if the cache size is zero.
+     */
+    public void testDisabled() {
+        propSaver.set(propSaver.properties.QueryPlanCacheSize, 0);
+        final RolapConnection connection =
+            (RolapConnection) getTestContext().getConnection();
+        final QueryPlanCache cache = connection.getSchema().getQueryPlanCache();
+        cache.clear();
+        connection.parseQuery("select from [Sales]");
+        assertEquals(0, cache.size());
+    }
+
+    private static String firstRow(Result result) {
+        return result.getAxes()[1].getPositions().get(0).get(0).getName();
+    }
+}
+
+// End QueryPlanCacheTest.java
@@ -20,6 +20,8 @@ import junit.framework.TestCase;
 
 import java.sql.Driver;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -1554,6 +1556,51 @@ public class UtilTestCase extends TestCase {
             // ok
         }
     }
+
+    /**
+     * Unit test for {@link Util#getExecutorService} with
+     * {@link MondrianProperties#VirtualThreads}. If the JVM does not support
+     * virtual threads, the executor uses platform threads; either way, its
+     * threads are daemon threads and are named after the executor.
+     */
+    public void testVirtualThreadExecutor() throws Exception {
+        final MondrianProperties properties = MondrianProperties.instance();
+        final boolean virtualThreads = properties.VirtualThreads.get();
+        properties.VirtualThreads.set(true);
+        final ExecutorService executor;
+        try {
+            executor =
+                Util.getExecutorService(2, 2, 1, "testVirtualThreads", null);
+        } finally {
+            properties.VirtualThreads.set(virtualThreads);
+        }
+        try {
+            final Thread thread =
+                executor.submit(
+                    new Callable<Thread>() {
+                        public Thread call() {
+                            return Thread.currentThread();
+                        }
+                    }).get(10, TimeUnit.SECONDS);
+            assertTrue(thread.isDaemon());
+            assertTrue(
+                thread.getName(),
+                thread.getName().startsWith("testVirtualThreads_"));
+            assertEquals(
+                Util.newVirtualThreadFactory("x") != null,
+                isVirtual(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
 }
 
 // End UtilTestCase.java
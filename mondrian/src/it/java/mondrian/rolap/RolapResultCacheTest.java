@@ -0,0 +1,223 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap;
+
+import mondrian.olap.*;
+import mondrian.test.FoodMartTestCase;
+import mondrian.test.TestContext;
+import mondrian.test.UdfTest;
+
+/**
+ * Test case for {@link RolapResultCache}.
+ */
+public class RolapResultCacheTest extends FoodMartTestCase {
+    private static final String MDX =
+        "with member [Measures].[Profit Ratio] as\n"
+        + " '[Measures].[Store Sales] / [Measures].[Store Cost]',\n"
+        + " format_string = '0.00%'\n"
+        + "select {[Measures].[Unit Sales], [Measures].[Profit Ratio]}"
+        + " on 0,\n"
+        + " [Gender].Members on 1\n"
+        + "from [Sales]\n"
+        + "where [Time].[1997].[Q1]";
+
+    private TestContext testContext;
+    private RolapResultCache cache;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        propSaver.set(propSaver.properties.ResultCacheSize, 10);
+        testContext = getTestContext().withFreshConnection();
+        cache = ((RolapSchema) testContext.getConnection().getSchema())
+            .getResultCache();
+        cache.clear();
+    }
+
+    protected void tearDown() throws Exception {
+        cache.clear();
+        cache = null;
+        testContext = null;
+        super.tearDown();
+    }
+
+    /**
+     * Tests that executing the same query twice returns a cached result with
+     * the same axes and cells.
+     */
+    public void testCacheHit() {
+        final Result result = testContext.executeQuery(MDX);
+        assertTrue(result instanceof RolapResult);
+        assertEquals(1, cache.size());
+        final String expected = TestContext.toString(result);
+
+        final Result result2 =
+            testContext.executeQuery(MDX.replace("\n", "\n  "));
+        assertFalse(result2 instanceof RolapResult);
+        assertEquals(expected, TestContext.toString(result2));
+        final Cell cell = result2.getCell(new int[] {1, 2});
+        assertEquals(
+            result.getCell(new int[] {1, 2}).getFormattedValue(),
+            cell.getFormattedValue());
+        assertEquals("0.00%", cell.getPropertyValue("FORMAT_STRING"));
+        assertEquals(5, cell.getPropertyValue("CELL_ORDINAL"));
+        assertFalse(cell.canDrillThrough());
+        assertEquals(
+            result.getCell(new int[] {1, 2}).getPropertyValue("ACTION_TYPE"),
+            cell.getPropertyValue("ACTION_TYPE"));
+        assertEquals(
+            "[Gender].[M]",
+            cell.getContextMember(
+                result2.getAxes()[1].getPositions().get(2).get(0)
+                    .getHierarchy()).getUniqueName());
+    }
+
+    /**
+     * Tests that cells of a cached result can be drilled through, and give
+     * the same answers as cells of the result that was not cached.
+     */
+    public void testDrillThrough() {
+        final Result result = testContext.executeQuery(MDX);
+        final Result result2 = testContext.executeQuery(MDX);
+        assertFalse(result2 instanceof RolapResult);
+        final int[] pos = {0, 2};
+        final Cell cell = result.getCell(pos);
+        final Cell cell2 = result2.getCell(pos);
+        assertTrue(cell.canDrillThrough());
+        assertTrue(cell2.canDrillThrough());
+        assertEquals(
+            cell.getDrillThroughSQL(false), cell2.getDrillThroughSQL(false));
+        assertEquals(
+            cell.getDrillThroughCount(), cell2.getDrillThroughCount());
+        assertEquals(
+            cell.getPropertyValue("ACTION_TYPE"),
+            cell2.getPropertyValue("ACTION_TYPE"));
+    }
+
+    /**
+     * Tests that results are not cached if caching is disabled.
+     */
+    public void testDisableCaching() {
+        propSaver.set(propSaver.properties.DisableCaching, true);
+        assertTrue(testContext.executeQuery(MDX) instanceof RolapResult);
+        assertEquals(0, cache.size());
+        assertTrue(testContext.executeQuery(MDX) instanceof RolapResult);
+    }
+
+    /**
+     * Tests that a result is not cached if it contains a calculated member
+     * of the schema that calls a volatile function, even if the query does
+     * not name the member; here, it is the default measure.
+     */
+    public void testVolatileDefaultMeasure() {
+        final TestContext nowContext =
+            getTestContext().createSubstitutingCube(
+                "Warehouse and Sales",
+                null,
+                null,
+                "<CalculatedMember name=\"Now Year\"\n"
+                + "    dimension=\"Measures\">\n"
+                + "  <Formula>Year(Now())</Formula>\n"
+                + "</CalculatedMember>\n",
+                null,
+                "Now Year");
+        final RolapResultCache nowCache =
+            ((RolapSchema) nowContext.getConnection().getSchema())
+                .getResultCache();
+        nowCache.clear();
+        nowContext.executeQuery(
+            "select {[Time].[1997]} on 0 from [Warehouse and Sales]");
+        assertEquals(0, nowCache.size());
+
+        nowContext.executeQuery(
+            "select {[Time].[1997]} on 0 from [Warehouse and Sales]\n"
+            + "where [Measures].[Store Sales]");
+        assertEquals(1, nowCache.size());
+        nowCache.clear();
+    }
+
+    /**
+     * Tests that flushing the cells of a cube discards cached results of
+     * queries against that cube.
+     */
+    public void testFlush() {
+        testContext.executeQuery(MDX);
+        assertEquals(1, cache.size());
+        final CacheControl cacheControl = testContext.getCacheControl();
+        final Cube warehouse =
+            testContext.getConnection().getSchema().lookupCube(
+                "Warehouse", true);
+        cacheControl.flush(cacheControl.createMeasuresRegion(warehouse));
+        assertEquals(1, cache.size());
+
+        final Cube sales =
+            testContext.getConnection().getSchema().lookupCube("Sales", true);
+        cacheControl.flush(cacheControl.createMeasuresRegion(sales));
+        assertEquals(0, cache.size());
+        assertTrue(testContext.executeQuery(MDX) instanceof RolapResult);
+    }
+
+    /**
+     * Tests that results with more cells than the limit are not cached.
+     */
+    public void testMaxCells() {
+        propSaver.set(propSaver.properties.ResultCacheMaxCells, 5);
+        testContext.executeQuery(MDX);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that results of queries that call functions whose value may change,
+     * in a formula, on an axis or in the slicer, are not cached.
+     */
+    public void testNow() {
+        testContext.executeQuery(
+            "with member [Measures].[Now] as 'Now()'\n"
+            + "select {[Measures].[Now]} on 0 from [Sales]");
+        testContext.executeQuery(
+            "select AddCalculatedMembers({[Measures].[Unit Sales]}) on 0\n"
+            + "from [Sales]");
+        testContext.executeQuery(
+            "select {[Measures].[Unit Sales]} on 0\n"
+            + "from [Sales]\n"
+            + "where StrToMember(\"[Time].[1997].[Q1]\")");
+        assertEquals(0, cache.size());
+
+        testContext.executeQuery(MDX);
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Tests that results of queries that call user-defined functions are not
+     * cached.
+     */
+    public void testUserDefinedFunction() {
+        final TestContext udfTestContext =
+            TestContext.instance().create(
+                null, null, null, null,
+                "<UserDefinedFunction name=\"PlusOne\" className=\""
+                + UdfTest.PlusOneUdf.class.getName()
+                + "\"/>\n",
+                null);
+        final RolapResultCache udfCache =
+            ((RolapSchema) udfTestContext.getConnection().getSchema())
+                .getResultCache();
+        udfCache.clear();
+        udfTestContext.executeQuery(
+            "with member [Measures].[Plus One] as\n"
+            + " 'PlusOne([Measures].[Unit Sales])'\n"
+            + "select {[Measures].[Plus One]} on 0 from [Sales]");
+        assertEquals(0, udfCache.size());
+    }
+}
+
+// End RolapResultCacheTest.java
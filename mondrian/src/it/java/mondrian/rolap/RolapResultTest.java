@@ -322,6 +322,81 @@ Axis #2:
             + "Row #2: \n"
             + "Row #2: \n");
     }
+
+    /**
+     * Tests that a query whose cells are evaluated by several tasks returns
+     * the same result as when they are evaluated by one thread. The query has
+     * a calculated member, a named set and a parameter, which the tasks
+     * evaluate concurrently.
+     */
+    public void testParallelCellEvaluation() {
+        final String mdx =
+            "with member [Measures].[Profit Share] as\n"
+            + " '[Measures].[Store Sales] / ([Measures].[Store Sales],"
+            + " [Product].[All Products])', format_string = '0.00%'\n"
+            + "set [Top Cities] as"
+            + " 'TopCount([Store].[Store City].Members, 8,"
+            + " [Measures].[Unit Sales])'\n"
+            + "member [Measures].[Scaled] as"
+            + " '[Measures].[Unit Sales] * Parameter(\"Scale\", NUMERIC, 2)'\n"
+            + "select {[Measures].[Unit Sales], [Measures].[Profit Share],"
+            + " [Measures].[Scaled]} * [Time].[1997].Children on columns,\n"
+            + " Crossjoin([Top Cities], [Product].[Product Family].Members)"
+            + " on rows\n"
+            + "from [Sales]";
+        final String expected =
+            TestContext.toString(getTestContext().executeQuery(mdx));
+        for (int parallelism : new int[] {2, 4, 100}) {
+            propSaver.set(
+                propSaver.properties.CellEvaluationParallelism, parallelism);
+            assertEquals(
+                expected,
+                TestContext.toString(getTestContext().executeQuery(mdx)));
+        }
+    }
+
+    /**
+     * Tests that the container of cells of a parallel task finds its cells
+     * by position, and keeps one cell per position.
+     */
+    public void testCellInfoListLookup() {
+        final RolapResult.CellInfoList list = new RolapResult.CellInfoList();
+        final RolapResult.CellInfo ci = list.create(new int[] {1, 2});
+        list.create(new int[] {2, 1});
+        assertSame(ci, list.lookup(new int[] {1, 2}));
+        assertNull(list.lookup(new int[] {1, 1}));
+        assertSame(ci, list.create(new int[] {1, 2}));
+        assertEquals(2, list.size());
+        list.clear();
+        assertNull(list.lookup(new int[] {1, 2}));
+    }
+
+    /**
+     * Tests that a query whose axes are evaluated in parallel returns the
+     * same result as when they are evaluated one after another. Each axis
+     * is a non-empty crossjoin, which is evaluated natively if native
+     * evaluation is enabled.
+     */
+    public void testParallelAxisEvaluation() {
+        final String mdx =
+            "select non empty Crossjoin([Gender].[Gender].Members,"
+            + " [Time].[1997].Children) on columns,\n"
+            + " non empty Crossjoin([Store].[Store State].Members,"
+            + " Filter([Product].[Product Department].Members,"
+            + " [Measures].[Unit Sales] > 10000)) on rows\n"
+            + "from [Sales]\n"
+            + "where [Marital Status].[S]";
+        final String expected =
+            TestContext.toString(getTestContext().executeQuery(mdx));
+        propSaver.set(propSaver.properties.ParallelAxisEvaluation, true);
+        assertEquals(
+            expected,
+            TestContext.toString(getTestContext().executeQuery(mdx)));
+        propSaver.set(propSaver.properties.CellEvaluationParallelism, 3);
+        assertEquals(
+            expected,
+            TestContext.toString(getTestContext().executeQuery(mdx)));
+    }
 }
 
 // End RolapResultTest.java
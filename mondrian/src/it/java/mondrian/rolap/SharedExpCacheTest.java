@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap;
+
+import mondrian.calc.TupleCollections;
+import mondrian.calc.TupleList;
+import mondrian.olap.*;
+import mondrian.test.FoodMartTestCase;
+import mondrian.test.TestContext;
+
+import java.util.*;
+
+/**
+ * Test case for {@link SharedExpCache}.
+ */
+public class SharedExpCacheTest extends FoodMartTestCase {
+    private static final String MDX =
+        "with set [Top Products] as\n"
+        + " 'TopCount([Product].[Product Name].Members, 5,"
+        + " [Measures].[Unit Sales])'\n"
+        + "select {[Measures].[Unit Sales]} on 0,\n"
+        + " [Top Products] on 1\n"
+        + "from [Sales]\n"
+        + "where [Time].[1997].[Q1]";
+
+    private TestContext testContext;
+    private SharedExpCache cache;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        propSaver.set(propSaver.properties.SharedExpCacheSize, 100);
+        testContext = getTestContext().withFreshConnection();
+        cache = ((RolapSchema) testContext.getConnection().getSchema())
+            .getSharedExpCache();
+        cache.clear();
+    }
+
+    protected void tearDown() throws Exception {
+        cache.clear();
+        cache = null;
+        testContext = null;
+        super.tearDown();
+    }
+
+    /**
+     * Tests that a named set evaluated by one statement is used by another,
+     * and gives the same result.
+     */
+    public void testNamedSetShared() {
+        final Result result = testContext.executeQuery(MDX);
+        final String expected = TestContext.toString(result);
+        final int size = cache.size();
+        assertTrue(size > 0);
+
+        // A query that gives the same set a different name uses the cached
+        // value.
+        final String mdx2 = MDX.replace("[Top Products]", "[Best Sellers]");
+        final Result result2 = testContext.executeQuery(mdx2);
+        assertEquals(expected, TestContext.toString(result2));
+        assertEquals(size, cache.size());
+    }
+
+    /**
+     * Tests that an expression that references a calculated member of the
+     * query is not shared.
+     */
+    public void testQueryMemberNotShared() {
+        testContext.executeQuery(
+            "with member [Measures].[Double Sales] as\n"
+            + " '[Measures].[Unit Sales] * 2'\n"
+            + " set [Top Products] as\n"
+            + " 'TopCount([Product].[Product Name].Members, 5,"
+            + " [Measures].[Double Sales])'\n"
+            + "select {[Measures].[Unit Sales]} on 0,\n"
+            + " [Top Products] on 1\n"
+            + "from [Sales]");
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that flushing the cells of a cube discards shared values read
+     * from that cube.
+     */
+    public void testFlush() {
+        testContext.executeQuery(MDX);
+        assertTrue(cache.size() > 0);
+        final CacheControl cacheControl = testContext.getCacheControl();
+        final Cube warehouse =
+            testContext.getConnection().getSchema().lookupCube(
+                "Warehouse", true);
+        cacheControl.flush(cacheControl.createMeasuresRegion(warehouse));
+        assertTrue(cache.size() > 0);
+
+        final Cube sales =
+            testContext.getConnection().getSchema().lookupCube("Sales", true);
+        cacheControl.flush(cacheControl.createMeasuresRegion(sales));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that values are not shared if the cache is disabled.
+     */
+    public void testDisabled() {
+        propSaver.set(propSaver.properties.SharedExpCacheSize, 0);
+        testContext.executeQuery(MDX);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that values are not shared if caching is disabled.
+     */
+    public void testDisableCaching() {
+        propSaver.set(propSaver.properties.DisableCaching, true);
+        testContext.executeQuery(MDX);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that an expression that references a calculated member of the
+     * schema whose expression calls a volatile function is not shared.
+     */
+    public void testSchemaMemberVolatile() {
+        final TestContext nowContext =
+            getTestContext().createSubstitutingCube(
+                "Sales",
+                null,
+                "<CalculatedMember name=\"Now Year\"\n"
+                + "    dimension=\"Measures\">\n"
+                + "  <Formula>Year(Now())</Formula>\n"
+                + "</CalculatedMember>\n");
+        final SharedExpCache nowCache =
+            ((RolapSchema) nowContext.getConnection().getSchema())
+                .getSharedExpCache();
+        nowCache.clear();
+        nowContext.executeQuery(
+            "with set [Recent Products] as\n"
+            + " 'Filter([Product].[Product Family].Members,"
+            + " [Measures].[Now Year] > 1997)'\n"
+            + "select {[Measures].[Unit Sales]} on 0,\n"
+            + " [Recent Products] on 1\n"
+            + "from [Sales]");
+        assertEquals(0, nowCache.size());
+    }
+
+    /**
+     * Tests that a list read from the cache cannot be modified.
+     */
+    public void testListUnmodifiable() {
+        final RolapCube cube =
+            (RolapCube) testContext.getConnection().getSchema().lookupCube(
+                "Sales", true);
+        final List<Object> key = Arrays.<Object>asList("key");
+        final TupleList list = TupleCollections.createList(1);
+        list.add(
+            Collections.<Member>singletonList(
+                cube.getMeasuresHierarchy().getDefaultMember()));
+        cache.put(key, list, cube, cache.getGeneration());
+        final TupleList cached = (TupleList) cache.get(key);
+        assertEquals(1, cached.size());
+        try {
+            cached.clear();
+            fail("expected error");
+        } catch (UnsupportedOperationException e) {
+            // ok
+        }
+        assertEquals(1, ((TupleList) cache.get(key)).size());
+    }
+}
+
+// End SharedExpCacheTest.java
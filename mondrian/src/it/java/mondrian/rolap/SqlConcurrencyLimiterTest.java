@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap;
+
+import mondrian.server.Execution;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Test case for {@link SqlConcurrencyLimiter}.
+ */
+public class SqlConcurrencyLimiterTest extends TestCase {
+    /**
+     * Tests that a statement waits while the limit is reached, and goes
+     * ahead when another statement returns its permit.
+     */
+    public void testWaitForPermit() throws Exception {
+        final SqlConcurrencyLimiter limiter =
+            new SqlConcurrencyLimiter(2, false, 2d);
+        assertEquals(0, limiter.acquire(Execution.NONE));
+        assertEquals(0, limiter.acquire(Execution.NONE));
+        assertEquals(2, limiter.getInFlight());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Long> future =
+                executor.submit(
+                    new Callable<Long>() {
+                        public Long call() throws Exception {
+                            return limiter.acquire(Execution.NONE);
+                        }
+                    });
+            while (limiter.getQueued() == 0) {
+                Thread.sleep(10);
+            }
+            assertFalse(future.isDone());
+            Thread.sleep(20);
+            limiter.release(1000);
+            assertTrue(future.get(10, TimeUnit.SECONDS) > 0);
+            assertEquals(2, limiter.getInFlight());
+            assertEquals(0, limiter.getQueued());
+        } finally {
+            executor.shutdown();
+        }
+
+        // Without adaptation, latency does not change the limit.
+        for (int i = 0; i < 100; i++) {
+            limiter.release(1000L * i * i);
+            limiter.acquire(Execution.NONE);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    /**
+     * Tests that waiting statements are given permits in the order that they
+     * arrived.
+     */
+    public void testFifo() throws Exception {
+        final SqlConcurrencyLimiter limiter =
+            new SqlConcurrencyLimiter(1, false, 2d);
+        limiter.acquire(Execution.NONE);
+        final int count = 5;
+        final List<Integer> order =
+            Collections.synchronizedList(new ArrayList<Integer>());
+        final ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < count; i++) {
+                final int id = i;
+                futures.add(
+                    executor.submit(
+                        new Callable<Void>() {
+                            public Void call() throws Exception {
+                                limiter.acquire(Execution.NONE);
+                                order.add(id);
+                                limiter.release(-1);
+                                return null;
+                            }
+                        }));
+                // Wait until this statement is queued before starting the
+                // next one.
+                while (limiter.getQueued() < i + 1) {
+                    Thread.sleep(5);
+                }
+            }
+            limiter.release(-1);
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+            assertEquals(0, limiter.getInFlight());
+            assertEquals(0, limiter.getQueued());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that an adaptive limit falls when latency rises, and grows back
+     * to its maximum when latency returns to normal.
+     */
+    public void testAdaptiveLimit() throws Exception {
+        final SqlConcurrencyLimiter limiter =
+            new SqlConcurrencyLimiter(20, true, 2d);
+        run(limiter, 200, 1000000L);
+        assertEquals(20, limiter.getLimit());
+
+        // Latency rises tenfold; the limit falls.
+        run(limiter, 100, 10000000L);
+        final int reduced = limiter.getLimit();
+        assertTrue(reduced < 10);
+        assertTrue(reduced >= 1);
+
+        // Latency stays at the new level, so it becomes normal, and the
+        // limit grows again while the permits are used.
+        for (int i = 0; i < 50; i++) {
+            run(limiter, 100, 10000000L);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    /**
+     * Runs rounds of statements, each round taking all permits, and then
+     * returning them with a given latency.
+     */
+    private void run(
+        SqlConcurrencyLimiter limiter,
+        int statementCount,
+        long latencyNanos)
+        throws InterruptedException
+    {
+        for (int i = 0; i < statementCount;) {
+            final int concurrency = limiter.getLimit();
+            i += concurrency;
+            for (int j = 0; j < concurrency; j++) {
+                limiter.acquire(Execution.NONE);
+            }
+            for (int j = 0; j < concurrency; j++) {
+                limiter.release(latencyNanos);
+            }
+        }
+        assertEquals(0, limiter.getInFlight());
+    }
+}
+
+// End SqlConcurrencyLimiterTest.java
@@ -12,9 +12,11 @@
 
 package mondrian.rolap;
 
+import mondrian.olap.MondrianProperties;
 import mondrian.olap.MondrianServer;
 import mondrian.olap.QueryCanceledException;
 import mondrian.resource.MondrianResource;
+import mondrian.rolap.sql.SqlQuery;
 import mondrian.server.Execution;
 import mondrian.server.Locus;
 import mondrian.server.StatementImpl;
@@ -22,6 +24,10 @@ import mondrian.server.monitor.Monitor;
 
 import junit.framework.TestCase;
 import mondrian.spi.Dialect;
+import mondrian.spi.impl.JdbcDialectImpl;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
 
 import static org.mockito.Mockito.*;
 
@@ -76,6 +82,31 @@ public class SqlStatementTest extends TestCase {
     verify(statement).formatTimingStatus(eq(0L), anyInt());
   }
 
+  public void testErrorShowsBoundValues() throws Exception {
+    final MondrianProperties properties = MondrianProperties.instance();
+    final boolean bind = properties.SqlBindParameters.get();
+    properties.SqlBindParameters.set(true);
+    final String sql;
+    try {
+      final SqlQuery sqlQuery = new SqlQuery(new JdbcDialectImpl());
+      sqlQuery.setBindParameters(true);
+      final StringBuilder buf = new StringBuilder("select 1 where x = ");
+      sqlQuery.quote(buf, 1997, Dialect.Datatype.Integer);
+      sql = buf.toString();
+    } finally {
+      properties.SqlBindParameters.set(bind);
+    }
+    statement = new SqlStatement(null, sql, null, 0, 0, locus, 0, 0, null);
+    try {
+      statement.execute();
+      fail("expected error");
+    } catch (RuntimeException e) {
+      assertTrue(
+        e.getMessage(),
+        e.getMessage().contains("sql=[select 1 where x = ?] values=[1997]"));
+    }
+  }
+
   public void testGetDialectSchemaAndConnectionNull() {
     try {
       this.statement.getDialect(null);
@@ -114,5 +145,49 @@ public class SqlStatementTest extends TestCase {
     assertNotNull(dialectReturn);
     assertEquals(dialect, dialectReturn);
   }
+
+  public void testAccessors() throws Exception {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getInt(1)).thenReturn(7, 0);
+    when(resultSet.getDouble(2)).thenReturn(2.5d);
+    when(resultSet.getBigDecimal(3))
+      .thenReturn(new BigDecimal("1.25"), (BigDecimal) null);
+    when(resultSet.getObject(4)).thenReturn(3L);
+    when(resultSet.wasNull()).thenReturn(true);
+
+    SqlStatement.Accessor intAccessor =
+      SqlStatement.Type.INT.createAccessor(resultSet, 0);
+    assertEquals(7, intAccessor.getInt());
+    assertNull(intAccessor.get());
+
+    SqlStatement.Accessor doubleAccessor =
+      SqlStatement.Type.DOUBLE.createAccessor(resultSet, 1);
+    assertEquals(2.5d, doubleAccessor.getDouble());
+
+    SqlStatement.Accessor decimalAccessor =
+      SqlStatement.Type.DECIMAL.createAccessor(resultSet, 2);
+    assertEquals(1.25d, decimalAccessor.getDouble());
+    assertEquals(0d, decimalAccessor.getDouble());
+    assertTrue(decimalAccessor.wasNull());
+
+    SqlStatement.Accessor objectAccessor =
+      SqlStatement.Type.OBJECT.createAccessor(resultSet, 3);
+    assertEquals(3L, objectAccessor.getLong());
+  }
+
+  public void testWrappedResultSetClosesStatement() throws Exception {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.next()).thenReturn(true);
+    when(resultSet.getString(1)).thenReturn("x");
+    doReturn(resultSet).when(statement).getResultSet();
+    doNothing().when(statement).close();
+
+    ResultSet wrapped = statement.getWrappedResultSet();
+    assertTrue(wrapped.next());
+    assertEquals("x", wrapped.getString(1));
+    wrapped.close();
+    verify(statement).close();
+    verify(resultSet, never()).close();
+  }
 }
 // End SqlStatementTest.java
@@ -0,0 +1,195 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.CellKey;
+import mondrian.util.Pair;
+
+import junit.framework.TestCase;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * Test case for {@link CellMap}.
+ */
+public class CellMapTest extends TestCase {
+    /**
+     * The throughput test runs more iterations, and prints its results, only
+     * if logging is enabled at debug level.
+     */
+    private static final Logger LOGGER =
+        LogManager.getLogger(CellMapTest.class);
+
+    public void testPutGet() {
+        final CellMap map = new CellMap(new int[] {3, 4});
+        assertEquals(0, map.size());
+        assertNull(map.get(new int[] {1, 2}));
+        assertFalse(map.containsKey(new int[] {1, 2}));
+
+        map.put(new int[] {1, 2}, 1.5d);
+        map.put(CellKey.Generator.newCellKey(new int[] {2, 3}), 7d);
+        map.put(new int[] {0, 0}, null);
+        assertEquals(3, map.size());
+        assertEquals(1.5d, map.get(new int[] {1, 2}));
+        assertEquals(
+            7d, map.get(CellKey.Generator.newCellKey(new int[] {2, 3})));
+        assertTrue(map.containsKey(new int[] {0, 0}));
+        assertNull(map.get(new int[] {0, 0}));
+
+        // Replace a value; switches to object storage.
+        map.put(new int[] {1, 2}, "x");
+        assertEquals(3, map.size());
+        assertEquals("x", map.get(new int[] {1, 2}));
+        assertEquals(7d, map.get(new int[] {2, 3}));
+
+        // Coordinates out of range, or with the wrong number of axes, are
+        // not found.
+        assertNull(map.get(new int[] {0, 4}));
+        assertNull(map.get(new int[] {1}));
+        assertFalse(
+            map.containsKey(CellKey.Generator.newCellKey(new int[] {3, 0})));
+        try {
+            map.put(new int[] {0, 4}, 1d);
+            fail("expected error");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    /**
+     * Checks the map against a {@link HashMap}, for random keys and values,
+     * with small and with overflowing axes.
+     */
+    public void testRandom() {
+        checkRandom(new int[] {10, 20, 30}, 2000);
+        checkRandom(new int[] {1, 5000}, 3000);
+        checkRandom(
+            new int[] {
+                Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 1000
+            },
+            1000);
+    }
+
+    private void checkRandom(int[] axisSizes, int count) {
+        final Random random = new Random(1234);
+        final CellMap map = new CellMap(axisSizes);
+        final Map<CellKey, Object> expected = new HashMap<CellKey, Object>();
+        for (int i = 0; i < count; i++) {
+            final int[] pos = new int[axisSizes.length];
+            for (int j = 0; j < pos.length; j++) {
+                pos[j] = random.nextInt(Math.min(axisSizes[j], 100));
+            }
+            final Object value =
+                i == count / 2 ? (Object) "x" : (Object) random.nextDouble();
+            map.put(pos, value);
+            expected.put(CellKey.Generator.newCellKey(pos), value);
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<CellKey, Object> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+            assertEquals(
+                entry.getValue(), map.get(entry.getKey().getOrdinals()));
+        }
+
+        final Map<CellKey, Object> actual = new HashMap<CellKey, Object>();
+        for (Map.Entry<CellKey, Object> entry : map) {
+            assertNull(actual.put(entry.getKey(), entry.getValue()));
+        }
+        assertEquals(expected, actual);
+
+        final int[] pos = new int[axisSizes.length];
+        int n = 0;
+        for (CellMap.Cursor cursor = map.cursor(); cursor.next();) {
+            cursor.getOrdinals(pos);
+            assertEquals(
+                expected.get(CellKey.Generator.newCellKey(pos)),
+                cursor.getValue());
+            ++n;
+        }
+        assertEquals(expected.size(), n);
+    }
+
+    public void testSparseSegmentBody() {
+        final CellMap map = new CellMap(new int[] {3, 2});
+        map.put(new int[] {0, 1}, 1d);
+        map.put(new int[] {2, 0}, 2d);
+        final SparseSegmentBody body =
+            new SparseSegmentBody(
+                map,
+                Collections.<Pair<SortedSet<Comparable>, Boolean>>emptyList());
+        final Map<CellKey, Object> expected = new HashMap<CellKey, Object>();
+        for (Map.Entry<CellKey, Object> entry : map) {
+            expected.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(expected, body.getValueMap());
+    }
+
+    /**
+     * Compares the time taken to fill and read a map of 500,000 cells with
+     * that of a {@code HashMap<CellKey, Object>}.
+     */
+    public void testThroughput() {
+        final int[] axisSizes = {100, 100, 100};
+        final int n = 500000;
+        final int iterations = LOGGER.isDebugEnabled() ? 20 : 1;
+        final Random random = new Random(1234);
+        final int[][] positions = new int[n][];
+        for (int i = 0; i < n; i++) {
+            positions[i] = new int[] {
+                random.nextInt(100), random.nextInt(100), random.nextInt(100)
+            };
+        }
+
+        long start = System.nanoTime();
+        double sum = 0;
+        for (int k = 0; k < iterations; k++) {
+            final CellMap map = new CellMap(axisSizes);
+            for (int i = 0; i < n; i++) {
+                map.put(positions[i], (double) i);
+            }
+            for (int i = 0; i < n; i++) {
+                sum += (Double) map.get(positions[i]);
+            }
+        }
+        final long cellMapNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        double sum2 = 0;
+        for (int k = 0; k < iterations; k++) {
+            final Map<CellKey, Object> map = new HashMap<CellKey, Object>();
+            for (int i = 0; i < n; i++) {
+                map.put(
+                    CellKey.Generator.newCellKey(positions[i]), (double) i);
+            }
+            for (int i = 0; i < n; i++) {
+                sum2 +=
+                    (Double) map.get(
+                        CellKey.Generator.newCellKey(positions[i]));
+            }
+        }
+        final long hashMapNanos = System.nanoTime() - start;
+
+        assertEquals(sum2, sum);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(
+                "CellMapTest.testThroughput: CellMap "
+                + cellMapNanos / iterations / 1000 + " us; "
+                + "HashMap " + hashMapNanos / iterations / 1000 + " us");
+        }
+    }
+}
+
+// End CellMapTest.java
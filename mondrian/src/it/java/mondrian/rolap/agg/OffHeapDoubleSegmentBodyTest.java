@@ -0,0 +1,111 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.util.Pair;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Test case for {@link OffHeapDoubleSegmentBody}.
+ */
+public class OffHeapDoubleSegmentBodyTest extends
+  DenseSegmentBodyTestBase<OffHeapDoubleSegmentBody, Double>
+{
+
+  public void testGetValueArray() {
+    OffHeapDoubleSegmentBody body = withOutAxes(1d, 0d, 2.5d);
+    assertTrue(
+        Arrays.equals(
+            new double[] {1d, 0d, 2.5d}, (double[]) body.getValueArray()));
+    assertEquals(24 + 8, body.getOffHeapBytes());
+  }
+
+  public void testGetNullValueIndicators() {
+    // More than 64 cells, so that null indicators span two words.
+    Double[] values = new Double[70];
+    Arrays.fill(values, 1d);
+    values[3] = 0d;
+    values[69] = 0d;
+    OffHeapDoubleSegmentBody body = withOutAxes(values);
+    BitSet expected = new BitSet();
+    expected.set(3);
+    expected.set(69);
+    assertEquals(expected, body.getNullValueIndicators());
+    assertEquals(68, body.getEffectiveSize());
+  }
+
+  public void testSerialize() throws Exception {
+    OffHeapDoubleSegmentBody body = withOutAxes(1d, 0d, 2.5d);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(body);
+    out.close();
+    Object o =
+        new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    assertTrue(o instanceof DenseDoubleSegmentBody);
+    DenseDoubleSegmentBody heapBody = (DenseDoubleSegmentBody) o;
+    assertEquals(1d, heapBody.getObject(0));
+    assertNull(heapBody.getObject(1));
+    assertEquals(2.5d, heapBody.getObject(2));
+  }
+
+  public void testDatasetCreatesBody() {
+    OffHeapDoubleSegmentDataset dataset =
+        new OffHeapDoubleSegmentDataset(new SegmentAxis[0], 100);
+    assertEquals(100, dataset.getSize());
+    assertNull(dataset.getObject(99));
+    OffHeapSegmentBody body =
+        (OffHeapSegmentBody) dataset.createSegmentBody(
+            Collections.<Pair<SortedSet<Comparable>, Boolean>>emptyList());
+    assertEquals(100, body.getSize());
+    assertEquals(0, body.getEffectiveSize());
+  }
+
+  @Override
+  Double createNullValue() {
+    return 0d;
+  }
+
+  @Override
+  Double createNonNullValue() {
+    return 1d;
+  }
+
+  @Override
+  boolean isNull(Double value) {
+    return (value == null) || (value == 0);
+  }
+
+  @Override
+  OffHeapDoubleSegmentBody createSegmentBody(
+      BitSet nullValues,
+      Object array,
+      List<Pair<SortedSet<Comparable>, Boolean>> axes)
+  {
+    Object[] doubles = (Object[]) array;
+    double[] values = new double[doubles.length];
+    for (int i = 0; i < doubles.length; i++) {
+      values[i] = (Double)doubles[i];
+    }
+    return OffHeapDoubleSegmentBody.copyOf(nullValues, values, axes);
+  }
+}
+
+// End OffHeapDoubleSegmentBodyTest.java
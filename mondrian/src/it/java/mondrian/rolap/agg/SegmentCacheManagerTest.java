@@ -15,14 +15,31 @@ package mondrian.rolap.agg;
 
 import junit.framework.TestCase;
 import mondrian.olap.MondrianException;
+import mondrian.olap.MondrianProperties;
 import mondrian.olap.MondrianServer;
+import mondrian.rolap.BitKey;
+import mondrian.rolap.RolapStar;
 import mondrian.server.Execution;
 import mondrian.server.Locus;
+import mondrian.server.monitor.SegmentCacheShardInfo;
+import mondrian.spi.SegmentBody;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+import mondrian.test.PropertySaver;
+import mondrian.util.ArraySortedSet;
+import mondrian.util.ByteString;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
@@ -30,6 +47,12 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 public class SegmentCacheManagerTest extends TestCase {
 
   @Mock private MondrianServer mondrianServer;
@@ -89,6 +112,139 @@ public class SegmentCacheManagerTest extends TestCase {
     assertTrue( results.get( 19 ) instanceof MondrianException );
   }
 
+  public void testShards() {
+    final MondrianProperties properties = MondrianProperties.instance();
+    final int shardCount = properties.SegmentCacheManagerNumberShards.get();
+    properties.SegmentCacheManagerNumberShards.set( 3 );
+    try {
+      SegmentCacheManager man = new SegmentCacheManager( mondrianServer );
+      assertEquals( 3, man.getShardCount() );
+      assertEquals( 3, man.getThreads().size() );
+      assertEquals( Arrays.asList( 0, 0, 0 ), man.getQueueDepths() );
+      final List<SegmentCacheShardInfo> infos = man.getShardInfos();
+      assertEquals( 3, infos.size() );
+      for ( int i = 0; i < infos.size(); i++ ) {
+        assertEquals( i, infos.get( i ).shard );
+        assertEquals( 0, infos.get( i ).queueDepth );
+      }
+
+      // Stars are routed by the alias of their fact table; a star always goes to the same shard, and different stars
+      // are spread over the shards.
+      final Set<Integer> shards = new HashSet<>();
+      for ( String alias
+        : Arrays.asList( "sales_fact_1997", "inventory_fact_1997", "salary", "expense_fact", "store", "warehouse" ) ) {
+        final int shard = man.getShard( alias );
+        assertTrue( shard >= 0 && shard < 3 );
+        assertEquals( shard, man.getShard( alias ) );
+        assertEquals( Math.floorMod( alias.hashCode(), 3 ), shard );
+        shards.add( shard );
+      }
+      assertTrue( shards.size() > 1 );
+      final RolapStar star = mock( RolapStar.class );
+      final RolapStar.Table table = mock( RolapStar.Table.class );
+      when( star.getFactTable() ).thenReturn( table );
+      when( table.getAlias() ).thenReturn( "salary" );
+      assertEquals( man.getShard( "salary" ), man.getShard( star ) );
+
+      // Each shard runs its commands on its own thread.
+      final List<Thread> threads =
+        man.executeOnAllShards(
+          new SegmentCacheManager.Command<Thread>() {
+            public Thread call() {
+              return Thread.currentThread();
+            }
+
+            public Locus getLocus() {
+              return locus;
+            }
+          } );
+      assertEquals( man.getThreads(), threads );
+      assertSame( man.getThreads().get( 0 ), man.thread );
+      assertEquals( "done", man.execute( 2, new MockCommand( () -> { } ) ) );
+      man.shutdown();
+    } finally {
+      properties.SegmentCacheManagerNumberShards.set( shardCount );
+    }
+  }
+
+  /**
+   * Tests that a segment evicted from the local cache stays in the index and is read from the disk cache, rather than
+   * being loaded again from the database.
+   */
+  public void testEvictedSegmentReadFromDisk() throws Exception {
+    final File directory = File.createTempFile( "segments", "" );
+    assertTrue( directory.delete() );
+    assertTrue( directory.mkdir() );
+    final PropertySaver propSaver = new PropertySaver();
+    SegmentCacheManager man = null;
+    try {
+      propSaver.set( propSaver.properties.LocalSegmentCacheMaxMemory, 1 );
+      propSaver.set( propSaver.properties.DiskSegmentCacheDirectory, directory.getPath() );
+      man = new SegmentCacheManager( mondrianServer );
+      final SegmentCacheWorker memoryWorker = man.segmentCacheWorkers.get( 0 );
+      final SegmentCacheWorker diskWorker = man.segmentCacheWorkers.get( 1 );
+      clearInvocations( mondrianServer );
+
+      // Each body takes most of the 1 MB budget, so the second evicts the first from memory.
+      final SegmentHeader h1 = header( "m1" );
+      final SegmentHeader h2 = header( "m2" );
+      assertTrue( man.compositeCache.put( h1, body( 100000 ) ) );
+      assertTrue( man.compositeCache.put( h2, body( 100000 ) ) );
+      assertFalse( memoryWorker.contains( h1 ) );
+      assertTrue( diskWorker.contains( h1 ) );
+      assertTrue( man.isHeldByOtherCache( memoryWorker.cache, h1 ) );
+      assertFalse( man.isHeldByOtherCache( memoryWorker.cache, header( "m3" ) ) );
+
+      // The eviction did not reach the index.
+      verify( mondrianServer, never() ).getMonitor();
+
+      // The segment is read from disk, and promoted back to memory.
+      final SegmentBody body = man.compositeCache.get( h1 );
+      assertNotNull( body );
+      assertEquals( 100000, ( (double[]) body.getValueArray() ).length );
+      assertTrue( memoryWorker.contains( h1 ) );
+      verify( mondrianServer, never() ).getMonitor();
+    } finally {
+      if ( man != null ) {
+        man.shutdown();
+      }
+      propSaver.reset();
+      final File[] files = directory.listFiles();
+      if ( files != null ) {
+        for ( File file : files ) {
+          file.delete();
+        }
+      }
+      directory.delete();
+    }
+  }
+
+  private static SegmentHeader header( String measureName ) {
+    final Comparable[] values = { "CA", "OR", "WA" };
+    //noinspection unchecked
+    return new SegmentHeader(
+      "dummySchemaName",
+      new ByteString( new byte[] { 1, 2 } ),
+      "dummyCubeName",
+      measureName,
+      Collections.singletonList(
+        new SegmentColumn( "store_state", 10, new ArraySortedSet( values ) ) ),
+      Collections.<String>emptyList(),
+      "dummyFactTable",
+      BitKey.Factory.makeBitKey( 3 ),
+      Collections.<SegmentColumn>emptyList() );
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private static SegmentBody body( int cellCount ) {
+    final SegmentBody body = mock( SegmentBody.class );
+    when( body.getValueArray() ).thenReturn( new double[ cellCount ] );
+    when( body.getNullValueIndicators() ).thenReturn( new BitSet() );
+    when( body.getAxisValueSets() ).thenReturn( new SortedSet[ 0 ] );
+    when( body.getNullAxisFlags() ).thenReturn( new boolean[ 0 ] );
+    return body;
+  }
+
   private void executeNtimes( BlockingQueue<Object> queue, SegmentCacheManager man, int n ) {
     for ( int i = 0; i < n; i++ ) {
       executor.submit( () ->
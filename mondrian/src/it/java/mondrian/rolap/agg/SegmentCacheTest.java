@@ -15,15 +15,27 @@ package mondrian.rolap.agg;
 
 import mondrian.olap.CacheControl;
 import mondrian.olap.Cube;
+import mondrian.olap.MondrianException;
 import mondrian.olap.MondrianProperties;
 import mondrian.olap.MondrianServer;
+import mondrian.rolap.BitKey;
 import mondrian.rolap.agg.SegmentCacheManager.CompositeSegmentCache;
+import mondrian.rolap.cache.EvictingMemorySegmentCache;
+import mondrian.spi.SegmentBody;
 import mondrian.spi.SegmentCache;
+import mondrian.spi.SegmentColumn;
 import mondrian.spi.SegmentHeader;
 import mondrian.test.BasicQueryTest;
+import mondrian.util.ByteString;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.SortedSet;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Test suite that runs the {@link BasicQueryTest} but with the
@@ -66,10 +78,50 @@ public class SegmentCacheTest extends BasicQueryTest {
         assertQueryReturns(query2, result2);
     }
 
+    /**
+     * Tests that a worker treats a put that returns false as a failure,
+     * unless the cache is an {@link EvictingMemorySegmentCache}, which
+     * declines segments larger than its budget.
+     */
+    public void testPutReturnsFalse() {
+        final SegmentHeader header =
+            new SegmentHeader(
+                "dummySchemaName",
+                new ByteString(new byte[0]),
+                "dummyCubeName",
+                "dummyMeasureName",
+                Collections.<SegmentColumn>emptyList(),
+                Collections.<String>emptyList(),
+                "dummyFactTable",
+                BitKey.Factory.makeBitKey(3),
+                Collections.<SegmentColumn>emptyList());
+        final SegmentBody body = mock(SegmentBody.class);
+        when(body.getValueArray()).thenReturn(new double[1000]);
+        when(body.getNullValueIndicators()).thenReturn(new BitSet());
+        when(body.getAxisValueSets()).thenReturn(new SortedSet[0]);
+
+        final SegmentCache externalCache = mock(SegmentCache.class);
+        when(externalCache.put(header, body)).thenReturn(false);
+        try {
+            new SegmentCacheWorker(externalCache, (Thread) null)
+                .put(header, body);
+            fail("expected error");
+        } catch (MondrianException e) {
+            // ok
+        }
+
+        final SegmentCacheWorker evictingWorker =
+            new SegmentCacheWorker(
+                new EvictingMemorySegmentCache(
+                    1, EvictingMemorySegmentCache.EvictionPolicy.LRU),
+                (Thread) null);
+        assertFalse(evictingWorker.put(header, body));
+    }
+
     public void testSegmentCacheEvents() throws Exception {
         SegmentCache mockCache = new MockSegmentCache();
         SegmentCacheWorker testWorker =
-            new SegmentCacheWorker(mockCache, null);
+            new SegmentCacheWorker(mockCache, (Thread) null);
 
         // Flush the cache before we start. Wait a second for the cache
         // flush to propagate.
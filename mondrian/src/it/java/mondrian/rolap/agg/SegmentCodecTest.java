@@ -0,0 +1,308 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.BitKey;
+import mondrian.rolap.CellKey;
+import mondrian.rolap.RolapUtil;
+import mondrian.spi.SegmentBody;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+import mondrian.util.ArraySortedSet;
+import mondrian.util.ByteString;
+import mondrian.util.Pair;
+
+import junit.framework.TestCase;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import static java.util.Arrays.asList;
+import static mondrian.util.Pair.of;
+
+/**
+ * Test case for {@link SegmentEncoder} and {@link SegmentDecoder}.
+ */
+public class SegmentCodecTest extends TestCase {
+    /**
+     * The throughput test runs more iterations, and prints its results, only
+     * if logging is enabled at debug level.
+     */
+    private static final Logger LOGGER =
+        LogManager.getLogger(SegmentCodecTest.class);
+
+    public void testDenseDouble() throws IOException {
+        final BitSet nullValues = new BitSet();
+        nullValues.set(1);
+        final SegmentBody body =
+            new DenseDoubleSegmentBody(
+                nullValues, new double[] {1.5d, 0d, -3d, 4d}, axes());
+        for (SegmentBody body2 : roundTrip(body)) {
+            assertTrue(
+                Arrays.equals(
+                    (double[]) body.getValueArray(),
+                    valueArray(body2, double[].class)));
+            assertEquals(nullValues, body2.getNullValueIndicators());
+            assertAxesEqual(body, body2);
+        }
+    }
+
+    public void testDenseInt() throws IOException {
+        final BitSet nullValues = new BitSet();
+        nullValues.set(3);
+        final SegmentBody body =
+            new DenseIntSegmentBody(
+                nullValues, new int[] {7, -1, Integer.MAX_VALUE, 0}, axes());
+        for (SegmentBody body2 : roundTrip(body)) {
+            assertTrue(
+                Arrays.equals(
+                    (int[]) body.getValueArray(),
+                    valueArray(body2, int[].class)));
+            assertEquals(nullValues, body2.getNullValueIndicators());
+            assertAxesEqual(body, body2);
+        }
+    }
+
+    public void testDenseObject() throws IOException {
+        final Object[] values = {
+            "Good", null, "Good", new BigDecimal("12.50"), 3L, "Bad"
+        };
+        final SegmentBody body =
+            new DenseObjectSegmentBody(
+                values,
+                Collections.singletonList(
+                    of(
+                        (SortedSet<Comparable>) new ArraySortedSet(
+                            new Comparable[] {
+                                1, 2, 3, 4, 5, RolapUtil.sqlNullValue}),
+                        true)));
+        for (SegmentBody body2 : roundTrip(body)) {
+            assertTrue(
+                Arrays.equals(
+                    values, valueArray(body2, Object[].class)));
+            assertAxesEqual(body, body2);
+            assertSame(
+                RolapUtil.sqlNullValue,
+                body2.getAxisValueSets()[0].last());
+        }
+    }
+
+    public void testSparse() throws IOException {
+        final Map<CellKey, Object> map = new LinkedHashMap<CellKey, Object>();
+        map.put(CellKey.Generator.newCellKey(new int[] {0, 0}), 1.25d);
+        map.put(CellKey.Generator.newCellKey(new int[] {1, 0}), 2.5d);
+        map.put(CellKey.Generator.newCellKey(new int[] {2, 1}), 7d);
+        checkSparse(map);
+
+        map.put(CellKey.Generator.newCellKey(new int[] {2, 0}), "x");
+        checkSparse(map);
+
+        final Map<CellKey, Object> intMap =
+            new LinkedHashMap<CellKey, Object>();
+        intMap.put(CellKey.Generator.newCellKey(new int[] {0, 1}), 3);
+        intMap.put(CellKey.Generator.newCellKey(new int[] {1, 1}), -4);
+        checkSparse(intMap);
+    }
+
+    private void checkSparse(Map<CellKey, Object> map) throws IOException {
+        final SegmentBody body = new SparseSegmentBody(map, axes());
+        for (SegmentBody body2 : roundTrip(body)) {
+            assertEquals(map, body2.getValueMap());
+            assertAxesEqual(body, body2);
+        }
+    }
+
+    public void testHeader() throws IOException {
+        final SegmentHeader header = header("Unit Sales");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final SegmentEncoder encoder = new SegmentEncoder(out);
+        encoder.writeHeader(header);
+        encoder.flush();
+
+        final SegmentHeader header2 =
+            new SegmentDecoder(ByteBuffer.wrap(out.toByteArray()))
+                .readHeader();
+        assertEquals(header, header2);
+        assertEquals(header.getUniqueID(), header2.getUniqueID());
+        assertEquals(
+            header.getConstrainedColumns(), header2.getConstrainedColumns());
+        assertEquals(
+            header.getExcludedRegions(), header2.getExcludedRegions());
+        assertEquals(header.getConstrainedColumnsBitKey(),
+            header2.getConstrainedColumnsBitKey());
+    }
+
+    public void testVersionMismatch() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final SegmentEncoder encoder = new SegmentEncoder(out);
+        encoder.writeHeader(header("Unit Sales"));
+        encoder.flush();
+        final byte[] bytes = out.toByteArray();
+        bytes[0] = (byte) (SegmentCodec.VERSION + 1);
+        try {
+            new SegmentDecoder(ByteBuffer.wrap(bytes)).readHeader();
+            fail("expected error");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("version"));
+        }
+    }
+
+    /**
+     * Compares the size and speed of the binary format with Java
+     * serialization, for a dense body of 100,000 doubles.
+     */
+    public void testThroughput() throws Exception {
+        final int n = 100000;
+        final double[] values = new double[n];
+        final BitSet nullValues = new BitSet();
+        for (int i = 0; i < n; i++) {
+            if (i % 10 == 0) {
+                nullValues.set(i);
+            } else {
+                values[i] = i * 1.5d;
+            }
+        }
+        final SegmentBody body =
+            new DenseDoubleSegmentBody(nullValues, values, axes());
+        final int iterations = LOGGER.isDebugEnabled() ? 50 : 2;
+
+        byte[] encoded = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final SegmentEncoder encoder = new SegmentEncoder(out);
+            encoder.writeBody(body);
+            encoder.flush();
+            encoded = out.toByteArray();
+            final SegmentBody body2 =
+                new SegmentDecoder(ByteBuffer.wrap(encoded)).readBody();
+            assertEquals(n, valueArray(body2, double[].class).length);
+        }
+        final long codecNanos = System.nanoTime() - start;
+
+        byte[] serialized = null;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final ObjectOutputStream oos = new ObjectOutputStream(out);
+            oos.writeObject(body);
+            oos.close();
+            serialized = out.toByteArray();
+            final SegmentBody body2 =
+                (SegmentBody) new ObjectInputStream(
+                    new ByteArrayInputStream(serialized)).readObject();
+            assertEquals(n, valueArray(body2, double[].class).length);
+        }
+        final long serialNanos = System.nanoTime() - start;
+
+        assertTrue(encoded.length <= serialized.length);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(
+                "SegmentCodecTest.testThroughput: codec "
+                + encoded.length + " bytes, "
+                + codecNanos / iterations / 1000 + " us per round trip; "
+                + "serialization " + serialized.length + " bytes, "
+                + serialNanos / iterations / 1000 + " us per round trip");
+        }
+    }
+
+    /**
+     * Encodes a body, and decodes it from both a buffer and a stream.
+     */
+    private static List<SegmentBody> roundTrip(SegmentBody body)
+        throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final SegmentEncoder encoder = new SegmentEncoder(out);
+        encoder.writeBody(body);
+        encoder.flush();
+        final byte[] bytes = out.toByteArray();
+        return asList(
+            new SegmentDecoder(ByteBuffer.wrap(bytes)).readBody(),
+            new SegmentDecoder(new ByteArrayInputStream(bytes)).readBody());
+    }
+
+    private static <T> T valueArray(SegmentBody body, Class<T> clazz) {
+        return clazz.cast(body.getValueArray());
+    }
+
+    private static void assertAxesEqual(SegmentBody body, SegmentBody body2) {
+        final SortedSet<Comparable>[] axes = body.getAxisValueSets();
+        final SortedSet<Comparable>[] axes2 = body2.getAxisValueSets();
+        assertEquals(axes.length, axes2.length);
+        for (int i = 0; i < axes.length; i++) {
+            // Compare elements in order; set equality would compare
+            // the SQL null value with other values.
+            assertTrue(
+                Arrays.equals(axes[i].toArray(), axes2[i].toArray()));
+        }
+        assertTrue(
+            Arrays.equals(body.getNullAxisFlags(), body2.getNullAxisFlags()));
+    }
+
+    private static List<Pair<SortedSet<Comparable>, Boolean>> axes() {
+        return asList(
+            of(
+                (SortedSet<Comparable>) new ArraySortedSet(
+                    new Comparable[] {"CA", "OR", "WA"}),
+                false),
+            of(
+                (SortedSet<Comparable>) new ArraySortedSet(
+                    new Comparable[] {1997, 1998}),
+                true));
+    }
+
+    private static SegmentHeader header(String measureName) {
+        final Comparable[] states = {"CA", "OR", "WA"};
+        final Comparable[] years = {1997, 1998};
+        final BitKey bitKey = BitKey.Factory.makeBitKey(67);
+        bitKey.set(1);
+        bitKey.set(64);
+        //noinspection unchecked
+        return new SegmentHeader(
+            "dummySchemaName",
+            new ByteString(new byte[] {1, 2}),
+            "dummyCubeName",
+            measureName,
+            asList(
+                new SegmentColumn(
+                    "store_state", 10, new ArraySortedSet(states)),
+                new SegmentColumn(
+                    "the_year", 2, new ArraySortedSet(years)),
+                new SegmentColumn("gender", 2, null)),
+            Collections.singletonList("(`store_state` = 'CA')"),
+            "sales_fact_1997",
+            bitKey,
+            Collections.singletonList(
+                new SegmentColumn(
+                    "the_year", 2,
+                    new ArraySortedSet(new Comparable[] {1998}))));
+    }
+}
+
+// End SegmentCodecTest.java
@@ -17,6 +17,8 @@ import mondrian.olap.*;
 import mondrian.rolap.*;
 import mondrian.server.*;
 import mondrian.server.Statement;
+import mondrian.spi.BulkFetcher;
+import mondrian.spi.ColumnBatch;
 import mondrian.spi.Dialect;
 import mondrian.test.SqlPattern;
 import mondrian.util.DelegatingInvocationHandler;
@@ -159,6 +161,20 @@ public class SegmentLoaderTest extends BatchTestCase {
                 groupingSets.get(1).getSegments().get(0)));
     }
 
+    /**
+     * Tests that the segments of each grouping set are the same when they
+     * are populated in parallel.
+     */
+    public void testLoadGroupingSetsInParallel()
+        throws ExecutionException, InterruptedException
+    {
+        propSaver.set(
+            MondrianProperties.instance().SegmentLoadParallelRowThreshold,
+            1);
+        testLoadWithMockResultsForLoadingSummaryAndDetailedSegments();
+        testLoadWithMockResultsForLoadingSummaryAndDetailedSegmentsUsingSparse();
+    }
+
     private ResultSet toResultSet(final List<Object[]> list) {
         final MyDelegatingInvocationHandler handler =
             new MyDelegatingInvocationHandler(list);
@@ -461,6 +477,77 @@ public class SegmentLoaderTest extends BatchTestCase {
         assertFalse(axisContainsNull[3]);
     }
 
+    /**
+     * Tests that rows delivered as column vectors by a bulk fetcher, in
+     * several batches, are loaded into the segment's row list, and that
+     * numeric measures keep their nulls.
+     */
+    public void testProcessDataWithBulkFetcher()
+        throws SQLException
+    {
+        propSaver.set(MondrianProperties.instance().BulkFetchSize, 2);
+        GroupingSet groupingSetsInfo = getDefaultGroupingSet();
+
+        final List<Object[]> data = new ArrayList<Object[]>();
+        data.add(new Object[]{"1997", "Food", "Deli", "F", 5990d});
+        data.add(new Object[]{"1997", "Food", "Deli", "M", null});
+        data.add(new Object[]{"1997", "Food", null, "F", 867d});
+        final List<SqlStatement.Type> types =
+            Arrays.asList(
+                SqlStatement.Type.OBJECT,
+                SqlStatement.Type.OBJECT,
+                SqlStatement.Type.OBJECT,
+                SqlStatement.Type.OBJECT,
+                SqlStatement.Type.DOUBLE);
+        final SqlStatement stmt =
+            new MockSqlStatement(
+                0,
+                new GroupingSetsList(
+                    Collections.singletonList(groupingSetsInfo)),
+                data)
+            {
+                @Override
+                public List<Type> guessTypes() {
+                    return types;
+                }
+            };
+        SegmentLoader loader = new SegmentLoader(cacheMgr) {
+            @Override
+            BulkFetcher getBulkFetcher(GroupingSetsList groupingSetsList) {
+                return new ListBulkFetcher(data);
+            }
+        };
+        int axisCount = 4;
+        SortedSet<Comparable>[] axisValueSet =
+            loader.getDistinctValueWorkspace(axisCount);
+        boolean[] axisContainsNull = new boolean[axisCount];
+
+        SegmentLoader.RowList list =
+            loader.processData(
+                stmt,
+                axisContainsNull,
+                axisValueSet,
+                new GroupingSetsList(
+                    Collections.singletonList(groupingSetsInfo)));
+        assertEquals(3, list.size());
+        assertEquals(3, stmt.rowCount);
+        assertFalse(axisContainsNull[1]);
+        assertTrue(axisContainsNull[2]);
+        assertEquals(2, axisValueSet[3].size());
+
+        list.first();
+        assertTrue(list.next());
+        assertEquals("F", list.getObject(3));
+        assertEquals(5990d, list.getDouble(4));
+        assertFalse(list.isNull(4));
+        assertTrue(list.next());
+        assertTrue(list.isNull(4));
+        assertTrue(list.next());
+        assertEquals(RolapUtil.sqlNullValue, list.getObject(2));
+        assertEquals(867d, list.getDouble(4));
+        assertFalse(list.next());
+    }
+
     // PDI-16150
     public void testProcessBinaryData()
             throws SQLException
@@ -1062,6 +1149,72 @@ public class SegmentLoaderTest extends BatchTestCase {
         public boolean wasNull() {
             return wasNull;
         }
+
+        public int getFetchSize() {
+            return 0;
+        }
+
+        public void setFetchSize(int rows) {
+        }
+    }
+
+    /**
+     * Bulk fetcher that delivers rows held in memory, ignoring the result
+     * set. Stands in for a fetcher that receives columnar data from a
+     * driver.
+     */
+    public static class ListBulkFetcher implements BulkFetcher {
+        private final List<Object[]> list;
+        private int row;
+
+        public ListBulkFetcher(List<Object[]> list) {
+            this.list = list;
+        }
+
+        public int fetch(ResultSet resultSet, ColumnBatch batch) {
+            batch.clear();
+            int count = 0;
+            for (; count < batch.getCapacity() && row < list.size();
+                 ++count, ++row)
+            {
+                final Object[] values = list.get(row);
+                for (int i = 0; i < batch.getColumnCount(); i++) {
+                    final Object value = values[i];
+                    switch (batch.getType(i)) {
+                    case OBJECT:
+                    case STRING:
+                        batch.getObjects(i)[count] = value;
+                        break;
+                    case INT:
+                        if (value == null) {
+                            batch.getNulls(i).set(count);
+                        } else {
+                            batch.getInts(i)[count] =
+                                ((Number) value).intValue();
+                        }
+                        break;
+                    case LONG:
+                        if (value == null) {
+                            batch.getNulls(i).set(count);
+                        } else {
+                            batch.getLongs(i)[count] =
+                                ((Number) value).longValue();
+                        }
+                        break;
+                    default:
+                        if (value == null) {
+                            batch.getNulls(i).set(count);
+                        } else {
+                            batch.getDoubles(i)[count] =
+                                ((Number) value).doubleValue();
+                        }
+                        break;
+                    }
+                }
+            }
+            batch.setRowCount(count);
+            return count;
+        }
     }
 
     private class MockSqlStatement extends SqlStatement {
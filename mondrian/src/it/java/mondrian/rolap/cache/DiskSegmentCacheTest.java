@@ -0,0 +1,230 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.cache;
+
+import junit.framework.TestCase;
+import mondrian.rolap.BitKey;
+import mondrian.spi.SegmentBody;
+import mondrian.spi.SegmentCache.SegmentCacheListener;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+import mondrian.util.ArraySortedSet;
+import mondrian.util.ByteString;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for {@link DiskSegmentCache}.
+ */
+public class DiskSegmentCacheTest extends TestCase {
+    private File directory;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("segments", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+    }
+
+    protected void tearDown() throws Exception {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    public void testPutGet() {
+        final DiskSegmentCache cache = new DiskSegmentCache(directory, 0);
+        final SegmentHeader header = header("m1");
+        assertTrue(cache.put(header, body(1d, 0d, 3.5d)));
+        final SegmentBody body = cache.get(header);
+        assertNotNull(body);
+        assertTrue(
+            Arrays.equals(
+                new double[] {1d, 0d, 3.5d}, (double[]) body.getValueArray()));
+        assertEquals(nulls(1), body.getNullValueIndicators());
+        assertNull(cache.get(header("m2")));
+    }
+
+    public void testSurvivesRestart() {
+        final DiskSegmentCache cache = new DiskSegmentCache(directory, 0);
+        final SegmentHeader header = header("m1");
+        cache.put(header, body(1d, 2d));
+        cache.tearDown();
+
+        final DiskSegmentCache cache2 = new DiskSegmentCache(directory, 0);
+        assertEquals(
+            Collections.singletonList(header), cache2.getSegmentHeaders());
+        final SegmentHeader header2 = cache2.getSegmentHeaders().get(0);
+        assertEquals(header.getUniqueID(), header2.getUniqueID());
+        assertEquals(
+            header.getConstrainedColumns(), header2.getConstrainedColumns());
+        assertTrue(
+            Arrays.equals(
+                new double[] {1d, 2d},
+                (double[]) cache2.get(header).getValueArray()));
+    }
+
+    public void testDiscardsBadFiles() throws IOException {
+        final FileOutputStream out =
+            new FileOutputStream(new File(directory, "garbage.seg"));
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+        final DiskSegmentCache cache = new DiskSegmentCache(directory, 0);
+        assertTrue(cache.getSegmentHeaders().isEmpty());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    public void testEvict() {
+        final DiskSegmentCache probe = new DiskSegmentCache(directory, 0);
+        probe.put(header("m0"), body(new double[100]));
+        final long size = probe.getTotalBytes();
+        probe.remove(header("m0"));
+
+        final DiskSegmentCache cache =
+            new DiskSegmentCache(directory, 2 * size);
+        final List<SegmentCacheListener.SegmentCacheEvent> events =
+            listen(cache);
+        final SegmentHeader h1 = header("m1");
+        final SegmentHeader h2 = header("m2");
+        final SegmentHeader h3 = header("m3");
+        cache.put(h1, body(new double[100]));
+        cache.put(h2, body(new double[100]));
+
+        // Read h1, so that h2 is now the least recently used.
+        assertNotNull(cache.get(h1));
+        cache.put(h3, body(new double[100]));
+        assertNotNull(cache.get(h1));
+        assertNull(cache.get(h2));
+        assertNotNull(cache.get(h3));
+        assertEquals(2, directory.listFiles().length);
+
+        // The deletion of h2 is announced, but not as a local event.
+        final SegmentCacheListener.SegmentCacheEvent event =
+            events.get(events.size() - 1);
+        assertEquals(h2, event.getSource());
+        assertEquals(
+            SegmentCacheListener.SegmentCacheEvent.EventType.ENTRY_DELETED,
+            event.getEventType());
+        assertFalse(event.isLocal());
+    }
+
+    public void testDiscardUnreadable() throws IOException {
+        final DiskSegmentCache cache = new DiskSegmentCache(directory, 0);
+        final List<SegmentCacheListener.SegmentCacheEvent> events =
+            listen(cache);
+        final SegmentHeader header = header("m1");
+        cache.put(header, body(1d));
+        final FileOutputStream out =
+            new FileOutputStream(
+                new File(directory, header.getUniqueID() + ".seg"));
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+        assertNull(cache.get(header));
+        assertFalse(cache.contains(header));
+        assertEquals(0, directory.listFiles().length);
+        assertEquals(2, events.size());
+        assertEquals(
+            SegmentCacheListener.SegmentCacheEvent.EventType.ENTRY_DELETED,
+            events.get(1).getEventType());
+        assertFalse(events.get(1).isLocal());
+    }
+
+    public void testPutFails() {
+        final DiskSegmentCache cache = new DiskSegmentCache(directory, 0);
+        final List<SegmentCacheListener.SegmentCacheEvent> events =
+            listen(cache);
+        assertTrue(directory.delete());
+        assertFalse(cache.put(header("m1"), body(1d)));
+        assertTrue(cache.getSegmentHeaders().isEmpty());
+        assertTrue(events.isEmpty());
+    }
+
+    public void testRemove() {
+        final DiskSegmentCache cache = new DiskSegmentCache(directory, 0);
+        final SegmentHeader header = header("m1");
+        cache.put(header, body(1d));
+        assertTrue(cache.remove(header));
+        assertFalse(cache.remove(header));
+        assertNull(cache.get(header));
+        assertEquals(0, cache.getTotalBytes());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    private static List<SegmentCacheListener.SegmentCacheEvent> listen(
+        DiskSegmentCache cache)
+    {
+        final List<SegmentCacheListener.SegmentCacheEvent> events =
+            new ArrayList<SegmentCacheListener.SegmentCacheEvent>();
+        cache.addListener(
+            new SegmentCacheListener() {
+                public void handle(SegmentCacheEvent e) {
+                    events.add(e);
+                }
+            });
+        return events;
+    }
+
+    private static SegmentHeader header(String measureName) {
+        final Comparable[] values = {"CA", "OR", "WA"};
+        //noinspection unchecked
+        return new SegmentHeader(
+            "dummySchemaName",
+            new ByteString(new byte[] {1, 2}),
+            "dummyCubeName",
+            measureName,
+            Collections.singletonList(
+                new SegmentColumn(
+                    "store_state", 10, new ArraySortedSet(values))),
+            Collections.<String>emptyList(),
+            "dummyFactTable",
+            BitKey.Factory.makeBitKey(3),
+            Collections.<SegmentColumn>emptyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SegmentBody body(double... values) {
+        final BitSet nullValues = new BitSet();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == 0d) {
+                nullValues.set(i);
+            }
+        }
+        final SegmentBody body = mock(SegmentBody.class);
+        when(body.getValueArray()).thenReturn(values);
+        when(body.getNullValueIndicators()).thenReturn(nullValues);
+        when(body.getAxisValueSets()).thenReturn(new SortedSet[0]);
+        when(body.getNullAxisFlags()).thenReturn(new boolean[0]);
+        return body;
+    }
+
+    private static BitSet nulls(int... offsets) {
+        final BitSet bitSet = new BitSet();
+        for (int offset : offsets) {
+            bitSet.set(offset);
+        }
+        return bitSet;
+    }
+}
+
+// End DiskSegmentCacheTest.java
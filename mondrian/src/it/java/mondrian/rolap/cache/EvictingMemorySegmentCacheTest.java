@@ -0,0 +1,222 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.cache;
+
+import junit.framework.TestCase;
+import mondrian.rolap.BitKey;
+import mondrian.rolap.agg.SparseSegmentBody;
+import mondrian.spi.SegmentBody;
+import mondrian.spi.SegmentCache;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+import mondrian.util.ByteString;
+
+import java.util.*;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for {@link EvictingMemorySegmentCache}.
+ */
+public class EvictingMemorySegmentCacheTest extends TestCase {
+    private final List<SegmentCache.SegmentCacheListener.SegmentCacheEvent>
+        events =
+        new ArrayList<SegmentCache.SegmentCacheListener.SegmentCacheEvent>();
+
+    public void testEstimateSize() {
+        final long small = EvictingMemorySegmentCache.estimateSize(body(10));
+        final long large = EvictingMemorySegmentCache.estimateSize(body(1000));
+        assertTrue(small > 80);
+        assertEquals(990 * 8, large - small);
+    }
+
+    /**
+     * Tests that the size of a sparse body is estimated from its cell count,
+     * without copying its cells into a map.
+     */
+    @SuppressWarnings("unchecked")
+    public void testEstimateSizeSparse() {
+        final SparseSegmentBody body = mock(SparseSegmentBody.class);
+        when(body.getValueArray())
+            .thenThrow(new UnsupportedOperationException());
+        when(body.getNullValueIndicators())
+            .thenThrow(new UnsupportedOperationException());
+        when(body.getAxisValueSets()).thenReturn(new SortedSet[0]);
+        when(body.getCellCount()).thenReturn(10);
+        final long small = EvictingMemorySegmentCache.estimateSize(body);
+        when(body.getCellCount()).thenReturn(20);
+        final long large = EvictingMemorySegmentCache.estimateSize(body);
+        assertTrue(large > small);
+        assertEquals(0, (large - small) % 10);
+        verify(body, never()).getValueMap();
+    }
+
+    public void testLru() {
+        final long bodySize =
+            EvictingMemorySegmentCache.estimateSize(body(1000));
+        final EvictingMemorySegmentCache cache =
+            newCache(
+                3 * bodySize,
+                EvictingMemorySegmentCache.EvictionPolicy.LRU);
+        final SegmentHeader h1 = header("m1");
+        final SegmentHeader h2 = header("m2");
+        final SegmentHeader h3 = header("m3");
+        final SegmentHeader h4 = header("m4");
+        cache.put(h1, body(1000));
+        cache.put(h2, body(1000));
+        cache.put(h3, body(1000));
+        assertEquals(3 * bodySize, cache.getTotalBytes());
+
+        // Touch h1, so that h2 is now the least recently used.
+        assertNotNull(cache.get(h1));
+        cache.put(h4, body(1000));
+        assertNull(cache.get(h2));
+        assertNotNull(cache.get(h1));
+        assertNotNull(cache.get(h3));
+        assertNotNull(cache.get(h4));
+        assertEquals(3 * bodySize, cache.getTotalBytes());
+        assertEvicted(h2);
+    }
+
+    public void testLfu() {
+        final long bodySize =
+            EvictingMemorySegmentCache.estimateSize(body(1000));
+        final EvictingMemorySegmentCache cache =
+            newCache(
+                2 * bodySize,
+                EvictingMemorySegmentCache.EvictionPolicy.LFU);
+        final SegmentHeader h1 = header("m1");
+        final SegmentHeader h2 = header("m2");
+        final SegmentHeader h3 = header("m3");
+        cache.put(h1, body(1000));
+        cache.put(h2, body(1000));
+        cache.get(h1);
+        cache.get(h1);
+        cache.get(h2);
+        cache.get(h1);
+        cache.put(h3, body(1000));
+        assertNotNull(cache.get(h1));
+        assertNull(cache.get(h2));
+        assertEvicted(h2);
+    }
+
+    public void testCost() {
+        final long bodySize =
+            EvictingMemorySegmentCache.estimateSize(body(1000));
+        final EvictingMemorySegmentCache cache =
+            newCache(
+                2 * bodySize,
+                EvictingMemorySegmentCache.EvictionPolicy.COST);
+        final SegmentHeader h1 = header("m1");
+        final SegmentHeader h2 = header("m2");
+        final SegmentHeader h3 = header("m3");
+        cache.put(h1, body(1000));
+        cache.recordLoadCost(h1, 5000);
+        cache.put(h2, body(1000));
+        cache.recordLoadCost(h2, 10);
+
+        // h2 is more recent, but h1 was far more expensive to load.
+        cache.put(h3, body(1000));
+        assertNotNull(cache.get(h1));
+        assertNull(cache.get(h2));
+        assertEvicted(h2);
+    }
+
+    public void testTooLarge() {
+        final EvictingMemorySegmentCache cache =
+            newCache(
+                EvictingMemorySegmentCache.estimateSize(body(10)),
+                EvictingMemorySegmentCache.EvictionPolicy.LRU);
+        final SegmentHeader h1 = header("m1");
+        final SegmentHeader h2 = header("m2");
+        cache.put(h1, body(10));
+        assertFalse(cache.put(h2, body(1000)));
+        assertNull(cache.get(h2));
+        assertNotNull(cache.get(h1));
+    }
+
+    public void testRemove() {
+        final EvictingMemorySegmentCache cache =
+            newCache(1000000, EvictingMemorySegmentCache.EvictionPolicy.LRU);
+        final SegmentHeader h1 = header("m1");
+        cache.put(h1, body(100));
+        assertTrue(cache.remove(h1));
+        assertFalse(cache.remove(h1));
+        assertEquals(0, cache.getTotalBytes());
+        assertTrue(cache.getSegmentHeaders().isEmpty());
+        for (SegmentCache.SegmentCacheListener.SegmentCacheEvent event
+            : events)
+        {
+            assertTrue(event.isLocal());
+        }
+    }
+
+    private EvictingMemorySegmentCache newCache(
+        long maxBytes,
+        EvictingMemorySegmentCache.EvictionPolicy policy)
+    {
+        final EvictingMemorySegmentCache cache =
+            new EvictingMemorySegmentCache(maxBytes, policy);
+        cache.addListener(
+            new SegmentCache.SegmentCacheListener() {
+                public void handle(SegmentCacheEvent e) {
+                    events.add(e);
+                }
+            });
+        return cache;
+    }
+
+    private void assertEvicted(SegmentHeader header) {
+        int count = 0;
+        for (SegmentCache.SegmentCacheListener.SegmentCacheEvent event
+            : events)
+        {
+            if (!event.isLocal()) {
+                assertEquals(
+                    SegmentCache.SegmentCacheListener.SegmentCacheEvent
+                        .EventType.ENTRY_DELETED,
+                    event.getEventType());
+                assertEquals(header, event.getSource());
+                ++count;
+            }
+        }
+        assertEquals(1, count);
+    }
+
+    private static SegmentHeader header(String measureName) {
+        return new SegmentHeader(
+            "dummySchemaName",
+            new ByteString(new byte[0]),
+            "dummyCubeName",
+            measureName,
+            Collections.<SegmentColumn>emptyList(),
+            Collections.<String>emptyList(),
+            "dummyFactTable",
+            BitKey.Factory.makeBitKey(3),
+            Collections.<SegmentColumn>emptyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SegmentBody body(int cellCount) {
+        final SegmentBody body = mock(SegmentBody.class);
+        when(body.getValueArray()).thenReturn(new double[cellCount]);
+        when(body.getNullValueIndicators()).thenReturn(new BitSet());
+        when(body.getAxisValueSets()).thenReturn(new SortedSet[0]);
+        return body;
+    }
+}
+
+// End EvictingMemorySegmentCacheTest.java
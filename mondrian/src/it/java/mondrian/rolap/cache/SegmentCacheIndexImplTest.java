@@ -14,9 +14,21 @@ package mondrian.rolap.cache;
 
 import static org.mockito.Mockito.mock;
 
+import mondrian.rolap.BitKey;
 import mondrian.spi.SegmentBody;
+import mondrian.spi.SegmentColumn;
 import mondrian.spi.SegmentHeader;
 import mondrian.test.FoodMartTestCase;
+import mondrian.util.ArraySortedSet;
+import mondrian.util.ByteString;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 
 public class SegmentCacheIndexImplTest extends FoodMartTestCase {
     public void testNoHeaderOnLoad() {
@@ -29,6 +41,116 @@ public class SegmentCacheIndexImplTest extends FoodMartTestCase {
         // This should not fail.
         index.loadSucceeded(header, body);
     }
+
+    /**
+     * Tests that a thread other than the index's own thread can read the
+     * index, and sees headers that the index's thread has added and removed.
+     */
+    public void testReadFromOtherThread() throws Exception {
+        final SegmentCacheIndexImpl index =
+            new SegmentCacheIndexImpl(Thread.currentThread());
+        final BitKey bitKey = BitKey.Factory.makeBitKey(2);
+        bitKey.set(0);
+        bitKey.set(1);
+        //noinspection unchecked
+        final SegmentHeader header =
+            new SegmentHeader(
+                "dummySchemaName",
+                new ByteString(new byte[] {1, 2}),
+                "dummyCubeName",
+                "dummyMeasureName",
+                Arrays.asList(
+                    new SegmentColumn("store_state", 10, null),
+                    new SegmentColumn(
+                        "the_year", 2,
+                        new ArraySortedSet(new Comparable[] {1997}))),
+                Collections.<String>emptyList(),
+                "dummyFactTable",
+                bitKey,
+                Collections.<SegmentColumn>emptyList());
+        index.add(header, null, false);
+
+        final Map<String, Comparable> coordinates =
+            new HashMap<String, Comparable>();
+        coordinates.put("store_state", "CA");
+        coordinates.put("the_year", 1997);
+        assertEquals(
+            Collections.singletonList(header),
+            inOtherThread(
+                new Callable<List<SegmentHeader>>() {
+                    public List<SegmentHeader> call() {
+                        return locate(index, bitKey, coordinates);
+                    }
+                }));
+
+        // Roll up to the_year; store_state is wildcarded, so the header
+        // qualifies by itself.
+        final BitKey bitKey2 = BitKey.Factory.makeBitKey(2);
+        bitKey2.set(1);
+        assertEquals(
+            Collections.singletonList(Collections.singletonList(header)),
+            inOtherThread(
+                new Callable<List<List<SegmentHeader>>>() {
+                    public List<List<SegmentHeader>> call() {
+                        return index.findRollupCandidates(
+                            "dummySchemaName",
+                            new ByteString(new byte[] {1, 2}),
+                            "dummyCubeName",
+                            "dummyMeasureName",
+                            "dummyFactTable",
+                            bitKey2,
+                            Collections.<String, Comparable>singletonMap(
+                                "the_year", 1997),
+                            Collections.<String>emptyList());
+                    }
+                }));
+
+        index.remove(header);
+        assertEquals(
+            Collections.<SegmentHeader>emptyList(),
+            inOtherThread(
+                new Callable<List<SegmentHeader>>() {
+                    public List<SegmentHeader> call() {
+                        return locate(index, bitKey, coordinates);
+                    }
+                }));
+        assertEquals(
+            Collections.<List<SegmentHeader>>emptyList(),
+            index.findRollupCandidates(
+                "dummySchemaName",
+                new ByteString(new byte[] {1, 2}),
+                "dummyCubeName",
+                "dummyMeasureName",
+                "dummyFactTable",
+                bitKey2,
+                Collections.<String, Comparable>singletonMap("the_year", 1997),
+                Collections.<String>emptyList()));
+    }
+
+    private static List<SegmentHeader> locate(
+        SegmentCacheIndex index,
+        BitKey bitKey,
+        Map<String, Comparable> coordinates)
+    {
+        return index.locate(
+            "dummySchemaName",
+            new ByteString(new byte[] {1, 2}),
+            "dummyCubeName",
+            "dummyMeasureName",
+            "dummyFactTable",
+            bitKey,
+            coordinates,
+            Collections.<String>emptyList());
+    }
+
+    private static <T> T inOtherThread(Callable<T> callable)
+        throws Exception
+    {
+        final FutureTask<T> task = new FutureTask<T>(callable);
+        final Thread thread = new Thread(task);
+        thread.start();
+        return task.get();
+    }
 }
 
 //End SegmentCacheIndexImplTest.java
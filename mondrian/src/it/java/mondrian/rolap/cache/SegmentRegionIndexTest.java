@@ -0,0 +1,215 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.cache;
+
+import mondrian.rolap.BitKey;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+import mondrian.util.ArraySortedSet;
+import mondrian.util.ByteString;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Test case for {@link SegmentRegionIndex}.
+ */
+public class SegmentRegionIndexTest extends TestCase {
+    private static final String[] COLUMNS = {
+        "store_state", "the_year", "gender", "marital_status"
+    };
+
+    public void testIntersect() {
+        final SegmentRegionIndex index = new SegmentRegionIndex();
+        final SegmentHeader caAll =
+            header(
+                column("store_state", "CA"),
+                column("the_year", (Comparable[]) null));
+        final SegmentHeader orWa1997 =
+            header(
+                column("store_state", "OR", "WA"),
+                column("the_year", 1997));
+        final SegmentHeader gender =
+            header(column("gender", "F", "M"));
+        index.add(caAll);
+        index.add(orWa1997);
+        index.add(gender);
+        index.add(gender);
+        assertEquals(3, index.size());
+
+        // Only headers that have CA, or that do not constrain store_state.
+        assertEquals(
+            set(caAll, gender),
+            set(index.intersect(region(column("store_state", "CA")))));
+
+        // A header intersects if any column of the region intersects;
+        // caAll is wildcarded on the_year.
+        assertEquals(
+            set(caAll, gender),
+            set(
+                index.intersect(
+                    region(
+                        column("store_state", "NV"),
+                        column("the_year", 1998)))));
+        assertEquals(
+            set(orWa1997, gender),
+            set(index.intersect(region(column("store_state", "WA")))));
+
+        // Empty and wildcard regions intersect every header.
+        assertEquals(3, index.intersect(region()).size());
+        assertEquals(
+            3,
+            index.intersect(
+                region(column("gender", (Comparable[]) null))).size());
+
+        index.remove(orWa1997);
+        index.remove(orWa1997);
+        assertEquals(2, index.size());
+        assertEquals(
+            set(gender),
+            set(index.intersect(region(column("store_state", "WA")))));
+        index.remove(caAll);
+        index.remove(gender);
+        assertEquals(0, index.size());
+        assertTrue(index.intersect(region()).isEmpty());
+    }
+
+    /**
+     * Checks the index against a header-by-header test, for random headers
+     * and regions.
+     */
+    public void testIntersectRandom() {
+        final Random random = new Random(1234);
+        final SegmentRegionIndex index = new SegmentRegionIndex();
+        final List<SegmentHeader> headers = new ArrayList<SegmentHeader>();
+        for (int i = 0; i < 200; i++) {
+            final SegmentHeader header = header(randomColumns(random, 1));
+            index.add(header);
+            if (!headers.contains(header)) {
+                headers.add(header);
+            }
+            if (random.nextInt(5) == 0) {
+                final SegmentHeader removed =
+                    headers.remove(random.nextInt(headers.size()));
+                index.remove(removed);
+            }
+        }
+        assertEquals(headers.size(), index.size());
+        for (int i = 0; i < 200; i++) {
+            final SegmentColumn[] region = randomColumns(random, 0);
+            final Set<SegmentHeader> expected = new HashSet<SegmentHeader>();
+            for (SegmentHeader header : headers) {
+                if (intersects(header, region)) {
+                    expected.add(header);
+                }
+            }
+            assertEquals(expected, set(index.intersect(region)));
+        }
+    }
+
+    /**
+     * Tests a header against a region the way that the segment cache index
+     * did before it had a {@link SegmentRegionIndex}.
+     */
+    private static boolean intersects(
+        SegmentHeader header,
+        SegmentColumn[] region)
+    {
+        if (region.length == 0) {
+            return true;
+        }
+        for (SegmentColumn regionColumn : region) {
+            final SegmentColumn headerColumn =
+                header.getConstrainedColumn(regionColumn.getColumnExpression());
+            if (headerColumn == null
+                || headerColumn.getValues() == null
+                || regionColumn.getValues() == null)
+            {
+                return true;
+            }
+            for (Comparable value : regionColumn.getValues()) {
+                if (headerColumn.getValues().contains(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static SegmentColumn[] randomColumns(Random random, int min) {
+        final List<SegmentColumn> columns = new ArrayList<SegmentColumn>();
+        for (String name : COLUMNS) {
+            if (random.nextInt(3) == 0) {
+                continue;
+            }
+            if (random.nextInt(6) == 0) {
+                columns.add(column(name, (Comparable[]) null));
+                continue;
+            }
+            final SortedSet<Comparable> values = new TreeSet<Comparable>();
+            final int n = 1 + random.nextInt(3);
+            for (int i = 0; i < n; i++) {
+                values.add(random.nextInt(6));
+            }
+            columns.add(
+                column(name, values.toArray(new Comparable[values.size()])));
+        }
+        if (columns.size() < min) {
+            columns.add(column(COLUMNS[0], 0));
+        }
+        return columns.toArray(new SegmentColumn[columns.size()]);
+    }
+
+    private static SegmentColumn column(String name, Comparable... values) {
+        //noinspection unchecked
+        return new SegmentColumn(
+            name,
+            10,
+            values == null ? null : new ArraySortedSet(values));
+    }
+
+    private static SegmentColumn[] region(SegmentColumn... columns) {
+        return columns;
+    }
+
+    private static SegmentHeader header(SegmentColumn... columns) {
+        final BitKey bitKey = BitKey.Factory.makeBitKey(COLUMNS.length);
+        for (SegmentColumn column : columns) {
+            bitKey.set(
+                Arrays.asList(COLUMNS).indexOf(column.getColumnExpression()));
+        }
+        return new SegmentHeader(
+            "dummySchemaName",
+            new ByteString(new byte[] {1, 2}),
+            "dummyCubeName",
+            "dummyMeasureName",
+            Arrays.asList(columns),
+            Collections.<String>emptyList(),
+            "dummyFactTable",
+            bitKey,
+            Collections.<SegmentColumn>emptyList());
+    }
+
+    private static Set<SegmentHeader> set(SegmentHeader... headers) {
+        return new HashSet<SegmentHeader>(Arrays.asList(headers));
+    }
+
+    private static Set<SegmentHeader> set(Collection<SegmentHeader> headers) {
+        final Set<SegmentHeader> set = new HashSet<SegmentHeader>(headers);
+        assertEquals("duplicates", headers.size(), set.size());
+        return set;
+    }
+}
+
+// End SegmentRegionIndexTest.java
@@ -0,0 +1,104 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.sql;
+
+import mondrian.spi.Dialect;
+import mondrian.spi.impl.JdbcDialectImpl;
+
+import junit.framework.TestCase;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Test case for {@link BoundSql}.
+ */
+public class BoundSqlTest extends TestCase {
+    private final Dialect dialect = new JdbcDialectImpl();
+
+    /**
+     * Tests that SQL without marked values is unchanged.
+     */
+    public void testNoValues() {
+        final String sql = "select \"a\" from \"t\" where \"b\" = 'x'";
+        final BoundSql boundSql = BoundSql.parse(sql);
+        assertSame(sql, boundSql.sql);
+        assertTrue(boundSql.values.isEmpty());
+    }
+
+    /**
+     * Tests that marked values become parameters, in order, converted to the
+     * Java types that JDBC binds to their datatypes.
+     */
+    public void testValues() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("select 1 from \"t\" where \"s\" = ");
+        BoundSql.appendValue(buf, dialect, "O'Brien", Dialect.Datatype.String);
+        buf.append(" and \"i\" in (");
+        BoundSql.appendValue(buf, dialect, 1997, Dialect.Datatype.Integer);
+        buf.append(", ");
+        BoundSql.appendValue(buf, dialect, "1998", Dialect.Datatype.Integer);
+        buf.append(") and \"n\" = ");
+        BoundSql.appendValue(buf, dialect, "2.50", Dialect.Datatype.Numeric);
+        buf.append(" and \"d\" = ");
+        BoundSql.appendValue(buf, dialect, "1997-01-31", Dialect.Datatype.Date);
+
+        final BoundSql boundSql = BoundSql.parse(buf.toString());
+        assertEquals(
+            "select 1 from \"t\" where \"s\" = ? and \"i\" in (?, ?)"
+            + " and \"n\" = ? and \"d\" = ?",
+            boundSql.sql);
+        assertEquals(
+            Arrays.<Object>asList(
+                "O'Brien",
+                1997L,
+                1998L,
+                new BigDecimal("2.50"),
+                java.sql.Date.valueOf("1997-01-31")),
+            boundSql.values);
+    }
+
+    /**
+     * Tests that a value which is not valid for its datatype is written as
+     * the literal the dialect would have written.
+     */
+    public void testInvalidValueUsesLiteral() {
+        final StringBuilder expected = new StringBuilder("where \"i\" = ");
+        dialect.quote(expected, "abc", Dialect.Datatype.Integer);
+        expected.append(" and \"s\" = ?");
+
+        final StringBuilder buf = new StringBuilder("where \"i\" = ");
+        BoundSql.appendValue(buf, dialect, "abc", Dialect.Datatype.Integer);
+        buf.append(" and \"s\" = ");
+        BoundSql.appendValue(buf, dialect, "x", Dialect.Datatype.String);
+
+        final BoundSql boundSql = BoundSql.parse(buf.toString());
+        assertEquals(expected.toString(), boundSql.sql);
+        assertEquals(Arrays.<Object>asList("x"), boundSql.values);
+    }
+
+    /**
+     * Tests that a query told to bind values still writes literals while
+     * {@link mondrian.olap.MondrianProperties#SqlBindParameters} has its
+     * default value, false.
+     */
+    public void testQueryLiteralsByDefault() {
+        final SqlQuery query = new SqlQuery(dialect);
+        query.setBindParameters(true);
+        final StringBuilder buf = new StringBuilder();
+        query.quote(buf, "x", Dialect.Datatype.String);
+        assertEquals("'x'", buf.toString());
+    }
+}
+
+// End BoundSqlTest.java
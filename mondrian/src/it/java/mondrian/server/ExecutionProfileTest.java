@@ -0,0 +1,85 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server;
+
+import mondrian.server.ExecutionProfile.Phase;
+import mondrian.test.FoodMartTestCase;
+
+/**
+ * Test case for {@link ExecutionProfile}.
+ */
+public class ExecutionProfileTest extends FoodMartTestCase {
+    public void testAdd() {
+        final ExecutionProfile profile = new ExecutionProfile();
+        assertEquals("Profile:", profile.toString());
+        profile.add(Phase.AXES, 3000);
+        profile.add(Phase.SQL_EXECUTE, 5000);
+        profile.add(Phase.SQL_EXECUTE, 7000);
+        assertEquals(3000, profile.getNanos(Phase.AXES));
+        assertEquals(1, profile.getCount(Phase.AXES));
+        assertEquals(12000, profile.getNanos(Phase.SQL_EXECUTE));
+        assertEquals(2, profile.getCount(Phase.SQL_EXECUTE));
+        assertEquals(0, profile.getCount(Phase.CELLS));
+        assertEquals(
+            "Profile: AXES 3us SQL_EXECUTE 12us (2)", profile.toString());
+
+        final ExecutionProfile profile2 = new ExecutionProfile();
+        profile2.add(Phase.PARSE, 1000);
+        profile2.addAll(profile);
+        assertEquals(1000, profile2.getNanos(Phase.PARSE));
+        assertEquals(12000, profile2.getNanos(Phase.SQL_EXECUTE));
+        assertEquals(2, profile2.getCount(Phase.SQL_EXECUTE));
+
+        // A locus outside an execution has no profile to record into.
+        ExecutionProfile.add(null, Phase.CELLS, System.nanoTime());
+        ExecutionProfile.add(
+            new Locus(Execution.NONE, "test", "test"),
+            Phase.CELLS,
+            System.nanoTime());
+        assertEquals(0, Execution.NONE.getProfile().getCount(Phase.CELLS));
+    }
+
+    /**
+     * Tests that executing a query records each phase in the profile of the
+     * statement.
+     */
+    public void testQueryProfile() throws Exception {
+        getConnection().getCacheControl(null).flushSchemaCache();
+        final String mdx =
+            "select {[Measures].[Unit Sales]} on 0,\n"
+            + " [Gender].Members on 1\n"
+            + "from [Sales]";
+        final mondrian.olap.Connection connection = getConnection();
+        final mondrian.olap.Query query = connection.parseQuery(mdx);
+        final ExecutionProfile preparation = query.getPreparationProfile();
+        assertEquals(1, preparation.getCount(Phase.PARSE));
+        assertEquals(1, preparation.getCount(Phase.VALIDATE));
+        assertEquals(1, preparation.getCount(Phase.COMPILE));
+        connection.execute(query);
+        final ExecutionProfile profile = query.getStatement().getProfile();
+        assertNotNull(profile);
+        for (Phase phase : new Phase[] {
+                 Phase.PARSE, Phase.VALIDATE, Phase.COMPILE, Phase.AXES,
+                 Phase.CELLS})
+        {
+            assertEquals(phase.name(), 1, profile.getCount(phase));
+            assertTrue(phase.name(), profile.getNanos(phase) >= 0);
+        }
+        assertTrue(profile.getCount(Phase.SQL_EXECUTE) > 0);
+        assertEquals(
+            profile.getCount(Phase.SQL_EXECUTE),
+            profile.getCount(Phase.SQL_FETCH));
+    }
+}
+
+// End ExecutionProfileTest.java
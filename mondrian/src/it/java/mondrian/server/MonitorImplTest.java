@@ -0,0 +1,167 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server;
+
+import mondrian.olap.MondrianProperties;
+import mondrian.olap.MondrianServer;
+import mondrian.rolap.agg.SegmentCacheManager;
+import mondrian.server.monitor.*;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test case for {@link MonitorImpl}.
+ */
+public class MonitorImplTest extends TestCase {
+    /**
+     * Tests that a command sees the events that were sent before it.
+     */
+    public void testCommandSeesEvents() {
+        final MonitorImpl monitor = new MonitorImpl();
+        monitor.sendEvent(new ConnectionStartEvent(0, 0, 1));
+        monitor.sendEvent(new ConnectionStartEvent(0, 0, 2));
+        assertEquals(2, monitor.getConnections().size());
+        monitor.sendEvent(new ConnectionEndEvent(0, 0, 1));
+        assertEquals(1, monitor.getConnections().size());
+        final ServerInfo server = monitor.getServer();
+        assertEquals(2, server.connectionStartCount);
+        assertEquals(1, server.connectionEndCount);
+    }
+
+    /**
+     * Tests that the monitor maintains histograms of execution latency, phase
+     * latency and segment size.
+     */
+    public void testHistograms() {
+        final MonitorImpl monitor = new MonitorImpl();
+        monitor.sendEvent(new ConnectionStartEvent(0, 0, 1));
+        monitor.sendEvent(new StatementStartEvent(0, 0, 1, 2));
+        monitor.sendEvent(new ExecutionStartEvent(1000, 0, 1, 2, 3, "mdx"));
+        monitor.sendEvent(
+            new ExecutionPhaseEvent(1040, 0, 1, 2, 3, 0, 5, 2, 0));
+        monitor.sendEvent(
+            new CellCacheSegmentCreateEvent(
+                1050, 0, 1, 2, 3, 2, 120, CellCacheEvent.Source.SQL));
+        monitor.sendEvent(
+            new ExecutionPhaseEvent(1100, 0, 1, 2, 3, 1, 2, 0, 0));
+        monitor.sendEvent(
+            new ExecutionEndEvent(
+                1000, 0, 1, 2, 3, 2, Execution.State.DONE, 7, 2, 0, 0, 0,
+                150));
+        final Map<String, HistogramInfo> map =
+            new HashMap<String, HistogramInfo>();
+        for (HistogramInfo histogram : monitor.getHistograms()) {
+            map.put(histogram.name, histogram);
+        }
+        final HistogramInfo phase = map.get("execution.phase.nanos");
+        assertEquals(2, phase.count);
+        assertEquals(40000000L, phase.min);
+        assertEquals(60000000L, phase.max);
+        final HistogramInfo execution = map.get("execution.nanos");
+        assertEquals(1, execution.count);
+        assertEquals(150000000L, execution.p99);
+        assertEquals(9, map.get("execution.cells").max);
+        assertEquals(2, map.get("execution.cell_cache_misses").max);
+        assertEquals(120, map.get("segment.sql.cells").p50);
+    }
+
+    /**
+     * Tests that the monitor reports the queue depth of each shard of a
+     * registered segment cache manager.
+     */
+    public void testSegmentCacheShards() {
+        final MonitorImpl monitor = new MonitorImpl();
+        assertTrue(monitor.getSegmentCacheShards().isEmpty());
+        final MondrianProperties properties = MondrianProperties.instance();
+        final int shardCount =
+            properties.SegmentCacheManagerNumberShards.get();
+        properties.SegmentCacheManagerNumberShards.set(2);
+        final MondrianServer server = mock(MondrianServer.class);
+        when(server.getId()).thenReturn(42);
+        final SegmentCacheManager cacheMgr;
+        try {
+            cacheMgr = new SegmentCacheManager(server);
+        } finally {
+            properties.SegmentCacheManagerNumberShards.set(shardCount);
+        }
+        try {
+            monitor.addSegmentCacheManager(cacheMgr);
+            final List<SegmentCacheShardInfo> shards =
+                monitor.getSegmentCacheShards();
+            assertEquals(2, shards.size());
+            assertEquals(0, shards.get(0).shard);
+            assertEquals(42, shards.get(0).serverId);
+            assertEquals(1, shards.get(1).shard);
+            assertEquals(0, shards.get(1).queueDepth);
+        } finally {
+            cacheMgr.shutdown();
+        }
+    }
+
+    /**
+     * Tests that events sent by several threads at once, to several
+     * monitors, are all counted.
+     */
+    public void testConcurrentEvents() throws Exception {
+        final int threadCount = 8;
+        final int connectionCount = 2000;
+        final MonitorImpl[] monitors = {new MonitorImpl(), new MonitorImpl()};
+        final ExecutorService executor =
+            Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < threadCount; i++) {
+                final int thread = i;
+                futures.add(
+                    executor.submit(
+                        new Runnable() {
+                            public void run() {
+                                for (int j = 0; j < connectionCount; j++) {
+                                    final int id =
+                                        thread * connectionCount + j;
+                                    for (MonitorImpl monitor : monitors) {
+                                        monitor.sendEvent(
+                                            new ConnectionStartEvent(
+                                                0, 0, id));
+                                        monitor.sendEvent(
+                                            new ConnectionEndEvent(
+                                                0, 0, id));
+                                    }
+                                }
+                            }
+                        }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (MonitorImpl monitor : monitors) {
+            final ServerInfo server = monitor.getServer();
+            assertEquals(
+                threadCount * connectionCount, server.connectionStartCount);
+            assertEquals(
+                threadCount * connectionCount, server.connectionEndCount);
+            assertEquals(0, monitor.getConnections().size());
+        }
+    }
+}
+
+// End MonitorImplTest.java
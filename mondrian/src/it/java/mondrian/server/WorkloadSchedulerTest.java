@@ -0,0 +1,206 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server;
+
+import mondrian.olap.MondrianProperties;
+import mondrian.server.monitor.WorkloadQueueInfo;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for {@link WorkloadScheduler}.
+ */
+public class WorkloadSchedulerTest extends TestCase {
+    /**
+     * Tests that waiting tasks start in order of priority, and among tasks
+     * of equal priority, in turn from each class of work.
+     */
+    public void testOrder() throws Exception {
+        final WorkloadScheduler scheduler =
+            new WorkloadScheduler("testOrder", 1, null);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final List<String> order =
+                Collections.synchronizedList(new ArrayList<String>());
+            // Occupy the only thread, so that the other tasks wait.
+            scheduler.execute(
+                new Runnable() {
+                    public void run() {
+                        await(latch);
+                    }
+                },
+                new Workload("X", 0));
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(submit(scheduler, order, "A" + i, "A", 0));
+            }
+            for (int i = 0; i < 2; i++) {
+                futures.add(submit(scheduler, order, "B" + i, "B", 0));
+            }
+            futures.add(submit(scheduler, order, "C0", "C", 5));
+            latch.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(
+                Arrays.asList("C0", "A0", "B0", "A1", "B1", "A2"), order);
+
+            final Map<String, WorkloadQueueInfo> infos = infos(scheduler);
+            assertEquals(3, infos.get("A").startCount);
+            assertEquals(2, infos.get("B").startCount);
+            assertEquals(0, infos.get("A").queuedCount);
+            assertEquals(0, infos.get("A").runningCount);
+            assertTrue(infos.get("A").maxWaitNanos > 0);
+            assertTrue(
+                infos.get("A").waitNanos >= infos.get("A").maxWaitNanos);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Tests that no more tasks of a class than its quota run at the same
+     * time, and that the quota of a schema and role takes precedence over
+     * that of the schema.
+     */
+    public void testQuota() throws Exception {
+        final MondrianProperties properties = MondrianProperties.instance();
+        final String quotas = properties.WorkloadQuotas.get();
+        properties.WorkloadQuotas.set("FoodMart=3, FoodMart/Analyst=1");
+        final WorkloadScheduler scheduler =
+            new WorkloadScheduler("testQuota", 4, null);
+        try {
+            assertEquals(1, WorkloadScheduler.quota("FoodMart/Analyst"));
+            assertEquals(3, WorkloadScheduler.quota("FoodMart/Manager"));
+            assertEquals(3, WorkloadScheduler.quota("FoodMart"));
+            assertEquals(
+                properties.WorkloadDefaultQuota.get(),
+                WorkloadScheduler.quota("Sales"));
+
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(
+                    scheduler.submit(
+                        new Callable<Void>() {
+                            public Void call() throws Exception {
+                                final int n = running.incrementAndGet();
+                                synchronized (maxRunning) {
+                                    maxRunning.set(
+                                        Math.max(maxRunning.get(), n));
+                                }
+                                Thread.sleep(20);
+                                running.decrementAndGet();
+                                return null;
+                            }
+                        },
+                        new Workload("FoodMart/Analyst", 0)));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(1, maxRunning.get());
+            final WorkloadQueueInfo info =
+                infos(scheduler).get("FoodMart/Analyst");
+            assertEquals(1, info.quota);
+            assertEquals(5, info.startCount);
+        } finally {
+            properties.WorkloadQuotas.set(quotas);
+            scheduler.shutdown();
+        }
+    }
+
+    public void testShutdown() throws Exception {
+        final WorkloadScheduler scheduler =
+            new WorkloadScheduler("testShutdown", 1, null);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        scheduler.execute(
+            new Runnable() {
+                public void run() {
+                    await(latch);
+                    count.incrementAndGet();
+                }
+            },
+            Workload.DEFAULT);
+        scheduler.execute(
+            new Runnable() {
+                public void run() {
+                    count.incrementAndGet();
+                }
+            },
+            Workload.DEFAULT);
+        scheduler.shutdown();
+        assertTrue(scheduler.isShutdown());
+        try {
+            scheduler.execute(
+                new Runnable() {
+                    public void run() {
+                    }
+                },
+                Workload.DEFAULT);
+            fail("expected error");
+        } catch (RejectedExecutionException e) {
+            // ok
+        }
+        // Tasks submitted before shutdown still run.
+        assertFalse(scheduler.awaitTermination(10, TimeUnit.MILLISECONDS));
+        latch.countDown();
+        assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(scheduler.isTerminated());
+        assertEquals(2, count.get());
+    }
+
+    private static Future<?> submit(
+        WorkloadScheduler scheduler,
+        final List<String> order,
+        final String id,
+        String workloadName,
+        int priority)
+    {
+        return scheduler.submit(
+            new Callable<Void>() {
+                public Void call() {
+                    order.add(id);
+                    return null;
+                }
+            },
+            new Workload(workloadName, priority));
+    }
+
+    private static Map<String, WorkloadQueueInfo> infos(
+        WorkloadScheduler scheduler)
+    {
+        final Map<String, WorkloadQueueInfo> map =
+            new HashMap<String, WorkloadQueueInfo>();
+        for (WorkloadQueueInfo info : scheduler.getQueueInfos()) {
+            map.put(info.workload, info);
+        }
+        return map;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
+
+// End WorkloadSchedulerTest.java
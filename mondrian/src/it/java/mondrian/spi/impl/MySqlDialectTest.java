@@ -13,7 +13,9 @@
 package mondrian.spi.impl;
 
 import junit.framework.TestCase;
+import mondrian.server.monitor.SqlStatementEvent;
 import mondrian.spi.Dialect;
+import mondrian.test.PropertySaver;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -116,5 +118,35 @@ public class MySqlDialectTest extends TestCase {
     }
   }
 
+  /**
+   * Tests that the dialect streams the rows of a forward-only, read-only
+   * result, and otherwise uses the default fetch size.
+   */
+  public void testFetchSize() {
+    assertEquals(
+        Integer.MIN_VALUE,
+        dialect.getFetchSize(SqlStatementEvent.Purpose.TUPLES, true));
+    assertEquals(
+        0,
+        dialect.getFetchSize(SqlStatementEvent.Purpose.TUPLES, false));
+    assertEquals(
+        0,
+        dialect.getFetchSize(SqlStatementEvent.Purpose.OTHER, true));
+    assertFalse(dialect.requiresTransactionForCursor());
+
+    final PropertySaver propSaver = new PropertySaver();
+    try {
+      propSaver.set(propSaver.properties.SqlFetchSize, 1000);
+      assertEquals(
+          1000,
+          dialect.getFetchSize(SqlStatementEvent.Purpose.TUPLES, false));
+      assertEquals(
+          Integer.MIN_VALUE,
+          dialect.getFetchSize(SqlStatementEvent.Purpose.TUPLES, true));
+    } finally {
+      propSaver.reset();
+    }
+  }
+
 }
 // End MySqlDialectTest.java
@@ -13,7 +13,9 @@
 package mondrian.spi.impl;
 
 import junit.framework.TestCase;
+import mondrian.server.monitor.SqlStatementEvent;
 import mondrian.spi.Dialect;
+import mondrian.test.PropertySaver;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -54,5 +56,22 @@ public class PostgreSqlDialectTest extends TestCase {
     assertEquals( "cast(table.column as text) is not null and cast(table.column as text) ~ '.*a.*'", sql );
   }
 
+  /**
+   * Tests that the dialect asks for a transaction, so that the driver reads rows with a cursor, and fetches rows in
+   * batches of the configured size, if any.
+   */
+  public void testFetchSize() {
+    assertTrue( dialect.requiresTransactionForCursor() );
+    assertEquals( 0, dialect.getFetchSize( SqlStatementEvent.Purpose.CELL_SEGMENT, true ) );
+    final PropertySaver propSaver = new PropertySaver();
+    try {
+      propSaver.set( propSaver.properties.SqlFetchSize, 1000 );
+      assertEquals( 1000, dialect.getFetchSize( SqlStatementEvent.Purpose.CELL_SEGMENT, true ) );
+      assertEquals( 0, dialect.getFetchSize( SqlStatementEvent.Purpose.OTHER, true ) );
+    } finally {
+      propSaver.reset();
+    }
+  }
+
 }
 //End PostgreSqlDialectTest.java
@@ -33,6 +33,7 @@ import mondrian.olap.IdBatchResolverTest;
 import mondrian.olap.MondrianProperties;
 import mondrian.olap.NullMemberRepresentationTest;
 import mondrian.olap.ParserTest;
+import mondrian.olap.QueryPlanCacheTest;
 import mondrian.olap.QueryTest;
 import mondrian.olap.UtilTestCase;
 import mondrian.olap.fun.CachedExistsTest;
@@ -83,6 +84,7 @@ import mondrian.rolap.RolapMemberBaseTest;
 import mondrian.rolap.RolapNativeSqlInjectionTest;
 import mondrian.rolap.RolapNativeTopCountTest;
 import mondrian.rolap.RolapNativeTopCountVersusNonNativeTest;
+import mondrian.rolap.RolapResultCacheTest;
 import mondrian.rolap.RolapResultTest;
 import mondrian.rolap.RolapSchemaPoolConcurrencyTest;
 import mondrian.rolap.RolapSchemaPoolTest;
@@ -91,6 +93,8 @@ import mondrian.rolap.RolapSchemaTest;
 import mondrian.rolap.RolapStarTest;
 import mondrian.rolap.RolapUtilTest;
 import mondrian.rolap.SharedDimensionTest;
+import mondrian.rolap.SharedExpCacheTest;
+import mondrian.rolap.SqlConcurrencyLimiterTest;
 import mondrian.rolap.SqlConstraintUtilsTest;
 import mondrian.rolap.SqlMemberSourceTest;
 import mondrian.rolap.SqlStatementTest;
@@ -101,11 +105,14 @@ import mondrian.rolap.VirtualCubeTest;
 import mondrian.rolap.agg.AggregationOnDistinctCountMeasuresTest;
 import mondrian.rolap.agg.AggregationOnInvalidRoleTest;
 import mondrian.rolap.agg.AggregationOnInvalidRoleWhenNotIgnoringTest;
+import mondrian.rolap.agg.CellMapTest;
 import mondrian.rolap.agg.DenseDoubleSegmentBodyTest;
 import mondrian.rolap.agg.DenseIntSegmentBodyTest;
 import mondrian.rolap.agg.GroupingSetsListTest;
+import mondrian.rolap.agg.OffHeapDoubleSegmentBodyTest;
 import mondrian.rolap.agg.SegmentBuilderTest;
 import mondrian.rolap.agg.SegmentCacheTest;
+import mondrian.rolap.agg.SegmentCodecTest;
 import mondrian.rolap.agg.SegmentLoaderTest;
 import mondrian.rolap.aggmatcher.AggGenTest;
 import mondrian.rolap.aggmatcher.AggSchemaScanTest;
@@ -117,16 +124,23 @@ import mondrian.rolap.aggmatcher.MultipleColsInTupleAggTest;
 import mondrian.rolap.aggmatcher.NonCollapsedAggTest;
 import mondrian.rolap.aggmatcher.SpeciesNonCollapsedAggTest;
 import mondrian.rolap.aggmatcher.UsagePrefixTest;
+import mondrian.rolap.cache.DiskSegmentCacheTest;
+import mondrian.rolap.cache.EvictingMemorySegmentCacheTest;
 import mondrian.rolap.cache.SegmentCacheIndexImplTest;
+import mondrian.rolap.cache.SegmentRegionIndexTest;
 import mondrian.rolap.format.DefaultFormatterTest;
 import mondrian.rolap.format.FormatterCreateContextTest;
 import mondrian.rolap.format.FormatterFactoryTest;
+import mondrian.rolap.sql.BoundSqlTest;
 import mondrian.rolap.sql.CodeSetTest;
 import mondrian.rolap.sql.CrossJoinArgFactoryTest;
 import mondrian.rolap.sql.EffectiveMemberCacheTest;
 import mondrian.rolap.sql.SelectNotInGroupByTest;
 import mondrian.rolap.sql.SqlQueryTest;
+import mondrian.server.ExecutionProfileTest;
 import mondrian.server.FileRepositoryTest;
+import mondrian.server.MonitorImplTest;
+import mondrian.server.WorkloadSchedulerTest;
 import mondrian.spi.DialectUtilTest;
 import mondrian.spi.impl.ImpalaDialectTest;
 import mondrian.spi.impl.JdbcDialectImplTest;
@@ -171,11 +185,13 @@ import mondrian.util.Counters;
 import mondrian.util.ExpiringReferenceTest;
 import mondrian.util.FilteredIterableTest;
 import mondrian.util.FormatTest;
+import mondrian.util.HistogramTest;
 import mondrian.util.MemoryMonitorTest;
 import mondrian.util.ObjectPoolTest;
 import mondrian.util.PartiallyOrderedSetTest;
 import mondrian.util.PrimeFinderTest;
 import mondrian.util.ScheduleTest;
+import mondrian.web.servlet.MetricsServletTest;
 import mondrian.xmla.XmlaBasicTest;
 import mondrian.xmla.XmlaCognosTest;
 import mondrian.xmla.XmlaDimensionPropertiesTest;
@@ -291,6 +307,9 @@ public class Main extends TestSuite {
       addTest( suite, SegmentBuilderTest.class );
       addTest( suite, DenseDoubleSegmentBodyTest.class );
       addTest( suite, DenseIntSegmentBodyTest.class );
+      addTest( suite, OffHeapDoubleSegmentBodyTest.class );
+      addTest( suite, SegmentCodecTest.class );
+      addTest( suite, CellMapTest.class );
       addTest( suite, NativeFilterMatchingTest.class );
       addTest( suite, NativeFilterAgainstAggTableTest.class );
       addTest( suite, RolapConnectionTest.class );
@@ -309,6 +328,9 @@ public class Main extends TestSuite {
       addTest( suite, BasicQueryTest.class );
       addTest( suite, SegmentCacheTest.class );
       addTest( suite, SegmentCacheIndexImplTest.class );
+      addTest( suite, SegmentRegionIndexTest.class );
+      addTest( suite, EvictingMemorySegmentCacheTest.class );
+      addTest( suite, DiskSegmentCacheTest.class );
       addTest( suite, CVBasicTest.class, "suite" );
       addTest( suite, GrandTotalTest.class, "suite" );
       addTest( suite, HangerDimensionTest.class, "suite" );
@@ -391,16 +413,20 @@ public class Main extends TestSuite {
       addTest( suite, DataSourceChangeListenerTest.class );
       addTest( suite, ModulosTest.class );
       addTest( suite, PrimeFinderTest.class );
+      addTest( suite, HistogramTest.class );
       addTest( suite, CellKeyTest.class );
       addTest( suite, RolapAxisTest.class );
       addTest( suite, CrossJoinTest.class );
       if ( Bug.BugMondrian503Fixed ) {
         addTest( suite, RolapResultTest.class );
+        addTest( suite, RolapResultCacheTest.class );
       }
       addTest( suite, ConstantCalcTest.class );
       addTest( suite, SharedDimensionTest.class );
+      addTest( suite, SharedExpCacheTest.class );
       addTest( suite, CellPropertyTest.class );
       addTest( suite, QueryTest.class );
+      addTest( suite, QueryPlanCacheTest.class );
       addTest( suite, RolapSchemaReaderTest.class );
       addTest( suite, RolapCubeTest.class );
       addTest( suite, NumberSqlCompilerTest.class );
@@ -434,10 +460,14 @@ public class Main extends TestSuite {
       addTest( suite, DynamicSchemaProcessorTest.class );
       addTest( suite, LocalizingDynamicSchemaProcessorTest.class );
       addTest( suite, MonitorTest.class );
+      addTest( suite, MonitorImplTest.class );
+      addTest( suite, MetricsServletTest.class );
+      addTest( suite, ExecutionProfileTest.class );
       addTest( suite, DeadlockTest.class );
 
       addTest( suite, BlockingHashMapTest.class );
       addTest( suite, FileRepositoryTest.class );
+      addTest( suite, WorkloadSchedulerTest.class );
       addTest( suite, XmlaExtraTest.class );
       addTest( suite, CrossJoinArgFactoryTest.class );
       addTest( suite, UnionFunDefTest.class );
@@ -453,6 +483,7 @@ public class Main extends TestSuite {
       addTest( suite, MemberCacheHelperTest.class );
       addTest( suite, EffectiveMemberCacheTest.class );
       addTest( suite, SqlStatementTest.class );
+      addTest( suite, SqlConcurrencyLimiterTest.class );
       addTest( suite, ValidMeasureFunDefTest.class );
 
       boolean testNonEmpty = isRunOnce();
@@ -472,6 +503,7 @@ public class Main extends TestSuite {
 
       addTest( suite, FastBatchingCellReaderTest.class );
       addTest( suite, SqlQueryTest.class );
+      addTest( suite, BoundSqlTest.class );
       addTest( suite, CodeSetTest.class );
       addTest( suite, ExplicitRecognizerTest.class );
       addTest( suite, AggregationOverAggTableTest.class );
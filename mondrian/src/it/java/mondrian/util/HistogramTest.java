@@ -0,0 +1,105 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.util;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Test case for {@link Histogram}.
+ */
+public class HistogramTest extends TestCase {
+    /**
+     * Tests that each value falls in a bucket whose range contains it, and
+     * that buckets are contiguous.
+     */
+    public void testBuckets() {
+        for (long value = 0; value < 5000; value++) {
+            checkBucket(value);
+        }
+        for (int shift = 0; shift < 63; shift++) {
+            checkBucket(1L << shift);
+            checkBucket((1L << shift) - 1);
+            checkBucket((1L << shift) + 1);
+        }
+        checkBucket(Long.MAX_VALUE);
+        for (int bucket = 1;
+             bucket <= Histogram.bucket(Long.MAX_VALUE);
+             bucket++)
+        {
+            assertEquals(
+                bucket,
+                Histogram.bucket(Histogram.highestValue(bucket - 1) + 1));
+        }
+    }
+
+    private void checkBucket(long value) {
+        final int bucket = Histogram.bucket(value);
+        assertTrue(value <= Histogram.highestValue(bucket));
+        assertTrue(bucket == 0 || value > Histogram.highestValue(bucket - 1));
+    }
+
+    public void testPercentiles() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(10000000, histogram.getMax());
+        assertEquals(10000L * 10001 / 2 * 1000, histogram.getSum());
+        checkWithin(5000000, histogram.getValueAtPercentile(50));
+        checkWithin(9900000, histogram.getValueAtPercentile(99));
+        checkWithin(1000, histogram.getValueAtPercentile(0));
+        assertEquals(10000000, histogram.getValueAtPercentile(100));
+
+        // Negative values count as 0.
+        histogram.record(-5);
+        assertEquals(0, histogram.getMin());
+    }
+
+    /**
+     * Compares percentiles with those of the sorted values, for random
+     * values spanning several orders of magnitude.
+     */
+    public void testRandom() {
+        final Random random = new Random(1234);
+        final Histogram histogram = new Histogram();
+        final long[] values = new long[20000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 30);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {10, 50, 90, 95, 99, 99.9}) {
+            final int rank =
+                (int) Math.ceil(percentile / 100d * values.length) - 1;
+            checkWithin(
+                values[rank], histogram.getValueAtPercentile(percentile));
+        }
+    }
+
+    private void checkWithin(long expected, long actual) {
+        assertTrue(
+            "expected " + expected + ", actual " + actual,
+            actual >= expected && actual <= expected + expected / 30 + 1);
+    }
+}
+
+// End HistogramTest.java
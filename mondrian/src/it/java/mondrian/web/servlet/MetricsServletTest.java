@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.web.servlet;
+
+import mondrian.server.monitor.HistogramInfo;
+import mondrian.server.monitor.SegmentCacheShardInfo;
+import mondrian.server.monitor.ServerInfo;
+
+import junit.framework.TestCase;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.*;
+
+/**
+ * Test case for {@link MetricsServlet}.
+ */
+public class MetricsServletTest extends TestCase {
+    /**
+     * Tests that counters, histograms and shard queue depths are written in
+     * text exposition format.
+     */
+    public void testWrite() {
+        final ServerInfo serverInfo =
+            new ServerInfo(
+                null, 0, 0, 0, 0, 5, 5, 4, 0L, 0L, 0, 3, 10, 0, 0, 7, 6,
+                0L, 0L, 0L, 0, 0, 0, 0, 0, 0, 0, 0);
+        final HistogramInfo histogram =
+            new HistogramInfo(
+                null, "sql.execute.cell_segment.nanos", 4, 1000, 100, 400,
+                200, 300, 350, 390, 399);
+        final List<String> lines =
+            write(
+                serverInfo,
+                Collections.singletonList(histogram),
+                Arrays.asList(
+                    new SegmentCacheShardInfo(null, 0, 0, 2),
+                    new SegmentCacheShardInfo(null, 0, 1, 0)));
+
+        assertContains(
+            lines,
+            "# TYPE mondrian_execution_start_total counter",
+            "mondrian_execution_start_total 7",
+            "# TYPE mondrian_execution_end_total counter",
+            "mondrian_execution_end_total 6",
+            "# TYPE mondrian_sql_statement_start_total counter",
+            "mondrian_sql_statement_start_total 5",
+            "# TYPE mondrian_sql_statement_end_total counter",
+            "mondrian_sql_statement_end_total 4",
+            "# TYPE mondrian_cell_cache_hit_total counter",
+            "mondrian_cell_cache_hit_total 3",
+            "# TYPE mondrian_cell_cache_miss_total counter",
+            "mondrian_cell_cache_miss_total 7");
+
+        final String name = "mondrian_sql_execute_cell_segment_nanos";
+        assertContains(
+            lines,
+            "# TYPE " + name + " summary",
+            name + "{quantile=\"0.5\"} 200",
+            name + "{quantile=\"0.9\"} 300",
+            name + "{quantile=\"0.95\"} 350",
+            name + "{quantile=\"0.99\"} 390",
+            name + "{quantile=\"0.999\"} 399",
+            name + "_sum 1000",
+            name + "_count 4");
+
+        assertContains(
+            lines,
+            "# TYPE mondrian_segment_cache_queue_depth gauge",
+            "mondrian_segment_cache_queue_depth{shard=\"0\"} 2",
+            "mondrian_segment_cache_queue_depth{shard=\"1\"} 0");
+
+        // Each metric is declared once, before its samples.
+        final Set<String> types = new HashSet<String>();
+        for (String line : lines) {
+            if (line.startsWith("# TYPE ")) {
+                assertTrue(line, types.add(line.split(" ")[2]));
+            } else {
+                final String metric = line.split("[{ ]")[0];
+                assertTrue(
+                    line,
+                    types.contains(metric)
+                    || types.contains(metric.replaceAll("_(sum|count)$", "")));
+            }
+        }
+    }
+
+    /**
+     * Tests that no histograms and no shards produce only the counters.
+     */
+    public void testWriteEmpty() {
+        final ServerInfo serverInfo =
+            new ServerInfo(
+                null, 0, 0, 0, 0, 0, 0, 0, 0L, 0L, 0, 0, 0, 0, 0, 0, 0,
+                0L, 0L, 0L, 0, 0, 0, 0, 0, 0, 0, 0);
+        final List<String> lines =
+            write(
+                serverInfo,
+                Collections.<HistogramInfo>emptyList(),
+                Collections.<SegmentCacheShardInfo>emptyList());
+        assertEquals(12, lines.size());
+        for (String line : lines) {
+            assertFalse(line, line.contains("quantile"));
+            assertFalse(line, line.contains("queue_depth"));
+        }
+    }
+
+    private static List<String> write(
+        ServerInfo serverInfo,
+        List<HistogramInfo> histograms,
+        List<SegmentCacheShardInfo> shards)
+    {
+        final StringWriter sw = new StringWriter();
+        final PrintWriter pw = new PrintWriter(sw);
+        MetricsServlet.write(pw, serverInfo, histograms, shards);
+        pw.flush();
+        return Arrays.asList(sw.toString().split("\r?\n"));
+    }
+
+    /**
+     * Asserts that the lines contain the expected lines, in order, one after
+     * another.
+     */
+    private static void assertContains(
+        List<String> lines,
+        String... expected)
+    {
+        final int start = lines.indexOf(expected[0]);
+        assertTrue("missing: " + expected[0], start >= 0);
+        assertEquals(
+            Arrays.asList(expected),
+            lines.subList(
+                start, Math.min(lines.size(), start + expected.length)));
+    }
+}
+
+// End MetricsServletTest.java
@@ -68,6 +68,17 @@ import mondrian.olap.type.Type;
  * sparingly: if you know the expected result type, it is better to write a
  * class which implements a specific <code><em>Type</em>Calc</code> interface.
  *
+ * <h3>Thread safety</h3>
+ *
+ * A compiled expression may be evaluated by several threads at once: the
+ * tasks that evaluate parts of a result in parallel share the compiled
+ * expressions of their statement, and queries built from a cached plan share
+ * its compiled axes. An implementation must therefore keep no evaluation
+ * state in its fields; a workspace, such as an array of members, must be
+ * allocated by each call. {@code NativizeSet}, whose calc compiles
+ * expressions as it evaluates, is the exception; a query that calls it is
+ * always evaluated by one thread.<p/>
+ *
  * @author jhyde
  * @since Sep 26, 2005
  */
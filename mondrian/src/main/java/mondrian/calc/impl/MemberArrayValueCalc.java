@@ -34,7 +34,6 @@ import mondrian.olap.type.Type;
  */
 public class MemberArrayValueCalc extends GenericCalc {
     private final MemberCalc[] memberCalcs;
-    private final Member[] members;
     private final boolean nullCheck;
 
     /**
@@ -56,11 +55,11 @@ public class MemberArrayValueCalc extends GenericCalc {
         final Type type = exp.getType();
         assert type instanceof ScalarType : exp;
         this.memberCalcs = memberCalcs;
-        this.members = new Member[memberCalcs.length];
     }
 
     public Object evaluate(Evaluator evaluator) {
         final int savepoint = evaluator.savepoint();
+        final Member[] members = new Member[memberCalcs.length];
         try {
             for (int i = 0; i < memberCalcs.length; i++) {
                 MemberCalc memberCalc = memberCalcs[i];
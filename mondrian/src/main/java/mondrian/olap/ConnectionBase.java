@@ -15,6 +15,7 @@ package mondrian.olap;
 
 import mondrian.parser.*;
 import mondrian.resource.MondrianResource;
+import mondrian.server.ExecutionProfile;
 import mondrian.server.Statement;
 
 import org.apache.logging.log4j.Logger;
@@ -96,14 +97,50 @@ public abstract class ConnectionBase implements Connection {
         }
 
         try {
-            return
-                parser.parseInternal(
-                    statement, query, debug, funTable, strictValidation);
+            final long start = System.nanoTime();
+            final QueryPlanCache planCache = getQueryPlanCache();
+            QueryPart queryPart = null;
+            if (planCache != null) {
+                queryPart =
+                    planCache.get(statement, query, funTable, strictValidation);
+            }
+            if (queryPart == null) {
+                queryPart =
+                    parser.parseInternal(
+                        statement, query, debug, funTable, strictValidation);
+                if (planCache != null && queryPart instanceof Query) {
+                    planCache.put(
+                        statement, query, funTable, strictValidation,
+                        (Query) queryPart);
+                }
+            }
+            if (queryPart instanceof Query) {
+                // The parser also validates and compiles the query; those
+                // phases are already in its profile.
+                final ExecutionProfile profile =
+                    ((Query) queryPart).getPreparationProfile();
+                profile.add(
+                    ExecutionProfile.Phase.PARSE,
+                    System.nanoTime() - start
+                    - profile.getNanos(ExecutionProfile.Phase.VALIDATE)
+                    - profile.getNanos(ExecutionProfile.Phase.COMPILE));
+            }
+            return queryPart;
         } catch (Exception e) {
             throw MondrianResource.instance().FailedToParseQuery.ex(query, e);
         }
     }
 
+    /**
+     * Returns the cache of validated queries to use when parsing statements,
+     * or null if queries are not cached. This implementation returns null.
+     *
+     * @return Query plan cache, or null
+     */
+    protected QueryPlanCache getQueryPlanCache() {
+        return null;
+    }
+
     protected MdxParserValidator createParser() {
         return true
             ? new JavaccParserValidatorImpl()
@@ -43,6 +43,13 @@ public class Formula extends QueryPart {
     private Member mdxMember;
     private NamedSet mdxSet;
 
+    /**
+     * Whether {@link #accept(Validator)} has copied this formula's properties
+     * to {@link #mdxMember}. A copy made by {@link #clone()} shares the
+     * member, so validating the copy does not write the properties again.
+     */
+    private boolean propertiesSet;
+
     /**
      * Constructs formula specifying a set.
      */
@@ -81,13 +88,16 @@ public class Formula extends QueryPart {
     }
 
     public Object clone() {
-        return new Formula(
-            isMember,
-            id,
-            exp.clone(),
-            MemberProperty.cloneArray(memberProperties),
-            mdxMember,
-            mdxSet);
+        final Formula formula =
+            new Formula(
+                isMember,
+                id,
+                exp.clone(),
+                MemberProperty.cloneArray(memberProperties),
+                mdxMember,
+                mdxSet);
+        formula.propertiesSet = propertiesSet;
+        return formula;
     }
 
     static Formula[] cloneArray(Formula[] x) {
@@ -124,7 +134,7 @@ public class Formula extends QueryPart {
         }
         // Get the format expression from the property list, or derive it from
         // the formula.
-        if (isMember) {
+        if (isMember && !propertiesSet) {
             Exp formatExp = getFormatExp(validator);
             if (formatExp != null) {
                 mdxMember.setProperty(
@@ -162,6 +172,7 @@ public class Formula extends QueryPart {
                     mdxMember.setProperty(memberProperty.getName(), value);
                 }
             }
+            propertiesSet = true;
         }
     }
 
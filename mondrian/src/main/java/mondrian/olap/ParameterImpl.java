@@ -98,6 +98,19 @@ public class ParameterImpl
             || type instanceof MemberType;
     }
 
+    /**
+     * Creates a copy of a parameter. The copy has the same definition but
+     * holds its own value, which is not set.
+     *
+     * @param parameter Parameter
+     */
+    ParameterImpl(ParameterImpl parameter) {
+        this.name = parameter.name;
+        this.defaultExp = parameter.defaultExp;
+        this.description = parameter.description;
+        this.type = parameter.type;
+    }
+
     public Scope getScope() {
         return Scope.Statement;
     }
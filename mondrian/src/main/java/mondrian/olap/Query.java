@@ -124,7 +124,11 @@ public class Query extends QueryPart {
    */
   private ResultStyle resultStyle = Util.Retrowoven ? ResultStyle.LIST : ResultStyle.ITERABLE;
 
-  private Map<String, Object> evalCache = new HashMap<String, Object>();
+  /**
+   * Values cached by calcs between iterations. Synchronized, because the cells of a query may be evaluated by several
+   * threads.
+   */
+  private final Map<String, Object> evalCache = Collections.synchronizedMap( new HashMap<String, Object>() );
 
   /**
    * List of aliased expressions defined in this query, and where they are defined. There might be more than one aliased
@@ -133,6 +137,11 @@ public class Query extends QueryPart {
   private final List<ScopedNamedSet> scopedNamedSets = new ArrayList<>();
   private boolean ownStatement;
 
+  /**
+   * Time spent preparing this query: parsing, validating and compiling. Copied into the profile of each execution.
+   */
+  private final ExecutionProfile preparationProfile = new ExecutionProfile();
+
   /**
    * Creates a Query.
    */
@@ -162,7 +171,63 @@ public class Query extends QueryPart {
     this.strictValidation = strictValidation;
     this.alertedNonNativeFunDefs = new HashSet<FunDef>();
     statement.setQuery( this );
+    enableProfiling();
+    resolve();
+  }
+
+  /**
+   * Creates a Query from a plan that is already validated, without validating it again.
+   *
+   * <p>
+   * The query gets its own copy of the formulas and axes, but shares the calculated members and named sets that they
+   * define with the plan. If the plan has no parameters, the query also shares its compiled axes; otherwise each
+   * parameter defined in the query is copied, so that it holds its own value, and the axes are compiled again.
+   *
+   * @param statement
+   *          Statement the query will belong to
+   * @param plan
+   *          Plan
+   */
+  Query( Statement statement, QueryPlanCache.Plan plan ) {
+    this.statement = statement;
+    this.cube = plan.cube;
+    this.formulas = Formula.cloneArray( plan.formulas );
+    this.axes = QueryAxis.cloneArray( plan.axes );
+    this.slicerAxis = plan.slicerAxis == null ? null : (QueryAxis) plan.slicerAxis.clone();
+    this.cellProps = plan.cellProps;
+    this.measuresMembers = new HashSet<Member>( plan.measuresMembers );
+    this.nativeCrossJoinVirtualCube = plan.nativeCrossJoinVirtualCube;
+    this.strictValidation = plan.strictValidation;
+    this.resultStyle = plan.resultStyle;
+    this.scopedNamedSets.addAll( plan.scopedNamedSets );
+    this.alertedNonNativeFunDefs = new HashSet<FunDef>();
+    statement.setQuery( this );
+    enableProfiling();
 
+    if ( plan.parameters.length == 0 ) {
+      axisCalcs = plan.axisCalcs == null ? null : plan.axisCalcs.clone();
+      slicerCalc = plan.slicerCalc;
+      return;
+    }
+    final long compileStart = System.nanoTime();
+    for ( Parameter parameter : plan.copyParameters() ) {
+      parameters.add( parameter );
+      parametersByName.put( parameter.getName(), parameter );
+    }
+    // Point each parameter expression at this query's copy of its parameter.
+    final Validator validator = createValidator();
+    accept( new MdxVisitorImpl() {
+      public Object visit( ParameterExpr parameterExpr ) {
+        parameterExpr.accept( validator );
+        return null;
+      }
+    } );
+    final Evaluator evaluator = RolapUtil.createEvaluator( statement );
+    compile( createCompiler( evaluator, validator, Collections.singletonList( resultStyle ) ) );
+    preparationProfile.add( ExecutionProfile.Phase.COMPILE, System.nanoTime() - compileStart );
+  }
+
+  private void enableProfiling() {
     if ( RolapUtil.PROFILE_LOGGER.isDebugEnabled() && statement.getProfileHandler() == null ) {
       statement.enableProfiling( new ProfileHandler() {
         public void explain( String plan, QueryTiming timing ) {
@@ -173,7 +238,6 @@ public class Query extends QueryPart {
         }
       } );
     }
-    resolve();
   }
 
   /**
@@ -203,6 +267,13 @@ public class Query extends QueryPart {
     return false;
   }
 
+  /**
+   * Returns the cell properties requested by this query.
+   */
+  QueryPart[] getCellProperties() {
+    return cellProps;
+  }
+
   /**
    * Checks whether any cell property present in the query
    */
@@ -384,16 +455,29 @@ public class Query extends QueryPart {
    * modified the query's expression tree in any way.
    */
   public void resolve() {
+    final long validateStart = System.nanoTime();
     // Before commencing validation, create all calculated members
     // and calculated sets
     createFormulaElements();
     Map<QueryPart, QueryPart> resolvedIdentifiers = new IdBatchResolver( this ).resolve();
     final Validator validator = createValidator( resolvedIdentifiers );
     resolve( validator ); // resolve self and children
+    final long compileStart = System.nanoTime();
+    preparationProfile.add( ExecutionProfile.Phase.VALIDATE, compileStart - validateStart );
     // Create a dummy result so we can use its evaluator
     final Evaluator evaluator = RolapUtil.createEvaluator( statement );
     ExpCompiler compiler = createCompiler( evaluator, validator, Collections.singletonList( resultStyle ) );
     compile( compiler );
+    preparationProfile.add( ExecutionProfile.Phase.COMPILE, System.nanoTime() - compileStart );
+  }
+
+  /**
+   * Returns the time spent preparing this query, by phase: parsing, validating and compiling.
+   *
+   * @return Preparation profile
+   */
+  public ExecutionProfile getPreparationProfile() {
+    return preparationProfile;
   }
 
   private void createFormulaElements() {
@@ -910,6 +994,13 @@ public class Query extends QueryPart {
     return scopedNamedSet;
   }
 
+  /**
+   * Returns the named sets defined by aliases in this query.
+   */
+  List<ScopedNamedSet> getScopedNamedSets() {
+    return scopedNamedSets;
+  }
+
   /**
    * Looks up a named set defined by an alias.
    *
@@ -0,0 +1,357 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.olap;
+
+import mondrian.calc.Calc;
+import mondrian.calc.ResultStyle;
+import mondrian.mdx.*;
+import mondrian.olap.fun.NativizeSetFunDef;
+import mondrian.server.Statement;
+
+import java.util.*;
+
+/**
+ * Cache of validated and compiled queries, keyed by MDX text, so that
+ * executing the same MDX again does not parse, validate or compile it again.
+ *
+ * <p>Each schema has a cache, so a query is never shared between schemas;
+ * within a schema, the key also contains the role, locale, function table and
+ * validation policy of the connection that parsed it. Runs of white space in
+ * the MDX text, outside quoted strings and bracketed names, are collapsed.</p>
+ *
+ * <p>A {@link Query} belongs to a statement and may be modified after it is
+ * parsed, so the cache keeps a {@link Plan}: a private copy of the query's
+ * validated formulas and axes, and its compiled axes. {@link #get} builds a
+ * new query for the caller's statement from a plan without validating it.
+ * The queries built from a plan share the calculated members and named sets
+ * that its formulas define, and, unless the plan has parameters, its compiled
+ * axes. Compiled expressions hold no evaluation state except the values of
+ * parameters; evaluators keep their caches by execution.</p>
+ *
+ * <p>Each query built from a plan that has parameters gets its own copy of
+ * each {@link Parameter} defined in the query, because a parameter holds its
+ * value; the axes of such a query are compiled again, against the copies, but
+ * not validated again. A query is not cached if it refers to a connection
+ * property as a parameter, if the expression of a calculated member or named
+ * set that it defines contains a parameter, or if it calls
+ * {@code NativizeSet}, which modifies the query as it compiles.</p>
+ *
+ * <p>The size of the cache is given by
+ * {@link MondrianProperties#QueryPlanCacheSize}; when it is full, the least
+ * recently used query is discarded. This class is thread-safe.</p>
+ */
+public class QueryPlanCache {
+    private final Map<Key, Plan> map =
+        new LinkedHashMap<Key, Plan>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Key, Plan> entry) {
+                return size() > maxSize();
+            }
+        };
+
+    /**
+     * Returns a query for a given statement, built from a cached plan, or
+     * null if the MDX text is not in the cache.
+     *
+     * @param statement Statement the query will belong to
+     * @param mdx MDX text
+     * @param funTable Function table
+     * @param strictValidation Whether invalid members are errors
+     * @return Query, or null
+     */
+    public Query get(
+        Statement statement,
+        String mdx,
+        FunTable funTable,
+        boolean strictValidation)
+    {
+        if (maxSize() <= 0) {
+            return null;
+        }
+        final Plan plan;
+        synchronized (map) {
+            plan = map.get(
+                new Key(statement, mdx, funTable, strictValidation));
+        }
+        if (plan == null) {
+            return null;
+        }
+        return new Query(statement, plan);
+    }
+
+    /**
+     * Adds a query that has just been parsed to the cache. Does nothing if
+     * the cache is disabled or if the query cannot be cached.
+     *
+     * @param statement Statement that parsed the query
+     * @param mdx MDX text
+     * @param funTable Function table
+     * @param strictValidation Whether invalid members are errors
+     * @param query Validated query
+     */
+    public void put(
+        Statement statement,
+        String mdx,
+        FunTable funTable,
+        boolean strictValidation,
+        Query query)
+    {
+        if (maxSize() <= 0 || !isCacheable(query)) {
+            return;
+        }
+        final Plan plan = new Plan(query, strictValidation);
+        synchronized (map) {
+            map.put(new Key(statement, mdx, funTable, strictValidation), plan);
+        }
+    }
+
+    /**
+     * Removes all queries from the cache.
+     */
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    /**
+     * Returns the number of queries in the cache.
+     */
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    /**
+     * Returns whether queries built from a plan of a given query would
+     * behave like the query itself.
+     *
+     * @param query Validated query
+     * @return Whether query can be cached
+     */
+    static boolean isCacheable(Query query) {
+        for (Parameter parameter : query.getParameters()) {
+            if (parameter.getScope() == Parameter.Scope.Connection) {
+                // Its value is that of the property when the query was
+                // validated.
+                return false;
+            }
+        }
+        final Finder finder = new Finder();
+        for (Formula formula : query.getFormulas()) {
+            formula.accept(finder);
+        }
+        if (finder.statementParameter) {
+            return false;
+        }
+        query.accept(finder);
+        return !finder.nativizeSet;
+    }
+
+    private static int maxSize() {
+        return MondrianProperties.instance().QueryPlanCacheSize.get();
+    }
+
+    /**
+     * Collapses each run of white space in an MDX string to a single space,
+     * except in quoted strings and bracketed names, and trims the result.
+     *
+     * @param mdx MDX text
+     * @return Normalized MDX text
+     */
+    static String normalize(String mdx) {
+        final StringBuilder buf = new StringBuilder(mdx.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < mdx.length(); i++) {
+            final char c = mdx.charAt(i);
+            if (quote != 0) {
+                buf.append(c);
+                if (c == ']'
+                    && quote == ']'
+                    && i + 1 < mdx.length()
+                    && mdx.charAt(i + 1) == ']')
+                {
+                    // Escaped bracket, as in "[a]]b]".
+                    buf.append(']');
+                    ++i;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && buf.length() > 0) {
+                buf.append(' ');
+            }
+            space = false;
+            buf.append(c);
+            switch (c) {
+            case '\'':
+            case '"':
+                quote = c;
+                break;
+            case '[':
+                quote = ']';
+                break;
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Validated formulas and axes of a query, copied so that they are not
+     * affected by later changes to the query, and its compiled axes.
+     */
+    static class Plan {
+        final Cube cube;
+        final Formula[] formulas;
+        final QueryAxis[] axes;
+        final QueryAxis slicerAxis;
+        final QueryPart[] cellProps;
+        final Parameter[] parameters;
+        final boolean strictValidation;
+        final ResultStyle resultStyle;
+        final Set<Member> measuresMembers;
+        final boolean nativeCrossJoinVirtualCube;
+        final List<Query.ScopedNamedSet> scopedNamedSets;
+
+        /**
+         * Compiled axes, or null if the query has parameters.
+         */
+        final Calc[] axisCalcs;
+        final Calc slicerCalc;
+
+        Plan(Query query, boolean strictValidation) {
+            this.cube = query.getCube();
+            this.formulas = Formula.cloneArray(query.getFormulas());
+            this.axes = QueryAxis.cloneArray(query.getAxes());
+            this.slicerAxis =
+                query.getSlicerAxis() == null
+                    ? null
+                    : (QueryAxis) query.getSlicerAxis().clone();
+            this.cellProps = query.getCellProperties();
+            this.parameters = copyParameters(query.getParameters());
+            this.strictValidation = strictValidation;
+            this.resultStyle = query.getResultStyle();
+            this.measuresMembers =
+                new HashSet<Member>(query.getMeasuresMembers());
+            this.nativeCrossJoinVirtualCube =
+                query.nativeCrossJoinVirtualCube();
+            this.scopedNamedSets =
+                new ArrayList<Query.ScopedNamedSet>(
+                    query.getScopedNamedSets());
+            if (parameters.length == 0) {
+                this.axisCalcs =
+                    query.axisCalcs == null ? null : query.axisCalcs.clone();
+                this.slicerCalc = query.slicerCalc;
+            } else {
+                this.axisCalcs = null;
+                this.slicerCalc = null;
+            }
+        }
+
+        /**
+         * Returns copies of the parameters defined in the query, so that the
+         * copies hold their own values. Parameters that are defined outside
+         * the query, such as schema parameters, are not copied.
+         */
+        Parameter[] copyParameters() {
+            return copyParameters(parameters);
+        }
+
+        private static Parameter[] copyParameters(Parameter[] parameters) {
+            final Parameter[] copies = parameters.clone();
+            for (int i = 0; i < copies.length; i++) {
+                if (copies[i].getClass() == ParameterImpl.class) {
+                    copies[i] = new ParameterImpl((ParameterImpl) copies[i]);
+                }
+            }
+            return copies;
+        }
+    }
+
+    /**
+     * Visitor that looks for statement parameters and calls to
+     * {@code NativizeSet}.
+     */
+    private static class Finder extends MdxVisitorImpl {
+        boolean statementParameter;
+        boolean nativizeSet;
+
+        public Object visit(ParameterExpr parameterExpr) {
+            if (parameterExpr.getParameter().getScope()
+                == Parameter.Scope.Statement)
+            {
+                statementParameter = true;
+            }
+            return null;
+        }
+
+        public Object visit(ResolvedFunCall call) {
+            if (call.getFunDef() instanceof NativizeSetFunDef) {
+                nativizeSet = true;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Key of a query in the cache.
+     */
+    private static class Key {
+        private final String mdx;
+        private final Role role;
+        private final Locale locale;
+        private final FunTable funTable;
+        private final boolean strictValidation;
+
+        Key(
+            Statement statement,
+            String mdx,
+            FunTable funTable,
+            boolean strictValidation)
+        {
+            this.mdx = normalize(mdx);
+            this.role = statement.getMondrianConnection().getRole();
+            this.locale = statement.getMondrianConnection().getLocale();
+            this.funTable = funTable;
+            this.strictValidation = strictValidation;
+        }
+
+        public int hashCode() {
+            int h = mdx.hashCode();
+            h = Util.hash(h, role);
+            h = Util.hash(h, locale);
+            h = Util.hash(h, System.identityHashCode(funTable));
+            return Util.hash(h, strictValidation ? 1 : 0);
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) obj;
+            return mdx.equals(that.mdx)
+                && Util.equals(role, that.role)
+                && Util.equals(locale, that.locale)
+                && funTable == that.funTable
+                && strictValidation == that.strictValidation;
+        }
+    }
+}
+
+// End QueryPlanCache.java
@@ -141,6 +141,12 @@ public class Util extends XOMUtil {
 
     private static final Logger LOGGER = LogManager.getLogger(Util.class);
 
+    /**
+     * Whether {@link #newVirtualThreadFactory(String)} has logged that
+     * virtual threads are not supported.
+     */
+    private static volatile boolean virtualThreadWarningLogged;
+
     /**
      * Placeholder which indicates a value NULL.
      */
@@ -271,6 +277,9 @@ public class Util extends XOMUtil {
 
     /**
      * Creates an {@link ExecutorService} object backed by a thread pool.
+     * The threads are virtual threads if
+     * {@link MondrianProperties#VirtualThreads} is set and the JVM supports
+     * them.
      * @param maximumPoolSize Maximum number of concurrent
      * threads.
      * @param corePoolSize Minimum number of concurrent
@@ -291,8 +300,14 @@ public class Util extends XOMUtil {
     {
         // We must create a factory where the threads
         // have the right name and are marked as daemon threads.
-        final ThreadFactory factory =
-            new ThreadFactory() {
+        // Virtual threads are always daemon threads.
+        final ThreadFactory virtualFactory =
+            MondrianProperties.instance().VirtualThreads.get()
+                ? newVirtualThreadFactory(name)
+                : null;
+        final ThreadFactory factory = virtualFactory != null
+            ? virtualFactory
+            : new ThreadFactory() {
                 private final AtomicInteger counter = new AtomicInteger(0);
                 public Thread newThread(Runnable r) {
                     final Thread t =
@@ -333,6 +348,41 @@ public class Util extends XOMUtil {
         return executor;
     }
 
+    /**
+     * Creates a factory of virtual threads, or returns null if this JVM
+     * does not support virtual threads.
+     *
+     * <p>Virtual threads were added in Java 21, so this method calls them
+     * via reflection. If virtual threads are not supported, it logs a
+     * warning the first time it is called.
+     *
+     * @param name Prefix of the names of the threads
+     * @return Factory of virtual threads, or null
+     */
+    public static ThreadFactory newVirtualThreadFactory(String name) {
+        try {
+            final Object builder =
+                Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass =
+                Class.forName("java.lang.Thread$Builder");
+            final Object namedBuilder =
+                builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, name + '_', 1L);
+            return (ThreadFactory)
+                builderClass.getMethod("factory").invoke(namedBuilder);
+        } catch (ReflectiveOperationException e) {
+            // Java 20 and earlier have no Thread.ofVirtual method; Java 19
+            // and 20 have it but throw unless preview features are enabled.
+            if (!virtualThreadWarningLogged) {
+                virtualThreadWarningLogged = true;
+                LOGGER.warn(
+                    "This JVM does not support virtual threads (they require "
+                    + "Java 21); using platform threads");
+            }
+            return null;
+        }
+    }
+
     /**
      * Creates an {@link ScheduledExecutorService} object backed by a
      * thread pool with a fixed number of threads..
@@ -324,7 +324,6 @@ public class JavaFunDef extends FunDefBase {
      */
     private static class JavaMethodCalc extends GenericCalc {
         private final Method method;
-        private final Object[] args;
 
         /**
          * Creates a JavaMethodCalc.
@@ -338,11 +337,11 @@ public class JavaFunDef extends FunDefBase {
         {
             super(call, calcs);
             this.method = method;
-            this.args = new Object[calcs.length];
         }
 
         public Object evaluate(Evaluator evaluator) {
             final Calc[] calcs = getCalcs();
+            final Object[] args = new Object[calcs.length];
             for (int i = 0; i < args.length; i++) {
                 args[i] = calcs[i].evaluate(evaluator);
                 if (args[i] == null) {
@@ -281,13 +281,11 @@ class OrderFunDef extends FunDefBase {
   private static class ContextCalc extends GenericIterCalc {
     private final MemberCalc[] memberCalcs;
     private final CalcWithDual calc;
-    private final Member[] members; // workspace
 
     protected ContextCalc( MemberCalc[] memberCalcs, CalcWithDual calc ) {
       super( new DummyExp( calc.getType() ), xx( memberCalcs, calc ) );
       this.memberCalcs = memberCalcs;
       this.calc = calc;
-      this.members = new Member[memberCalcs.length];
     }
 
     private static Calc[] xx( MemberCalc[] memberCalcs, CalcWithDual calc ) {
@@ -299,7 +297,9 @@ class OrderFunDef extends FunDefBase {
 
     public Object evaluate( Evaluator evaluator ) {
       // Evaluate each of the members, and set as context in the
-      // sub-evaluator.
+      // sub-evaluator. The workspace is not a field, because several
+      // threads may evaluate this calc at once.
+      final Member[] members = new Member[memberCalcs.length];
       for ( int i = 0; i < memberCalcs.length; i++ ) {
         members[i] = memberCalcs[i].evaluateMember( evaluator );
       }
@@ -116,6 +116,16 @@ public class UdfResolver implements Resolver {
         return reservedWords == null ? emptyStringArray : reservedWords;
     }
 
+    /**
+     * Returns whether a function definition is a user-defined function.
+     *
+     * @param funDef Function definition
+     * @return Whether function is user-defined
+     */
+    public static boolean isUserDefined(FunDef funDef) {
+        return funDef instanceof UdfFunDef;
+    }
+
     /**
      * Adapter which converts a {@link UserDefinedFunction} into a
      * {@link FunDef}.
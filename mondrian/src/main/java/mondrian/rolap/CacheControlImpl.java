@@ -207,6 +207,36 @@ public class CacheControlImpl implements CacheControl {
             // Figure out the bits.
             flushNonUnion(cellRegion);
         }
+        flushResults(region);
+    }
+
+    /**
+     * Discards cached results of queries, and shared values of expressions,
+     * that read cells of the stars in a region.
+     *
+     * @param region Region that has been flushed
+     */
+    private void flushResults(CellRegion region) {
+        final Map<RolapSchema, Set<RolapStar>> starsBySchema =
+            new HashMap<RolapSchema, Set<RolapStar>>();
+        for (Member measure : findMeasures(region)) {
+            if (measure instanceof RolapStoredMeasure) {
+                final RolapCube cube =
+                    ((RolapStoredMeasure) measure).getCube();
+                Set<RolapStar> stars = starsBySchema.get(cube.getSchema());
+                if (stars == null) {
+                    stars = new HashSet<RolapStar>();
+                    starsBySchema.put(cube.getSchema(), stars);
+                }
+                stars.add(cube.getStar());
+            }
+        }
+        for (Map.Entry<RolapSchema, Set<RolapStar>> entry
+            : starsBySchema.entrySet())
+        {
+            entry.getKey().getResultCache().flush(entry.getValue());
+            entry.getKey().getSharedExpCache().flush(entry.getValue());
+        }
     }
 
     /**
@@ -628,6 +658,11 @@ public class CacheControlImpl implements CacheControl {
         synchronized (MEMBER_CACHE_LOCK) {
             // firstly clear all cache associated with native sets
             connection.getSchema().getNativeRegistry().flushAllNativeSetCache();
+            // cached queries, results and expression values may refer to the
+            // flushed members
+            connection.getSchema().getQueryPlanCache().clear();
+            connection.getSchema().getResultCache().clear();
+            connection.getSchema().getSharedExpCache().clear();
             final List<CellRegion> cellRegionList = new ArrayList<CellRegion>();
             ((MemberSetPlus) memberSet).accept(
                 new MemberSetVisitorImpl() {
@@ -832,6 +867,11 @@ public class CacheControlImpl implements CacheControl {
                 final List<CellRegion> cellRegionList =
                     new ArrayList<CellRegion>();
                 ((MemberEditCommandPlus) cmd).execute(cellRegionList);
+                if (connection != null) {
+                    connection.getSchema().getQueryPlanCache().clear();
+                    connection.getSchema().getResultCache().clear();
+                    connection.getSchema().getSharedExpCache().clear();
+                }
 
                 // Flush the cells touched by the regions
                 for (CellRegion memberRegion : cellRegionList) {
@@ -241,15 +241,13 @@ public class FastBatchingCellReader implements CellReader {
 
         preloadColumnCardinality(cellRequests1);
 
-        for (int iteration = 0;; ++iteration) {
+        // Satisfy what we can from segments that are already in cache,
+        // without a round trip to the cache manager.
+        loadFromIndex(cellRequests1);
+
+        for (int iteration = 0; !cellRequests1.isEmpty(); ++iteration) {
             final BatchLoader.LoadBatchResponse response =
-                cacheMgr.execute(
-                    new BatchLoader.LoadBatchCommand(
-                        Locus.peek(),
-                        cacheMgr,
-                        getDialect(),
-                        cube,
-                        Collections.unmodifiableList(cellRequests1)));
+                loadBatch(cellRequests1);
 
             int failureCount = 0;
 
@@ -357,6 +355,9 @@ public class FastBatchingCellReader implements CellReader {
                             public Locus getLocus() {
                                 return locus;
                             }
+                            public RolapStar getStar() {
+                                return segmentWithData.getStar();
+                            }
                         });
                 }
             }
@@ -447,6 +448,71 @@ public class FastBatchingCellReader implements CellReader {
         return true;
     }
 
+    /**
+     * Satisfies cell requests using segments whose headers are in the
+     * segment index and whose bodies are in cache, and removes the satisfied
+     * requests from the list.
+     *
+     * <p>Reads the index directly, rather than sending a command to the cache
+     * manager, so a cache hit does not wait for the cache manager's thread.
+     * The index may change while we read it; any request that we cannot
+     * satisfy here is left for the cache manager.</p>
+     *
+     * @param cellRequests Cell requests; satisfied requests are removed
+     */
+    private void loadFromIndex(List<CellRequest> cellRequests) {
+        if (MondrianProperties.instance().DisableCaching.get()) {
+            return;
+        }
+        final Map<SegmentHeader, SegmentBody> headerBodies =
+            new HashMap<SegmentHeader, SegmentBody>();
+        for (Iterator<CellRequest> iterator = cellRequests.iterator();
+            iterator.hasNext();)
+        {
+            final CellRequest request = iterator.next();
+            final RolapStar.Measure measure = request.getMeasure();
+            final RolapStar star = measure.getStar();
+            if (star.getCellFromCache(request, null) != null) {
+                // A segment we registered for an earlier request has it.
+                iterator.remove();
+                continue;
+            }
+            final RolapSchema schema = star.getSchema();
+            final List<SegmentHeader> headers =
+                cacheMgr.getIndexRegistry().getIndex(star).locate(
+                    schema.getName(),
+                    schema.getChecksum(),
+                    measure.getCubeName(),
+                    measure.getName(),
+                    star.getFactTable().getAlias(),
+                    request.getConstrainedColumnsBitKey(),
+                    request.getMappedCellValues(),
+                    request.getCompoundPredicateStrings());
+            for (SegmentHeader header : headers) {
+                SegmentBody body = headerBodies.get(header);
+                if (body == null && !headerBodies.containsKey(header)) {
+                    // Null if the segment is still loading, or has been
+                    // evicted.
+                    body = cacheMgr.compositeCache.get(header);
+                    headerBodies.put(header, body);
+                }
+                if (body == null) {
+                    continue;
+                }
+                // Convert with the converter that the index holds for the
+                // header's measure, as the cache manager does. If there is
+                // none yet, leave the request to the cache manager.
+                final SegmentBuilder.SegmentConverter converter =
+                    cacheMgr.getConverter(star, header);
+                if (converter != null) {
+                    star.register(converter.convert(header, body));
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
     /**
      * Iterates through cell requests and makes sure .getCardinality has
      * been called on all constrained columns.  This is a  workaround
@@ -503,6 +569,65 @@ public class FastBatchingCellReader implements CellReader {
         return null;
     }
 
+    /**
+     * Asks the cache manager how to satisfy a list of cell requests.
+     *
+     * <p>Each request is processed by the cache manager shard that owns the
+     * request's star. If the requests belong to more than one shard, each
+     * shard receives its own command, and the responses are merged.</p>
+     *
+     * @param cellRequests Cell requests
+     * @return Response
+     */
+    private BatchLoader.LoadBatchResponse loadBatch(
+        List<CellRequest> cellRequests)
+    {
+        final Map<Integer, List<CellRequest>> requestsByShard =
+            new TreeMap<Integer, List<CellRequest>>();
+        if (cacheMgr.getShardCount() > 1) {
+            for (CellRequest request : cellRequests) {
+                final int shard =
+                    cacheMgr.getShard(request.getMeasure().getStar());
+                List<CellRequest> list = requestsByShard.get(shard);
+                if (list == null) {
+                    list = new ArrayList<CellRequest>();
+                    requestsByShard.put(shard, list);
+                }
+                list.add(request);
+            }
+        }
+        if (requestsByShard.size() <= 1) {
+            final int shard =
+                requestsByShard.isEmpty()
+                    ? 0
+                    : requestsByShard.keySet().iterator().next();
+            return cacheMgr.execute(
+                shard,
+                new BatchLoader.LoadBatchCommand(
+                    Locus.peek(),
+                    cacheMgr,
+                    getDialect(),
+                    cube,
+                    Collections.unmodifiableList(cellRequests)));
+        }
+        final List<BatchLoader.LoadBatchResponse> responses =
+            new ArrayList<BatchLoader.LoadBatchResponse>();
+        for (Map.Entry<Integer, List<CellRequest>> entry
+            : requestsByShard.entrySet())
+        {
+            responses.add(
+                cacheMgr.execute(
+                    entry.getKey(),
+                    new BatchLoader.LoadBatchCommand(
+                        Locus.peek(),
+                        cacheMgr,
+                        getDialect(),
+                        cube,
+                        Collections.unmodifiableList(entry.getValue()))));
+        }
+        return BatchLoader.LoadBatchResponse.merge(responses);
+    }
+
     private SegmentBody loadSegmentFromCache(
         Map<SegmentHeader, SegmentBody> headerBodies,
         SegmentHeader header)
@@ -1144,6 +1269,40 @@ class BatchLoader {
             this.futures = futures;
         }
 
+        /**
+         * Combines the responses to several commands, each for a different
+         * shard of the cache manager, into one.
+         */
+        static LoadBatchResponse merge(List<LoadBatchResponse> responses) {
+            final List<CellRequest> cellRequests =
+                new ArrayList<CellRequest>();
+            final List<SegmentHeader> cacheSegments =
+                new ArrayList<SegmentHeader>();
+            final List<RollupInfo> rollups = new ArrayList<RollupInfo>();
+            final Map<List, SegmentBuilder.SegmentConverter> converterMap =
+                new HashMap<List, SegmentBuilder.SegmentConverter>();
+            final List<Future<Map<Segment, SegmentWithData>>>
+                sqlSegmentMapFutures =
+                new ArrayList<Future<Map<Segment, SegmentWithData>>>();
+            final Map<SegmentHeader, Future<SegmentBody>> futures =
+                new HashMap<SegmentHeader, Future<SegmentBody>>();
+            for (LoadBatchResponse response : responses) {
+                cellRequests.addAll(response.cellRequests);
+                cacheSegments.addAll(response.cacheSegments);
+                rollups.addAll(response.rollups);
+                converterMap.putAll(response.converterMap);
+                sqlSegmentMapFutures.addAll(response.sqlSegmentMapFutures);
+                futures.putAll(response.futures);
+            }
+            return new LoadBatchResponse(
+                cellRequests,
+                cacheSegments,
+                rollups,
+                converterMap,
+                sqlSegmentMapFutures,
+                futures);
+        }
+
         public SegmentWithData convert(
             SegmentHeader header,
             SegmentBody body)
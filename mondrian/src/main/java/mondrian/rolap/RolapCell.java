@@ -40,7 +40,7 @@ public class RolapCell implements Cell {
      * @see mondrian.util.Bug#olap4jUpgrade Use
      * {@link mondrian.xmla.XmlaConstants}.ActionType.DRILLTHROUGH when present
      */
-    private static final int MDACTION_TYPE_DRILLTHROUGH = 0x100;
+    static final int MDACTION_TYPE_DRILLTHROUGH = 0x100;
 
     private final RolapResult result;
     protected final int[] pos;
@@ -49,7 +49,8 @@ public class RolapCell implements Cell {
     /**
      * Creates a RolapCell.
      *
-     * @param result Result cell belongs to
+     * @param result Result cell belongs to, or null if a subclass overrides
+     *     the methods that read the result
      * @param pos Coordinates of cell
      * @param ci Cell information, containing value et cetera
      */
@@ -59,6 +60,38 @@ public class RolapCell implements Cell {
         this.ci = ci;
     }
 
+    /**
+     * Returns the members that form the context of this cell. The caller may
+     * modify the array.
+     *
+     * @return Members which form the context of this cell
+     */
+    RolapMember[] getCellMembers() {
+        return result.getCellMembers(pos);
+    }
+
+    /**
+     * Returns the cube of the result that this cell belongs to.
+     */
+    RolapCube getCube() {
+        return result.getCube();
+    }
+
+    /**
+     * Returns the slicer axis of the result that this cell belongs to.
+     */
+    Axis getSlicerAxis() {
+        return result.getSlicerAxis();
+    }
+
+    /**
+     * Returns the execution that produced the result that this cell belongs
+     * to.
+     */
+    Execution getExecution() {
+        return result.getExecution();
+    }
+
     public List<Integer> getCoordinateList() {
         return new AbstractList<Integer>() {
             public Integer get(int index) {
@@ -122,16 +155,16 @@ public class RolapCell implements Cell {
         StarPredicate starPredicateSlicer =
             buildDrillthroughSlicerPredicate(
                 currentMembers,
-                result.getSlicerAxis());
+                getSlicerAxis());
         DrillThroughCellRequest cellRequest =
             RolapAggregationManager.makeDrillThroughRequest(
-                currentMembers, extendedContext, result.getCube(),
+                currentMembers, extendedContext, getCube(),
                 fields);
         if (cellRequest == null) {
             return null;
         }
         final RolapConnection connection =
-            result.getExecution().getMondrianStatement()
+            getExecution().getMondrianStatement()
                 .getMondrianConnection();
         final RolapAggregationManager aggMgr =
             connection.getServer().getAggregationManager();
@@ -152,16 +185,16 @@ public class RolapCell implements Cell {
         StarPredicate starPredicateSlicer =
             buildDrillthroughSlicerPredicate(
                 currentMembers,
-                result.getSlicerAxis());
+                getSlicerAxis());
         DrillThroughCellRequest cellRequest =
             RolapAggregationManager.makeDrillThroughRequest(
-                currentMembers, false, result.getCube(),
+                currentMembers, false, getCube(),
                 Collections.<OlapElement>emptyList());
         if (cellRequest == null) {
             return -1;
         }
         final RolapConnection connection =
-            result.getExecution().getMondrianStatement()
+            getExecution().getMondrianStatement()
                 .getMondrianConnection();
         final RolapAggregationManager aggMgr =
             connection.getServer().getAggregationManager();
@@ -315,7 +348,7 @@ public class RolapCell implements Cell {
      * for retrieving base star key column.
      */
     private RolapCube getDrillThroughBaseCube() {
-        if (result.getCube().isVirtual()) {
+        if (getCube().isVirtual()) {
             Member[] membersForDrillThrough = this.getMembersForDrillThrough();
             for (Member m : membersForDrillThrough) {
                 if (m instanceof RolapVirtualCubeMeasure) {
@@ -323,7 +356,7 @@ public class RolapCell implements Cell {
                 }
             }
         }
-        return result.getCube();
+        return getCube();
     }
 
     /**
@@ -344,7 +377,7 @@ public class RolapCell implements Cell {
         if (containsCalcMembers(currentMembers)) {
             return false;
         }
-        Cube x = chooseDrillThroughCube(currentMembers, result.getCube());
+        Cube x = chooseDrillThroughCube(currentMembers, getCube());
         return x != null;
     }
 
@@ -399,7 +432,7 @@ public class RolapCell implements Cell {
     }
 
     private Member[] getMembersForDrillThrough() {
-        final Member[] currentMembers = result.getCellMembers(pos);
+        final Member[] currentMembers = getCellMembers();
 
         // replace member if we're dealing with a trivial formula
         List<Member> memberList = Arrays.asList(currentMembers);
@@ -489,7 +522,7 @@ public class RolapCell implements Cell {
         // offset row, it is useful that the cursor is scrollable, but not
         // essential.
         final Statement statement =
-            result.getExecution().getMondrianStatement();
+            getExecution().getMondrianStatement();
         final Execution execution = new Execution(statement, 0);
         final Connection connection = statement.getMondrianConnection();
         int resultSetType = ResultSet.TYPE_SCROLL_INSENSITIVE;
@@ -585,7 +618,7 @@ public class RolapCell implements Cell {
             throw Util.newError(
                 "Allocation policy must not be null");
         }
-        final RolapMember[] members = result.getCellMembers(pos);
+        final RolapMember[] members = getCellMembers();
         for (int i = 0; i < members.length; i++) {
             Member member = members[i];
             if (ScenarioImpl.isScenario(member.getHierarchy())) {
@@ -619,7 +652,7 @@ public class RolapCell implements Cell {
         }
         double doubleNewValue = ((Number) newValue).doubleValue();
         ((ScenarioImpl) scenario).setCellValue(
-            result.getExecution().getMondrianStatement()
+            getExecution().getMondrianStatement()
                 .getMondrianConnection(),
             Arrays.asList(members),
             doubleNewValue,
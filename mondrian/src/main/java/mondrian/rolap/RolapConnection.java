@@ -650,14 +650,20 @@ public class RolapConnection extends ConnectionBase {
       Result result;
       try {
         statement.start( execution );
-        ( (RolapCube) query.getCube() ).clearCachedAggregations( true );
-        result = new RolapResult( execution, true );
-        int i = 0;
-        for ( QueryAxis axis : query.getAxes() ) {
-          if ( axis.isNonEmpty() ) {
-            result = new NonEmptyResult( result, execution, i );
+        final RolapResultCache resultCache = schema.getResultCache();
+        final long generation = resultCache.getGeneration();
+        result = resultCache.get( execution );
+        if ( result == null ) {
+          ( (RolapCube) query.getCube() ).clearCachedAggregations( true );
+          result = new RolapResult( execution, true );
+          int i = 0;
+          for ( QueryAxis axis : query.getAxes() ) {
+            if ( axis.isNonEmpty() ) {
+              result = new NonEmptyResult( result, execution, i );
+            }
+            ++i;
           }
-          ++i;
+          resultCache.put( execution, result, generation );
         }
       } finally {
         Locus.pop( locus );
@@ -730,6 +736,11 @@ public class RolapConnection extends ConnectionBase {
     return server;
   }
 
+  @Override
+  protected QueryPlanCache getQueryPlanCache() {
+    return schema.getQueryPlanCache();
+  }
+
   public QueryPart parseStatement( String query ) {
     Statement statement = createInternalStatement( false );
     final Locus locus =
@@ -226,7 +226,17 @@ public enum RolapConnectionProperties {
    * scan every catalog the database connection has access to when
    * looking for aggregate tables.
    */
-  AggregateScanCatalog;
+  AggregateScanCatalog,
+
+  /**
+   * The "Priority" property is the priority of the connection's work. When
+   * the server is busy, query executions and SQL statements of connections
+   * with higher priority are started before those of connections with lower
+   * priority. Must be an integer. Defaults to 0.
+   *
+   * @see mondrian.server.WorkloadScheduler
+   */
+  Priority;
 
   /**
    * Any property beginning with this value will be added to the
@@ -1060,12 +1060,56 @@ public class RolapEvaluator implements Evaluator {
     return key;
   }
 
+  /**
+   * Creates a key which identifies an expression and its context in the expression cache shared by all statements, or
+   * returns null if the value of the expression is not to be shared. Values that depend on aggregation lists or
+   * compound slicers, or on members defined in the query, are not shared.
+   */
+  private List<Object> getSharedExpResultCacheKey( ExpCacheDescriptor descriptor ) {
+    if ( root.sharedExpCache == null || slicerTuples != null || ( aggregationLists != null && !aggregationLists
+        .isEmpty() ) ) {
+      return null;
+    }
+    final List<Object> key = root.getSharedExpKey( descriptor.getExp(), nonEmpty ? "NonEmpty" : "Exp",
+        currentMembers.length );
+    if ( key == null ) {
+      return null;
+    }
+    if ( nonEmpty ) {
+      for ( RolapMember currentMember : currentMembers ) {
+        if ( !SharedExpCache.isShareable( currentMember ) ) {
+          return null;
+        }
+        key.add( currentMember );
+      }
+    } else {
+      for ( final int hierarchyOrdinal : descriptor.getDependentHierarchyOrdinals() ) {
+        final Member member = currentMembers[hierarchyOrdinal];
+        if ( !SharedExpCache.isShareable( member ) ) {
+          return null;
+        }
+        key.add( member );
+      }
+    }
+    return key;
+  }
+
   public final Object getCachedResult( ExpCacheDescriptor cacheDescriptor ) {
     // Look up a cached result, and if not present, compute one and add to
     // cache. Use a dummy value to represent nulls.
     final Object key = getExpResultCacheKey( cacheDescriptor );
     Object result = root.getCacheResult( key );
     if ( result == null ) {
+      final List<Object> sharedKey = getSharedExpResultCacheKey( cacheDescriptor );
+      long sharedGeneration = 0;
+      if ( sharedKey != null ) {
+        result = root.sharedExpCache.get( sharedKey );
+        if ( result != null ) {
+          root.putCacheResult( key, result, true );
+          return result;
+        }
+        sharedGeneration = root.sharedExpCache.getGeneration();
+      }
       boolean aggCacheDirty = cellReader.isDirty();
       int aggregateCacheMissCountBefore = cellReader.getMissCount();
       result = cacheDescriptor.evaluate( this );
@@ -1085,6 +1129,9 @@ public class RolapEvaluator implements Evaluator {
         isValidResult = false;
       }
       root.putCacheResult( key, result == null ? nullResult : result, isValidResult );
+      if ( sharedKey != null && isValidResult && result != null ) {
+        root.sharedExpCache.put( sharedKey, result, root.cube, sharedGeneration );
+      }
     } else if ( result == nullResult ) {
       result = null;
     }
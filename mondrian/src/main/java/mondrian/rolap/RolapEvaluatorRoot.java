@@ -46,6 +46,18 @@ class RolapEvaluatorRoot {
   int expResultCacheHitCount;
   int expResultCacheMissCount;
 
+  /**
+   * Cache of the values of expressions, shared by all statements against the schema; null if values evaluated by this
+   * root are not to be shared.
+   */
+  final SharedExpCache sharedExpCache;
+
+  /**
+   * Text of each expression in {@link #sharedExpCache}, or the empty string if the value of the expression is not to be
+   * shared.
+   */
+  private final Map<Exp, String> sharedExpTexts = new HashMap<Exp, String>();
+
   /**
    * Default members of each hierarchy, from the schema reader's perspective. Finding the default member is moderately
    * expensive, but happens very often.
@@ -119,6 +131,46 @@ class RolapEvaluatorRoot {
     this.currentDialect = DialectManager.createDialect( schemaReader.getDataSource(), null );
 
     this.recursionCheckCommandCount = ( defaultMembers.length << 4 );
+
+    // Values are not shared if caching is disabled (see SharedExpCache.isEnabled), if cells may be written back, if
+    // the statement is profiled, or if the listener must be asked before cached data is used.
+    final RolapSchema schema = cube.getSchema();
+    if ( SharedExpCache.isEnabled() && connection.getScenario() == null && statement.getProfileHandler() == null
+        && schema.getDataSourceChangeListener() == null ) {
+      this.sharedExpCache = schema.getSharedExpCache();
+    } else {
+      this.sharedExpCache = null;
+    }
+  }
+
+  /**
+   * Creates a RolapEvaluatorRoot that shares the query, connection and default members of an existing root, and starts
+   * with its compiled expressions, but has its own expression result caches. Evaluators of the new root can be used by
+   * another thread while evaluators of the existing root are in use.
+   *
+   * <p>
+   * The compiled expressions are not copied, so both threads evaluate the same {@link Calc} objects. That is safe
+   * because calcs keep no evaluation state in their fields (see {@link Calc}); the one calc that does, that of
+   * {@code NativizeSet}, prevents a result from being evaluated in parallel (see {@code RolapResult.canFork}).
+   *
+   * @param root
+   *          Existing root
+   */
+  protected RolapEvaluatorRoot( RolapEvaluatorRoot root ) {
+    this.execution = root.execution;
+    this.statement = root.statement;
+    this.query = root.query;
+    this.cube = root.cube;
+    this.connection = root.connection;
+    this.schemaReader = root.schemaReader;
+    this.queryStartTime = root.queryStartTime;
+    this.defaultMembers = root.defaultMembers;
+    this.nonAllPositions = root.nonAllPositions.clone();
+    this.nonAllPositionCount = root.nonAllPositionCount;
+    this.currentDialect = root.currentDialect;
+    this.recursionCheckCommandCount = root.recursionCheckCommandCount;
+    this.compiledExps.putAll( root.compiledExps );
+    this.sharedExpCache = root.sharedExpCache;
   }
 
   /**
@@ -145,6 +197,42 @@ class RolapEvaluatorRoot {
     return calc;
   }
 
+  /**
+   * Creates a key for the value of an expression in the shared expression cache. The caller adds the members of the
+   * context that the value depends on.
+   *
+   * @param exp
+   *          Expression
+   * @param kind
+   *          Kind of value, so that the values of an expression evaluated in different ways have different keys
+   * @param contextSize
+   *          Number of context members the caller will add
+   * @return key, or null if the value of the expression is not to be shared
+   */
+  final List<Object> getSharedExpKey( Exp exp, String kind, int contextSize ) {
+    if ( sharedExpCache == null ) {
+      return null;
+    }
+    String text = sharedExpTexts.get( exp );
+    if ( text == null ) {
+      text = SharedExpCache.getText( exp, query );
+      if ( text == null ) {
+        text = "";
+      }
+      sharedExpTexts.put( exp, text );
+    }
+    if ( text.isEmpty() ) {
+      return null;
+    }
+    final List<Object> key = new ArrayList<Object>( contextSize + 5 );
+    key.add( text );
+    key.add( kind );
+    key.add( connection.getRole() );
+    key.add( connection.getLocale() );
+    key.add( cube );
+    return key;
+  }
+
   /**
    * Just a simple key of Exp/scalar/resultStyle, used for keeping compiled expressions. Previous to the introduction of
    * this class, the key was a list constructed as Arrays.asList(exp, scalar, resultStyle) and having poorer performance
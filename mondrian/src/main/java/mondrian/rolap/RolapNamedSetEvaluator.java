@@ -93,7 +93,19 @@ class RolapNamedSetEvaluator implements Evaluator.NamedSetEvaluator, TupleList.P
     list = DUMMY_LIST; // recursion detection
     try {
       final Calc calc = rrer.getCompiled( namedSet.getExp(), false, ResultStyle.ITERABLE );
-      TupleIterable iterable = (TupleIterable) rrer.result.evaluateExp( calc, rrer.result.slicerEvaluator, evaluator );
+      List<Object> sharedKey = getSharedKey();
+      long sharedGeneration = 0;
+      TupleIterable iterable = null;
+      if ( sharedKey != null ) {
+        iterable = (TupleIterable) rrer.sharedExpCache.get( sharedKey );
+        sharedGeneration = rrer.sharedExpCache.getGeneration();
+      }
+      if ( iterable == null ) {
+        iterable = (TupleIterable) rrer.result.evaluateExp( calc, rrer.result.slicerEvaluator, evaluator );
+      } else {
+        // Value came from the shared cache; no need to store it again.
+        sharedKey = null;
+      }
 
       // Axes can be in two forms: list or iterable. If iterable, we
       // need to materialize it, to ensure that all cell values are in
@@ -108,6 +120,9 @@ class RolapNamedSetEvaluator implements Evaluator.NamedSetEvaluator, TupleList.P
           rawList.addCurrent( cursor );
         }
       }
+      if ( sharedKey != null ) {
+        rrer.sharedExpCache.put( sharedKey, rawList, rrer.cube, sharedGeneration );
+      }
       if ( RolapResult.LOGGER.isDebugEnabled() ) {
         RolapResult.LOGGER.debug( generateDebugMessage( calc, rawList ) );
       }
@@ -131,6 +146,34 @@ class RolapNamedSetEvaluator implements Evaluator.NamedSetEvaluator, TupleList.P
     }
   }
 
+  /**
+   * Creates a key for the value of this named set in the expression cache shared by all statements, or returns null if
+   * the value is not to be shared. A named set is evaluated in the context of the slicer, so the key contains all
+   * members of that context.
+   */
+  private List<Object> getSharedKey() {
+    final RolapEvaluator slicerEvaluator = rrer.result.slicerEvaluator;
+    final List<List<List<Member>>> aggregationLists = slicerEvaluator.getAggregationLists();
+    if ( rrer.sharedExpCache == null || slicerEvaluator.getSlicerTuples() != null || ( aggregationLists != null
+        && !aggregationLists.isEmpty() ) ) {
+      return null;
+    }
+    final Member[] members = slicerEvaluator.getMembers();
+    final List<Object> key =
+        rrer.getSharedExpKey( namedSet.getExp(), slicerEvaluator.isNonEmpty() ? "NonEmptyNamedSet" : "NamedSet",
+            members.length );
+    if ( key == null ) {
+      return null;
+    }
+    for ( Member member : members ) {
+      if ( !SharedExpCache.isShareable( member ) ) {
+        return null;
+      }
+      key.add( member );
+    }
+    return key;
+  }
+
   private String generateDebugMessage( Calc calc, TupleList rawList ) {
     final StringBuilder buf = new StringBuilder();
     buf.append( this );
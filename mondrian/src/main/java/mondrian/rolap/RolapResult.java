@@ -22,6 +22,8 @@ import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -69,6 +71,7 @@ import mondrian.olap.Util;
 import mondrian.olap.fun.AbstractAggregateFunDef;
 import mondrian.olap.fun.AggregateFunDef;
 import mondrian.olap.fun.MondrianEvaluationException;
+import mondrian.olap.fun.NativizeSetFunDef;
 import mondrian.olap.fun.VisualTotalsFunDef.VisualTotalMember;
 import mondrian.olap.fun.sort.Sorter;
 import mondrian.olap.type.ScalarType;
@@ -77,6 +80,7 @@ import mondrian.resource.MondrianResource;
 import mondrian.rolap.agg.AggregationManager;
 import mondrian.rolap.agg.CellRequestQuantumExceededException;
 import mondrian.server.Execution;
+import mondrian.server.ExecutionProfile;
 import mondrian.server.Locus;
 import mondrian.spi.CellFormatter;
 import mondrian.util.CancellationChecker;
@@ -144,6 +148,7 @@ public class RolapResult extends ResultBase {
     }
 
     boolean normalExecution = true;
+    final long axesStart = System.nanoTime();
     try {
       // This call to clear the cube's cache only has an
       // effect if caching has been disabled, otherwise
@@ -403,10 +408,14 @@ public class RolapResult extends ResultBase {
       // reset to total member count
       axisMembers.clearTotalCellCount();
 
-      for ( int i = 0; i < axes.length; i++ ) {
-        final QueryAxis axis = query.axes[i];
-        final Calc calc = query.axisCalcs[i];
-        loadMembers( emptyNonAllMembers, evaluator, axis, calc, axisMembers );
+      if ( axes.length > 1 && MondrianProperties.instance().ParallelAxisEvaluation.get() && canFork( evaluator ) ) {
+        loadMembersInParallel( evaluator, axisMembers );
+      } else {
+        for ( int i = 0; i < axes.length; i++ ) {
+          final QueryAxis axis = query.axes[i];
+          final Calc calc = query.axisCalcs[i];
+          loadMembers( emptyNonAllMembers, evaluator, axis, calc, axisMembers );
+        }
       }
 
       if ( !axisMembers.isEmpty() ) {
@@ -495,6 +504,8 @@ public class RolapResult extends ResultBase {
       evaluator.restore( savepoint );
 
       // Get value for each Cell
+      final long cellsStart = System.nanoTime();
+      execution.getProfile().add( ExecutionProfile.Phase.AXES, cellsStart - axesStart );
       final Locus locus = new Locus( execution, null, "Loading cells" );
       Locus.push( locus );
       try {
@@ -502,6 +513,7 @@ public class RolapResult extends ResultBase {
       } finally {
         Util.explain( evaluator.root.statement.getProfileHandler(), "QueryBody:", null, evaluator.getTiming() );
         Locus.pop( locus );
+        execution.getProfile().add( ExecutionProfile.Phase.CELLS, System.nanoTime() - cellsStart );
       }
 
       // If you are very close to running out of memory due to
@@ -752,6 +764,24 @@ public class RolapResult extends ResultBase {
     }
   }
 
+  /**
+   * Determines the members of each axis in a separate task, and adds them to {@code axisMembers} in order of axis, as
+   * if {@link #loadMembers} had been called for each axis in turn. Each task has its own evaluator and cell reader, so
+   * that the SQL for the members of each axis runs at the same time.
+   */
+  private void loadMembersInParallel( RolapEvaluator evaluator, AxisMemberList axisMembers ) {
+    final List<AxisTask> axisTasks = new ArrayList<AxisTask>();
+    for ( int i = 0; i < axes.length; i++ ) {
+      axisTasks.add( new AxisTask( evaluator, i ) );
+    }
+    runInParallel( axisTasks, "RolapResult.loadMembers" );
+    for ( AxisTask axisTask : axisTasks ) {
+      axisMembers.addAll( axisTask.axisMembers );
+      evaluator.root.expResultCacheHitCount += axisTask.root.expResultCacheHitCount;
+      evaluator.root.expResultCacheMissCount += axisTask.root.expResultCacheMissCount;
+    }
+  }
+
   void evalLoad( List<List<Member>> nonAllMembers, int cnt, Evaluator evaluator, QueryAxis axis, Calc calc,
       AxisMemberList axisMembers ) {
     final int savepoint = evaluator.savepoint();
@@ -935,14 +965,21 @@ public class RolapResult extends ResultBase {
   }
 
   private void executeBody( RolapEvaluator evaluator, Query query, final int[] pos ) {
+    final int taskCount = parallelTaskCount( evaluator, query );
+    if ( taskCount > 1 ) {
+      executeBodyInParallel( evaluator, pos, taskCount );
+      return;
+    }
+
     // Compute the cells several times. The first time, use a dummy
     // evaluator which collects requests.
+    final Stripe stripe = new Stripe( point, cellInfos, -1, 0, 0 );
     int count = 0;
     final int savepoint = evaluator.savepoint();
     while ( true ) {
       evaluator.setCellReader( batchingReader );
       try {
-        executeStripe( query.axes.length - 1, evaluator, pos );
+        executeStripe( query.axes.length - 1, evaluator, pos, stripe );
       } catch ( CellRequestQuantumExceededException e ) {
         // Safe to ignore. Need to call 'phase' and loop again.
         // Decrement count because it wasn't a recursive formula that
@@ -981,6 +1018,123 @@ public class RolapResult extends ResultBase {
     }
   }
 
+  /**
+   * Returns the number of tasks that should evaluate the cells of this result, or 1 if this thread should evaluate
+   * them all.
+   *
+   * <p>
+   * Cells are evaluated in parallel only if {@link MondrianProperties#CellEvaluationParallelism} is greater than 1,
+   * the evaluator is a plain {@link RolapEvaluator} (not one that tests dependencies or profiles), no axis is of a
+   * high-cardinality dimension, and the query has no distinct-count measure.
+   */
+  private int parallelTaskCount( RolapEvaluator evaluator, Query query ) {
+    final int parallelism = MondrianProperties.instance().CellEvaluationParallelism.get();
+    if ( parallelism <= 1 || axes.length == 0 || !canFork( evaluator ) ) {
+      return 1;
+    }
+    for ( int i = 0; i < axes.length; i++ ) {
+      final TupleList tupleList = ( (RolapAxis) axes[i] ).getTupleList();
+      if ( isAxisHighCardinality( i, tupleList ) ) {
+        return 1;
+      }
+    }
+    for ( Member measure : query.getMeasuresMembers() ) {
+      if ( measure instanceof RolapBaseCubeMeasure
+          && ( (RolapBaseCubeMeasure) measure ).getAggregator() == RolapAggregator.DistinctCount ) {
+        return 1;
+      }
+    }
+    final int positionCount = ( (RolapAxis) axes[axes.length - 1] ).getTupleList().size();
+    return Math.min( parallelism, positionCount );
+  }
+
+  /**
+   * Returns whether part of this result can be evaluated by a task with its own copy of an evaluator. The evaluator
+   * must be a plain {@link RolapEvaluator}, not one that tests dependencies or profiles, and the query must not call
+   * {@code NativizeSet}, whose compiled expression compiles expressions, and changes the query, as it is evaluated;
+   * the tasks share compiled expressions.
+   */
+  private static boolean canFork( RolapEvaluator evaluator ) {
+    return evaluator.getClass() == RolapEvaluator.class && evaluator.root instanceof RolapResultEvaluatorRoot
+        && !callsNativizeSet( evaluator.getQuery() );
+  }
+
+  private static boolean callsNativizeSet( Query query ) {
+    final boolean[] found = { false };
+    query.accept( new MdxVisitorImpl() {
+      public Object visit( ResolvedFunCall call ) {
+        if ( call.getFunDef() instanceof NativizeSetFunDef ) {
+          found[0] = true;
+        }
+        return null;
+      }
+    } );
+    return found[0];
+  }
+
+  /**
+   * Runs tasks in parallel, and waits for them to finish. The first task runs in this thread, and so does any other
+   * task that the executor has not started by the time this thread is free to run it.
+   */
+  private static void runInParallel( List<? extends Runnable> tasks, String desc ) {
+    final List<FutureTask<Void>> futures = new ArrayList<FutureTask<Void>>();
+    for ( Runnable task : tasks ) {
+      final FutureTask<Void> future = new FutureTask<Void>( task, null );
+      if ( !futures.isEmpty() ) {
+        ExecutorHolder.EXECUTOR.execute( future );
+      }
+      futures.add( future );
+    }
+    for ( FutureTask<Void> future : futures ) {
+      future.run();
+    }
+    for ( FutureTask<Void> future : futures ) {
+      Util.safeGet( future, desc );
+    }
+  }
+
+  /**
+   * Evaluates the cells of this result in several tasks. Each task evaluates a range of the positions of the last
+   * axis, with its own evaluator and cell reader, and loads the aggregations it needs; when all tasks have finished,
+   * their cells are added to this result.
+   */
+  private void executeBodyInParallel( RolapEvaluator evaluator, final int[] pos, int taskCount ) {
+    final int axisOrdinal = axes.length - 1;
+    final int positionCount = ( (RolapAxis) axes[axisOrdinal] ).getTupleList().size();
+    final List<StripeTask> stripeTasks = new ArrayList<StripeTask>();
+    for ( int i = 0; i < taskCount; i++ ) {
+      stripeTasks.add( new StripeTask( evaluator, pos, axisOrdinal, positionCount * i / taskCount, positionCount
+          * ( i + 1 ) / taskCount ) );
+    }
+    runInParallel( stripeTasks, "RolapResult.executeBody" );
+
+    int hitCount = batchingReader.getHitCount();
+    int missCount = batchingReader.getMissCount();
+    int pendingCount = batchingReader.getPendingCount();
+    for ( StripeTask stripeTask : stripeTasks ) {
+      final CellInfoList list = (CellInfoList) stripeTask.stripe.cellInfos;
+      for ( int i = 0; i < list.size(); i++ ) {
+        final int[] ordinals = list.positions.get( i );
+        for ( int j = 0; j < ordinals.length; j++ ) {
+          point.setAxis( j, ordinals[j] );
+        }
+        final CellInfo source = list.cellInfos.get( i );
+        final CellInfo ci = cellInfos.create( point.getOrdinals() );
+        ci.value = source.value;
+        ci.formatString = source.formatString;
+        ci.valueFormatter = source.valueFormatter;
+      }
+      evaluator.root.expResultCacheHitCount += stripeTask.root.expResultCacheHitCount;
+      evaluator.root.expResultCacheMissCount += stripeTask.root.expResultCacheMissCount;
+      hitCount += stripeTask.reader.getHitCount();
+      missCount += stripeTask.reader.getMissCount();
+      pendingCount += stripeTask.reader.getPendingCount();
+    }
+    execution.setCellCacheHitCount( hitCount );
+    execution.setCellCacheMissCount( missCount );
+    execution.setCellCachePendingCount( pendingCount );
+  }
+
   boolean isDirty() {
     return batchingReader.isDirty();
   }
@@ -991,6 +1145,10 @@ public class RolapResult extends ResultBase {
    * <p>
    * Does not modify the contents of the evaluator.
    *
+   * <p>
+   * Synchronized, because when cells are evaluated in parallel, several tasks may need a named set or the default
+   * value of a parameter at the same time; they all use the slicer evaluator and cell reader of this result.
+   *
    * @param calc
    *          Compiled expression
    * @param slicerEvaluator
@@ -999,7 +1157,7 @@ public class RolapResult extends ResultBase {
    *          Evaluation context (optional)
    * @return Result
    */
-  Object evaluateExp( Calc calc, RolapEvaluator slicerEvaluator, Evaluator contextEvaluator ) {
+  synchronized Object evaluateExp( Calc calc, RolapEvaluator slicerEvaluator, Evaluator contextEvaluator ) {
     int attempt = 0;
 
     RolapEvaluator evaluator = slicerEvaluator.push();
@@ -1058,7 +1216,8 @@ public class RolapResult extends ResultBase {
     }
   }
 
-  private void executeStripe( int axisOrdinal, RolapEvaluator revaluator, final int[] pos ) {
+  private void executeStripe( int axisOrdinal, RolapEvaluator revaluator, final int[] pos, Stripe stripe ) {
+    final CellKey point = stripe.point;
     if ( axisOrdinal < 0 ) {
       RolapAxis axis = (RolapAxis) slicerAxis;
       TupleList tupleList = axis.getTupleList();
@@ -1090,7 +1249,7 @@ public class RolapResult extends ResultBase {
 
           // Create a CellInfo object for the given position
           // integer array.
-          ci = cellInfos.create( point.getOrdinals() );
+          ci = stripe.cellInfos.create( point.getOrdinals() );
 
           String cachedFormatString = null;
 
@@ -1178,7 +1337,7 @@ public class RolapResult extends ResultBase {
           try {
             revaluator.setContext( tuple );
             execution.checkCancelOrTimeout();
-            executeStripe( axisOrdinal - 1, revaluator, pos );
+            executeStripe( axisOrdinal - 1, revaluator, pos, stripe );
           } finally {
             revaluator.restore( savepoint );
           }
@@ -1198,6 +1357,10 @@ public class RolapResult extends ResultBase {
         }
 
         int tupleIndex = 0;
+        if ( axisOrdinal == stripe.axisOrdinal ) {
+          tupleIndex = stripe.start;
+          tupleList = tupleList.subList( stripe.start, stripe.end );
+        }
         for ( final List<Member> tuple : tupleList ) {
           point.setAxis( axisOrdinal, tupleIndex );
           final int savepoint = revaluator.savepoint();
@@ -1205,7 +1368,7 @@ public class RolapResult extends ResultBase {
             revaluator.setEvalAxes( true );
             revaluator.setContext( tuple );
             execution.checkCancelOrTimeout();
-            executeStripe( axisOrdinal - 1, revaluator, pos );
+            executeStripe( axisOrdinal - 1, revaluator, pos, stripe );
           } finally {
             revaluator.restore( savepoint );
           }
@@ -1490,6 +1653,19 @@ public class RolapResult extends ResultBase {
       this.totalCellCount = 1;
     }
 
+    /**
+     * Adds the members of a list that was filled by evaluating a later axis, as if that axis had been merged into this
+     * list.
+     */
+    void addAll( AxisMemberList other ) {
+      for ( Member member : other.members ) {
+        if ( !contains( member ) ) {
+          addMember( member );
+        }
+      }
+      this.axisCount = other.axisCount;
+    }
+
     void mergeTupleList( TupleList list ) {
       mergeTupleIter( list.tupleCursor() );
     }
@@ -1599,6 +1775,18 @@ public class RolapResult extends ResultBase {
       this.result = result;
     }
 
+    /**
+     * Creates a RolapResultEvaluatorRoot for a task that evaluates some of the cells of the same result as an existing
+     * root. Sets and named sets are evaluated again by the new root.
+     *
+     * @param root
+     *          Existing root
+     */
+    RolapResultEvaluatorRoot( RolapResultEvaluatorRoot root ) {
+      super( root );
+      this.result = root.result;
+    }
+
     protected Evaluator.NamedSetEvaluator evaluateNamedSet( final NamedSet namedSet, boolean create ) {
       final String name = namedSet.getNameUniqueWithinQuery();
       RolapNamedSetEvaluator value;
@@ -1669,30 +1857,34 @@ public class RolapResult extends ResultBase {
       }
 
       // Not set in any accessible scope. Evaluate the default value,
-      // then cache it.
-      Object liftedValue = slot.getCachedDefaultValue();
-      Object value;
-      if ( liftedValue != null ) {
-        if ( liftedValue == CycleSentinel ) {
-          throw MondrianResource.instance().CycleDuringParameterEvaluation.ex( slot.getParameter().getName() );
+      // then cache it. Lock the result, so that a task that is
+      // evaluating cells in parallel does not mistake another task's
+      // evaluation for a cycle.
+      synchronized ( result ) {
+        Object liftedValue = slot.getCachedDefaultValue();
+        Object value;
+        if ( liftedValue != null ) {
+          if ( liftedValue == CycleSentinel ) {
+            throw MondrianResource.instance().CycleDuringParameterEvaluation.ex( slot.getParameter().getName() );
+          }
+          if ( liftedValue == NullSentinel ) {
+            value = null;
+          } else {
+            value = liftedValue;
+          }
+          return value;
         }
-        if ( liftedValue == NullSentinel ) {
-          value = null;
+        // Set value to a sentinel, so we can detect cyclic evaluation.
+        slot.setCachedDefaultValue( CycleSentinel );
+        value = result.evaluateExp( slot.getDefaultValueCalc(), result.slicerEvaluator, null );
+        if ( value == null ) {
+          liftedValue = NullSentinel;
         } else {
-          value = liftedValue;
+          liftedValue = value;
         }
+        slot.setCachedDefaultValue( liftedValue );
         return value;
       }
-      // Set value to a sentinel, so we can detect cyclic evaluation.
-      slot.setCachedDefaultValue( CycleSentinel );
-      value = result.evaluateExp( slot.getDefaultValueCalc(), result.slicerEvaluator, null );
-      if ( value == null ) {
-        liftedValue = NullSentinel;
-      } else {
-        liftedValue = value;
-      }
-      slot.setCachedDefaultValue( liftedValue );
-      return value;
     }
   }
 
@@ -2130,6 +2322,211 @@ public class RolapResult extends ResultBase {
     }
   }
 
+  /**
+   * Implementation of {@link CellInfoContainer} that keeps the position and {@link CellInfo} of each cell in a list, in
+   * order of creation, so that the cells can later be added to another container. Used by a task that evaluates some of
+   * the cells of a result in parallel with other tasks. Cells are also indexed by position, for {@link #lookup}.
+   */
+  static class CellInfoList implements CellInfoContainer {
+    private final ArrayList<int[]> positions = new ArrayList<int[]>();
+    private final ArrayList<CellInfo> cellInfos = new ArrayList<CellInfo>();
+    private final Map<CellKey, CellInfo> cellInfoMap = new HashMap<CellKey, CellInfo>();
+
+    public int size() {
+      return cellInfos.size();
+    }
+
+    public void trimToSize() {
+      positions.trimToSize();
+      cellInfos.trimToSize();
+    }
+
+    public void clear() {
+      positions.clear();
+      cellInfos.clear();
+      cellInfoMap.clear();
+    }
+
+    public CellInfo create( int[] pos ) {
+      final CellKey key = CellKey.Generator.newCellKey( pos );
+      CellInfo ci = cellInfoMap.get( key );
+      if ( ci == null ) {
+        ci = new CellInfo( cellInfos.size() );
+        positions.add( pos.clone() );
+        cellInfos.add( ci );
+        cellInfoMap.put( key, ci );
+      }
+      return ci;
+    }
+
+    public CellInfo lookup( int[] pos ) {
+      return cellInfoMap.get( CellKey.Generator.newCellKey( pos ) );
+    }
+  }
+
+  /**
+   * Where {@link #executeStripe} puts the cells it evaluates: the current point, the container of cells, and the range
+   * of positions of one axis to evaluate. If the axis ordinal is -1, all positions of every axis are evaluated.
+   */
+  private static class Stripe {
+    final CellKey point;
+    final CellInfoContainer cellInfos;
+    final int axisOrdinal;
+    final int start;
+    final int end;
+
+    Stripe( CellKey point, CellInfoContainer cellInfos, int axisOrdinal, int start, int end ) {
+      this.point = point;
+      this.cellInfos = cellInfos;
+      this.axisOrdinal = axisOrdinal;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Task that evaluates the cells of a range of positions of the last axis. It has its own evaluator root, evaluator
+   * and cell reader, and loads the aggregations it needs in as many phases as necessary, like
+   * {@link #executeBody}.
+   */
+  private class StripeTask implements Runnable {
+    final RolapResultEvaluatorRoot root;
+    final RolapEvaluator evaluator;
+    final FastBatchingCellReader reader;
+    final Stripe stripe;
+    private final int[] pos;
+    private final Locus locus = Locus.peek();
+
+    StripeTask( RolapEvaluator evaluator, int[] pos, int axisOrdinal, int start, int end ) {
+      this.root = new RolapResultEvaluatorRoot( (RolapResultEvaluatorRoot) evaluator.root );
+      this.evaluator = new RolapEvaluator( root, evaluator, null );
+      this.reader =
+          new FastBatchingCellReader( execution, getCube(), execution.getMondrianStatement().getMondrianConnection()
+              .getServer().getAggregationManager() );
+      this.stripe =
+          new Stripe( CellKey.Generator.newCellKey( axes.length ), new CellInfoList(), axisOrdinal, start, end );
+      this.pos = pos;
+    }
+
+    public void run() {
+      Locus.push( locus );
+      try {
+        int count = 0;
+        final int savepoint = evaluator.savepoint();
+        while ( true ) {
+          evaluator.setCellReader( reader );
+          try {
+            executeStripe( axes.length - 1, evaluator, pos, stripe );
+          } catch ( CellRequestQuantumExceededException e ) {
+            // Not caused by a recursive formula; see executeBody.
+            --count;
+          }
+          evaluator.restore( savepoint );
+
+          if ( !loadAggregations( reader, evaluator ) ) {
+            return;
+          }
+
+          if ( count++ > maxEvalDepth ) {
+            throw Util.newInternal( "Query required more than " + count + " iterations" );
+          }
+
+          stripe.cellInfos.clear();
+        }
+      } finally {
+        Locus.pop( locus );
+      }
+    }
+  }
+
+  /**
+   * Task that determines the members of one axis, like {@link #loadMembers}, but with its own evaluator root,
+   * evaluator, cell reader and list of members. Each task has its own {@link Locus}, because the execution keys the SQL
+   * statements it can cancel by locus.
+   */
+  private class AxisTask implements Runnable {
+    final RolapResultEvaluatorRoot root;
+    final RolapEvaluator evaluator;
+    final FastBatchingCellReader reader;
+    final AxisMemberList axisMembers = new AxisMemberList();
+    private final int axisOrdinal;
+    private final Locus locus;
+
+    AxisTask( RolapEvaluator evaluator, int axisOrdinal ) {
+      this.root = new RolapResultEvaluatorRoot( (RolapResultEvaluatorRoot) evaluator.root );
+      this.evaluator = new RolapEvaluator( root, evaluator, null );
+      this.reader =
+          new FastBatchingCellReader( execution, getCube(), execution.getMondrianStatement().getMondrianConnection()
+              .getServer().getAggregationManager() );
+      this.axisOrdinal = axisOrdinal;
+      this.locus =
+          new Locus( execution, "RolapResult.AxisTask", "Loading members of axis "
+              + query.axes[axisOrdinal].getAxisName() );
+    }
+
+    public void run() {
+      Locus.push( locus );
+      try {
+        final QueryAxis axis = query.axes[axisOrdinal];
+        final Calc calc = query.axisCalcs[axisOrdinal];
+        int attempt = 0;
+        evaluator.setCellReader( reader );
+        while ( true ) {
+          axisMembers.clearAxisCount();
+          final int savepoint = evaluator.savepoint();
+          try {
+            executeAxis( evaluator, axis, calc, false, axisMembers );
+          } catch ( CellRequestQuantumExceededException e ) {
+            // Not caused by a recursive formula; see loadMembers.
+            --attempt;
+          } finally {
+            evaluator.restore( savepoint );
+          }
+
+          if ( !loadAggregations( reader, evaluator ) ) {
+            return;
+          }
+
+          if ( attempt++ > maxEvalDepth ) {
+            throw Util.newInternal( "Failed to load all aggregations after " + maxEvalDepth
+                + " passes; there's probably a cycle" );
+          }
+        }
+      } finally {
+        Locus.pop( locus );
+      }
+    }
+  }
+
+  /**
+   * Loads the aggregations that the cell reader of a task has collected. If it loads any, clears the expression
+   * results of the task's evaluator, so that the next evaluation will pick up the newly loaded aggregates.
+   *
+   * @return Whether the task needs to evaluate again
+   */
+  private static boolean loadAggregations( FastBatchingCellReader reader, RolapEvaluator evaluator ) {
+    if ( !reader.isDirty() ) {
+      return false;
+    }
+    evaluator.clearExpResultCache( false );
+    return reader.loadAggregations();
+  }
+
+  /**
+   * Holds the executor for tasks that evaluate parts of a result in parallel. The executor is created the first time
+   * that a query uses it.
+   */
+  private static class ExecutorHolder {
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    // We use the same value for coreSize and maxSize because that's the
+    // behavior we want. All extra tasks will be put on an unbounded queue,
+    // and tasks that have not started when the query thread is ready to
+    // run them are run by the query thread.
+    static final ExecutorService EXECUTOR =
+        Util.getExecutorService( THREAD_COUNT, THREAD_COUNT, 1, "mondrian.rolap.RolapResult$executor", null );
+  }
+
   static TupleList mergeAxes( TupleList axis1, TupleIterable axis2, boolean ordered ) {
     if ( axis1.isEmpty() && axis2 instanceof TupleList ) {
       return (TupleList) axis2;
@@ -0,0 +1,567 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap;
+
+import mondrian.calc.TupleCollections;
+import mondrian.calc.TupleList;
+import mondrian.mdx.*;
+import mondrian.olap.*;
+import mondrian.server.Execution;
+import mondrian.server.Statement;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.olap4j.AllocationPolicy;
+import org.olap4j.Scenario;
+
+import java.util.*;
+
+/**
+ * Cache of the results of queries against a schema.
+ *
+ * <p>The cache is keyed by the text of the query (unparsed after
+ * validation, so that white space and formatting do not matter), the role
+ * and locale of the connection, and the values of the query's parameters.
+ * It keeps a snapshot of each result: the members on each axis, and the
+ * value, formatted value, format string and requested properties of each
+ * cell. When the same query is executed again, {@link #get} returns a
+ * {@link Result} that reads from the snapshot, without evaluating any
+ * expressions.</p>
+ *
+ * <p>A result is discarded when cells of any of the stars that its cube
+ * reads are flushed, when the member cache is flushed, or when it is the
+ * least recently used and the cache is full. Since each schema has its own
+ * cache, reloading a schema discards its results.</p>
+ *
+ * <p>Results are not cached if the connection uses a scenario, because its
+ * cells may be written back; if the statement is being profiled; if the
+ * schema has a {@link mondrian.spi.DataSourceChangeListener}, because the
+ * listener must be asked each time cached data is used, and a snapshot does
+ * not record which data it used; or if the query, or a calculated member or
+ * named set of the schema that it uses or that appears in its result, calls
+ * a function such as {@code Now()} or a user-defined function, whose value
+ * may be different each time it is evaluated. Nothing is cached if
+ * {@link MondrianProperties#DisableCaching} is set.</p>
+ *
+ * <p>Cells of a cached result can be drilled through, using the connection
+ * of the execution that reads them, but cannot be written back. This class
+ * is thread-safe; snapshots are not modified after they are created.</p>
+ *
+ * @see MondrianProperties#ResultCacheSize
+ * @see MondrianProperties#ResultCacheMaxCells
+ */
+public class RolapResultCache {
+    private static final Logger LOGGER =
+        LogManager.getLogger(RolapResultCache.class);
+
+    /**
+     * Properties that each snapshot cell computes from the value and
+     * coordinates it already holds.
+     */
+    private static final Set<String> COMPUTED_PROPERTIES =
+        new HashSet<String>(
+            Arrays.asList(
+                Property.VALUE.name,
+                Property.FORMATTED_VALUE.name,
+                Property.FORMAT_STRING.name,
+                Property.CELL_ORDINAL.name));
+
+    private final Map<List<Object>, Snapshot> map =
+        new LinkedHashMap<List<Object>, Snapshot>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(
+                Map.Entry<List<Object>, Snapshot> entry)
+            {
+                return size() > MondrianProperties.instance()
+                    .ResultCacheSize.get();
+            }
+        };
+
+    /**
+     * Number of times that results have been discarded by {@link #flush} or
+     * {@link #clear}. Guarded by {@link #map}.
+     */
+    private long generation;
+
+    /**
+     * Returns a result for an execution, read from a snapshot of an earlier
+     * execution of the same query, or null if there is none.
+     *
+     * @param execution Execution
+     * @return Result, or null
+     */
+    public Result get(Execution execution) {
+        final List<Object> key = makeKey(execution);
+        if (key == null) {
+            return null;
+        }
+        final Snapshot snapshot;
+        synchronized (map) {
+            snapshot = map.get(key);
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        return new SnapshotResult(execution, snapshot);
+    }
+
+    /**
+     * Returns the generation of the cache. Call this before evaluating a
+     * result, and pass it to {@link #put}, so that a result that was being
+     * evaluated while the cache was flushed is not stored.
+     *
+     * @return Generation of the cache
+     */
+    public long getGeneration() {
+        synchronized (map) {
+            return generation;
+        }
+    }
+
+    /**
+     * Stores a snapshot of the result of an execution, if it is small enough
+     * and the execution allows results to be cached.
+     *
+     * @param execution Execution
+     * @param result Result of execution
+     * @param generation Generation of the cache before the result was
+     *     evaluated
+     */
+    public void put(Execution execution, Result result, long generation) {
+        final List<Object> key = makeKey(execution);
+        if (key == null) {
+            return;
+        }
+        final Snapshot snapshot = Snapshot.create(result);
+        if (snapshot == null) {
+            return;
+        }
+        synchronized (map) {
+            if (generation == this.generation) {
+                map.put(key, snapshot);
+            }
+        }
+    }
+
+    /**
+     * Discards the results of queries whose cubes read from any of the given
+     * stars.
+     *
+     * @param stars Stars whose cells have been flushed
+     */
+    public void flush(Collection<RolapStar> stars) {
+        synchronized (map) {
+            ++generation;
+            final Iterator<Snapshot> iterator = map.values().iterator();
+            while (iterator.hasNext()) {
+                if (!Collections.disjoint(iterator.next().stars, stars)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards all results.
+     */
+    public void clear() {
+        synchronized (map) {
+            ++generation;
+            map.clear();
+        }
+    }
+
+    /**
+     * Returns the number of results in the cache.
+     */
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    /**
+     * Returns the key of an execution's result, or null if the result of the
+     * execution must not be cached.
+     */
+    private static List<Object> makeKey(Execution execution) {
+        if (MondrianProperties.instance().ResultCacheSize.get() <= 0
+            || MondrianProperties.instance().DisableCaching.get())
+        {
+            return null;
+        }
+        final Statement statement = execution.getMondrianStatement();
+        final RolapConnection connection = statement.getMondrianConnection();
+        if (connection.getScenario() != null
+            || statement.getProfileHandler() != null
+            || connection.getSchema().getDataSourceChangeListener() != null)
+        {
+            return null;
+        }
+        final Query query = statement.getQuery();
+        if (isVolatile(query)) {
+            return null;
+        }
+        final List<Object> parameterValues = new ArrayList<Object>();
+        for (Parameter parameter : query.getParameters()) {
+            parameterValues.add(parameter.getName());
+            parameterValues.add(parameter.getValue());
+        }
+        return Arrays.asList(
+            Util.unparse(query),
+            connection.getRole(),
+            connection.getLocale(),
+            parameterValues);
+    }
+
+    /**
+     * Returns whether a query, or a calculated member or named set of the
+     * schema that it uses, calls a function whose value may be different each
+     * time it is evaluated.
+     *
+     * @param query Query
+     * @return Whether query is volatile
+     *
+     * @see SharedExpCache#isVolatile(FunDef)
+     */
+    static boolean isVolatile(Query query) {
+        final SharedExpCache.VolatileFinder finder =
+            new SharedExpCache.VolatileFinder();
+        query.accept(finder);
+        return finder.found;
+    }
+
+    /**
+     * Immutable copy of the axes and cells of a result.
+     */
+    private static class Snapshot {
+        final Axis[] axes;
+        final Axis slicerAxis;
+        final int[] axisSizes;
+        final SnapshotCell[] cells;
+        final Set<RolapStar> stars;
+        final RolapCube cube;
+
+        /**
+         * Members of the context of the first cell, indexed by the ordinal
+         * of their hierarchy in the cube, or null if the result has no
+         * cells. The members of the context of a cell are these, overlaid
+         * with the members of its positions on the axes.
+         */
+        final RolapMember[] members;
+
+        private Snapshot(
+            Axis[] axes,
+            Axis slicerAxis,
+            int[] axisSizes,
+            SnapshotCell[] cells,
+            Set<RolapStar> stars,
+            RolapCube cube,
+            RolapMember[] members)
+        {
+            this.axes = axes;
+            this.slicerAxis = slicerAxis;
+            this.axisSizes = axisSizes;
+            this.cells = cells;
+            this.stars = stars;
+            this.cube = cube;
+            this.members = members;
+        }
+
+        /**
+         * Creates a snapshot of a result, or returns null if the result is
+         * too large, cannot be copied, or contains a calculated member whose
+         * expression calls a volatile function.
+         */
+        static Snapshot create(Result result) {
+            final Axis[] resultAxes = result.getAxes();
+            final int[] axisSizes = new int[resultAxes.length];
+            long cellCount = 1;
+            for (int i = 0; i < resultAxes.length; i++) {
+                if (!(resultAxes[i] instanceof RolapAxis)) {
+                    return null;
+                }
+                axisSizes[i] = resultAxes[i].getPositions().size();
+                cellCount *= axisSizes[i];
+            }
+            if (cellCount
+                > MondrianProperties.instance().ResultCacheMaxCells.get()
+                || !(result.getSlicerAxis() instanceof RolapAxis))
+            {
+                return null;
+            }
+            final Axis[] axes = new Axis[resultAxes.length];
+            for (int i = 0; i < resultAxes.length; i++) {
+                axes[i] = copy((RolapAxis) resultAxes[i]);
+                for (Position position : axes[i].getPositions()) {
+                    for (Member member : position) {
+                        if (member.getDimension().isHighCardinality()) {
+                            return null;
+                        }
+                    }
+                    break;
+                }
+            }
+            final Axis slicerAxis = copy((RolapAxis) result.getSlicerAxis());
+
+            // The query may reach calculated members of the schema without
+            // naming them, for instance via Descendants or as the default
+            // member of a hierarchy; the result must not be reused if any of
+            // them is volatile.
+            final SharedExpCache.VolatileFinder finder =
+                new SharedExpCache.VolatileFinder();
+            for (Axis axis : axes) {
+                if (containsVolatile(axis, finder)) {
+                    return null;
+                }
+            }
+            if (containsVolatile(slicerAxis, finder)) {
+                return null;
+            }
+            final int[] pos = new int[axes.length];
+            RolapMember[] members = null;
+            if (cellCount > 0) {
+                final Cell cell = result.getCell(pos);
+                if (!(cell instanceof RolapCell)) {
+                    return null;
+                }
+                members = ((RolapCell) cell).getCellMembers();
+                for (RolapMember member : members) {
+                    if (finder.isVolatile(member)) {
+                        return null;
+                    }
+                }
+            }
+
+            final Query query = result.getQuery();
+            final List<String> propertyNames = new ArrayList<String>();
+            for (String name : Property.enumeration.getNames()) {
+                final Property property =
+                    Property.enumeration.getValue(name, true);
+                if (property.isCellProperty()
+                    && !COMPUTED_PROPERTIES.contains(name)
+                    && query.hasCellProperty(name))
+                {
+                    propertyNames.add(name);
+                }
+            }
+
+            final SnapshotCell[] cells = new SnapshotCell[(int) cellCount];
+            for (int ordinal = 0; ordinal < cells.length; ordinal++) {
+                int x = ordinal;
+                for (int i = 0; i < axes.length; i++) {
+                    pos[i] = x % axisSizes[i];
+                    x /= axisSizes[i];
+                }
+                cells[ordinal] =
+                    new SnapshotCell(result.getCell(pos), propertyNames);
+            }
+
+            final RolapCube cube = (RolapCube) query.getCube();
+            final Set<RolapStar> stars = new HashSet<RolapStar>();
+            for (RolapCube baseCube : cube.getBaseCubes()) {
+                if (baseCube.getStar() != null) {
+                    stars.add(baseCube.getStar());
+                }
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(
+                    "Cached result of " + cells.length + " cells for query "
+                    + Util.unparse(query));
+            }
+            return new Snapshot(
+                axes, slicerAxis, axisSizes, cells, stars, cube, members);
+        }
+
+        private static boolean containsVolatile(
+            Axis axis,
+            SharedExpCache.VolatileFinder finder)
+        {
+            for (Position position : axis.getPositions()) {
+                for (Member member : position) {
+                    if (finder.isVolatile(member)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static Axis copy(RolapAxis axis) {
+            final TupleList list = axis.getTupleList();
+            final TupleList copy =
+                TupleCollections.createList(list.getArity(), list.size());
+            copy.addAll(list);
+            return new RolapAxis(TupleCollections.unmodifiableList(copy));
+        }
+    }
+
+    /**
+     * Copy of the value and properties of a cell.
+     */
+    private static class SnapshotCell {
+        final Object value;
+        final String formattedValue;
+        final String formatString;
+        final boolean error;
+        final Map<String, Object> properties;
+
+        SnapshotCell(Cell cell, List<String> propertyNames) {
+            this.value = cell.getValue();
+            this.formattedValue = cell.getFormattedValue();
+            this.formatString =
+                (String) cell.getPropertyValue(Property.FORMAT_STRING.name);
+            this.error = cell.isError();
+            if (propertyNames.isEmpty()) {
+                this.properties = Collections.emptyMap();
+            } else {
+                this.properties = new HashMap<String, Object>();
+                for (String name : propertyNames) {
+                    properties.put(name, cell.getPropertyValue(name));
+                }
+            }
+        }
+    }
+
+    /**
+     * Result that reads the axes and cells of a snapshot, on behalf of a
+     * later execution of the same query.
+     */
+    private static class SnapshotResult extends ResultBase {
+        final Snapshot snapshot;
+
+        SnapshotResult(Execution execution, Snapshot snapshot) {
+            super(execution, snapshot.axes.clone());
+            this.snapshot = snapshot;
+            this.slicerAxis = snapshot.slicerAxis;
+        }
+
+        protected Logger getLogger() {
+            return LOGGER;
+        }
+
+        public Cell getCell(int[] pos) {
+            if (pos.length != axes.length) {
+                throw Util.newError(
+                    "coordinates should have dimension " + axes.length);
+            }
+            int ordinal = 0;
+            for (int i = axes.length - 1; i >= 0; i--) {
+                if (pos[i] < 0 || pos[i] >= snapshot.axisSizes[i]) {
+                    throw Util.newError("coordinates out of range");
+                }
+                ordinal = ordinal * snapshot.axisSizes[i] + pos[i];
+            }
+            return new CachedCell(
+                this, pos.clone(), ordinal, snapshot.cells[ordinal]);
+        }
+    }
+
+    /**
+     * Cell of a {@link SnapshotResult}. Its value, format string and
+     * properties come from the snapshot; drill-through uses the context
+     * members of the snapshot and the connection of the current execution,
+     * so it gives the same answers as for a cell of a result that was not
+     * cached.
+     */
+    private static class CachedCell extends RolapCell {
+        private final SnapshotResult result;
+        private final int ordinal;
+        private final SnapshotCell cell;
+
+        CachedCell(
+            SnapshotResult result, int[] pos, int ordinal, SnapshotCell cell)
+        {
+            super(
+                null,
+                pos,
+                new RolapResult.CellInfo(
+                    ordinal,
+                    cell.value == null ? Util.nullValue : cell.value,
+                    cell.formatString,
+                    RolapResult.ValueFormatter.EMPTY));
+            this.result = result;
+            this.ordinal = ordinal;
+            this.cell = cell;
+        }
+
+        RolapMember[] getCellMembers() {
+            final RolapMember[] members = result.snapshot.members.clone();
+            for (int i = 0; i < pos.length; i++) {
+                for (Member member
+                    : result.getAxes()[i].getPositions().get(pos[i]))
+                {
+                    final RolapMember m = (RolapMember) member;
+                    members[m.getHierarchy().getOrdinalInCube()] = m;
+                }
+            }
+            return members;
+        }
+
+        RolapCube getCube() {
+            return result.snapshot.cube;
+        }
+
+        Axis getSlicerAxis() {
+            return result.getSlicerAxis();
+        }
+
+        Execution getExecution() {
+            return result.getExecution();
+        }
+
+        public String getFormattedValue() {
+            return cell.formattedValue;
+        }
+
+        public Object getPropertyValue(String propertyName) {
+            final boolean matchCase =
+                MondrianProperties.instance().CaseSensitive.get();
+            final Property property = Property.lookup(propertyName, matchCase);
+            if (property != null) {
+                switch (property.ordinal) {
+                case Property.CELL_ORDINAL_ORDINAL:
+                    return ordinal;
+                case Property.VALUE_ORDINAL:
+                    return getValue();
+                case Property.FORMAT_STRING_ORDINAL:
+                    return cell.formatString;
+                case Property.FORMATTED_VALUE_ORDINAL:
+                    return cell.formattedValue;
+                case Property.ACTION_TYPE_ORDINAL:
+                    return canDrillThrough() ? MDACTION_TYPE_DRILLTHROUGH : 0;
+                case Property.DRILLTHROUGH_COUNT_ORDINAL:
+                    return canDrillThrough() ? getDrillThroughCount() : -1;
+                default:
+                    return cell.properties.get(property.name);
+                }
+            }
+            return cell.properties.get(propertyName);
+        }
+
+        public Member getContextMember(Hierarchy hierarchy) {
+            return result.getMember(pos, hierarchy);
+        }
+
+        public void setValue(
+            Scenario scenario,
+            Object newValue,
+            AllocationPolicy allocationPolicy,
+            Object... allocationArgs)
+        {
+            throw new UnsupportedOperationException(
+                "Cannot write back to a cell of a cached result");
+        }
+    }
+}
+
+// End RolapResultCache.java
@@ -16,6 +16,8 @@ package mondrian.rolap;
 import mondrian.olap.*;
 import mondrian.resource.MondrianResource;
 import mondrian.server.Execution;
+import mondrian.server.Workload;
+import mondrian.server.WorkloadScheduler;
 import mondrian.util.Pair;
 
 import org.eigenbase.util.property.IntegerProperty;
@@ -41,10 +43,11 @@ import java.util.concurrent.*;
 public class RolapResultShepherd {
 
     /**
-     * An executor service used for both the shepherd thread and the
-     * Execution objects.
+     * Scheduler that runs the Execution objects. Executions are started in
+     * order of the priority and class of work of their connections; see
+     * {@link Workload}.
      */
-    private final ExecutorService executor;
+    private final WorkloadScheduler executor;
 
     /**
      * List of tasks that should be monitored by the shepherd thread.
@@ -60,14 +63,9 @@ public class RolapResultShepherd {
             MondrianProperties.instance().RolapConnectionShepherdNbThreads;
         final int maximumPoolSize = property.get();
         executor =
-            Util.getExecutorService(
-                 // We use the same value for coreSize and maxSize
-                // because that's the behavior we want. All extra
-                // tasks will be put on an unbounded queue.
-                maximumPoolSize,
-                maximumPoolSize,
-                1,
+            new WorkloadScheduler(
                 "mondrian.rolap.RolapResultShepherd$executor",
+                maximumPoolSize,
                 new RejectedExecutionHandler() {
                     public void rejectedExecution(
                         Runnable r,
@@ -150,7 +148,7 @@ public class RolapResultShepherd {
 
         try {
             // Now run it.
-            executor.execute(task);
+            executor.execute(task, Workload.of(execution));
             return task.get();
         } catch (Throwable e) {
             // Make sure to clean up pending SQL queries.
@@ -207,6 +205,15 @@ public class RolapResultShepherd {
         }
     }
 
+    /**
+     * Returns the scheduler that runs executions.
+     *
+     * @return Scheduler
+     */
+    public WorkloadScheduler getScheduler() {
+        return executor;
+    }
+
     public void shutdown() {
         this.timer.cancel();
         this.executor.shutdown();
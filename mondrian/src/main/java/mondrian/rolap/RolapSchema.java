@@ -31,6 +31,7 @@ import mondrian.olap.MondrianServer;
 import mondrian.olap.NamedSet;
 import mondrian.olap.OlapElement;
 import mondrian.olap.Parameter;
+import mondrian.olap.QueryPlanCache;
 import mondrian.olap.Role;
 import mondrian.olap.RoleImpl;
 import mondrian.olap.Schema;
@@ -270,6 +271,11 @@ public class RolapSchema implements Schema {
     // Cleanup the segment data.
     flushSegments();
 
+    // Queries may refer to members that no longer exist.
+    queryPlanCache.clear();
+    resultCache.clear();
+    sharedExpCache.clear();
+
     // Cleanup the agg JDBC cache
     flushJdbcSchema();
   }
@@ -1286,6 +1292,33 @@ public class RolapSchema implements Schema {
     return nativeRegistry;
   }
 
+  private final QueryPlanCache queryPlanCache = new QueryPlanCache();
+
+  /**
+   * Returns the cache of validated queries against this schema.
+   */
+  public QueryPlanCache getQueryPlanCache() {
+    return queryPlanCache;
+  }
+
+  private final RolapResultCache resultCache = new RolapResultCache();
+
+  /**
+   * Returns the cache of the results of queries against this schema.
+   */
+  public RolapResultCache getResultCache() {
+    return resultCache;
+  }
+
+  private final SharedExpCache sharedExpCache = new SharedExpCache();
+
+  /**
+   * Returns the cache of the values of expressions, shared by all statements against this schema.
+   */
+  public SharedExpCache getSharedExpCache() {
+    return sharedExpCache;
+  }
+
   /**
    * @return Returns the dataSourceChangeListener.
    */
@@ -0,0 +1,409 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap;
+
+import mondrian.calc.TupleCollections;
+import mondrian.calc.TupleCursor;
+import mondrian.calc.TupleIterable;
+import mondrian.calc.TupleList;
+import mondrian.mdx.*;
+import mondrian.olap.*;
+import mondrian.olap.fun.UdfResolver;
+
+import java.util.*;
+
+/**
+ * Cache of the values of expressions, shared by all statements against a
+ * schema.
+ *
+ * <p>Each {@link RolapEvaluatorRoot} caches the values of named sets and of
+ * expressions evaluated via
+ * {@link Evaluator#getCachedResult(ExpCacheDescriptor)}, such as the sets
+ * sorted by {@code Rank} and {@code Order}, but only until its statement
+ * ends. When an expression's value is not in the root's cache, the
+ * evaluator looks in this cache before evaluating it, and stores the value
+ * here afterwards.</p>
+ *
+ * <p>The key of a value is the text of the expression (unparsed after
+ * validation), the role and locale of the connection, the cube, and the
+ * members of the context that the value depends on: for cached expressions,
+ * the current members of the hierarchies that the compiled expression
+ * {@link mondrian.calc.Calc#dependsOn depends on}, or all current members in
+ * non-empty mode; for named sets, all members of the slicer context.</p>
+ *
+ * <p>An expression is only shared if its value does not depend on the query
+ * that contains it: that is, if it does not reference calculated members or
+ * named sets defined in the query, parameters, user-defined functions, or
+ * functions whose value changes over time or is computed from a string. Only
+ * numbers, strings, booleans, members and lists are shared; lists are
+ * copied, so that the value in the cache does not depend on the statement
+ * that evaluated it.</p>
+ *
+ * <p>Values are discarded when cells of any of the stars that their cube
+ * reads are flushed, when the member cache is flushed, or when they are the
+ * least recently used and the cache is full. Since each schema has its own
+ * cache, reloading a schema discards its values. This class is
+ * thread-safe.</p>
+ *
+ * @see MondrianProperties#SharedExpCacheSize
+ */
+public class SharedExpCache {
+    /**
+     * Names of functions whose value may change each time they are
+     * evaluated, or depends on a string evaluated at run time that may
+     * reference objects defined in the query.
+     */
+    private static final Set<String> VOLATILE_FUNCTIONS =
+        new HashSet<String>(
+            Arrays.asList(
+                "Now",
+                "CurrentDateMember",
+                "CurrentDateString",
+                "StrToMember",
+                "StrToSet",
+                "StrToTuple",
+                "AllMembers",
+                "AddCalculatedMembers"));
+
+    private final Map<List<Object>, Entry> map =
+        new LinkedHashMap<List<Object>, Entry>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(
+                Map.Entry<List<Object>, Entry> entry)
+            {
+                return size() > maxSize();
+            }
+        };
+
+    /**
+     * Number of times that values have been discarded by {@link #flush} or
+     * {@link #clear}. Guarded by {@link #map}.
+     */
+    private long generation;
+
+    /**
+     * Returns whether the cache is enabled.
+     */
+    public static boolean isEnabled() {
+        return maxSize() > 0
+            && !MondrianProperties.instance().DisableCaching.get();
+    }
+
+    /**
+     * Returns the value of an expression, or null if it is not in the cache.
+     * A list is returned as an unmodifiable view, because other statements
+     * may be reading it.
+     *
+     * @param key Key, as built by {@link RolapEvaluatorRoot#getSharedExpKey}
+     * @return Value, or null
+     */
+    public Object get(List<Object> key) {
+        final Entry entry;
+        synchronized (map) {
+            entry = map.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (entry.value instanceof TupleList) {
+            return TupleCollections.unmodifiableList((TupleList) entry.value);
+        }
+        if (entry.value instanceof List) {
+            return Collections.unmodifiableList((List<?>) entry.value);
+        }
+        return entry.value;
+    }
+
+    /**
+     * Returns the generation of the cache. Call this before evaluating an
+     * expression, and pass it to {@link #put}, so that a value that was being
+     * evaluated while the cache was flushed is not stored.
+     *
+     * @return Generation of the cache
+     */
+    public long getGeneration() {
+        synchronized (map) {
+            return generation;
+        }
+    }
+
+    /**
+     * Stores the value of an expression, if it is of a kind that can be
+     * shared.
+     *
+     * @param key Key, as built by {@link RolapEvaluatorRoot#getSharedExpKey}
+     * @param value Value; not null
+     * @param cube Cube whose stars the value was read from
+     * @param generation Generation of the cache before the value was
+     *     evaluated
+     */
+    public void put(
+        List<Object> key,
+        Object value,
+        RolapCube cube,
+        long generation)
+    {
+        final Object copy = copy(value);
+        if (copy == null) {
+            return;
+        }
+        final Entry entry = new Entry(copy, stars(cube));
+        synchronized (map) {
+            if (generation == this.generation) {
+                map.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Discards the values of expressions whose cubes read from any of the
+     * given stars.
+     *
+     * @param stars Stars whose cells have been flushed
+     */
+    public void flush(Collection<RolapStar> stars) {
+        synchronized (map) {
+            ++generation;
+            final Iterator<Entry> iterator = map.values().iterator();
+            while (iterator.hasNext()) {
+                if (!Collections.disjoint(iterator.next().stars, stars)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards all values.
+     */
+    public void clear() {
+        synchronized (map) {
+            ++generation;
+            map.clear();
+        }
+    }
+
+    /**
+     * Returns the number of values in the cache.
+     */
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    private static int maxSize() {
+        return MondrianProperties.instance().SharedExpCacheSize.get();
+    }
+
+    /**
+     * Returns the text that identifies an expression in the cache, or null if
+     * the value of the expression depends on the query that contains it,
+     * either directly or via a calculated member or named set of the schema.
+     *
+     * @param exp Expression
+     * @param query Query that contains the expression
+     * @return Text of expression, or null
+     */
+    static String getText(Exp exp, Query query) {
+        final VolatileFinder finder = new VolatileFinder(query);
+        exp.accept(finder);
+        return finder.found ? null : Util.unparse(exp);
+    }
+
+    /**
+     * Returns whether the value of a call to a function may be different
+     * each time it is evaluated, or may depend on the query that contains
+     * it. User-defined functions are assumed to be volatile.
+     *
+     * @param funDef Function
+     * @return Whether function is volatile
+     */
+    static boolean isVolatile(FunDef funDef) {
+        return UdfResolver.isUserDefined(funDef)
+            || VOLATILE_FUNCTIONS.contains(funDef.getName());
+    }
+
+    /**
+     * Visitor that looks for calls to volatile functions in expressions,
+     * following the calculated members and named sets of the schema that the
+     * expressions reference. Calculated members and named sets defined in a
+     * query are not followed; the query's own formulas are visited with the
+     * query.
+     *
+     * <p>If the visitor is created for a query, it also looks for anything
+     * whose value depends on that query: parameters, and calculated members
+     * and named sets defined in the query. Both the shared expression cache
+     * and the result cache use this visitor, so that they agree on what is
+     * volatile.</p>
+     *
+     * @see #isVolatile(FunDef)
+     */
+    static class VolatileFinder extends MdxVisitorImpl {
+        private final Query query;
+        private final Set<Object> visited = new HashSet<Object>();
+
+        /**
+         * Whether a call to a volatile function, or a reference to an object
+         * that depends on the query, has been found.
+         */
+        boolean found;
+
+        /**
+         * Creates a VolatileFinder that looks only for volatile functions.
+         */
+        VolatileFinder() {
+            this(null);
+        }
+
+        /**
+         * Creates a VolatileFinder that also looks for references to objects
+         * whose value depends on a query.
+         *
+         * @param query Query, or null
+         */
+        VolatileFinder(Query query) {
+            this.query = query;
+        }
+
+        /**
+         * Returns whether a member is calculated by an expression that calls
+         * a volatile function, or whether a volatile function has been found
+         * already.
+         *
+         * @param member Member
+         * @return Whether a call to a volatile function has been found
+         */
+        boolean isVolatile(Member member) {
+            if (member.isCalculated()
+                && member.getExpression() != null
+                && visited.add(member))
+            {
+                member.getExpression().accept(this);
+            }
+            return found;
+        }
+
+        public Object visit(ResolvedFunCall call) {
+            if (SharedExpCache.isVolatile(call.getFunDef())) {
+                found = true;
+            }
+            return null;
+        }
+
+        public Object visit(ParameterExpr parameterExpr) {
+            if (query != null) {
+                found = true;
+            }
+            return null;
+        }
+
+        public Object visit(MemberExpr memberExpr) {
+            final Member member = memberExpr.getMember();
+            if (!member.isCalculatedInQuery()) {
+                isVolatile(member);
+            } else if (query != null) {
+                found = true;
+            }
+            return null;
+        }
+
+        public Object visit(NamedSetExpr namedSetExpr) {
+            final NamedSet namedSet = namedSetExpr.getNamedSet();
+            if (isDefinedInQuery(namedSet)) {
+                if (query != null) {
+                    found = true;
+                }
+            } else if (namedSet.getExp() != null && visited.add(namedSet)) {
+                namedSet.getExp().accept(this);
+            }
+            return null;
+        }
+
+        private boolean isDefinedInQuery(NamedSet namedSet) {
+            if (namedSet instanceof Query.ScopedNamedSet) {
+                return true;
+            }
+            if (query != null) {
+                for (Formula formula : query.getFormulas()) {
+                    if (!formula.isMember()
+                        && namedSet.equals(formula.getNamedSet()))
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether a member of the context can be part of a key.
+     *
+     * @param member Member
+     * @return Whether member is defined outside the query
+     */
+    static boolean isShareable(Member member) {
+        return !member.isCalculatedInQuery();
+    }
+
+    /**
+     * Returns a copy of a value that does not depend on the statement that
+     * evaluated it, or null if the value cannot be shared.
+     */
+    private static Object copy(Object value) {
+        if (value instanceof Number
+            || value instanceof String
+            || value instanceof Boolean
+            || value instanceof Member)
+        {
+            return value;
+        }
+        if (value instanceof TupleIterable) {
+            final TupleIterable iterable = (TupleIterable) value;
+            final TupleList list =
+                TupleCollections.createList(iterable.getArity());
+            final TupleCursor cursor = iterable.tupleCursor();
+            while (cursor.forward()) {
+                list.addCurrent(cursor);
+            }
+            return list;
+        }
+        if (value instanceof List) {
+            return new ArrayList<Object>((List<?>) value);
+        }
+        return null;
+    }
+
+    private static Set<RolapStar> stars(RolapCube cube) {
+        final Set<RolapStar> stars = new HashSet<RolapStar>();
+        for (RolapCube baseCube : cube.getBaseCubes()) {
+            stars.add(baseCube.getStar());
+        }
+        return stars;
+    }
+
+    /**
+     * Value of an expression, and the stars it was read from.
+     */
+    private static class Entry {
+        final Object value;
+        final Set<RolapStar> stars;
+
+        Entry(Object value, Set<RolapStar> stars) {
+            this.value = value;
+            this.stars = stars;
+        }
+    }
+}
+
+// End SharedExpCache.java
@@ -0,0 +1,282 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap;
+
+import mondrian.olap.MondrianProperties;
+import mondrian.server.Execution;
+import mondrian.server.monitor.SqlStatementEvent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.sql.DataSource;
+
+/**
+ * Limits how many SQL statements of one kind execute at the same time
+ * against a data source.
+ *
+ * <p>Each data source has two limiters: one for the statements that load
+ * cell segments, and one for all other statements, such as those that read
+ * members and tuples. A burst of segment loads therefore does not stop
+ * members from being read, and a slow data source does not hold permits
+ * that statements against other data sources need.</p>
+ *
+ * <p>The limit is at most
+ * {@link MondrianProperties#SqlConcurrencyPerDataSource}. If
+ * {@link MondrianProperties#SqlConcurrencyAdaptive} is set, the limit adapts
+ * to the latency of the data source, which is measured from when a statement
+ * is executed until its first row is ready. The limiter keeps a short-term
+ * and a long-term moving average of the latency. When the short-term average
+ * exceeds the long-term average by more than
+ * {@link MondrianProperties#SqlConcurrencyLatencyTolerance}, the database is
+ * taken to be overloaded and the limit is cut by a quarter, at most once per
+ * round of statements; otherwise, while at least half of the permits are in
+ * use, the limit grows by about one permit per round. (A round is as many
+ * statements as the limit.) The limit never falls below one.</p>
+ *
+ * <p>Statements that cannot execute at once wait in a queue, and are given
+ * permits in the order that they arrived, as permits are returned or the
+ * limit grows.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class SqlConcurrencyLimiter {
+    /**
+     * Limiters of each data source. The first element limits statements that
+     * load segments, the second all other statements. Data sources are held
+     * weakly, so that the limiters of a discarded data source are discarded
+     * with it.
+     */
+    private static final Map<DataSource, SqlConcurrencyLimiter[]> LIMITERS =
+        new WeakHashMap<DataSource, SqlConcurrencyLimiter[]>();
+
+    /** Weight of each sample in the short-term average latency. */
+    private static final double SHORT_WEIGHT = 0.1;
+
+    /** Weight of each sample in the long-term average latency. */
+    private static final double LONG_WEIGHT = 0.002;
+
+    /** Factor by which the limit is multiplied when latency rises. */
+    private static final double BACKOFF = 0.75;
+
+    /**
+     * Interval, in milliseconds, at which a waiting statement checks whether
+     * its execution has been canceled or has timed out.
+     */
+    private static final long CHECK_MILLIS = 1000;
+
+    private final int maxLimit;
+    private final boolean adaptive;
+    private final double tolerance;
+
+    // The following fields are guarded by this.
+    private double limit;
+    private int inFlight;
+    private final Deque<Waiter> waiters = new ArrayDeque<Waiter>();
+    private double shortLatency;
+    private double longLatency;
+    private int completionsSinceBackoff;
+
+    /**
+     * Creates a SqlConcurrencyLimiter.
+     *
+     * @param maxLimit Maximum, and initial, number of permits; positive
+     * @param adaptive Whether to adapt the limit to latency
+     * @param tolerance Ratio of short-term to long-term latency above which
+     *     the limit is reduced
+     */
+    SqlConcurrencyLimiter(int maxLimit, boolean adaptive, double tolerance) {
+        assert maxLimit > 0;
+        this.maxLimit = maxLimit;
+        this.adaptive = adaptive;
+        this.tolerance = tolerance;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Returns the limiter for statements of a given purpose against a data
+     * source, or null if there is no limit.
+     *
+     * <p>The limiter is created, with the current values of the properties,
+     * when the data source is first used.</p>
+     *
+     * @param dataSource Data source
+     * @param purpose Purpose of statement
+     * @return Limiter, or null
+     */
+    static SqlConcurrencyLimiter get(
+        DataSource dataSource,
+        SqlStatementEvent.Purpose purpose)
+    {
+        final MondrianProperties properties = MondrianProperties.instance();
+        final int limit = properties.SqlConcurrencyPerDataSource.get();
+        if (limit <= 0) {
+            return null;
+        }
+        synchronized (LIMITERS) {
+            SqlConcurrencyLimiter[] limiters = LIMITERS.get(dataSource);
+            if (limiters == null) {
+                final boolean adaptive =
+                    properties.SqlConcurrencyAdaptive.get();
+                final double tolerance =
+                    properties.SqlConcurrencyLatencyTolerance.get();
+                limiters = new SqlConcurrencyLimiter[] {
+                    new SqlConcurrencyLimiter(limit, adaptive, tolerance),
+                    new SqlConcurrencyLimiter(limit, adaptive, tolerance)
+                };
+                LIMITERS.put(dataSource, limiters);
+            }
+            return limiters[
+                purpose == SqlStatementEvent.Purpose.CELL_SEGMENT ? 0 : 1];
+        }
+    }
+
+    /**
+     * Takes a permit, waiting if necessary until one is given to this
+     * statement. Statements that wait are given permits in the order that
+     * they called this method. While it waits, the statement checks now and
+     * then whether the execution has been canceled or has timed out.
+     *
+     * @param execution Execution the statement belongs to
+     * @return Time spent waiting, in nanoseconds
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public long acquire(Execution execution) throws InterruptedException {
+        final Waiter waiter;
+        synchronized (this) {
+            if (waiters.isEmpty() && inFlight < getLimit()) {
+                ++inFlight;
+                return 0;
+            }
+            waiter = new Waiter();
+            waiters.add(waiter);
+        }
+        final long startNanos = System.nanoTime();
+        boolean acquired = false;
+        try {
+            synchronized (waiter) {
+                while (!waiter.granted) {
+                    waiter.wait(CHECK_MILLIS);
+                    if (!waiter.granted) {
+                        execution.checkCancelOrTimeout();
+                    }
+                }
+            }
+            acquired = true;
+            return System.nanoTime() - startNanos;
+        } finally {
+            if (!acquired) {
+                abandon(waiter);
+            }
+        }
+    }
+
+    /**
+     * Removes a waiter that has given up, or returns its permit if it was
+     * given one in the meantime.
+     */
+    private synchronized void abandon(Waiter waiter) {
+        if (waiter.granted) {
+            --inFlight;
+            grant();
+        } else {
+            waiters.remove(waiter);
+        }
+    }
+
+    /**
+     * Gives permits to the statements at the head of the queue while fewer
+     * statements are executing than the limit.
+     */
+    private void grant() {
+        assert Thread.holdsLock(this);
+        while (!waiters.isEmpty() && inFlight < getLimit()) {
+            final Waiter waiter = waiters.remove();
+            ++inFlight;
+            synchronized (waiter) {
+                waiter.granted = true;
+                waiter.notify();
+            }
+        }
+    }
+
+    /**
+     * Returns a permit, and adapts the limit to the latency of the statement
+     * that held it. The permit, and any permits added because the limit has
+     * grown, are given to the statements that have waited longest.
+     *
+     * @param latencyNanos Time from when the statement was executed until its
+     *     first row was ready, in nanoseconds; negative if the statement did
+     *     not finish executing, in which case the limit is not adapted
+     */
+    public synchronized void release(long latencyNanos) {
+        final int used = inFlight--;
+        if (adaptive && latencyNanos >= 0) {
+            adapt(latencyNanos, used);
+        }
+        grant();
+    }
+
+    private void adapt(long latencyNanos, int used) {
+        if (longLatency == 0) {
+            shortLatency = longLatency = latencyNanos;
+        } else {
+            shortLatency += SHORT_WEIGHT * (latencyNanos - shortLatency);
+            longLatency += LONG_WEIGHT * (latencyNanos - longLatency);
+        }
+        ++completionsSinceBackoff;
+        if (shortLatency > longLatency * tolerance) {
+            if (completionsSinceBackoff >= limit) {
+                limit = Math.max(1d, limit * BACKOFF);
+                completionsSinceBackoff = 0;
+            }
+        } else if (used * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1d / limit);
+        }
+    }
+
+    /**
+     * Returns the number of statements that may execute at the same time.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of statements that hold a permit.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the number of statements waiting for a permit.
+     */
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    /**
+     * Statement waiting for a permit.
+     */
+    private static class Waiter {
+        /**
+         * Whether the statement has been given a permit. Set while holding
+         * the locks of both the limiter and the waiter.
+         */
+        boolean granted;
+    }
+}
+
+// End SqlConcurrencyLimiter.java
@@ -1291,7 +1291,7 @@ RME is this right
     String parentId = level.getParentExp().getExpression( sqlQuery );
 
     StringBuilder buf = new StringBuilder();
-    sqlQuery.getDialect().quote( buf, member.getKey(), level.getDatatype() );
+    sqlQuery.quote( buf, member.getKey(), level.getDatatype() );
     sqlQuery.addWhere( parentId, " = ", buf.toString() );
 
     hierarchy.addToFrom( sqlQuery, level.getKeyExp() );
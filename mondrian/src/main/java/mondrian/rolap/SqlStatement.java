@@ -16,7 +16,9 @@ import mondrian.olap.MondrianProperties;
 import mondrian.olap.Util;
 import mondrian.olap.Util.Functor1;
 import mondrian.resource.MondrianResource;
+import mondrian.rolap.sql.BoundSql;
 import mondrian.server.Execution;
+import mondrian.server.ExecutionProfile;
 import mondrian.server.Locus;
 import mondrian.server.monitor.SqlStatementEndEvent;
 import mondrian.server.monitor.SqlStatementEvent;
@@ -26,13 +28,12 @@ import mondrian.server.monitor.SqlStatementStartEvent;
 import mondrian.spi.Dialect;
 import mondrian.spi.DialectManager;
 import mondrian.util.Counters;
-import mondrian.util.DelegatingInvocationHandler;
+import mondrian.util.DelegatingResultSet;
 
 import javax.sql.DataSource;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -74,12 +75,25 @@ public class SqlStatement {
   // used for SQL logging, allows for a SQL Statement UID
   private static final AtomicLong ID_GENERATOR = new AtomicLong();
 
+  /**
+   * Limits how many statements execute at the same time, if statements are not limited per data source; see
+   * {@link MondrianProperties#QueryLimit}.
+   */
   private static final Semaphore querySemaphore = new Semaphore( MondrianProperties.instance().QueryLimit.get(), true );
 
   private final DataSource dataSource;
   private Connection jdbcConnection;
   private ResultSet resultSet;
   private final String sql;
+  /**
+   * SQL text and the values to bind to its parameters; see {@link BoundSql}.
+   */
+  private final BoundSql boundSql;
+  /**
+   * Values bound to the parameters of the SQL, as text to append to the SQL in logs, monitor events and error messages;
+   * empty if there are none.
+   */
+  private final String boundValues;
   private final List<Type> types;
   private final int maxRows;
   private final int firstRowOrdinal;
@@ -87,8 +101,25 @@ public class SqlStatement {
   private final int resultSetType;
   private final int resultSetConcurrency;
   private boolean haveSemaphore;
+  private SqlConcurrencyLimiter limiter;
+  private Dialect dialect;
+  /**
+   * Whether auto-commit was turned off so that the driver reads the result with a cursor, and must be turned back on
+   * before the connection is released.
+   */
+  private boolean restoreAutoCommit;
+  /**
+   * Time from when the statement was executed until its first row was ready, in nanoseconds; -1 if it has not finished
+   * executing.
+   */
+  private long executeNanos = -1;
   public int rowCount;
   private long startTimeMillis;
+  /**
+   * Time at which the statement finished executing and started fetching rows, per {@link System#nanoTime()}; 0 if it
+   * has not executed.
+   */
+  private long fetchStartNanos;
   private final List<Accessor> accessors = new ArrayList<>();
   private State state = State.FRESH;
   private final long id;
@@ -98,7 +129,7 @@ public class SqlStatement {
    * Creates a SqlStatement.
    *
    * @param dataSource           Data source
-   * @param sql                  SQL
+   * @param sql                  SQL; values that are to be bound are marked as described in {@link BoundSql}
    * @param types                Suggested types of columns, or null; if present, must have one element for each SQL
    *                             column; each not-null entry overrides deduced JDBC type of the column
    * @param maxRows              Maximum rows; <= 0 means no maximum
@@ -113,7 +144,9 @@ public class SqlStatement {
     this.callback = callback;
     this.id = ID_GENERATOR.getAndIncrement();
     this.dataSource = dataSource;
-    this.sql = sql;
+    this.boundSql = BoundSql.parse( sql );
+    this.sql = boundSql.sql;
+    this.boundValues = boundSql.values.isEmpty() ? "" : " values=" + boundSql.values;
     this.types = types;
     this.maxRows = maxRows;
     this.firstRowOrdinal = firstRowOrdinal;
@@ -138,10 +171,23 @@ public class SqlStatement {
       // Check execution state
       locus.execution.checkCancelOrTimeout();
 
+      // Wait for a permit of the data source before obtaining a connection, so that waiting statements do not hold
+      // connections. If statements are not limited per data source, fall back to the global limit.
+      final SqlConcurrencyLimiter limiter = SqlConcurrencyLimiter.get( dataSource, getPurpose() );
+      long queueNanos = 0;
+      if ( limiter != null ) {
+        queueNanos = limiter.acquire( locus.execution );
+        this.limiter = limiter;
+      }
+
       this.jdbcConnection = dataSource.getConnection();
-      querySemaphore.acquire();
+      if ( limiter == null ) {
+        final long queueStartNanos = System.nanoTime();
+        querySemaphore.acquire();
+        haveSemaphore = true;
+        queueNanos = System.nanoTime() - queueStartNanos;
+      }
 
-      haveSemaphore = true;
       // Trace start of execution.
       if ( RolapUtil.SQL_LOGGER.isDebugEnabled() ) {
         StringBuilder sqllog = new StringBuilder();
@@ -153,7 +199,7 @@ public class SqlStatement {
         }
 
         sqllog.append( sql );
-        sqllog.append( ']' );
+        sqllog.append( ']' ).append( boundValues );
         RolapUtil.SQL_LOGGER.debug( sqllog.toString() );
       }
 
@@ -167,19 +213,48 @@ public class SqlStatement {
       // Check execution state
       locus.execution.checkCancelOrTimeout();
 
+      // Ask the dialect how many rows the driver should fetch per round trip. If the result is read forward-only, the
+      // dialect may instead ask the driver to stream it, so that a large result is not held in memory. Some drivers
+      // (PostgreSQL) stream only inside a transaction; auto-commit is turned back on when the statement is closed.
+      final Dialect dialect = getDialect();
+      final boolean streamable = isForwardOnly() && MondrianProperties.instance().SqlStreaming.get();
+      final int fetchSize = dialect.getFetchSize( getPurpose(), streamable );
+      if ( streamable && fetchSize > 0 && dialect.requiresTransactionForCursor() && jdbcConnection.getAutoCommit() ) {
+        jdbcConnection.setAutoCommit( false );
+        restoreAutoCommit = true;
+      }
+
       startTimeNanos = System.nanoTime();
       startTimeMillis = System.currentTimeMillis();
 
-      if ( resultSetType < 0 || resultSetConcurrency < 0 ) {
-        statement = jdbcConnection.createStatement();
+      // If there are values to bind, use a prepared statement. The statement has the same text whatever the values,
+      // so the driver, connection pool and database can reuse it and its plan.
+      final PreparedStatement preparedStatement;
+      if ( boundSql.values.isEmpty() ) {
+        preparedStatement = null;
+        if ( resultSetType < 0 || resultSetConcurrency < 0 ) {
+          statement = jdbcConnection.createStatement();
+        } else {
+          statement = jdbcConnection.createStatement( resultSetType, resultSetConcurrency );
+        }
       } else {
-        statement = jdbcConnection.createStatement( resultSetType, resultSetConcurrency );
+        if ( resultSetType < 0 || resultSetConcurrency < 0 ) {
+          preparedStatement = jdbcConnection.prepareStatement( sql );
+        } else {
+          preparedStatement = jdbcConnection.prepareStatement( sql, resultSetType, resultSetConcurrency );
+        }
+        statement = preparedStatement;
+        boundSql.bind( preparedStatement );
       }
 
       if ( maxRows > 0 ) {
         statement.setMaxRows( maxRows );
       }
 
+      if ( fetchSize != 0 ) {
+        statement.setFetchSize( fetchSize );
+      }
+
       // First make sure to register with the execution instance.
       if ( getPurpose() != Purpose.CELL_SEGMENT ) {
         locus.execution.registerStatement( locus, statement );
@@ -190,8 +265,9 @@ public class SqlStatement {
       }
 
       locus.getServer().getMonitor().sendEvent(
-        new SqlStatementStartEvent( startTimeMillis, id, locus, sql, getPurpose(), getCellRequestCount() ) );
-      this.resultSet = statement.executeQuery( sql );
+        new SqlStatementStartEvent( startTimeMillis, id, locus, sql + boundValues, getPurpose(),
+          getCellRequestCount(), queueNanos ) );
+      this.resultSet = preparedStatement == null ? statement.executeQuery( sql ) : preparedStatement.executeQuery();
 
       // skip to first row specified in request
       this.state = State.ACTIVE;
@@ -213,13 +289,16 @@ public class SqlStatement {
 
       long timeMillis = System.currentTimeMillis();
       long timeNanos = System.nanoTime();
-      final long executeNanos = timeNanos - startTimeNanos;
+      executeNanos = timeNanos - startTimeNanos;
       final long executeMillis = executeNanos / 1000000;
       Util.addDatabaseTime( executeMillis );
       status = ", exec " + executeMillis + " ms";
+      ExecutionProfile.add( locus, ExecutionProfile.Phase.SQL_EXECUTE, startTimeNanos );
+      fetchStartNanos = timeNanos;
 
       locus.getServer().getMonitor()
-        .sendEvent( new SqlStatementExecuteEvent( timeMillis, id, locus, sql, getPurpose(), executeNanos ) );
+        .sendEvent(
+          new SqlStatementExecuteEvent( timeMillis, id, locus, sql + boundValues, getPurpose(), executeNanos ) );
 
       // Compute accessors. They ensure that we use the most efficient method (e.g. getInt, getDouble, getObject) for
       // the type of the column. Even if you are going to box the result into an object, it is better to use getInt
@@ -227,7 +306,7 @@ public class SqlStatement {
       accessors.clear();
 
       for ( Type type : guessTypes() ) {
-        accessors.add( createAccessor( accessors.size(), type ) );
+        accessors.add( type.createAccessor( resultSet, accessors.size() ) );
       }
     } catch ( Throwable e ) {
       status = ", failed (" + e + ")";
@@ -241,7 +320,7 @@ public class SqlStatement {
       RolapUtil.SQL_LOGGER.debug( "{}: {}", id, status );
 
       if ( RolapUtil.LOGGER.isDebugEnabled() ) {
-        RolapUtil.LOGGER.debug( "{}: executing sql [{}]{}", locus.component, sql, status );
+        RolapUtil.LOGGER.debug( "{}: executing sql [{}]{}{}", locus.component, sql, boundValues, status );
       }
     }
   }
@@ -267,14 +346,35 @@ public class SqlStatement {
       querySemaphore.release();
     }
 
+    if ( limiter != null ) {
+      limiter.release( executeNanos );
+      limiter = null;
+    }
+
     // According to the JDBC spec, closing a statement automatically closes its result sets, and closing a connection
     // automatically closes its statements. But let's be conservative and close everything explicitly.
-    SQLException ex = Util.close( resultSet, null, jdbcConnection );
+    SQLException ex = Util.close( resultSet, null, null );
+    if ( restoreAutoCommit ) {
+      restoreAutoCommit = false;
+      try {
+        // Ends the transaction in which the result was read. Nothing was written, so it does not matter that it
+        // commits.
+        jdbcConnection.setAutoCommit( true );
+      } catch ( SQLException e ) {
+        if ( ex == null ) {
+          ex = e;
+        }
+      }
+    }
+    final SQLException connectionEx = Util.close( null, null, jdbcConnection );
+    if ( ex == null ) {
+      ex = connectionEx;
+    }
     resultSet = null;
     jdbcConnection = null;
 
     if ( ex != null ) {
-      throw Util.newError( ex, locus.message + "; sql=[" + sql + "]" );
+      throw Util.newError( ex, locus.message + "; sql=[" + sql + "]" + boundValues );
     }
 
     long endTime = System.currentTimeMillis();
@@ -289,6 +389,9 @@ public class SqlStatement {
     String status = formatTimingStatus( totalMs, rowCount );
 
     locus.execution.getQueryTiming().markFull( TIMING_NAME + locus.component, totalMs );
+    if ( fetchStartNanos != 0 ) {
+      ExecutionProfile.add( locus, ExecutionProfile.Phase.SQL_FETCH, fetchStartNanos );
+    }
 
     RolapUtil.SQL_LOGGER.debug( "{}: {}", id, status );
 
@@ -300,7 +403,7 @@ public class SqlStatement {
         + ", open=" + Counters.SQL_STATEMENT_EXECUTING_IDS;
 
     if ( RolapUtil.LOGGER.isDebugEnabled() ) {
-      RolapUtil.LOGGER.debug( "{}: done executing sql [{}]{}", locus.component, sql, status );
+      RolapUtil.LOGGER.debug( "{}: done executing sql [{}]{}{}", locus.component, sql, boundValues, status );
     }
 
     if ( !remove ) {
@@ -308,7 +411,8 @@ public class SqlStatement {
     }
 
     locus.getServer().getMonitor()
-      .sendEvent( new SqlStatementEndEvent( endTime, id, locus, sql, getPurpose(), rowCount, false, null ) );
+      .sendEvent(
+        new SqlStatementEndEvent( endTime, id, locus, sql + boundValues, getPurpose(), rowCount, false, null ) );
   }
 
   String formatTimingStatus( long totalMs, int rowCount ) {
@@ -327,7 +431,7 @@ public class SqlStatement {
    * @return Runtime exception
    */
   public RuntimeException handle( Throwable e ) {
-    RuntimeException runtimeException = Util.newError( e, locus.message + "; sql=[" + sql + "]" );
+    RuntimeException runtimeException = Util.newError( e, locus.message + "; sql=[" + sql + "]" + boundValues );
 
     try {
       close();
@@ -338,70 +442,6 @@ public class SqlStatement {
     return runtimeException;
   }
 
-  // warning suppressed because breaking this method up would reduce readability
-  @SuppressWarnings( "squid:S3776" )
-  private Accessor createAccessor( int column, Type type ) {
-    final int columnPlusOne = column + 1;
-
-    switch ( type ) {
-      case OBJECT:
-        return () -> resultSet.getObject( columnPlusOne );
-      case STRING:
-        return () -> resultSet.getString( columnPlusOne );
-      case INT:
-        return () -> {
-          final int val = resultSet.getInt( columnPlusOne );
-
-          if ( val == 0 && resultSet.wasNull() ) {
-            return null;
-          }
-
-          return val;
-        };
-      case LONG:
-        return () -> {
-          final long val = resultSet.getLong( columnPlusOne );
-
-          if ( val == 0 && resultSet.wasNull() ) {
-            return null;
-          }
-
-          return val;
-        };
-      case DOUBLE:
-        return () -> {
-          final double val = resultSet.getDouble( columnPlusOne );
-
-          if ( val == 0 && resultSet.wasNull() ) {
-            return null;
-          }
-
-          return val;
-        };
-      case DECIMAL:
-        // this type is only present to work around a defect in the Snowflake jdbc driver. there is currently no plan
-        // to support the DECIMAL/BigDecimal type internally
-        return () -> {
-          final BigDecimal decimal = resultSet.getBigDecimal( columnPlusOne );
-
-          if ( decimal == null && resultSet.wasNull() ) {
-            return null;
-          }
-
-          final double val = resultSet.getBigDecimal( columnPlusOne ).doubleValue();
-
-          if ( val == Double.NEGATIVE_INFINITY || val == Double.POSITIVE_INFINITY ) {
-            throw MondrianResource.instance().JavaDoubleOverflow.ex(
-              resultSet.getMetaData().getColumnName( columnPlusOne ) );
-          }
-
-          return val;
-        };
-      default:
-        throw Util.unexpected( type );
-    }
-  }
-
   public List<Type> guessTypes() throws SQLException {
     final ResultSetMetaData metaData = resultSet.getMetaData();
     final int columnCount = metaData.getColumnCount();
@@ -410,9 +450,7 @@ public class SqlStatement {
 
     for ( int i = 0; i < columnCount; i++ ) {
       final Type suggestedType = this.types == null ? null : this.types.get( i );
-      // There might not be a schema constructed yet, so watch out here for NPEs.
-      RolapSchema schema = locus.execution.getMondrianStatement().getMondrianConnection().getSchema();
-      Dialect dialect = getDialect( schema );
+      final Dialect dialect = suggestedType == null ? getDialect() : null;
 
       if ( suggestedType != null ) {
         typeList.add( suggestedType );
@@ -426,6 +464,27 @@ public class SqlStatement {
     return typeList;
   }
 
+  /**
+   * Returns the dialect of this statement's data source, looking it up the first time it is needed.
+   */
+  private Dialect getDialect() {
+    if ( dialect == null ) {
+      // There might not be a schema constructed yet, so watch out here for NPEs.
+      RolapSchema schema = locus.execution.getMondrianStatement().getMondrianConnection().getSchema();
+      dialect = getDialect( schema );
+    }
+    return dialect;
+  }
+
+  /**
+   * Returns whether the result set is read forward-only and is read-only, either explicitly or because the driver's
+   * defaults are used.
+   */
+  private boolean isForwardOnly() {
+    return ( resultSetType < 0 || resultSetType == ResultSet.TYPE_FORWARD_ONLY )
+      && ( resultSetConcurrency < 0 || resultSetConcurrency == ResultSet.CONCUR_READ_ONLY );
+  }
+
   /**
    * Retrieves dialect from schema or attempts to create it in case it is null
    *
@@ -456,7 +515,7 @@ public class SqlStatement {
   }
 
   /**
-   * Returns the result set in a proxy which automatically closes this SqlStatement (and hence also the statement and
+   * Returns the result set in a wrapper which automatically closes this SqlStatement (and hence also the statement and
    * result set) when the result set is closed.
    *
    * <p>This helps to prevent connection leaks. The caller still has to remember to call ResultSet.close(), of course.
@@ -464,8 +523,7 @@ public class SqlStatement {
    * @return Wrapped result set
    */
   public ResultSet getWrappedResultSet() {
-    return (ResultSet) Proxy.newProxyInstance( ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
-      new MyDelegatingInvocationHandler( this ) );
+    return new StatementResultSet( this );
   }
 
   private SqlStatementEvent.Purpose getPurpose() {
@@ -501,6 +559,32 @@ public class SqlStatement {
     STRING,
     DECIMAL;
 
+    /**
+     * Creates an accessor that reads a column of this type from the current row of a result set.
+     *
+     * @param resultSet Result set
+     * @param column    Column ordinal, 0-based
+     * @return Accessor
+     */
+    public Accessor createAccessor( ResultSet resultSet, int column ) {
+      switch ( this ) {
+        case OBJECT:
+          return new ObjectAccessor( resultSet, column );
+        case STRING:
+          return new StringAccessor( resultSet, column );
+        case INT:
+          return new IntAccessor( resultSet, column );
+        case LONG:
+          return new LongAccessor( resultSet, column );
+        case DOUBLE:
+          return new DoubleAccessor( resultSet, column );
+        case DECIMAL:
+          return new DecimalAccessor( resultSet, column );
+        default:
+          throw Util.unexpected( this );
+      }
+    }
+
     public Object get( ResultSet resultSet, int column ) throws SQLException {
       switch ( this ) {
         case OBJECT:
@@ -514,7 +598,7 @@ public class SqlStatement {
         case DOUBLE:
           return resultSet.getDouble( column + 1 );
         case DECIMAL:
-          // this lacks the range checking done in the createAccessor method above, but nothing seems to call this
+          // this lacks the range checking done by DecimalAccessor, but nothing seems to call this
           // method anyway.
           BigDecimal decimal = resultSet.getBigDecimal( column + 1 );
           return decimal == null ? null : decimal.doubleValue();
@@ -524,44 +608,240 @@ public class SqlStatement {
     }
   }
 
+  /**
+   * Reads the value of a column in the current row of a result set.
+   *
+   * <p>{@link #get()} returns the value as an object, boxing numeric values, and returns null if the value is null.
+   * {@link #getInt()}, {@link #getLong()} and {@link #getDouble()} return a numeric value without allocating, and
+   * return 0 if the value is null; call {@link #wasNull()} to tell a null from a 0.</p>
+   *
+   * <p>The accessors created by {@link Type#createAccessor} read the column using the method of {@link ResultSet}
+   * that suits its type. The default implementations of the primitive methods call {@link #get()}.</p>
+   */
   public interface Accessor {
     Object get() throws SQLException;
+
+    default int getInt() throws SQLException {
+      final Object o = get();
+      return o == null ? 0 : ( (Number) o ).intValue();
+    }
+
+    default long getLong() throws SQLException {
+      final Object o = get();
+      return o == null ? 0L : ( (Number) o ).longValue();
+    }
+
+    default double getDouble() throws SQLException {
+      final Object o = get();
+      return o == null ? 0D : ( (Number) o ).doubleValue();
+    }
+
+    /**
+     * Returns whether the value last read by this accessor was null.
+     */
+    default boolean wasNull() throws SQLException {
+      return get() == null;
+    }
   }
 
   /**
-   * Reflectively implements the {@link ResultSet} interface by routing method calls to the result set inside a
-   * {@link mondrian.rolap.SqlStatement}. When the result set is closed, so is the SqlStatement, and hence the JDBC
-   * connection and statement also.
+   * Accessor that reads a column of a result set.
    */
-  // must be public for reflection to work
-  public static class MyDelegatingInvocationHandler extends DelegatingInvocationHandler {
-    private final SqlStatement sqlStatement;
+  private abstract static class ResultSetAccessor implements Accessor {
+    final ResultSet resultSet;
+    final int columnPlusOne;
 
-    /**
-     * Creates a MyDelegatingInvocationHandler.
-     *
-     * @param sqlStatement SQL statement
-     */
-    MyDelegatingInvocationHandler( SqlStatement sqlStatement ) {
-      this.sqlStatement = sqlStatement;
+    ResultSetAccessor( ResultSet resultSet, int column ) {
+      this.resultSet = resultSet;
+      this.columnPlusOne = column + 1;
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+      return resultSet.wasNull();
+    }
+  }
+
+  private static final class ObjectAccessor extends ResultSetAccessor {
+    ObjectAccessor( ResultSet resultSet, int column ) {
+      super( resultSet, column );
+    }
+
+    public Object get() throws SQLException {
+      return resultSet.getObject( columnPlusOne );
+    }
+  }
+
+  private static final class StringAccessor extends ResultSetAccessor {
+    StringAccessor( ResultSet resultSet, int column ) {
+      super( resultSet, column );
+    }
+
+    public Object get() throws SQLException {
+      return resultSet.getString( columnPlusOne );
+    }
+  }
+
+  private static final class IntAccessor extends ResultSetAccessor {
+    IntAccessor( ResultSet resultSet, int column ) {
+      super( resultSet, column );
+    }
+
+    public Object get() throws SQLException {
+      final int val = resultSet.getInt( columnPlusOne );
+
+      if ( val == 0 && resultSet.wasNull() ) {
+        return null;
+      }
+
+      return val;
+    }
+
+    @Override
+    public int getInt() throws SQLException {
+      return resultSet.getInt( columnPlusOne );
+    }
+
+    @Override
+    public long getLong() throws SQLException {
+      return resultSet.getInt( columnPlusOne );
+    }
+
+    @Override
+    public double getDouble() throws SQLException {
+      return resultSet.getInt( columnPlusOne );
+    }
+  }
+
+  private static final class LongAccessor extends ResultSetAccessor {
+    LongAccessor( ResultSet resultSet, int column ) {
+      super( resultSet, column );
+    }
+
+    public Object get() throws SQLException {
+      final long val = resultSet.getLong( columnPlusOne );
+
+      if ( val == 0 && resultSet.wasNull() ) {
+        return null;
+      }
+
+      return val;
+    }
+
+    @Override
+    public int getInt() throws SQLException {
+      return (int) resultSet.getLong( columnPlusOne );
+    }
+
+    @Override
+    public long getLong() throws SQLException {
+      return resultSet.getLong( columnPlusOne );
+    }
+
+    @Override
+    public double getDouble() throws SQLException {
+      return resultSet.getLong( columnPlusOne );
+    }
+  }
+
+  private static final class DoubleAccessor extends ResultSetAccessor {
+    DoubleAccessor( ResultSet resultSet, int column ) {
+      super( resultSet, column );
+    }
+
+    public Object get() throws SQLException {
+      final double val = resultSet.getDouble( columnPlusOne );
+
+      if ( val == 0 && resultSet.wasNull() ) {
+        return null;
+      }
+
+      return val;
+    }
+
+    @Override
+    public int getInt() throws SQLException {
+      return (int) resultSet.getDouble( columnPlusOne );
     }
 
     @Override
-    protected Object getTarget() throws InvocationTargetException {
-      final ResultSet resultSet = sqlStatement.getResultSet();
+    public long getLong() throws SQLException {
+      return (long) resultSet.getDouble( columnPlusOne );
+    }
+
+    @Override
+    public double getDouble() throws SQLException {
+      return resultSet.getDouble( columnPlusOne );
+    }
+  }
+
+  /**
+   * Accessor for a DECIMAL column, which it reads as a double.
+   *
+   * <p>This type is only present to work around a defect in the Snowflake jdbc driver. There is currently no plan to
+   * support the DECIMAL/BigDecimal type internally.</p>
+   */
+  private static final class DecimalAccessor extends ResultSetAccessor {
+    DecimalAccessor( ResultSet resultSet, int column ) {
+      super( resultSet, column );
+    }
+
+    public Object get() throws SQLException {
+      final BigDecimal decimal = resultSet.getBigDecimal( columnPlusOne );
 
-      if ( resultSet == null ) {
-        throw new InvocationTargetException( new SQLException( "Invalid operation. Statement is closed." ) );
+      if ( decimal == null ) {
+        return null;
       }
 
-      return resultSet;
+      return toDouble( decimal );
     }
 
+    @Override
+    public int getInt() throws SQLException {
+      return (int) getDouble();
+    }
+
+    @Override
+    public long getLong() throws SQLException {
+      return (long) getDouble();
+    }
+
+    @Override
+    public double getDouble() throws SQLException {
+      final BigDecimal decimal = resultSet.getBigDecimal( columnPlusOne );
+      return decimal == null ? 0D : toDouble( decimal );
+    }
+
+    private double toDouble( BigDecimal decimal ) throws SQLException {
+      final double val = decimal.doubleValue();
+
+      if ( val == Double.NEGATIVE_INFINITY || val == Double.POSITIVE_INFINITY ) {
+        throw MondrianResource.instance().JavaDoubleOverflow.ex(
+          resultSet.getMetaData().getColumnName( columnPlusOne ) );
+      }
+
+      return val;
+    }
+  }
+
+  /**
+   * Result set that reads from the result set inside a {@link mondrian.rolap.SqlStatement}. When the result set is
+   * closed, so is the SqlStatement, and hence the JDBC connection and statement also.
+   */
+  private static class StatementResultSet extends DelegatingResultSet {
+    private final SqlStatement sqlStatement;
+
     /**
-     * Helper method to implement {@link java.sql.ResultSet#close()}.
+     * Creates a StatementResultSet.
      *
-     * @throws SQLException on error
+     * @param sqlStatement SQL statement
      */
+    StatementResultSet( SqlStatement sqlStatement ) {
+      super( sqlStatement.getResultSet() );
+      this.sqlStatement = sqlStatement;
+    }
+
+    @Override
     public void close() throws SQLException {
       sqlStatement.close();
     }
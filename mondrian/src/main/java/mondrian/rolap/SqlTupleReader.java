@@ -174,6 +174,8 @@ public class SqlTupleReader implements TupleReader {
         setCurrMember( member );
       } else {
         boolean checkCacheStatus = true;
+        final List<SqlStatement.Accessor> accessors =
+          stmt.getAccessors();
         for ( int i = 0; i <= levelDepth; i++ ) {
           RolapLevel childLevel = levels[ i ];
           if ( childLevel.isAll() ) {
@@ -181,8 +183,6 @@ public class SqlTupleReader implements TupleReader {
             continue;
           }
           RolapMember parentMember = member;
-          final List<SqlStatement.Accessor> accessors =
-            stmt.getAccessors();
           if ( parentChild ) {
             Object parentValue =
               accessors.get( column++ ).get();
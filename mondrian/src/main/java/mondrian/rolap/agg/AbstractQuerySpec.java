@@ -50,7 +50,9 @@ public abstract class AbstractQuerySpec implements QuerySpec {
      * @return a new query object
      */
     protected SqlQuery newSqlQuery() {
-        return getStar().getSqlQuery();
+        final SqlQuery sqlQuery = getStar().getSqlQuery();
+        sqlQuery.setBindParameters(true);
+        return sqlQuery;
     }
 
     public RolapStar getStar() {
@@ -56,7 +56,9 @@ class AggQuerySpec {
     }
 
     protected SqlQuery newSqlQuery() {
-        return getStar().getSqlQuery();
+        final SqlQuery sqlQuery = getStar().getSqlQuery();
+        sqlQuery.setBindParameters(true);
+        return sqlQuery;
     }
 
     public RolapStar getStar() {
@@ -127,8 +127,8 @@ public class AggregationManager extends RolapAggregationManager {
     {
         return new CacheControlImpl(connection) {
             protected void flushNonUnion(final CellRegion region) {
-                final SegmentCacheManager.FlushResult result =
-                    cacheMgr.execute(
+                final List<SegmentCacheManager.FlushResult> results =
+                    cacheMgr.executeOnAllShards(
                         new SegmentCacheManager.FlushCommand(
                             Locus.peek(),
                             cacheMgr,
@@ -136,8 +136,10 @@ public class AggregationManager extends RolapAggregationManager {
                             this));
                 final List<Future<Boolean>> futures =
                     new ArrayList<Future<Boolean>>();
-                for (Callable<Boolean> task : result.tasks) {
-                    futures.add(cacheMgr.cacheExecutor.submit(task));
+                for (SegmentCacheManager.FlushResult result : results) {
+                    for (Callable<Boolean> task : result.tasks) {
+                        futures.add(cacheMgr.cacheExecutor.submit(task));
+                    }
                 }
                 for (Future<Boolean> future : futures) {
                     Util.discard(Util.safeGet(future, "Flush cache"));
@@ -0,0 +1,475 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.CellKey;
+
+import java.util.*;
+
+/**
+ * Map from the coordinates of a cell to a value, used by sparse segments and
+ * by rollup.
+ *
+ * <p>The coordinates of a cell are packed into a {@code long}, from the
+ * number of values on each axis, and stored with the values in parallel
+ * arrays using open addressing and linear probing. Unlike a
+ * {@code HashMap<CellKey, Object>}, the map does not create a key object or
+ * an entry object per cell. While all values are non-null {@link Double}s,
+ * they are stored unboxed, in a {@code double} array.</p>
+ *
+ * <p>If the axes are so large that coordinates do not fit into a
+ * {@code long}, the map falls back to a {@link HashMap} keyed by
+ * {@link CellKey}.</p>
+ *
+ * <p>Cells cannot be removed.</p>
+ *
+ * <p>NOTE: This class is not synchronized.</p>
+ */
+public final class CellMap implements Iterable<Map.Entry<CellKey, Object>> {
+    /** Key of an empty slot. Packed coordinates are never negative. */
+    private static final long EMPTY = -1L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final int[] axisSizes;
+
+    /**
+     * For each axis, the product of the sizes of later axes; or null if the
+     * product of all sizes does not fit into a {@code long}.
+     */
+    private final long[] multipliers;
+
+    /** Used only if {@link #multipliers} is null. */
+    private final Map<CellKey, Object> map;
+
+    private long[] keys;
+    private double[] doubles;
+    private Object[] objects;
+    private int size;
+    private int shift;
+    private int threshold;
+
+    /**
+     * Creates a CellMap.
+     *
+     * @param axisSizes Number of values on each axis; every ordinal of an
+     *     axis must be less than its size
+     */
+    public CellMap(int[] axisSizes) {
+        this(axisSizes, 0);
+    }
+
+    /**
+     * Creates a CellMap with room for a given number of cells.
+     *
+     * @param axisSizes Number of values on each axis; every ordinal of an
+     *     axis must be less than its size
+     * @param expectedSize Number of cells the map is expected to hold
+     */
+    public CellMap(int[] axisSizes, int expectedSize) {
+        this.axisSizes = axisSizes.clone();
+        this.multipliers = computeMultipliers(axisSizes);
+        if (multipliers == null) {
+            this.map = new HashMap<CellKey, Object>();
+        } else {
+            this.map = null;
+            int capacity = MIN_CAPACITY;
+            while (capacity * 2L / 3 < expectedSize) {
+                capacity *= 2;
+            }
+            allocate(capacity);
+        }
+    }
+
+    private static long[] computeMultipliers(int[] axisSizes) {
+        final long[] multipliers = new long[axisSizes.length];
+        long multiplier = 1;
+        for (int i = axisSizes.length - 1; i >= 0; --i) {
+            multipliers[i] = multiplier;
+            try {
+                multiplier =
+                    Math.multiplyExact(multiplier, Math.max(axisSizes[i], 1));
+            } catch (ArithmeticException e) {
+                return null;
+            }
+        }
+        return multipliers;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        if (objects == null) {
+            doubles = new double[capacity];
+        } else {
+            objects = new Object[capacity];
+        }
+        shift = Long.numberOfLeadingZeros(capacity - 1);
+        threshold = (int) (capacity * 2L / 3);
+    }
+
+    /**
+     * Returns the number of cells in this map.
+     *
+     * @return Number of cells
+     */
+    public int size() {
+        return map != null ? map.size() : size;
+    }
+
+    /**
+     * Returns the number of values on each axis.
+     *
+     * @return Axis sizes
+     */
+    public int[] getAxisSizes() {
+        return axisSizes.clone();
+    }
+
+    /**
+     * Returns an estimate of the memory used by this map, in bytes.
+     *
+     * @return Estimated size in bytes
+     */
+    public long getBytes() {
+        if (map != null) {
+            // key, entry and value
+            return map.size() * 64L;
+        }
+        return keys.length * 16L;
+    }
+
+    public boolean containsKey(int[] pos) {
+        if (map != null) {
+            return map.containsKey(CellKey.Generator.newCellKey(pos));
+        }
+        return find(pack(pos)) >= 0;
+    }
+
+    public boolean containsKey(CellKey key) {
+        if (map != null) {
+            return map.containsKey(key);
+        }
+        return find(pack(key)) >= 0;
+    }
+
+    public Object get(int[] pos) {
+        if (map != null) {
+            return map.get(CellKey.Generator.newCellKey(pos));
+        }
+        return valueAt(find(pack(pos)));
+    }
+
+    public Object get(CellKey key) {
+        if (map != null) {
+            return map.get(key);
+        }
+        return valueAt(find(pack(key)));
+    }
+
+    /**
+     * Sets the value of a cell, replacing any previous value.
+     *
+     * @param pos Coordinates of cell; not retained
+     * @param value Value; may be null
+     * @throws IllegalArgumentException if the coordinates are out of range
+     */
+    public void put(int[] pos, Object value) {
+        if (map != null) {
+            map.put(CellKey.Generator.newCellKey(pos), value);
+            return;
+        }
+        put(pack(pos), value);
+    }
+
+    /**
+     * Sets the value of a cell, replacing any previous value.
+     *
+     * @param key Coordinates of cell; not retained
+     * @param value Value; may be null
+     */
+    public void put(CellKey key, Object value) {
+        if (map != null) {
+            map.put(key.copy(), value);
+            return;
+        }
+        put(pack(key), value);
+    }
+
+    private void put(long key, Object value) {
+        if (key < 0) {
+            throw new IllegalArgumentException(
+                "cell coordinates do not match axis sizes "
+                + Arrays.toString(axisSizes));
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                setValue(slot, value);
+                return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = key;
+        setValue(slot, value);
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void setValue(int slot, Object value) {
+        if (objects == null) {
+            if (value instanceof Double) {
+                doubles[slot] = (Double) value;
+                return;
+            }
+            // First value that is not a double. Box the values so far.
+            objects = new Object[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    objects[i] = doubles[i];
+                }
+            }
+            doubles = null;
+        }
+        objects[slot] = value;
+    }
+
+    private Object valueAt(int slot) {
+        if (slot < 0) {
+            return null;
+        }
+        return objects == null ? (Object) doubles[slot] : objects[slot];
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = keys;
+        final double[] oldDoubles = doubles;
+        final Object[] oldObjects = objects;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            final long key = oldKeys[i];
+            if (key == EMPTY) {
+                continue;
+            }
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            keys[slot] = key;
+            if (oldObjects == null) {
+                doubles[slot] = oldDoubles[i];
+            } else {
+                objects[slot] = oldObjects[i];
+            }
+        }
+    }
+
+    private int find(long key) {
+        if (key < 0) {
+            return -1;
+        }
+        int slot = slot(key);
+        while (true) {
+            final long k = keys[slot];
+            if (k == key) {
+                return slot;
+            }
+            if (k == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing spreads keys that differ only in low-order
+        // axes, which are common, across the table.
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Packs coordinates into a key. Returns -1 if the coordinates are out of
+     * range, so that they are not mistaken for those of another cell.
+     */
+    private long pack(int[] pos) {
+        if (pos.length != multipliers.length) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < multipliers.length; i++) {
+            final int ordinal = pos[i];
+            if (ordinal < 0 || ordinal >= Math.max(axisSizes[i], 1)) {
+                return -1;
+            }
+            key += ordinal * multipliers[i];
+        }
+        return key;
+    }
+
+    private long pack(CellKey cellKey) {
+        if (cellKey.size() != multipliers.length) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < multipliers.length; i++) {
+            final int ordinal = cellKey.getAxis(i);
+            if (ordinal < 0 || ordinal >= Math.max(axisSizes[i], 1)) {
+                return -1;
+            }
+            key += ordinal * multipliers[i];
+        }
+        return key;
+    }
+
+    private void unpack(long key, int[] pos) {
+        for (int i = 0; i < multipliers.length; i++) {
+            pos[i] = (int) (key / multipliers[i]);
+            key -= pos[i] * multipliers[i];
+        }
+    }
+
+    /**
+     * Returns a cursor over the cells of this map, in no particular order.
+     *
+     * @return Cursor
+     */
+    public Cursor cursor() {
+        return map != null ? new MapCursor() : new ArrayCursor();
+    }
+
+    /**
+     * Returns an iterator over the cells of this map. Creates a
+     * {@link CellKey} for each cell; {@link #cursor()} does not.
+     *
+     * @return Iterator
+     */
+    public Iterator<Map.Entry<CellKey, Object>> iterator() {
+        final Cursor cursor = cursor();
+        return new Iterator<Map.Entry<CellKey, Object>>() {
+            private boolean ready;
+            private boolean hasNext;
+
+            public boolean hasNext() {
+                if (!ready) {
+                    hasNext = cursor.next();
+                    ready = true;
+                }
+                return hasNext;
+            }
+
+            public Map.Entry<CellKey, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return new AbstractMap.SimpleImmutableEntry<CellKey, Object>(
+                    cursor.getKey(), cursor.getValue());
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Cursor over the cells of a {@link CellMap}.
+     */
+    public abstract class Cursor {
+        /**
+         * Moves to the next cell.
+         *
+         * @return Whether there was another cell
+         */
+        public abstract boolean next();
+
+        /**
+         * Writes the coordinates of the current cell into an array.
+         *
+         * @param pos Array with one element per axis
+         */
+        public abstract void getOrdinals(int[] pos);
+
+        /**
+         * Returns the coordinates of the current cell as a new
+         * {@link CellKey}.
+         *
+         * @return Coordinates of the current cell
+         */
+        public CellKey getKey() {
+            final int[] pos = new int[axisSizes.length];
+            getOrdinals(pos);
+            return CellKey.Generator.newCellKey(pos);
+        }
+
+        /**
+         * Returns the value of the current cell.
+         *
+         * @return Value of the current cell
+         */
+        public abstract Object getValue();
+    }
+
+    private class ArrayCursor extends Cursor {
+        private int slot = -1;
+
+        public boolean next() {
+            while (++slot < keys.length) {
+                if (keys[slot] != EMPTY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void getOrdinals(int[] pos) {
+            unpack(keys[slot], pos);
+        }
+
+        public Object getValue() {
+            return valueAt(slot);
+        }
+    }
+
+    private class MapCursor extends Cursor {
+        private final Iterator<Map.Entry<CellKey, Object>> iterator =
+            map.entrySet().iterator();
+        private Map.Entry<CellKey, Object> entry;
+
+        public boolean next() {
+            if (iterator.hasNext()) {
+                entry = iterator.next();
+                return true;
+            }
+            return false;
+        }
+
+        public void getOrdinals(int[] pos) {
+            final CellKey key = entry.getKey();
+            for (int i = 0; i < pos.length; i++) {
+                pos[i] = key.getAxis(i);
+            }
+        }
+
+        public CellKey getKey() {
+            return entry.getKey();
+        }
+
+        public Object getValue() {
+            return entry.getValue();
+        }
+    }
+}
+
+// End CellMap.java
@@ -187,6 +187,12 @@ class DrillThroughQuerySpec extends AbstractQuerySpec {
             : constr;
     }
 
+    protected SqlQuery newSqlQuery() {
+        // Drill-through SQL is returned to the user, so it contains
+        // literals, not parameters.
+        return getStar().getSqlQuery();
+    }
+
     public Pair<String, List<SqlStatement.Type>> generateSqlQuery() {
         SqlQuery sqlQuery = newSqlQuery();
         nonDistinctGenerateSql(sqlQuery);
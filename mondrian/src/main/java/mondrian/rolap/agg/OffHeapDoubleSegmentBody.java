@@ -0,0 +1,100 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.util.Pair;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Implementation of a segment body which stores the data in a direct
+ * buffer of double precision numbers, outside the Java heap.
+ */
+class OffHeapDoubleSegmentBody extends OffHeapSegmentBody {
+    private static final long serialVersionUID = -3117412874211398045L;
+
+    /**
+     * Creates an OffHeapDoubleSegmentBody.
+     *
+     * @param values Direct buffer of cell values; not copied
+     * @param nullValues Direct buffer of null indicators; not copied
+     * @param size Number of cells
+     * @param axes Axes
+     */
+    OffHeapDoubleSegmentBody(
+        ByteBuffer values,
+        ByteBuffer nullValues,
+        int size,
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+    {
+        super(values, nullValues, size, axes);
+    }
+
+    /**
+     * Creates an OffHeapDoubleSegmentBody by copying an array of cell values
+     * and null indicators.
+     *
+     * @param nullValues Null indicators
+     * @param values Cell values
+     * @param axes Axes
+     * @return Segment body
+     */
+    static OffHeapDoubleSegmentBody copyOf(
+        BitSet nullValues,
+        double[] values,
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+    {
+        final ByteBuffer buffer = allocate(values.length << 3);
+        buffer.asDoubleBuffer().put(values);
+        return new OffHeapDoubleSegmentBody(
+            buffer,
+            copyNullValues(nullValues, values.length),
+            values.length,
+            axes);
+    }
+
+    @Override
+    public Object getValueArray() {
+        final double[] array = new double[size];
+        values.asDoubleBuffer().get(array);
+        return array;
+    }
+
+    @Override
+    protected Object getObject(int i) {
+        double value = values.getDouble(i << 3);
+        if (value == 0d && isNull(nullValues, i)) {
+            return null;
+        }
+        return value;
+    }
+
+    private Object writeReplace() {
+        return new DenseDoubleSegmentBody(
+            getNullValueIndicators(),
+            (double[]) getValueArray(),
+            getAxes());
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapDoubleSegmentBody(size=" + size
+            + ", offHeapBytes=" + getOffHeapBytes()
+            + ", axisValueSets=" + Arrays.toString(getAxisValueSets())
+            + ", nullAxisFlags=" + Arrays.toString(getNullAxisFlags())
+            + ")";
+    }
+}
+
+// End OffHeapDoubleSegmentBody.java
@@ -0,0 +1,116 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.CellKey;
+import mondrian.rolap.SqlStatement;
+import mondrian.spi.SegmentBody;
+import mondrian.util.Pair;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Implementation of {@link OffHeapSegmentDataset} that stores
+ * values of type {@code double}.
+ */
+class OffHeapDoubleSegmentDataset extends OffHeapSegmentDataset {
+    /**
+     * Creates an OffHeapDoubleSegmentDataset.
+     *
+     * @param axes Segment axes, containing actual column values
+     * @param size Number of coordinates
+     */
+    OffHeapDoubleSegmentDataset(SegmentAxis[] axes, int size) {
+        this(
+            axes,
+            OffHeapSegmentBody.allocate(size << 3),
+            OffHeapSegmentBody.allocateNullValues(size),
+            size);
+    }
+
+    /**
+     * Creates a populated OffHeapDoubleSegmentDataset.
+     *
+     * @param axes Segment axes, containing actual column values
+     * @param values Direct buffer of cell values; not copied
+     * @param nullValues Direct buffer of null indicators; not copied
+     * @param size Number of coordinates
+     */
+    OffHeapDoubleSegmentDataset(
+        SegmentAxis[] axes,
+        ByteBuffer values,
+        ByteBuffer nullValues,
+        int size)
+    {
+        super(axes, values, nullValues, size);
+    }
+
+    public double getDouble(CellKey key) {
+        int offset = key.getOffset(axisMultipliers);
+        return values.getDouble(offset << 3);
+    }
+
+    public Object getObject(CellKey pos) {
+        if (getSize() == 0) {
+            // No values means they are all null.
+            return null;
+        }
+        int offset = pos.getOffset(axisMultipliers);
+        return getObject(offset);
+    }
+
+    public Double getObject(int offset) {
+        final double value = values.getDouble(offset << 3);
+        if (value == 0 && isNull(offset)) {
+            return null;
+        }
+        return value;
+    }
+
+    public void populateFrom(int[] pos, SegmentDataset data, CellKey key) {
+        final int offset = getOffset(pos);
+        final double value = data.getDouble(key);
+        values.putDouble(offset << 3, value);
+        if (value != 0d || !data.isNull(key)) {
+            clearNull(offset);
+        }
+    }
+
+    public void populateFrom(
+        int[] pos, SegmentLoader.RowList rowList, int column)
+    {
+        final int offset = getOffset(pos);
+        final double value = rowList.getDouble(column);
+        values.putDouble(offset << 3, value);
+        if (value != 0d || !rowList.isNull(column)) {
+            clearNull(offset);
+        }
+    }
+
+    public SqlStatement.Type getType() {
+        return SqlStatement.Type.DOUBLE;
+    }
+
+    public SegmentBody createSegmentBody(
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+    {
+        return new OffHeapDoubleSegmentBody(
+            values,
+            nullValues,
+            getSize(),
+            axes);
+    }
+}
+
+// End OffHeapDoubleSegmentDataset.java
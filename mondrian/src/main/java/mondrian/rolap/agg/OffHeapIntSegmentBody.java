@@ -0,0 +1,100 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.util.Pair;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Implementation of a segment body which stores the data in a direct
+ * buffer of integers, outside the Java heap.
+ */
+class OffHeapIntSegmentBody extends OffHeapSegmentBody {
+    private static final long serialVersionUID = 6230958264815607917L;
+
+    /**
+     * Creates an OffHeapIntSegmentBody.
+     *
+     * @param values Direct buffer of cell values; not copied
+     * @param nullValues Direct buffer of null indicators; not copied
+     * @param size Number of cells
+     * @param axes Axes
+     */
+    OffHeapIntSegmentBody(
+        ByteBuffer values,
+        ByteBuffer nullValues,
+        int size,
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+    {
+        super(values, nullValues, size, axes);
+    }
+
+    /**
+     * Creates an OffHeapIntSegmentBody by copying an array of cell values
+     * and null indicators.
+     *
+     * @param nullValues Null indicators
+     * @param values Cell values
+     * @param axes Axes
+     * @return Segment body
+     */
+    static OffHeapIntSegmentBody copyOf(
+        BitSet nullValues,
+        int[] values,
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+    {
+        final ByteBuffer buffer = allocate(values.length << 2);
+        buffer.asIntBuffer().put(values);
+        return new OffHeapIntSegmentBody(
+            buffer,
+            copyNullValues(nullValues, values.length),
+            values.length,
+            axes);
+    }
+
+    @Override
+    public Object getValueArray() {
+        final int[] array = new int[size];
+        values.asIntBuffer().get(array);
+        return array;
+    }
+
+    @Override
+    protected Object getObject(int i) {
+        int value = values.getInt(i << 2);
+        if (value == 0 && isNull(nullValues, i)) {
+            return null;
+        }
+        return value;
+    }
+
+    private Object writeReplace() {
+        return new DenseIntSegmentBody(
+            getNullValueIndicators(),
+            (int[]) getValueArray(),
+            getAxes());
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapIntSegmentBody(size=" + size
+            + ", offHeapBytes=" + getOffHeapBytes()
+            + ", axisValueSets=" + Arrays.toString(getAxisValueSets())
+            + ", nullAxisFlags=" + Arrays.toString(getNullAxisFlags())
+            + ")";
+    }
+}
+
+// End OffHeapIntSegmentBody.java
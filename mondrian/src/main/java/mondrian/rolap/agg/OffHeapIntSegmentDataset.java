@@ -0,0 +1,116 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.CellKey;
+import mondrian.rolap.SqlStatement;
+import mondrian.spi.SegmentBody;
+import mondrian.util.Pair;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Implementation of {@link OffHeapSegmentDataset} that stores
+ * values of type {@code int}.
+ */
+class OffHeapIntSegmentDataset extends OffHeapSegmentDataset {
+    /**
+     * Creates an OffHeapIntSegmentDataset.
+     *
+     * @param axes Segment axes, containing actual column values
+     * @param size Number of coordinates
+     */
+    OffHeapIntSegmentDataset(SegmentAxis[] axes, int size) {
+        this(
+            axes,
+            OffHeapSegmentBody.allocate(size << 2),
+            OffHeapSegmentBody.allocateNullValues(size),
+            size);
+    }
+
+    /**
+     * Creates a populated OffHeapIntSegmentDataset.
+     *
+     * @param axes Segment axes, containing actual column values
+     * @param values Direct buffer of cell values; not copied
+     * @param nullValues Direct buffer of null indicators; not copied
+     * @param size Number of coordinates
+     */
+    OffHeapIntSegmentDataset(
+        SegmentAxis[] axes,
+        ByteBuffer values,
+        ByteBuffer nullValues,
+        int size)
+    {
+        super(axes, values, nullValues, size);
+    }
+
+    public int getInt(CellKey key) {
+        int offset = key.getOffset(axisMultipliers);
+        return values.getInt(offset << 2);
+    }
+
+    public Object getObject(CellKey pos) {
+        if (getSize() == 0) {
+            // No values means they are all null.
+            return null;
+        }
+        int offset = pos.getOffset(axisMultipliers);
+        return getObject(offset);
+    }
+
+    protected Integer getObject(int offset) {
+        final int value = values.getInt(offset << 2);
+        if (value == 0 && isNull(offset)) {
+            return null;
+        }
+        return value;
+    }
+
+    public void populateFrom(int[] pos, SegmentDataset data, CellKey key) {
+        final int offset = getOffset(pos);
+        final int value = data.getInt(key);
+        values.putInt(offset << 2, value);
+        if (value != 0 || !data.isNull(key)) {
+            clearNull(offset);
+        }
+    }
+
+    public void populateFrom(
+        int[] pos, SegmentLoader.RowList rowList, int column)
+    {
+        final int offset = getOffset(pos);
+        final int value = rowList.getInt(column);
+        values.putInt(offset << 2, value);
+        if (value != 0 || !rowList.isNull(column)) {
+            clearNull(offset);
+        }
+    }
+
+    public SqlStatement.Type getType() {
+        return SqlStatement.Type.INT;
+    }
+
+    public SegmentBody createSegmentBody(
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+    {
+        return new OffHeapIntSegmentBody(
+            values,
+            nullValues,
+            getSize(),
+            axes);
+    }
+}
+
+// End OffHeapIntSegmentDataset.java
@@ -0,0 +1,185 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.util.Pair;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Abstract implementation of a segment body which stores its cell values
+ * and null indicators outside the Java heap, in direct buffers.
+ *
+ * <p>The buffers are shared with the {@link OffHeapSegmentDataset} that
+ * created the body, and are released when both have been garbage
+ * collected. Neither may be modified once the body has been created.</p>
+ *
+ * <p>Direct buffers are not serializable, so a body is serialized as the
+ * equivalent on-heap body. {@link #getValueArray()} and
+ * {@link #getNullValueIndicators()} likewise return on-heap copies, so
+ * callers that need the size of the body should use
+ * {@link #getOffHeapBytes()}.</p>
+ *
+ * @see mondrian.olap.MondrianProperties#OffHeapSegments
+ */
+public abstract class OffHeapSegmentBody extends AbstractSegmentBody {
+    private static final long serialVersionUID = 2608437356287193402L;
+
+    /**
+     * Largest number of cells that an off-heap body can hold. Offsets into
+     * the value buffer are ints, so the buffer of the widest type (double)
+     * must not exceed {@link Integer#MAX_VALUE} bytes.
+     */
+    static final int MAX_CELL_COUNT = Integer.MAX_VALUE / 8;
+
+    protected final int size;
+    protected final transient ByteBuffer values;
+    protected final transient ByteBuffer nullValues;
+
+    /**
+     * Creates an OffHeapSegmentBody.
+     *
+     * @param values Direct buffer of cell values; not copied
+     * @param nullValues Direct buffer of null indicators, as created by
+     *     {@link #allocateNullValues(int)}; not copied
+     * @param size Number of cells
+     * @param axes Axes
+     */
+    OffHeapSegmentBody(
+        ByteBuffer values,
+        ByteBuffer nullValues,
+        int size,
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+    {
+        super(axes);
+        this.values = values;
+        this.nullValues = nullValues;
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of bytes that this body holds outside the Java
+     * heap.
+     *
+     * @return Size of the value and null-indicator buffers, in bytes
+     */
+    public long getOffHeapBytes() {
+        return (long) values.capacity() + nullValues.capacity();
+    }
+
+    @Override
+    public BitSet getNullValueIndicators() {
+        return BitSet.valueOf(nullValues.asLongBuffer());
+    }
+
+    @Override
+    protected int getSize() {
+        return size;
+    }
+
+    @Override
+    protected int getEffectiveSize() {
+        int nullCount = 0;
+        for (int i = 0; i < nullValues.capacity(); i += 8) {
+            nullCount += Long.bitCount(nullValues.getLong(i));
+        }
+        return size - nullCount;
+    }
+
+    /**
+     * Returns the axes of this body in the form accepted by the
+     * constructors of on-heap bodies.
+     */
+    List<Pair<SortedSet<Comparable>, Boolean>> getAxes() {
+        final boolean[] nullAxisFlags = getNullAxisFlags();
+        final List<Pair<SortedSet<Comparable>, Boolean>> axes =
+            new ArrayList<Pair<SortedSet<Comparable>, Boolean>>(
+                axisValueSets.length);
+        for (int i = 0; i < axisValueSets.length; i++) {
+            axes.add(Pair.of(axisValueSets[i], nullAxisFlags[i]));
+        }
+        return axes;
+    }
+
+    /**
+     * Allocates a zero-filled direct buffer in native byte order.
+     *
+     * @param byteCount Size of the buffer, in bytes
+     * @return Direct buffer
+     */
+    static ByteBuffer allocate(int byteCount) {
+        return ByteBuffer.allocateDirect(byteCount)
+            .order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Allocates a direct buffer of null indicators, one bit per cell, in
+     * which every cell is initially null.
+     *
+     * @param size Number of cells
+     * @return Direct buffer of null indicators
+     */
+    static ByteBuffer allocateNullValues(int size) {
+        final ByteBuffer buffer = allocate(((size + 63) >>> 6) << 3);
+        for (int i = 0; i < size >>> 6; i++) {
+            buffer.putLong(i << 3, -1L);
+        }
+        if ((size & 63) != 0) {
+            buffer.putLong((size >>> 6) << 3, (1L << size) - 1);
+        }
+        return buffer;
+    }
+
+    /**
+     * Copies a bit-set of null indicators into a new direct buffer.
+     *
+     * @param nullValues Null indicators
+     * @param size Number of cells
+     * @return Direct buffer of null indicators
+     */
+    static ByteBuffer copyNullValues(BitSet nullValues, int size) {
+        final ByteBuffer buffer = allocate(((size + 63) >>> 6) << 3);
+        final long[] words = nullValues.toLongArray();
+        for (int i = 0; i < words.length; i++) {
+            buffer.putLong(i << 3, words[i]);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns whether the cell at a given offset is null.
+     *
+     * @param nullValues Direct buffer of null indicators
+     * @param offset Cell offset
+     * @return Whether cell is null
+     */
+    static boolean isNull(ByteBuffer nullValues, int offset) {
+        return (nullValues.getLong((offset >>> 6) << 3) & (1L << offset))
+            != 0;
+    }
+
+    /**
+     * Marks the cell at a given offset as not null.
+     *
+     * @param nullValues Direct buffer of null indicators
+     * @param offset Cell offset
+     */
+    static void clearNull(ByteBuffer nullValues, int offset) {
+        final int index = (offset >>> 6) << 3;
+        nullValues.putLong(index, nullValues.getLong(index) & ~(1L << offset));
+    }
+}
+
+// End OffHeapSegmentBody.java
@@ -0,0 +1,86 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.CellKey;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation of {@link DenseSegmentDataset} that stores native values
+ * and their null indicators outside the Java heap, in direct buffers.
+ *
+ * @see OffHeapSegmentBody
+ */
+abstract class OffHeapSegmentDataset extends DenseSegmentDataset {
+    protected final ByteBuffer values;
+    protected final ByteBuffer nullValues;
+    private final int size;
+
+    /**
+     * Creates an OffHeapSegmentDataset.
+     *
+     * @param axes Segment axes, containing actual column values
+     * @param values Direct buffer of cell values; not copied
+     * @param nullValues Direct buffer of null indicators; not copied
+     * @param size Number of coordinates
+     */
+    OffHeapSegmentDataset(
+        SegmentAxis[] axes,
+        ByteBuffer values,
+        ByteBuffer nullValues,
+        int size)
+    {
+        super(axes);
+        this.values = values;
+        this.nullValues = nullValues;
+        this.size = size;
+    }
+
+    public boolean isNull(CellKey key) {
+        int offset = key.getOffset(axisMultipliers);
+        return isNull(offset);
+    }
+
+    /**
+     * Returns whether the value at the given offset is null.
+     *
+     * <p>The native value at this offset will also be 0. You only need to
+     * call this method if the {@link #getInt getXxx} method has returned 0.
+     *
+     * @param offset Cell offset
+     * @return Whether the cell at this offset is null
+     */
+    protected final boolean isNull(int offset) {
+        return OffHeapSegmentBody.isNull(nullValues, offset);
+    }
+
+    /**
+     * Marks the cell at the given offset as not null.
+     *
+     * @param offset Cell offset
+     */
+    protected final void clearNull(int offset) {
+        OffHeapSegmentBody.clearNull(nullValues, offset);
+    }
+
+    public boolean exists(CellKey pos) {
+        return true;
+    }
+
+    protected int getSize() {
+        return size;
+    }
+}
+
+// End OffHeapSegmentDataset.java
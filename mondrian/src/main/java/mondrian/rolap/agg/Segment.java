@@ -13,6 +13,7 @@
 
 package mondrian.rolap.agg;
 
+import mondrian.olap.MondrianProperties;
 import mondrian.olap.Util;
 import mondrian.rolap.*;
 import mondrian.spi.SegmentHeader;
@@ -258,7 +259,7 @@ public class Segment {
 
   SegmentDataset createDataset( SegmentAxis[] axes, boolean sparse, SqlStatement.Type type, int size ) {
     if ( sparse ) {
-      return new SparseSegmentDataset();
+      return new SparseSegmentDataset( axes );
     } else {
       switch ( type ) {
         case OBJECT:
@@ -266,9 +267,15 @@ public class Segment {
         case STRING:
           return new DenseObjectSegmentDataset( axes, size );
         case INT:
+          if ( useOffHeap( size ) ) {
+            return new OffHeapIntSegmentDataset( axes, size );
+          }
           return new DenseIntSegmentDataset( axes, size );
         case DOUBLE:
         case DECIMAL:
+          if ( useOffHeap( size ) ) {
+            return new OffHeapDoubleSegmentDataset( axes, size );
+          }
           return new DenseDoubleSegmentDataset( axes, size );
         default:
           throw Util.unexpected( type );
@@ -276,6 +283,17 @@ public class Segment {
     }
   }
 
+  /**
+   * Returns whether a dense dataset of native values with the given number of cells should be stored off-heap.
+   *
+   * @param size Number of cells
+   * @return Whether to use an off-heap dataset
+   * @see MondrianProperties#OffHeapSegments
+   */
+  static boolean useOffHeap( int size ) {
+    return MondrianProperties.instance().OffHeapSegments.get() && size <= OffHeapSegmentBody.MAX_CELL_COUNT;
+  }
+
   public boolean matches( AggregationKey aggregationKey, RolapStar.Measure measure ) {
     // Perform high-selectivity comparisons first.
     return aggregationKeyHashCode == aggregationKey.hashCode() && this.measure == measure && matchesInternal(
@@ -29,7 +29,6 @@ import org.olap4j.impl.UnmodifiableArrayList;
 
 import java.math.BigInteger;
 import java.util.*;
-import java.util.Map.Entry;
 
 /**
  * Helper class that contains methods to convert between
@@ -91,12 +90,28 @@ public class SegmentBuilder {
                     axes,
                     (int[]) body.getValueArray(),
                     body.getNullValueIndicators());
+        } else if (body instanceof OffHeapDoubleSegmentBody) {
+            final OffHeapSegmentBody offHeapBody = (OffHeapSegmentBody) body;
+            dataSet =
+                new OffHeapDoubleSegmentDataset(
+                    axes,
+                    offHeapBody.values,
+                    offHeapBody.nullValues,
+                    offHeapBody.size);
+        } else if (body instanceof OffHeapIntSegmentBody) {
+            final OffHeapSegmentBody offHeapBody = (OffHeapSegmentBody) body;
+            dataSet =
+                new OffHeapIntSegmentDataset(
+                    axes,
+                    offHeapBody.values,
+                    offHeapBody.nullValues,
+                    offHeapBody.size);
         } else if (body instanceof DenseObjectSegmentBody) {
             dataSet =
                 new DenseObjectSegmentDataset(
                     axes, (Object[]) body.getValueArray());
         } else if (body instanceof SparseSegmentBody) {
-            dataSet = new SparseSegmentDataset(body.getValueMap());
+            dataSet = new SparseSegmentDataset(axes, (SparseSegmentBody) body);
         } else {
             throw Util.newInternal(
                 "Unknown segment body type: " + body.getClass() + ": " + body);
@@ -303,8 +318,12 @@ public class SegmentBuilder {
         // We should do really efficient rollup if the source is an array: we
         // should box values (e.g double to Double and back), and we should read
         // a stripe of values from the and add them up into a single cell.
-        final Map<CellKey, List<Object>> cellValues =
-            new HashMap<CellKey, List<Object>>();
+        final int[] axisSizes = new int[axes.size()];
+        for (int i = 0; i < axisSizes.length; i++) {
+            // Leave room for the null value.
+            axisSizes[i] = axes.get(i).values.length + 1;
+        }
+        final CellMap cellValues = new CellMap(axisSizes);
         TreeSet<ColumnValues> addedIntersections =
             new TreeSet <ColumnValues>();
 
@@ -358,13 +377,15 @@ public class SegmentBuilder {
                         continue entryLoop;
                     }
                 }
-                final CellKey ck = CellKey.Generator.newCellKey(pos);
-                if (!cellValues.containsKey(ck)) {
-                    cellValues.put(ck, new ArrayList<Object>());
+                @SuppressWarnings("unchecked")
+                List<Object> cellList = (List<Object>) cellValues.get(pos);
+                if (cellList == null) {
+                    cellList = new ArrayList<Object>();
+                    cellValues.put(pos, cellList);
                 }
                 if ( map.size() == 1 ) {
                   // No de-duping needed when rolling up only 1 segment
-                  cellValues.get(ck).add(vEntry.getValue());
+                  cellList.add(vEntry.getValue());
                 } else {
                   if ( axisValueSetsAsArrays == null ) {
                     // Cache segment axis values as lists for fast lookup
@@ -379,7 +400,7 @@ public class SegmentBuilder {
                   if (!addedIntersections.contains(colValues)) {
                       // only add the cell value if we haven't already.
                       // there is a potential double add if segments overlap
-                      cellValues.get(ck).add(vEntry.getValue());
+                      cellList.add(vEntry.getValue());
                       addedIntersections.add(colValues);
                   }
                 }
@@ -422,15 +443,14 @@ public class SegmentBuilder {
         } else if (sparse) {
             // The rule says we must use a sparse dataset.
             // First, aggregate the values of each key.
-            final Map<CellKey, Object> data =
-                new HashMap<CellKey, Object>();
-            for (Entry<CellKey, List<Object>> entry
-                : cellValues.entrySet())
-            {
+            final CellMap data = new CellMap(axisSizes, cellValues.size());
+            final int[] cellPos = new int[axisSizes.length];
+            for (CellMap.Cursor cursor = cellValues.cursor(); cursor.next();) {
+                cursor.getOrdinals(cellPos);
                 data.put(
-                    CellKey.Generator.newCellKey(entry.getKey().getOrdinals()),
+                    cellPos,
                     rollupAggregator.aggregate(
-                        entry.getValue(),
+                        cellList(cursor),
                         datatype));
             }
             body =
@@ -440,66 +460,83 @@ public class SegmentBuilder {
         } else {
             final BitSet nullValues;
             final int valueCount = bigValueCount.intValue();
+            final int[] cellPos = new int[axisSizes.length];
             switch (datatype) {
             case Integer:
                 final int[] ints = new int[valueCount];
                 nullValues = Util.bitSetBetween(0, valueCount);
-                for (Entry<CellKey, List<Object>> entry
-                    : cellValues.entrySet())
+                for (CellMap.Cursor cursor = cellValues.cursor();
+                    cursor.next();)
                 {
+                    cursor.getOrdinals(cellPos);
                     final int offset =
-                        CellKey.Generator.getOffset(
-                            entry.getKey().getOrdinals(), axisMultipliers);
+                        CellKey.Generator.getOffset(cellPos, axisMultipliers);
                     final Object value =
                         rollupAggregator.aggregate(
-                            entry.getValue(),
+                            cellList(cursor),
                             datatype);
                     if (value != null) {
                         ints[offset] = (Integer) value;
                         nullValues.clear(offset);
                     }
                 }
-                body =
-                    new DenseIntSegmentBody(
-                        nullValues,
-                        ints,
-                        axisList);
-                  break;
+                if (Segment.useOffHeap(valueCount)) {
+                    body =
+                        OffHeapIntSegmentBody.copyOf(
+                            nullValues,
+                            ints,
+                            axisList);
+                } else {
+                    body =
+                        new DenseIntSegmentBody(
+                            nullValues,
+                            ints,
+                            axisList);
+                }
+                break;
             case Numeric:
                 final double[] doubles = new double[valueCount];
                 nullValues = Util.bitSetBetween(0, valueCount);
-                for (Entry<CellKey, List<Object>> entry
-                    : cellValues.entrySet())
+                for (CellMap.Cursor cursor = cellValues.cursor();
+                    cursor.next();)
                 {
+                    cursor.getOrdinals(cellPos);
                     final int offset =
-                        CellKey.Generator.getOffset(
-                            entry.getKey().getOrdinals(), axisMultipliers);
+                        CellKey.Generator.getOffset(cellPos, axisMultipliers);
                     final Object value =
                         rollupAggregator.aggregate(
-                            entry.getValue(),
+                            cellList(cursor),
                             datatype);
                     if (value != null) {
                         doubles[offset] = (Double) value;
                         nullValues.clear(offset);
                     }
                 }
-                body =
-                    new DenseDoubleSegmentBody(
-                        nullValues,
-                        doubles,
-                        axisList);
+                if (Segment.useOffHeap(valueCount)) {
+                    body =
+                        OffHeapDoubleSegmentBody.copyOf(
+                            nullValues,
+                            doubles,
+                            axisList);
+                } else {
+                    body =
+                        new DenseDoubleSegmentBody(
+                            nullValues,
+                            doubles,
+                            axisList);
+                }
                 break;
             default:
                 final Object[] objects = new Object[valueCount];
-                for (Entry<CellKey, List<Object>> entry
-                    : cellValues.entrySet())
+                for (CellMap.Cursor cursor = cellValues.cursor();
+                    cursor.next();)
                 {
+                    cursor.getOrdinals(cellPos);
                     final int offset =
-                        CellKey.Generator.getOffset(
-                            entry.getKey().getOrdinals(), axisMultipliers);
+                        CellKey.Generator.getOffset(cellPos, axisMultipliers);
                     objects[offset] =
                         rollupAggregator.aggregate(
-                            entry.getValue(),
+                            cellList(cursor),
                             datatype);
                 }
                 body =
@@ -597,6 +634,14 @@ public class SegmentBuilder {
         return true;
     }
 
+    /**
+     * Returns the list of source values of the current cell of a rollup.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> cellList(CellMap.Cursor cursor) {
+        return (List<Object>) cursor.getValue();
+    }
+
     private static int[] computeAxisMultipliers(
         List<Pair<SortedSet<Comparable>, Boolean>> axes)
     {
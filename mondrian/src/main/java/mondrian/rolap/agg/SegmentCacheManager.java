@@ -24,15 +24,20 @@ import mondrian.rolap.RolapStar;
 import mondrian.rolap.RolapStoredMeasure;
 import mondrian.rolap.RolapUtil;
 import mondrian.rolap.SchemaKey;
+import mondrian.rolap.cache.DiskSegmentCache;
+import mondrian.rolap.cache.EvictingMemorySegmentCache;
 import mondrian.rolap.cache.MemorySegmentCache;
 import mondrian.rolap.cache.SegmentCacheIndex;
 import mondrian.rolap.cache.SegmentCacheIndexImpl;
 import mondrian.server.Execution;
+import mondrian.server.ExecutionProfile;
 import mondrian.server.Locus;
+import mondrian.server.WorkloadScheduler;
 import mondrian.server.monitor.CellCacheEvent;
 import mondrian.server.monitor.CellCacheSegmentCreateEvent;
 import mondrian.server.monitor.CellCacheSegmentDeleteEvent;
 import mondrian.server.monitor.Monitor;
+import mondrian.server.monitor.SegmentCacheShardInfo;
 import mondrian.spi.SegmentBody;
 import mondrian.spi.SegmentCache;
 import mondrian.spi.SegmentColumn;
@@ -45,6 +50,7 @@ import mondrian.util.Pair;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import java.io.File;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -57,6 +63,8 @@ import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -241,12 +249,42 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *
  * <p>24. Obsolete {@link #handler}. Indirection doesn't win anything.</p>
  *
+ * <p>Sharding</p>
+ *
+ * <p>The actor is split into one or more shards, as many as
+ * {@link MondrianProperties#SegmentCacheManagerNumberShards}. Each shard has
+ * its own thread and queue. A star belongs to the shard chosen by the hash of
+ * its fact table's alias; commands and events concerning that star, and the
+ * {@link SegmentCacheIndex} that holds its segments, are processed by that
+ * shard's thread, so requests for different stars need not wait in the same
+ * queue. There is one index per schema and shard.</p>
+ *
+ * <p>A {@link Command} says which shard it must run on by overriding
+ * {@link Command#getStar()}. A command that concerns several stars, such as
+ * {@link FlushCommand}, is run on every shard using
+ * {@link #executeOnAllShards(Command)}, and each shard processes the stars
+ * that it owns.</p>
+ *
  * @author jhyde
  */
 public class SegmentCacheManager {
   private final Handler handler = new Handler();
-  private final Actor actor;
+  private final Actor[] actors;
+
+  /**
+   * Thread on which the actor's first shard runs.
+   *
+   * @deprecated The actor may have several shards, each with its own
+   *   thread; use {@link #getThreads()}. Will be removed in mondrian-4.
+   */
+  @Deprecated
   public final Thread thread;
+
+  /**
+   * Threads on which the actor's shards run; the thread of shard {@code i}
+   * is at position {@code i}.
+   */
+  private final List<Thread> threads;
   private final Set<String> starFactTablesToSync;
 
   /**
@@ -269,22 +307,18 @@ public class SegmentCacheManager {
       } );
 
   /**
-   * Executor with which to execute SQL requests.
+   * Executor with which to execute SQL requests. Requests are started in
+   * order of the priority and class of work of the execution that made
+   * them, so that one connection's loads cannot starve the others'.
    *
    * <p>TODO: create using factory and/or configuration parameters. Executor
    * should be shared within MondrianServer or target JDBC database.
    */
-  public final ExecutorService sqlExecutor =
-    Util.getExecutorService(
-      // We use the same value for coreSize and maxSize
-      // because that's the behavior we want. All extra
-      // tasks will be put on an unbounded queue.
-      MondrianProperties.instance()
-        .SegmentCacheManagerNumberSqlThreads.get(),
+  public final WorkloadScheduler sqlExecutor =
+    new WorkloadScheduler(
+      "mondrian.rolap.agg.SegmentCacheManager$sqlExecutor",
       MondrianProperties.instance()
         .SegmentCacheManagerNumberSqlThreads.get(),
-      1,
-      "mondrian.rolap.agg.SegmentCacheManager$sqlExecutor",
       ( r, executor ) -> {
         throw MondrianResource.instance()
           .SqlQueryLimitReached.ex();
@@ -298,6 +332,12 @@ public class SegmentCacheManager {
   public final SegmentCache compositeCache;
   private final SegmentCacheIndexRegistry indexRegistry;
 
+  /**
+   * Local cache, if it is size-bounded; null if there is no local cache or
+   * if it is a {@link MemorySegmentCache}.
+   */
+  private final EvictingMemorySegmentCache evictingCache;
+
   private static final Logger LOGGER =
     LogManager.getLogger( AggregationManager.class );
   private final MondrianServer server;
@@ -305,21 +345,70 @@ public class SegmentCacheManager {
 
   public SegmentCacheManager( MondrianServer server ) {
     this.server = server;
-    actor = new Actor();
-    thread = new Thread(
-      actor, "mondrian.rolap.agg.SegmentCacheManager$ACTOR" );
-    thread.setDaemon( true );
-    thread.start();
+    final int shardCount =
+      Math.max(
+        1,
+        MondrianProperties.instance().SegmentCacheManagerNumberShards.get() );
+    actors = new Actor[ shardCount ];
+    final List<Thread> threadList = new ArrayList<>();
+    for ( int i = 0; i < shardCount; i++ ) {
+      actors[ i ] = new Actor();
+      final Thread thread = new Thread(
+        actors[ i ],
+        i == 0
+          ? "mondrian.rolap.agg.SegmentCacheManager$ACTOR"
+          : "mondrian.rolap.agg.SegmentCacheManager$ACTOR-" + i );
+      thread.setDaemon( true );
+      thread.start();
+      threadList.add( thread );
+    }
+    threads = Collections.unmodifiableList( threadList );
+    thread = threads.get( 0 );
 
     // Create the index registry.
     this.indexRegistry = new SegmentCacheIndexRegistry();
 
     // Add a local cache, if needed.
+    EvictingMemorySegmentCache evictingLocalCache = null;
     if ( !MondrianProperties.instance().DisableLocalSegmentCache.get()
       && !MondrianProperties.instance().DisableCaching.get() ) {
-      final MemorySegmentCache cache = new MemorySegmentCache();
+      final int maxMemory =
+        MondrianProperties.instance().LocalSegmentCacheMaxMemory.get();
+      final SegmentCache cache;
+      if ( maxMemory > 0 ) {
+        evictingLocalCache =
+          new EvictingMemorySegmentCache(
+            maxMemory * 1024L * 1024L,
+            Util.lookup(
+              EvictingMemorySegmentCache.EvictionPolicy.class,
+              MondrianProperties.instance()
+                .LocalSegmentCacheEvictionPolicy.get().toUpperCase(),
+              EvictingMemorySegmentCache.EvictionPolicy.LRU ) );
+        // Evictions must reach the segment index, unless a lower tier still holds the segment.
+        evictingLocalCache.addListener(
+          new AsyncCacheListener( this, server, evictingLocalCache ) );
+        cache = evictingLocalCache;
+      } else {
+        cache = new MemorySegmentCache();
+      }
+      segmentCacheWorkers.add(
+        new SegmentCacheWorker( cache, threads ) );
+    }
+    this.evictingCache = evictingLocalCache;
+
+    // Add a disk cache, if configured. It goes after the local cache, so
+    // that it is only read when a segment is not in memory.
+    final String diskCacheDirectory =
+      MondrianProperties.instance().DiskSegmentCacheDirectory.get();
+    if ( diskCacheDirectory != null && diskCacheDirectory.length() > 0
+      && !MondrianProperties.instance().DisableCaching.get() ) {
       segmentCacheWorkers.add(
-        new SegmentCacheWorker( cache, thread ) );
+        new SegmentCacheWorker(
+          new DiskSegmentCache(
+            new File( diskCacheDirectory ),
+            MondrianProperties.instance().DiskSegmentCacheMaxSize.get()
+              * 1024L * 1024L ),
+          threads ) );
     }
 
     // Add an external cache, if configured.
@@ -327,11 +416,11 @@ public class SegmentCacheManager {
     for ( SegmentCache cache : externalCache ) {
       // Create a worker for this external cache
       segmentCacheWorkers.add(
-        new SegmentCacheWorker( cache, thread ) );
+        new SegmentCacheWorker( cache, threads ) );
       // Hook up a listener so it can update
       // the segment index.
       cache.addListener(
-        new AsyncCacheListener( this, server ) );
+        new AsyncCacheListener( this, server, null ) );
     }
 
     compositeCache = new CompositeSegmentCache( segmentCacheWorkers );
@@ -376,8 +465,122 @@ public class SegmentCacheManager {
     return false;
   }
 
+  /**
+   * Executes a command on the shard that owns the command's
+   * {@link Command#getStar() star}, or on the first shard if the command
+   * has no star, and waits for its result.
+   */
   public <T> T execute( Command<T> command ) {
-    return actor.execute( handler, command );
+    final RolapStar star = command.getStar();
+    return execute( star == null ? 0 : getShard( star ), command );
+  }
+
+  /**
+   * Executes a command on a given shard, and waits for its result.
+   *
+   * @param shard   Shard, as returned by {@link #getShard(RolapStar)}
+   * @param command Command
+   * @return Result of command
+   */
+  public <T> T execute( int shard, Command<T> command ) {
+    final long start = System.nanoTime();
+    try {
+      return actors[ shard ].execute( handler, command );
+    } finally {
+      ExecutionProfile.add( command.getLocus(), ExecutionProfile.Phase.CACHE_WAIT, start );
+    }
+  }
+
+  /**
+   * Executes a command on each shard in turn, and returns the results.
+   *
+   * @param command Command
+   * @return Result of the command on each shard, in shard order
+   */
+  public <T> List<T> executeOnAllShards( Command<T> command ) {
+    final long start = System.nanoTime();
+    final List<T> results = new ArrayList<>( actors.length );
+    try {
+      for ( Actor actor : actors ) {
+        results.add( actor.execute( handler, command ) );
+      }
+    } finally {
+      ExecutionProfile.add( command.getLocus(), ExecutionProfile.Phase.CACHE_WAIT, start );
+    }
+    return results;
+  }
+
+  /**
+   * Returns the number of shards.
+   */
+  public int getShardCount() {
+    return actors.length;
+  }
+
+  /**
+   * Returns the threads on which the actor's shards run; the thread of shard {@code i} is at position {@code i}.
+   *
+   * @return Unmodifiable list of threads
+   */
+  public List<Thread> getThreads() {
+    return threads;
+  }
+
+  /**
+   * Returns the shard that owns a star.
+   */
+  public int getShard( RolapStar star ) {
+    return getShard( star.getFactTable().getAlias() );
+  }
+
+  /**
+   * Returns the shard that owns the star with a given fact table.
+   */
+  int getShard( String factTableAlias ) {
+    return Math.floorMod( factTableAlias.hashCode(), actors.length );
+  }
+
+  /**
+   * Returns the shard whose thread is the current thread, or -1 if the
+   * current thread is not one of the actor's threads.
+   */
+  private int getCurrentShard() {
+    return threads.indexOf( Thread.currentThread() );
+  }
+
+  /**
+   * Returns whether the current thread is that of the shard that owns a
+   * star.
+   */
+  boolean isCurrentShard( RolapStar star ) {
+    return getCurrentShard() == getShard( star );
+  }
+
+  /**
+   * Returns the number of commands and events waiting in the queue of each
+   * shard.
+   *
+   * @return Queue depth of each shard, in shard order
+   */
+  public List<Integer> getQueueDepths() {
+    final List<Integer> depths = new ArrayList<>( actors.length );
+    for ( Actor actor : actors ) {
+      depths.add( actor.getQueueDepth() );
+    }
+    return depths;
+  }
+
+  /**
+   * Returns information about each shard, for the monitor.
+   *
+   * @return Information about each shard, in shard order
+   */
+  public List<SegmentCacheShardInfo> getShardInfos() {
+    final List<SegmentCacheShardInfo> infos = new ArrayList<>( actors.length );
+    for ( int i = 0; i < actors.length; i++ ) {
+      infos.add( new SegmentCacheShardInfo( null, server.getId(), i, actors[ i ].getQueueDepth() ) );
+    }
+    return infos;
   }
 
   public SegmentCacheIndexRegistry getIndexRegistry() {
@@ -400,7 +603,7 @@ public class SegmentCacheManager {
     SegmentHeader header,
     SegmentBody body ) {
     final Locus locus = Locus.peek();
-    actor.event(
+    actors[ getShard( star ) ].event(
       handler,
       new SegmentLoadSucceededEvent(
         System.currentTimeMillis(),
@@ -415,6 +618,46 @@ public class SegmentCacheManager {
         body ) );
   }
 
+  /**
+   * Tells the local cache how long it took to load a segment via SQL.
+   *
+   * <p>A size-bounded local cache uses it to prefer evicting segments that
+   * are cheap to reload. Call after the segment has been put into the
+   * cache.</p>
+   *
+   * @param header     segment header
+   * @param loadMillis time taken to load the segment, in milliseconds
+   */
+  public void recordLoadCost(
+    SegmentHeader header,
+    long loadMillis ) {
+    if ( evictingCache != null ) {
+      evictingCache.recordLoadCost( header, loadMillis );
+    }
+  }
+
+  /**
+   * Returns whether a segment is held by a cache other than a given one.
+   *
+   * <p>When a segment is deleted from one cache without Mondrian asking for it, for example when it is evicted from
+   * the local cache, the segment index must keep the segment if it can still be read from another cache, such as the
+   * disk cache.</p>
+   *
+   * <p>Potentially slow; must not be called from a cache manager thread.</p>
+   *
+   * @param source Cache from which the segment was deleted
+   * @param header Segment header
+   * @return Whether another cache holds the segment
+   */
+  boolean isHeldByOtherCache( SegmentCache source, SegmentHeader header ) {
+    for ( SegmentCacheWorker worker : segmentCacheWorkers ) {
+      if ( worker.cache != source && worker.contains( header ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Informs cache manager that a segment load failed.
    *
@@ -429,7 +672,7 @@ public class SegmentCacheManager {
     SegmentHeader header,
     Throwable throwable ) {
     final Locus locus = Locus.peek();
-    actor.event(
+    actors[ getShard( star ) ].event(
       handler,
       new SegmentLoadFailedEvent(
         System.currentTimeMillis(),
@@ -457,7 +700,7 @@ public class SegmentCacheManager {
     RolapStar star,
     SegmentHeader header ) {
     final Locus locus = Locus.peek();
-    actor.event(
+    actors[ getShard( star ) ].event(
       handler,
       new SegmentRemoveEvent(
         System.currentTimeMillis(),
@@ -482,7 +725,7 @@ public class SegmentCacheManager {
       // Ignore cache requests.
       return;
     }
-    actor.event(
+    actors[ getShard( header.rolapStarFactTableName ) ].event(
       handler,
       new ExternalSegmentCreatedEvent(
         System.currentTimeMillis(),
@@ -505,7 +748,7 @@ public class SegmentCacheManager {
       // Ignore cache requests.
       return;
     }
-    actor.event(
+    actors[ getShard( header.rolapStarFactTableName ) ].event(
       handler,
       new ExternalSegmentDeletedEvent(
         System.currentTimeMillis(),
@@ -522,16 +765,19 @@ public class SegmentCacheManager {
     CellRegion region,
     PrintWriter pw,
     Locus locus ) {
-    actor.execute(
-      handler,
-      new PrintCacheStateCommand( region, pw, locus ) );
+    final List<RolapStar> starList =
+      CacheControlImpl.getStarList( region );
+    starList.sort( Comparator.comparing( o -> o.getFactTable().getAlias() ) );
+    for ( RolapStar star : starList ) {
+      execute( new PrintCacheStateCommand( star, pw, locus ) );
+    }
   }
 
   /**
    * Shuts down this cache manager and all active threads and indexes.
    */
   public void shutdown() {
-    execute( new ShutdownCommand() );
+    executeOnAllShards( new ShutdownCommand() );
     cacheExecutor.shutdown();
     sqlExecutor.shutdown();
   }
@@ -755,6 +1001,18 @@ public class SegmentCacheManager {
     public abstract Locus getLocus();
     public abstract T call() throws Exception;
 
+    /**
+     * Returns the star whose segment index this command reads or modifies.
+     * The command runs on the shard that owns the star.
+     *
+     * <p>The default implementation returns null, which means that the
+     * command uses no index, or only the indexes of the shard it is
+     * executed on.</p>
+     */
+    public RolapStar getStar() {
+      return null;
+    }
+
     @Override
     public void setContextMap() {
       mdc.setContextMap();
@@ -763,6 +1021,9 @@ public class SegmentCacheManager {
 
   /**
    * Command to flush a particular region from cache.
+   *
+   * <p>Run it using {@link #executeOnAllShards(Command)}. Each shard flushes
+   * the stars that it owns, and returns its own {@link FlushResult}.</p>
    */
   public static final class FlushCommand extends Command<FlushResult> {
     private final CellRegion region;
@@ -788,7 +1049,12 @@ public class SegmentCacheManager {
     public FlushResult call() {
       final List<Member> measures = CacheControlImpl.findMeasures( region );
       final SegmentColumn[] flushRegion = CacheControlImpl.findAxisValues( region );
-      final List<RolapStar> starList = CacheControlImpl.getStarList( region );
+      final List<RolapStar> starList = new ArrayList<>();
+      for ( RolapStar star : CacheControlImpl.getStarList( region ) ) {
+        if ( cacheMgr.isCurrentShard( star ) ) {
+          starList.add( star );
+        }
+      }
 
       final List<SegmentHeader> headers = getIntersectingHeaders( measures, flushRegion );
 
@@ -909,6 +1175,9 @@ public class SegmentCacheManager {
         final RolapStoredMeasure storedMeasure =
           (RolapStoredMeasure) member;
         final RolapStar star = storedMeasure.getCube().getStar();
+        if ( !cacheMgr.isCurrentShard( star ) ) {
+          continue;
+        }
         final SegmentCacheIndex index =
           cacheMgr.indexRegistry.getIndex( star );
         headers.addAll(
@@ -933,31 +1202,31 @@ public class SegmentCacheManager {
     extends SegmentCacheManager.Command<Void> {
     private final PrintWriter pw;
     private final Locus locus;
-    private final CellRegion region;
+    private final RolapStar star;
 
     public PrintCacheStateCommand(
-      CellRegion region,
+      RolapStar star,
       PrintWriter pw,
       Locus locus ) {
-      this.region = region;
+      this.star = star;
       this.pw = pw;
       this.locus = locus;
     }
 
     public Void call() {
-      final List<RolapStar> starList =
-        CacheControlImpl.getStarList( region );
-      starList.sort( Comparator.comparing( o -> o.getFactTable().getAlias() ) );
-      for ( RolapStar star : starList ) {
-        indexRegistry.getIndex( star )
-          .printCacheState( pw );
-      }
+      indexRegistry.getIndex( star )
+        .printCacheState( pw );
       return null;
     }
 
     public Locus getLocus() {
       return locus;
     }
+
+    @Override
+    public RolapStar getStar() {
+      return star;
+    }
   }
 
   /**
@@ -1120,6 +1389,10 @@ public class SegmentCacheManager {
       }
     }
 
+    int getQueueDepth() {
+      return eventQueue.size();
+    }
+
     public void event( Handler handler, Event event ) {
       if ( shuttingDown.get() ) {
         throw Util.newError( "Event submitted after shutdown " + event );
@@ -1328,18 +1601,33 @@ public class SegmentCacheManager {
     implements SegmentCache.SegmentCacheListener {
     private final SegmentCacheManager cacheMgr;
     private final MondrianServer server;
+    /**
+     * Cache that evicts segments by itself, whose deletions reach the index only if no other cache holds the segment;
+     * null for an external cache, whose deletions may be flushes from another node and always reach the index.
+     */
+    private final SegmentCache evictingCache;
 
     public AsyncCacheListener(
       SegmentCacheManager cacheMgr,
-      MondrianServer server ) {
+      MondrianServer server,
+      SegmentCache evictingCache ) {
       this.cacheMgr = cacheMgr;
       this.server = server;
+      this.evictingCache = evictingCache;
     }
 
     public void handle( final SegmentCacheEvent e ) {
       if ( e.isLocal() ) {
         return;
       }
+      // A segment evicted from this cache may still be in another; if so, keep it in the index, so that it is read from
+      // there rather than loaded again from the database. This runs on the thread that changed the cache, not on a
+      // cache manager thread.
+      if ( evictingCache != null
+        && e.getEventType() == SegmentCacheEvent.EventType.ENTRY_DELETED
+        && cacheMgr.isHeldByOtherCache( evictingCache, e.getSource() ) ) {
+        return;
+      }
       Locus.execute(
         Execution.NONE,
         "AsyncCacheListener.handle",
@@ -1404,9 +1692,17 @@ public class SegmentCacheManager {
     }
 
     public SegmentBody get( SegmentHeader header ) {
-      for ( SegmentCacheWorker worker : workers ) {
+      for ( int i = 0; i < workers.size(); i++ ) {
+        final SegmentCacheWorker worker = workers.get( i );
         final SegmentBody body = worker.get( header );
         if ( body != null ) {
+          if ( worker.cache instanceof DiskSegmentCache ) {
+            // Promote the segment to the caches in front of the disk, so
+            // that the next request does not have to read it again.
+            for ( int j = 0; j < i; j++ ) {
+              workers.get( j ).put( header, body );
+            }
+          }
           return body;
         }
       }
@@ -1438,16 +1734,20 @@ public class SegmentCacheManager {
       }
     }
 
-    // this method always returns true, but return value needed by api.
-    @SuppressWarnings( "squid:S3516" )
+    /**
+     * Stores a segment in every worker's cache, and returns whether any of them stored it.
+     */
     public boolean put( SegmentHeader header, SegmentBody body ) {
       if ( MondrianProperties.instance().DisableCaching.get() ) {
         return true;
       }
+      boolean result = false;
       for ( SegmentCacheWorker worker : workers ) {
-        worker.put( header, body );
+        if ( worker.put( header, body ) ) {
+          result = true;
+        }
       }
-      return true;
+      return result;
     }
 
     public boolean remove( SegmentHeader header ) {
@@ -1585,6 +1885,11 @@ public class SegmentCacheManager {
     public Locus getLocus() {
       return locus;
     }
+
+    @Override
+    public RolapStar getStar() {
+      return request.getMeasure().getStar();
+    }
   }
 
   private static class PeekResponse {
@@ -1602,12 +1907,12 @@ public class SegmentCacheManager {
   /**
    * Registry of all the indexes that were created for this cache manager, per {@link RolapStar}.
    * <p>
-   * The index is based off the checksum of the schema.
+   * The index is based off the checksum of the schema, and the shard that
+   * owns the star. Each index may only be used by its shard's thread.
    */
   public class SegmentCacheIndexRegistry {
-    private final Map<SchemaKey, SegmentCacheIndex> indexes =
-      Collections.synchronizedMap(
-        new HashMap<>() );
+    private final ConcurrentMap<Pair<SchemaKey, Integer>, SegmentCacheIndex>
+      indexes = new ConcurrentHashMap<>();
 
     /**
      * Returns the {@link SegmentCacheIndex} for a given {@link RolapStar}.
@@ -1617,17 +1922,19 @@ public class SegmentCacheManager {
         "SegmentCacheManager.SegmentCacheIndexRegistry.getIndex:"
           + System.identityHashCode( star ) );
 
-      if ( !indexes.containsKey( star.getSchema().getKey() ) ) {
-        final SegmentCacheIndexImpl index =
-          new SegmentCacheIndexImpl( thread );
-        LOGGER.trace(
-          "SegmentCacheManager.SegmentCacheIndexRegistry.getIndex:"
-            + "Creating New Index "
-            + System.identityHashCode( index ) );
-        indexes.put( star.getSchema().getKey(), index );
-      }
+      final int shard = getShard( star );
       final SegmentCacheIndex index =
-        indexes.get( star.getSchema().getKey() );
+        indexes.computeIfAbsent(
+          Pair.of( star.getSchema().getKey(), shard ),
+          key -> {
+            final SegmentCacheIndexImpl newIndex =
+              new SegmentCacheIndexImpl( threads.get( shard ) );
+            LOGGER.trace(
+              "SegmentCacheManager.SegmentCacheIndexRegistry.getIndex:"
+                + "Creating New Index "
+                + System.identityHashCode( newIndex ) );
+            return newIndex;
+          } );
       LOGGER.trace(
         "SegmentCacheManager.SegmentCacheIndexRegistry.getIndex:"
           + "Returning Index "
@@ -1651,9 +1958,21 @@ public class SegmentCacheManager {
       }
     }
 
+    /**
+     * Cancels the segment requests of an execution.
+     *
+     * <p>When called on an actor thread, only the indexes owned by that
+     * thread's shard are processed; use
+     * {@link SegmentCacheManager#executeOnAllShards(Command)} to reach all
+     * of them.</p>
+     */
     public void cancelExecutionSegments( Execution exec ) {
-      for ( SegmentCacheIndex index : indexes.values() ) {
-        index.cancel( exec );
+      final int shard = getCurrentShard();
+      for ( Map.Entry<Pair<SchemaKey, Integer>, SegmentCacheIndex> entry
+        : indexes.entrySet() ) {
+        if ( shard < 0 || entry.getKey().right == shard ) {
+          entry.getValue().cancel( exec );
+        }
       }
     }
   }
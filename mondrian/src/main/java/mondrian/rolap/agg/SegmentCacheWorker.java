@@ -15,6 +15,9 @@ package mondrian.rolap.agg;
 
 import mondrian.olap.MondrianProperties;
 import mondrian.resource.MondrianResource;
+import mondrian.rolap.cache.DiskSegmentCache;
+import mondrian.rolap.cache.EvictingMemorySegmentCache;
+import mondrian.rolap.cache.MemorySegmentCache;
 import mondrian.spi.*;
 import mondrian.util.ClassResolver;
 import mondrian.util.ServiceDiscovery;
@@ -36,7 +39,7 @@ public final class SegmentCacheWorker {
         LogManager.getLogger(SegmentCacheWorker.class);
 
     final SegmentCache cache;
-    private final Thread cacheMgrThread;
+    private final List<Thread> cacheMgrThreads;
     private final boolean supportsRichIndex;
 
     /**
@@ -49,8 +52,29 @@ public final class SegmentCacheWorker {
      *                       Pass null if methods can be called from any thread.
      */
     public SegmentCacheWorker(SegmentCache cache, Thread cacheMgrThread) {
+        this(
+            cache,
+            cacheMgrThread == null
+                ? null
+                : Collections.singletonList(cacheMgrThread));
+    }
+
+    /**
+     * Creates a worker for a cache manager whose actor has several shards.
+     *
+     * @param cache Cache managed by this worker
+     * @param cacheMgrThreads Threads that the cache manager actor's shards
+     *                       are running on, and which therefore should not be
+     *                       used for potentially long-running calls this this
+     *                       cache. Pass null if methods can be called from any
+     *                       thread.
+     */
+    SegmentCacheWorker(
+        SegmentCache cache,
+        List<Thread> cacheMgrThreads)
+    {
         this.cache = cache;
-        this.cacheMgrThread = cacheMgrThread;
+        this.cacheMgrThreads = cacheMgrThreads;
 
         // no need to call checkThread(): supportsRichIndex is a fast call
         this.supportsRichIndex = cache.supportsRichIndex();
@@ -147,18 +171,57 @@ public final class SegmentCacheWorker {
         }
     }
 
+    /**
+     * Returns whether the cache holds a segment. Uses the cache's own lookup
+     * if it has one; otherwise scans the cache's segment headers, which may
+     * be slow.
+     *
+     * @param header A header to search for in the segment cache.
+     * @return Whether the segment is in the cache
+     */
+    public boolean contains(SegmentHeader header) {
+        checkThread();
+        try {
+            if (cache instanceof MemorySegmentCache) {
+                return ((MemorySegmentCache) cache).contains(header);
+            }
+            if (cache instanceof EvictingMemorySegmentCache) {
+                return ((EvictingMemorySegmentCache) cache).contains(header);
+            }
+            if (cache instanceof DiskSegmentCache) {
+                return ((DiskSegmentCache) cache).contains(header);
+            }
+            return cache.getSegmentHeaders().contains(header);
+        } catch (Throwable t) {
+            LOGGER.error("Failed to get a list of segment headers.", t);
+            throw MondrianResource.instance()
+                .SegmentCacheFailedToScanSegments.ex(t);
+        }
+    }
+
     /**
      * Places a segment in the cache. Returns true or false
      * if the operation succeeds.
      *
+     * <p>An {@link EvictingMemorySegmentCache} declines to store a segment
+     * that is larger than its budget. That is not an error; this method
+     * returns false, and the caller should not assume that the segment is
+     * in this cache. For any other cache, a put that returns false is a
+     * failure, and this method throws.</p>
+     *
      * @param header A header to search for in the segment cache.
      * @param body The segment body to cache.
+     * @return Whether the segment was stored
      */
-    public void put(SegmentHeader header, SegmentBody body) {
+    public boolean put(SegmentHeader header, SegmentBody body) {
         checkThread();
         try {
             final boolean result = cache.put(header, body);
             if (!result) {
+                if (cache instanceof EvictingMemorySegmentCache) {
+                    // Declined deliberately; the cache has logged why.
+                    return false;
+                }
                 LOGGER.error(
                     MondrianResource.instance()
                         .SegmentCacheFailedToSaveSegment
@@ -166,6 +229,7 @@ public final class SegmentCacheWorker {
                 throw MondrianResource.instance()
                     .SegmentCacheFailedToSaveSegment.ex();
             }
+            return true;
         } catch (Throwable t) {
             LOGGER.error(
                 MondrianResource.instance()
@@ -224,9 +288,10 @@ public final class SegmentCacheWorker {
     }
 
     private void checkThread() {
-        assert cacheMgrThread != Thread.currentThread()
+        assert cacheMgrThreads == null
+            || !cacheMgrThreads.contains(Thread.currentThread())
             : "this method is potentially slow; you should not call it from "
-            + "the cache manager thread, " + cacheMgrThread;
+            + "a cache manager thread, " + Thread.currentThread();
     }
 }
 
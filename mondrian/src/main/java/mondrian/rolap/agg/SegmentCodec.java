@@ -0,0 +1,83 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+/**
+ * Constants of the compact binary format in which {@link SegmentEncoder}
+ * writes, and {@link SegmentDecoder} reads, segment headers and bodies.
+ *
+ * <p>Unlike Java serialization, the format does not record class names or
+ * object graphs. Every header and body starts with the {@link #VERSION} of
+ * the format, and a decoder rejects versions it does not know.</p>
+ *
+ * <p>A body is laid out in columns:</p>
+ * <ol>
+ * <li>A dictionary of the distinct values that occur on its axes and, for
+ *     bodies of objects, in its cells. Each value is written once; all
+ *     other references to it are variable-length ordinals.</li>
+ * <li>The axes, as a null flag and a list of dictionary ordinals each.</li>
+ * <li>For dense bodies of {@code int} or {@code double}, the null
+ *     indicators as a bit-set followed by the raw values. For dense bodies
+ *     of objects, a dictionary ordinal per cell.</li>
+ * <li>For sparse bodies, one column of ordinals per axis, followed by a
+ *     column of values, which is stored as raw {@code int} or
+ *     {@code double} values if all cells have that type.</li>
+ * </ol>
+ *
+ * <p>Values of types that the format does not know about are written using
+ * Java serialization, so any {@link Comparable} that a segment can hold can
+ * be encoded.</p>
+ */
+public final class SegmentCodec {
+    /**
+     * Version of the binary format.
+     *
+     * <p>Version 1 wrote each value in full wherever it occurred; version 2
+     * introduced the dictionary and the columnar layout of sparse bodies.
+     */
+    public static final int VERSION = 2;
+
+    // Kinds of body.
+    static final byte DENSE_DOUBLE = 1;
+    static final byte DENSE_INT = 2;
+    static final byte DENSE_OBJECT = 3;
+    static final byte SPARSE = 4;
+
+    // Kinds of value column in a sparse body.
+    static final byte DOUBLE_COLUMN = 1;
+    static final byte INT_COLUMN = 2;
+    static final byte OBJECT_COLUMN = 3;
+
+    // Value tags.
+    static final byte NULL = 0;
+    static final byte SQL_NULL = 1;
+    static final byte STRING = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    static final byte BIG_DECIMAL = 6;
+    static final byte BOOLEAN = 7;
+    static final byte SHORT = 8;
+    static final byte BYTE = 9;
+    static final byte FLOAT = 10;
+    static final byte BIG_INTEGER = 11;
+    static final byte DATE = 12;
+    static final byte TIME = 13;
+    static final byte TIMESTAMP = 14;
+    static final byte SERIALIZED = 15;
+
+    private SegmentCodec() {
+    }
+}
+
+// End SegmentCodec.java
@@ -0,0 +1,534 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.BitKey;
+import mondrian.rolap.CellKey;
+import mondrian.rolap.RolapUtil;
+import mondrian.spi.SegmentBody;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+import mondrian.util.ArraySortedSet;
+import mondrian.util.ByteString;
+import mondrian.util.Pair;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static mondrian.rolap.agg.SegmentCodec.*;
+
+/**
+ * Reads segment headers and bodies written by {@link SegmentEncoder}.
+ *
+ * <p>A decoder reads either from a {@link ByteBuffer}, such as a
+ * memory-mapped file, or from an {@link InputStream}. Cell values are copied
+ * in bulk from the input into the body's arrays; if
+ * {@link mondrian.olap.MondrianProperties#OffHeapSegments} is set, dense
+ * bodies of {@code int} and {@code double} values are copied straight into
+ * off-heap storage.</p>
+ *
+ * <p>A decoder is not thread-safe.</p>
+ */
+public class SegmentDecoder {
+    private final Input in;
+
+    /**
+     * Creates a SegmentDecoder that reads from a buffer, starting at its
+     * current position.
+     *
+     * @param buffer Buffer
+     */
+    public SegmentDecoder(ByteBuffer buffer) {
+        this.in = new BufferInput(buffer);
+    }
+
+    /**
+     * Creates a SegmentDecoder that reads from a stream.
+     *
+     * @param stream Input stream; the decoder does not buffer, so this should
+     *     be buffered if it is not in memory
+     */
+    public SegmentDecoder(InputStream stream) {
+        this.in = new StreamInput(stream);
+    }
+
+    /**
+     * Reads a segment header.
+     *
+     * @return Segment header
+     * @throws IOException on error, or if the header was written in a
+     *     version of the format that this decoder does not understand
+     */
+    public SegmentHeader readHeader() throws IOException {
+        checkVersion();
+        final Object[] dictionary = readDictionary();
+        final String schemaName = readString();
+        final ByteString schemaChecksum = new ByteString(readBytes());
+        final String cubeName = readString();
+        final String measureName = readString();
+        final List<SegmentColumn> constrainedColumns = readColumns(dictionary);
+        final int predicateCount = readVarInt();
+        final List<String> compoundPredicates =
+            new ArrayList<String>(predicateCount);
+        for (int i = 0; i < predicateCount; i++) {
+            compoundPredicates.add(readString());
+        }
+        final String factTableName = readString();
+        final BitKey bitKey =
+            BitKey.Factory.makeBitKey(BitSet.valueOf(readWords()));
+        final List<SegmentColumn> excludedRegions = readColumns(dictionary);
+        return new SegmentHeader(
+            schemaName,
+            schemaChecksum,
+            cubeName,
+            measureName,
+            constrainedColumns,
+            compoundPredicates,
+            factTableName,
+            bitKey,
+            excludedRegions);
+    }
+
+    /**
+     * Reads a segment body.
+     *
+     * @return Segment body
+     * @throws IOException on error, or if the body was written in a
+     *     version of the format that this decoder does not understand
+     */
+    public SegmentBody readBody() throws IOException {
+        checkVersion();
+        final byte kind = in.readByte();
+        final Object[] dictionary = readDictionary();
+        final List<Pair<SortedSet<Comparable>, Boolean>> axes =
+            readAxes(dictionary);
+        switch (kind) {
+        case DENSE_DOUBLE: {
+            final int size = readVarInt();
+            final BitSet nullValues = BitSet.valueOf(readWords());
+            if (Segment.useOffHeap(size)) {
+                final ByteBuffer values =
+                    OffHeapSegmentBody.allocate(size << 3);
+                in.readDoubles(values.asDoubleBuffer());
+                return new OffHeapDoubleSegmentBody(
+                    values,
+                    OffHeapSegmentBody.copyNullValues(nullValues, size),
+                    size,
+                    axes);
+            }
+            final double[] values = new double[size];
+            in.readDoubles(DoubleBuffer.wrap(values));
+            return new DenseDoubleSegmentBody(nullValues, values, axes);
+        }
+        case DENSE_INT: {
+            final int size = readVarInt();
+            final BitSet nullValues = BitSet.valueOf(readWords());
+            if (Segment.useOffHeap(size)) {
+                final ByteBuffer values =
+                    OffHeapSegmentBody.allocate(size << 2);
+                in.readInts(values.asIntBuffer());
+                return new OffHeapIntSegmentBody(
+                    values,
+                    OffHeapSegmentBody.copyNullValues(nullValues, size),
+                    size,
+                    axes);
+            }
+            final int[] values = new int[size];
+            in.readInts(IntBuffer.wrap(values));
+            return new DenseIntSegmentBody(nullValues, values, axes);
+        }
+        case DENSE_OBJECT: {
+            final Object[] values = new Object[readVarInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = lookup(dictionary, readVarInt());
+            }
+            return new DenseObjectSegmentBody(values, axes);
+        }
+        case SPARSE:
+            return readSparse(dictionary, axes);
+        default:
+            throw new IOException("Unknown segment body kind " + kind);
+        }
+    }
+
+    private SegmentBody readSparse(
+        Object[] dictionary,
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+        throws IOException
+    {
+        final int count = readVarInt();
+        final int[][] ordinals = new int[axes.size()][count];
+        for (int[] column : ordinals) {
+            for (int i = 0; i < count; i++) {
+                column[i] = readVarInt();
+            }
+        }
+        final Object[] cellValues = new Object[count];
+        final byte columnKind = in.readByte();
+        switch (columnKind) {
+        case DOUBLE_COLUMN:
+            final double[] doubles = new double[count];
+            in.readDoubles(DoubleBuffer.wrap(doubles));
+            for (int i = 0; i < count; i++) {
+                cellValues[i] = doubles[i];
+            }
+            break;
+        case INT_COLUMN:
+            final int[] ints = new int[count];
+            in.readInts(IntBuffer.wrap(ints));
+            for (int i = 0; i < count; i++) {
+                cellValues[i] = ints[i];
+            }
+            break;
+        case OBJECT_COLUMN:
+            for (int i = 0; i < count; i++) {
+                cellValues[i] = lookup(dictionary, readVarInt());
+            }
+            break;
+        default:
+            throw new IOException("Unknown value column kind " + columnKind);
+        }
+        final Map<CellKey, Object> values =
+            new HashMap<CellKey, Object>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            final int[] cellOrdinals = new int[ordinals.length];
+            for (int j = 0; j < cellOrdinals.length; j++) {
+                cellOrdinals[j] = ordinals[j][i];
+            }
+            values.put(
+                CellKey.Generator.newCellKey(cellOrdinals), cellValues[i]);
+        }
+        return new SparseSegmentBody(values, axes);
+    }
+
+    private void checkVersion() throws IOException {
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException(
+                "Unsupported segment format version " + version
+                + "; expected " + VERSION);
+        }
+    }
+
+    private List<Pair<SortedSet<Comparable>, Boolean>> readAxes(
+        Object[] dictionary)
+        throws IOException
+    {
+        final int axisCount = readVarInt();
+        final List<Pair<SortedSet<Comparable>, Boolean>> axes =
+            new ArrayList<Pair<SortedSet<Comparable>, Boolean>>(axisCount);
+        for (int i = 0; i < axisCount; i++) {
+            final boolean nullAxisFlag = in.readByte() != 0;
+            //noinspection unchecked
+            final SortedSet<Comparable> values =
+                new ArraySortedSet(readValues(dictionary, readVarInt()));
+            axes.add(Pair.of(values, nullAxisFlag));
+        }
+        return axes;
+    }
+
+    private List<SegmentColumn> readColumns(Object[] dictionary)
+        throws IOException
+    {
+        final int columnCount = readVarInt();
+        final List<SegmentColumn> columns =
+            new ArrayList<SegmentColumn>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            final String columnExpression = readString();
+            final long valueCount = in.readLong();
+            final int n = readVarInt();
+            final SortedSet<Comparable> values;
+            if (n == 0) {
+                values = null;
+            } else {
+                //noinspection unchecked
+                values = new ArraySortedSet(readValues(dictionary, n - 1));
+            }
+            columns.add(
+                new SegmentColumn(columnExpression, valueCount, values));
+        }
+        return columns;
+    }
+
+    private Comparable[] readValues(Object[] dictionary, int n)
+        throws IOException
+    {
+        final Comparable[] values = new Comparable[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = (Comparable) lookup(dictionary, readVarInt());
+        }
+        return values;
+    }
+
+    private static Object lookup(Object[] dictionary, int ordinal)
+        throws IOException
+    {
+        if (ordinal == 0) {
+            return null;
+        }
+        if (ordinal > dictionary.length) {
+            throw new IOException("Bad dictionary ordinal " + ordinal);
+        }
+        return dictionary[ordinal - 1];
+    }
+
+    private Object[] readDictionary() throws IOException {
+        final Object[] dictionary = new Object[readVarInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readValue();
+        }
+        return dictionary;
+    }
+
+    private long[] readWords() throws IOException {
+        final long[] words = new long[readVarInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        return words;
+    }
+
+    private Object readValue() throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case SQL_NULL:
+            return RolapUtil.sqlNullValue;
+        case STRING:
+            return readString();
+        case INT:
+            return in.readInt();
+        case LONG:
+            return in.readLong();
+        case DOUBLE:
+            return in.readDouble();
+        case BIG_DECIMAL:
+            final int scale = in.readInt();
+            return new BigDecimal(new BigInteger(readBytes()), scale);
+        case BOOLEAN:
+            return in.readByte() != 0;
+        case SHORT:
+            return in.readShort();
+        case BYTE:
+            return in.readByte();
+        case FLOAT:
+            return in.readFloat();
+        case BIG_INTEGER:
+            return new BigInteger(readBytes());
+        case DATE:
+            return new java.sql.Date(in.readLong());
+        case TIME:
+            return new java.sql.Time(in.readLong());
+        case TIMESTAMP:
+            final java.sql.Timestamp timestamp =
+                new java.sql.Timestamp(in.readLong());
+            timestamp.setNanos(in.readInt());
+            return timestamp;
+        case SERIALIZED:
+            final ObjectInputStream ois =
+                new ObjectInputStream(new ByteArrayInputStream(readBytes()));
+            try {
+                return ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            } finally {
+                ois.close();
+            }
+        default:
+            throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private String readString() throws IOException {
+        final int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+        final byte[] bytes = new byte[readVarInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private int readVarInt() throws IOException {
+        int i = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = in.readByte();
+            i |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return i;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    /**
+     * Source of primitive values.
+     */
+    private abstract static class Input {
+        abstract byte readByte() throws IOException;
+
+        abstract short readShort() throws IOException;
+
+        abstract int readInt() throws IOException;
+
+        abstract long readLong() throws IOException;
+
+        abstract float readFloat() throws IOException;
+
+        abstract double readDouble() throws IOException;
+
+        abstract void readFully(byte[] bytes) throws IOException;
+
+        /** Fills a buffer with doubles. */
+        abstract void readDoubles(DoubleBuffer target) throws IOException;
+
+        /** Fills a buffer with ints. */
+        abstract void readInts(IntBuffer target) throws IOException;
+    }
+
+    /**
+     * Input that reads from a {@link ByteBuffer}.
+     */
+    private static class BufferInput extends Input {
+        private final ByteBuffer buffer;
+
+        BufferInput(ByteBuffer buffer) {
+            // The format is big-endian, whatever order the caller's buffer
+            // is in.
+            this.buffer = buffer.slice();
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        short readShort() {
+            return buffer.getShort();
+        }
+
+        int readInt() {
+            return buffer.getInt();
+        }
+
+        long readLong() {
+            return buffer.getLong();
+        }
+
+        float readFloat() {
+            return buffer.getFloat();
+        }
+
+        double readDouble() {
+            return buffer.getDouble();
+        }
+
+        void readFully(byte[] bytes) {
+            buffer.get(bytes);
+        }
+
+        void readDoubles(DoubleBuffer target) {
+            final int n = target.remaining();
+            final DoubleBuffer source = buffer.asDoubleBuffer();
+            source.limit(n);
+            target.put(source);
+            buffer.position(buffer.position() + (n << 3));
+        }
+
+        void readInts(IntBuffer target) {
+            final int n = target.remaining();
+            final IntBuffer source = buffer.asIntBuffer();
+            source.limit(n);
+            target.put(source);
+            buffer.position(buffer.position() + (n << 2));
+        }
+    }
+
+    /**
+     * Input that reads from an {@link InputStream}.
+     */
+    private static class StreamInput extends Input {
+        private final DataInputStream stream;
+        private final byte[] chunk = new byte[8192];
+        private final ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+
+        StreamInput(InputStream stream) {
+            this.stream =
+                stream instanceof DataInputStream
+                    ? (DataInputStream) stream
+                    : new DataInputStream(stream);
+        }
+
+        byte readByte() throws IOException {
+            return stream.readByte();
+        }
+
+        short readShort() throws IOException {
+            return stream.readShort();
+        }
+
+        int readInt() throws IOException {
+            return stream.readInt();
+        }
+
+        long readLong() throws IOException {
+            return stream.readLong();
+        }
+
+        float readFloat() throws IOException {
+            return stream.readFloat();
+        }
+
+        double readDouble() throws IOException {
+            return stream.readDouble();
+        }
+
+        void readFully(byte[] bytes) throws IOException {
+            stream.readFully(bytes);
+        }
+
+        void readDoubles(DoubleBuffer target) throws IOException {
+            while (target.hasRemaining()) {
+                final int n = Math.min(target.remaining(), chunk.length >> 3);
+                stream.readFully(chunk, 0, n << 3);
+                final DoubleBuffer source = chunkBuffer.asDoubleBuffer();
+                source.limit(n);
+                target.put(source);
+            }
+        }
+
+        void readInts(IntBuffer target) throws IOException {
+            while (target.hasRemaining()) {
+                final int n = Math.min(target.remaining(), chunk.length >> 2);
+                stream.readFully(chunk, 0, n << 2);
+                final IntBuffer source = chunkBuffer.asIntBuffer();
+                source.limit(n);
+                target.put(source);
+            }
+        }
+    }
+}
+
+// End SegmentDecoder.java
@@ -0,0 +1,430 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.agg;
+
+import mondrian.rolap.CellKey;
+import mondrian.rolap.RolapUtil;
+import mondrian.spi.SegmentBody;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static mondrian.rolap.agg.SegmentCodec.*;
+
+/**
+ * Writes segment headers and bodies to a stream in the binary format
+ * described by {@link SegmentCodec}.
+ *
+ * <p>Cell values are written straight from the body's arrays (or off-heap
+ * buffers) to the stream, a chunk at a time, so encoding a body does not
+ * make a copy of it.</p>
+ *
+ * <p>An encoder is not thread-safe.</p>
+ *
+ * @see SegmentDecoder
+ */
+public class SegmentEncoder {
+    private final DataOutputStream out;
+    private final byte[] chunk = new byte[8192];
+    private final ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+
+    /**
+     * Creates a SegmentEncoder.
+     *
+     * @param out Output stream; the encoder does not buffer, so this should
+     *     be buffered if it is not in memory
+     */
+    public SegmentEncoder(OutputStream out) {
+        this.out =
+            out instanceof DataOutputStream
+                ? (DataOutputStream) out
+                : new DataOutputStream(out);
+    }
+
+    /**
+     * Writes a segment header.
+     *
+     * @param header Segment header
+     * @throws IOException on error
+     */
+    public void writeHeader(SegmentHeader header) throws IOException {
+        out.writeByte(VERSION);
+        final Dictionary dictionary = new Dictionary();
+        dictionary.addColumns(header.getConstrainedColumns());
+        dictionary.addColumns(header.getExcludedRegions());
+        writeDictionary(dictionary);
+        writeString(header.schemaName);
+        writeBytes(header.schemaChecksum.getBytes());
+        writeString(header.cubeName);
+        writeString(header.measureName);
+        writeColumns(header.getConstrainedColumns(), dictionary);
+        writeVarInt(header.compoundPredicates.size());
+        for (String predicate : header.compoundPredicates) {
+            writeString(predicate);
+        }
+        writeString(header.rolapStarFactTableName);
+        writeWords(
+            header.getConstrainedColumnsBitKey().toBitSet().toLongArray());
+        writeColumns(header.getExcludedRegions(), dictionary);
+    }
+
+    /**
+     * Writes a segment body.
+     *
+     * @param body Segment body
+     * @throws IOException on error
+     */
+    public void writeBody(SegmentBody body) throws IOException {
+        out.writeByte(VERSION);
+        final SortedSet<Comparable>[] axisValueSets = body.getAxisValueSets();
+        final boolean[] nullAxisFlags = body.getNullAxisFlags();
+        final Dictionary dictionary = new Dictionary();
+        for (SortedSet<Comparable> axisValueSet : axisValueSets) {
+            dictionary.addAll(axisValueSet);
+        }
+
+        if (body instanceof OffHeapSegmentBody) {
+            final OffHeapSegmentBody offHeapBody = (OffHeapSegmentBody) body;
+            final boolean isDouble = body instanceof OffHeapDoubleSegmentBody;
+            writePrologue(
+                isDouble ? DENSE_DOUBLE : DENSE_INT,
+                axisValueSets,
+                nullAxisFlags,
+                dictionary);
+            writeVarInt(offHeapBody.size);
+            writeWords(offHeapBody.getNullValueIndicators().toLongArray());
+            if (isDouble) {
+                writeDoubles(offHeapBody.values.asDoubleBuffer());
+            } else {
+                writeInts(offHeapBody.values.asIntBuffer());
+            }
+            return;
+        }
+
+        Object values;
+        try {
+            values = body.getValueArray();
+        } catch (UnsupportedOperationException e) {
+            values = null;
+        }
+        if (values instanceof double[]) {
+            final double[] doubles = (double[]) values;
+            writePrologue(
+                DENSE_DOUBLE, axisValueSets, nullAxisFlags, dictionary);
+            writeVarInt(doubles.length);
+            writeWords(body.getNullValueIndicators().toLongArray());
+            writeDoubles(DoubleBuffer.wrap(doubles));
+        } else if (values instanceof int[]) {
+            final int[] ints = (int[]) values;
+            writePrologue(
+                DENSE_INT, axisValueSets, nullAxisFlags, dictionary);
+            writeVarInt(ints.length);
+            writeWords(body.getNullValueIndicators().toLongArray());
+            writeInts(IntBuffer.wrap(ints));
+        } else if (values instanceof Object[]) {
+            final Object[] objects = (Object[]) values;
+            dictionary.addAll(Arrays.asList(objects));
+            writePrologue(
+                DENSE_OBJECT, axisValueSets, nullAxisFlags, dictionary);
+            writeVarInt(objects.length);
+            for (Object o : objects) {
+                writeVarInt(dictionary.ordinal(o));
+            }
+        } else {
+            writeSparse(body, axisValueSets, nullAxisFlags, dictionary);
+        }
+    }
+
+    private void writeSparse(
+        SegmentBody body,
+        SortedSet<Comparable>[] axisValueSets,
+        boolean[] nullAxisFlags,
+        Dictionary dictionary)
+        throws IOException
+    {
+        final Map<CellKey, Object> valueMap = body.getValueMap();
+        final int count = valueMap.size();
+        final int[][] ordinals = new int[axisValueSets.length][count];
+        final Object[] cellValues = new Object[count];
+        boolean allDouble = true;
+        boolean allInt = true;
+        int i = 0;
+        for (Map.Entry<CellKey, Object> entry : valueMap.entrySet()) {
+            final int[] cellOrdinals = entry.getKey().getOrdinals();
+            for (int j = 0; j < cellOrdinals.length; j++) {
+                ordinals[j][i] = cellOrdinals[j];
+            }
+            final Object value = entry.getValue();
+            allDouble &= value instanceof Double;
+            allInt &= value instanceof Integer;
+            cellValues[i++] = value;
+        }
+        final byte columnKind =
+            allDouble ? DOUBLE_COLUMN
+            : allInt ? INT_COLUMN
+            : OBJECT_COLUMN;
+        if (columnKind == OBJECT_COLUMN) {
+            dictionary.addAll(Arrays.asList(cellValues));
+        }
+
+        writePrologue(
+            SPARSE, axisValueSets, nullAxisFlags, dictionary);
+        writeVarInt(count);
+        for (int[] column : ordinals) {
+            for (int ordinal : column) {
+                writeVarInt(ordinal);
+            }
+        }
+        out.writeByte(columnKind);
+        switch (columnKind) {
+        case DOUBLE_COLUMN:
+            final double[] doubles = new double[count];
+            for (int k = 0; k < count; k++) {
+                doubles[k] = (Double) cellValues[k];
+            }
+            writeDoubles(DoubleBuffer.wrap(doubles));
+            break;
+        case INT_COLUMN:
+            final int[] ints = new int[count];
+            for (int k = 0; k < count; k++) {
+                ints[k] = (Integer) cellValues[k];
+            }
+            writeInts(IntBuffer.wrap(ints));
+            break;
+        default:
+            for (Object value : cellValues) {
+                writeVarInt(dictionary.ordinal(value));
+            }
+        }
+    }
+
+    /**
+     * Flushes the underlying stream.
+     *
+     * @throws IOException on error
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the kind of a body, its dictionary, and its axes.
+     */
+    private void writePrologue(
+        byte kind,
+        SortedSet<Comparable>[] axisValueSets,
+        boolean[] nullAxisFlags,
+        Dictionary dictionary)
+        throws IOException
+    {
+        out.writeByte(kind);
+        writeDictionary(dictionary);
+        writeVarInt(axisValueSets.length);
+        for (int i = 0; i < axisValueSets.length; i++) {
+            out.writeBoolean(nullAxisFlags[i]);
+            writeVarInt(axisValueSets[i].size());
+            for (Comparable value : axisValueSets[i]) {
+                writeVarInt(dictionary.ordinal(value));
+            }
+        }
+    }
+
+    private void writeColumns(
+        List<SegmentColumn> columns,
+        Dictionary dictionary)
+        throws IOException
+    {
+        writeVarInt(columns.size());
+        for (SegmentColumn column : columns) {
+            writeString(column.columnExpression);
+            out.writeLong(column.valueCount);
+            if (column.values == null) {
+                writeVarInt(0);
+            } else {
+                writeVarInt(column.values.size() + 1);
+                for (Comparable value : column.values) {
+                    writeVarInt(dictionary.ordinal(value));
+                }
+            }
+        }
+    }
+
+    private void writeDictionary(Dictionary dictionary) throws IOException {
+        writeVarInt(dictionary.values.size());
+        for (Object value : dictionary.values) {
+            writeValue(value);
+        }
+    }
+
+    private void writeWords(long[] words) throws IOException {
+        writeVarInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    private void writeDoubles(DoubleBuffer values) throws IOException {
+        final DoubleBuffer target = chunkBuffer.asDoubleBuffer();
+        while (values.hasRemaining()) {
+            final int n = Math.min(values.remaining(), target.capacity());
+            final DoubleBuffer part = values.slice();
+            part.limit(n);
+            target.clear();
+            target.put(part);
+            values.position(values.position() + n);
+            out.write(chunk, 0, n << 3);
+        }
+    }
+
+    private void writeInts(IntBuffer values) throws IOException {
+        final IntBuffer target = chunkBuffer.asIntBuffer();
+        while (values.hasRemaining()) {
+            final int n = Math.min(values.remaining(), target.capacity());
+            final IntBuffer part = values.slice();
+            part.limit(n);
+            target.clear();
+            target.put(part);
+            values.position(values.position() + n);
+            out.write(chunk, 0, n << 2);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value == RolapUtil.sqlNullValue) {
+            out.writeByte(SQL_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigDecimal) {
+            final BigDecimal decimal = (BigDecimal) value;
+            out.writeByte(BIG_DECIMAL);
+            out.writeInt(decimal.scale());
+            writeBytes(decimal.unscaledValue().toByteArray());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(((BigInteger) value).toByteArray());
+        } else if (value.getClass() == java.sql.Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value.getClass() == java.sql.Time.class) {
+            out.writeByte(TIME);
+            out.writeLong(((java.sql.Time) value).getTime());
+        } else if (value.getClass() == java.sql.Timestamp.class) {
+            final java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+            out.writeByte(TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else {
+            out.writeByte(SERIALIZED);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream oos = new ObjectOutputStream(bytes);
+            oos.writeObject(value);
+            oos.close();
+            writeBytes(bytes.toByteArray());
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeVarInt(0);
+        } else {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a non-negative int in 1 to 5 bytes, 7 bits at a time, least
+     * significant first.
+     */
+    private void writeVarInt(int i) throws IOException {
+        while ((i & ~0x7F) != 0) {
+            out.writeByte((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        out.writeByte(i);
+    }
+
+    /**
+     * Distinct values of a header or body, in order of first occurrence.
+     * Ordinal 0 is reserved for null.
+     */
+    private static class Dictionary {
+        final List<Object> values = new ArrayList<Object>();
+        final Map<Object, Integer> ordinals = new HashMap<Object, Integer>();
+
+        void add(Object value) {
+            if (value != null && !ordinals.containsKey(value)) {
+                values.add(value);
+                ordinals.put(value, values.size());
+            }
+        }
+
+        void addAll(Collection<?> values) {
+            for (Object value : values) {
+                add(value);
+            }
+        }
+
+        void addColumns(List<SegmentColumn> columns) {
+            for (SegmentColumn column : columns) {
+                if (column.values != null) {
+                    addAll(column.values);
+                }
+            }
+        }
+
+        int ordinal(Object value) {
+            return value == null ? 0 : ordinals.get(value);
+        }
+    }
+}
+
+// End SegmentEncoder.java
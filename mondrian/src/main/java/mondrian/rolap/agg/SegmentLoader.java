@@ -23,6 +23,7 @@ import mondrian.server.Execution;
 import mondrian.server.Locus;
 import mondrian.server.monitor.SqlStatementEvent;
 import mondrian.spi.*;
+import mondrian.spi.impl.JdbcBulkFetcher;
 import mondrian.util.*;
 
 import java.io.Serializable;
@@ -156,6 +157,7 @@ public class SegmentLoader {
     RolapStar.Column[] defaultColumns = groupingSetsList.getDefaultColumns();
 
     final Map<Segment, SegmentWithData> segmentMap = new HashMap<Segment, SegmentWithData>();
+    final long startTime = System.currentTimeMillis();
     Throwable throwable = null;
     try {
       int arity = defaultColumns.length;
@@ -180,7 +182,8 @@ public class SegmentLoader {
 
       loadDataToDataSets( groupingSetsList, rows, groupingDataSetsMap );
 
-      setDataToSegments( groupingSetsList, groupingDataSetsMap, segmentMap );
+      setDataToSegments( groupingSetsList, groupingDataSetsMap, segmentMap,
+          System.currentTimeMillis() - startTime );
 
       return segmentMap;
     } catch ( Throwable e ) {
@@ -204,8 +207,10 @@ public class SegmentLoader {
    *          Segment header
    * @param body
    *          Segment body
+   * @param loadMillis
+   *          Time taken to load the segment, in milliseconds
    */
-  private void cacheSegment( RolapStar star, SegmentHeader header, SegmentBody body ) {
+  private void cacheSegment( RolapStar star, SegmentHeader header, SegmentBody body, long loadMillis ) {
     // Write the segment into external cache.
     //
     // It would be a mistake to do this from the cacheMgr -- because the
@@ -217,6 +222,7 @@ public class SegmentLoader {
     // query to proceed.
     if ( !MondrianProperties.instance().DisableCaching.get() ) {
       cacheMgr.compositeCache.put( header, body );
+      cacheMgr.recordLoadCost( header, loadMillis );
       cacheMgr.loadSucceeded( star, header, body );
     }
   }
@@ -242,54 +248,126 @@ public class SegmentLoader {
   /**
    * Loads data to the datasets. If the grouping sets is used, dataset is fetched from groupingDataSetMap using grouping
    * bit keys of the row data. If grouping sets is not used, data is loaded on to nonGroupingDataSets.
+   *
+   * <p>If grouping sets are used and there are at least
+   * {@link MondrianProperties#SegmentLoadParallelRowThreshold} rows, the datasets of each grouping set are populated
+   * by a separate task.
    */
   private void loadDataToDataSets( GroupingSetsList groupingSetsList, RowList rows,
       Map<BitKey, GroupingSetsList.Cohort> groupingDataSetMap ) {
-    int arity = groupingSetsList.getDefaultColumns().length;
-    SegmentAxis[] axes = groupingSetsList.getDefaultAxes();
-    int segmentLength = groupingSetsList.getDefaultSegments().size();
+    final int arity = groupingSetsList.getDefaultColumns().length;
+    final SegmentAxis[] axes = groupingSetsList.getDefaultAxes();
+
+    // Translate each distinct value of each axis to its offset on the axis
+    // once, rather than once per row.
+    final int[][] offsets = new int[arity][];
+    final int[] nullOrdinals = new int[arity];
+    for ( int j = 0; j < arity; j++ ) {
+      final List<Object> dictionary = rows.getDictionary( j );
+      offsets[j] = new int[dictionary.size()];
+      nullOrdinals[j] = -1;
+      for ( int ordinal = 0; ordinal < dictionary.size(); ordinal++ ) {
+        final Object o = dictionary.get( ordinal );
+        if ( o == RolapUtil.sqlNullValue ) {
+          nullOrdinals[j] = ordinal;
+        }
+        // Note: We believe that all value types are Comparable.
+        offsets[j][ordinal] = axes[j].getOffset( (Comparable) o );
+      }
+    }
+
+    if ( !groupingSetsList.useGroupingSets() ) {
+      populateCohort( groupingSetsList, rows, groupingDataSetMap.get( BitKey.EMPTY ), null, -1, offsets,
+          nullOrdinals );
+      return;
+    }
+
+    // Assign each row to the cohort of its grouping set.
+    final List<GroupingSetsList.Cohort> cohorts = new ArrayList<GroupingSetsList.Cohort>();
+    final Map<BitKey, Integer> cohortOrdinals = new HashMap<BitKey, Integer>();
+    for ( Map.Entry<BitKey, GroupingSetsList.Cohort> entry : groupingDataSetMap.entrySet() ) {
+      cohortOrdinals.put( entry.getKey(), cohorts.size() );
+      cohorts.add( entry.getValue() );
+    }
+    final int[] rowCohorts = new int[rows.size()];
+    int row = 0;
+    for ( rows.first(); rows.next(); ) {
+      final BitKey groupingBitKey = (BitKey) rows.getObject( groupingSetsList.getGroupingBitKeyIndex() );
+      rowCohorts[row++] = cohortOrdinals.get( groupingBitKey );
+    }
+
+    final int threshold = MondrianProperties.instance().SegmentLoadParallelRowThreshold.get();
+    if ( cohorts.size() == 1 || threshold <= 0 || rows.size() < threshold ) {
+      for ( int c = 0; c < cohorts.size(); c++ ) {
+        populateCohort( groupingSetsList, rows, cohorts.get( c ), rowCohorts, c, offsets, nullOrdinals );
+      }
+      return;
+    }
+
+    // Each cohort has its own datasets, so cohorts can be populated in
+    // parallel, each task with its own cursor over the rows. Tasks that no
+    // SQL thread has started by the time we get to them are run by this
+    // thread, so we never wait for a thread that is busy (perhaps waiting
+    // for us).
+    final List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+    for ( int c = 0; c < cohorts.size(); c++ ) {
+      final int cohortOrdinal = c;
+      final FutureTask<Void> task = new FutureTask<Void>( () -> {
+        populateCohort( groupingSetsList, new RowList( rows ), cohorts.get( cohortOrdinal ), rowCohorts,
+            cohortOrdinal, offsets, nullOrdinals );
+        return null;
+      } );
+      tasks.add( task );
+      if ( c > 0 ) {
+        cacheMgr.sqlExecutor.execute( task );
+      }
+    }
+    for ( FutureTask<Void> task : tasks ) {
+      task.run();
+    }
+    for ( FutureTask<Void> task : tasks ) {
+      Util.safeGet( task, "SegmentLoader.load" );
+    }
+  }
 
-    final List<SqlStatement.Type> types = rows.getTypes();
+  /**
+   * Populates the datasets of a cohort from the rows that belong to it.
+   *
+   * @param groupingSetsList
+   *          Grouping sets
+   * @param rows
+   *          Rows; this method moves its cursor
+   * @param cohort
+   *          Cohort
+   * @param rowCohorts
+   *          Ordinal of the cohort of each row, or null if all rows belong to this cohort
+   * @param cohortOrdinal
+   *          Ordinal of this cohort
+   * @param offsets
+   *          For each axis, the offset on the axis of each value in the axis's dictionary
+   * @param nullOrdinals
+   *          For each axis, the dictionary ordinal of the null value, or -1
+   */
+  private void populateCohort( GroupingSetsList groupingSetsList, RowList rows, GroupingSetsList.Cohort cohort,
+      int[] rowCohorts, int cohortOrdinal, int[][] offsets, int[] nullOrdinals ) {
+    final int arity = offsets.length;
+    final int segmentLength = cohort.segmentDatasetList.size();
     final boolean useGroupingSet = groupingSetsList.useGroupingSets();
+    final int[] pos = cohort.pos;
+    int row = 0;
     for ( rows.first(); rows.next(); ) {
-      final BitKey groupingBitKey;
-      final GroupingSetsList.Cohort cohort;
-      if ( useGroupingSet ) {
-        groupingBitKey = (BitKey) rows.getObject( groupingSetsList.getGroupingBitKeyIndex() );
-        cohort = groupingDataSetMap.get( groupingBitKey );
-      } else {
-        groupingBitKey = null;
-        cohort = groupingDataSetMap.get( BitKey.EMPTY );
+      if ( rowCohorts != null && rowCohorts[row++] != cohortOrdinal ) {
+        continue;
       }
-      final int[] pos = cohort.pos;
+      final BitKey groupingBitKey =
+          useGroupingSet ? (BitKey) rows.getObject( groupingSetsList.getGroupingBitKeyIndex() ) : null;
       for ( int j = 0, k = 0; j < arity; j++ ) {
-        final SqlStatement.Type type = types.get( j );
-        switch ( type ) {
-          // TODO: different treatment for INT, LONG, DOUBLE
-          case OBJECT:
-          case STRING:
-          case INT:
-          case LONG:
-          case DOUBLE:
-          case DECIMAL:
-            Object o = rows.getObject( j );
-            if ( useGroupingSet && ( o == null || o == RolapUtil.sqlNullValue ) && groupingBitKey.get( groupingSetsList
-                .findGroupingFunctionIndex( j ) ) ) {
-              continue;
-            }
-            SegmentAxis axis = axes[j];
-            if ( o == null ) {
-              o = RolapUtil.sqlNullValue;
-            }
-            // Note: We believe that all value types are Comparable.
-            // In JDK 1.4, Boolean did not implement Comparable, but
-            // that's too minor/long ago to worry about.
-            int offset = axis.getOffset( (Comparable) o );
-            pos[k++] = offset;
-            break;
-          default:
-            throw Util.unexpected( type );
+        final int ordinal = rows.getOrdinal( j );
+        if ( useGroupingSet && ordinal == nullOrdinals[j] && groupingBitKey.get( groupingSetsList
+            .findGroupingFunctionIndex( j ) ) ) {
+          continue;
         }
+        pos[k++] = offsets[j][ordinal];
       }
 
       for ( int j = 0; j < segmentLength; j++ ) {
@@ -328,7 +406,7 @@ public class SegmentLoader {
   }
 
   private void setDataToSegments( GroupingSetsList groupingSetsList, Map<BitKey, GroupingSetsList.Cohort> datasetsMap,
-      Map<Segment, SegmentWithData> segmentSlotMap ) {
+      Map<Segment, SegmentWithData> segmentSlotMap, long loadMillis ) {
     List<GroupingSet> groupingSets = groupingSetsList.getGroupingSets();
     for ( int i = 0; i < groupingSets.size(); i++ ) {
       List<Segment> segments = groupingSets.get( i ).getSegments();
@@ -354,7 +432,7 @@ public class SegmentLoader {
 
         // Send a message to the agg manager. It will place the segment
         // in the index.
-        cacheSegment( segment.star, header, body );
+        cacheSegment( segment.star, header, body, loadMillis );
       }
     }
   }
@@ -468,6 +546,11 @@ public class SegmentLoader {
           public Locus getLocus() {
             return locus;
           }
+
+          @Override
+          public RolapStar getStar() {
+            return groupingSetsList.getStar();
+          }
         } );
         return null;
       }
@@ -500,9 +583,9 @@ public class SegmentLoader {
       final SortedSet<Comparable>[] axisValueSets, final GroupingSetsList groupingSetsList ) throws SQLException {
     List<Segment> segments = groupingSetsList.getDefaultSegments();
     int measureCount = segments.size();
-    ResultSet rawRows = loadData( stmt, groupingSetsList );
     assert stmt != null;
     final List<SqlStatement.Type> types = stmt.guessTypes();
+    ResultSet rawRows = loadData( stmt, groupingSetsList, types );
     int arity = axisValueSets.length;
     final int groupingColumnStartIndex = arity + measureCount;
 
@@ -516,183 +599,106 @@ public class SegmentLoader {
     } else {
       processedTypes = types;
     }
-    final RowList processedRows = new RowList( processedTypes, 100 );
-
-    Execution execution = Locus.peek().execution;
-    while ( rawRows.next() ) {
-      // Check if the MDX query was canceled.
-      CancellationChecker.checkCancelOrTimeout( ++stmt.rowCount, execution );
+    // Axis values are stored as ordinals in a dictionary of each axis's
+    // distinct values.
+    final RowList processedRows = new RowList( processedTypes, 100, arity );
+
+    // pre-compute which measures are numeric
+    final boolean[] numeric = new boolean[measureCount];
+    int k = 0;
+    for ( Segment segment : segments ) {
+      numeric[k++] = segment.measure.getDatatype().isNumeric();
+    }
 
-      checkResultLimit( stmt.rowCount );
-      processedRows.createRow();
+    // Read the rows in batches of column vectors. Measures of a numeric type
+    // are copied into their columns a batch at a time, without boxing.
+    final BulkFetcher fetcher = getBulkFetcher( groupingSetsList );
+    final ColumnBatch batch =
+        new ColumnBatch( types, Math.max( 1, MondrianProperties.instance().BulkFetchSize.get() ) );
 
-      // get the columns
-      int columnIndex = 0;
-      for ( int axisIndex = 0; axisIndex < arity; axisIndex++, columnIndex++ ) {
-        final SqlStatement.Type type = types.get( columnIndex );
-        switch ( type ) {
-          case OBJECT:
-          case STRING:
-            Object o = rawRows.getObject( columnIndex + 1 );
-            if ( o == null ) {
-              o = RolapUtil.sqlNullValue;
-              if ( !groupingSetsList.useGroupingSets() || !isAggregateNull( rawRows, groupingColumnStartIndex,
-                  groupingSetsList, axisIndex ) ) {
-                axisContainsNull[axisIndex] = true;
-              }
-            } else {
-              // We assume that all values are Comparable. Boolean
-              // wasn't Comparable until JDK 1.5, but we can live with
-              // that bug because JDK 1.4 is no longer important.
-
-              // byte [] is not Comparable.
-              // For our case it can be binary array. It was typed as String.
-              // So it can be processing (comparing and displaying) correctly as String
-              if ( o instanceof byte[] ) {
-                o = new String( (byte[]) o );
-              }
-              axisValueSets[axisIndex].add( (Comparable) o );
-            }
-            processedRows.setObject( columnIndex, o );
-            break;
-          case INT:
-            final int intValue = rawRows.getInt( columnIndex + 1 );
-            if ( intValue == 0 && rawRows.wasNull() ) {
-              if ( !groupingSetsList.useGroupingSets() || !isAggregateNull( rawRows, groupingColumnStartIndex,
-                  groupingSetsList, axisIndex ) ) {
-                axisContainsNull[axisIndex] = true;
-              }
-              processedRows.setNull( columnIndex, true );
-            } else {
-              axisValueSets[axisIndex].add( intValue );
-              processedRows.setInt( columnIndex, intValue );
-            }
-            break;
-          case LONG:
-            final long longValue = rawRows.getLong( columnIndex + 1 );
-            if ( longValue == 0 && rawRows.wasNull() ) {
-              if ( !groupingSetsList.useGroupingSets() || !isAggregateNull( rawRows, groupingColumnStartIndex,
-                  groupingSetsList, axisIndex ) ) {
-                axisContainsNull[axisIndex] = true;
-              }
-              processedRows.setNull( columnIndex, true );
-            } else {
-              axisValueSets[axisIndex].add( longValue );
-              processedRows.setLong( columnIndex, longValue );
-            }
-            break;
-          case DOUBLE:
-            final double doubleValue = rawRows.getDouble( columnIndex + 1 );
-            if ( doubleValue == 0 && rawRows.wasNull() ) {
-              if ( !groupingSetsList.useGroupingSets() || !isAggregateNull( rawRows, groupingColumnStartIndex,
-                  groupingSetsList, axisIndex ) ) {
-                axisContainsNull[axisIndex] = true;
-              }
-              processedRows.setNull( columnIndex, true );
-            } else {
-              axisValueSets[axisIndex].add( doubleValue );
-              processedRows.setDouble( columnIndex, doubleValue );
+    Execution execution = Locus.peek().execution;
+    int batchRowCount;
+    do {
+      batchRowCount = fetcher.fetch( rawRows, batch );
+      final int firstRow = processedRows.size();
+      for ( int row = 0; row < batchRowCount; row++ ) {
+        // Check if the MDX query was canceled.
+        CancellationChecker.checkCancelOrTimeout( ++stmt.rowCount, execution );
+
+        checkResultLimit( stmt.rowCount );
+        processedRows.createRow();
+
+        // get the columns
+        int columnIndex = 0;
+        for ( int axisIndex = 0; axisIndex < arity; axisIndex++, columnIndex++ ) {
+          Object o = batch.getObject( columnIndex, row );
+          if ( o == null ) {
+            o = RolapUtil.sqlNullValue;
+            if ( !groupingSetsList.useGroupingSets() || !isAggregateNull( batch, row, groupingColumnStartIndex,
+                groupingSetsList, axisIndex ) ) {
+              axisContainsNull[axisIndex] = true;
             }
-            break;
-          case DECIMAL:
-            final BigDecimal decimal = rawRows.getBigDecimal( columnIndex + 1 );
-            if ( decimal == null && rawRows.wasNull() ) {
-              if ( !groupingSetsList.useGroupingSets() || !isAggregateNull( rawRows, groupingColumnStartIndex,
-                  groupingSetsList, axisIndex ) ) {
-                axisContainsNull[axisIndex] = true;
-              }
-              processedRows.setNull( columnIndex, true );
+          } else if ( o instanceof byte[] ) {
+            // We assume that all values are Comparable. Boolean
+            // wasn't Comparable until JDK 1.5, but we can live with
+            // that bug because JDK 1.4 is no longer important.
+
+            // byte [] is not Comparable.
+            // For our case it can be binary array. It was typed as String.
+            // So it can be processing (comparing and displaying) correctly as String
+            o = new String( (byte[]) o );
+          }
+          processedRows.setObject( columnIndex, o );
+        }
+
+        // get the measures that are not read as primitives
+        for ( int i = 0; i < measureCount; i++, columnIndex++ ) {
+          final SqlStatement.Type type = types.get( columnIndex );
+          if ( type != SqlStatement.Type.OBJECT && type != SqlStatement.Type.STRING ) {
+            continue;
+          }
+          Object o = batch.getObjects( columnIndex )[row];
+          if ( o == null ) {
+            o = Util.nullValue; // convert to placeholder
+          } else if ( numeric[i] ) {
+            if ( o instanceof Double ) {
+              // nothing to do
+            } else if ( o instanceof BigDecimal ) {
+              // nothing to do // PDI-16761 if we cast it to double type we lose precision
+            } else if ( o instanceof Number ) {
+              o = ( (Number) o ).doubleValue();
+            } else if ( o instanceof byte[] ) {
+              // On MySQL 5.0 in German locale, values can come
+              // out as byte arrays. Don't know why. Bug 1594119.
+              o = Double.parseDouble( new String( (byte[]) o ) );
             } else {
-              final double val = rawRows.getBigDecimal( columnIndex + 1 ).doubleValue();
-              if ( val == Double.NEGATIVE_INFINITY || val == Double.POSITIVE_INFINITY ) {
-                throw MondrianResource.instance().JavaDoubleOverflow.ex( rawRows.getMetaData().getColumnName(
-                    columnIndex + 1 ) );
-              }
-              axisValueSets[axisIndex].add( val );
-              processedRows.setDouble( columnIndex, val );
+              o = Double.parseDouble( o.toString() );
             }
-            break;
-          default:
-            throw Util.unexpected( type );
+          }
+          processedRows.setObject( columnIndex, o );
         }
-      }
 
-      // pre-compute which measures are numeric
-      final boolean[] numeric = new boolean[measureCount];
-      int k = 0;
-      for ( Segment segment : segments ) {
-        numeric[k++] = segment.measure.getDatatype().isNumeric();
+        if ( groupingSetsList.useGroupingSets() ) {
+          processedRows.setObject( columnIndex, getRollupBitKey( groupingSetsList.getRollupColumns().size(), batch,
+              row, columnIndex ) );
+        }
       }
 
-      // get the measure
-      for ( int i = 0; i < measureCount; i++, columnIndex++ ) {
+      // copy the measures that are read as primitives
+      for ( int columnIndex = arity; columnIndex < groupingColumnStartIndex; columnIndex++ ) {
         final SqlStatement.Type type = types.get( columnIndex );
-        switch ( type ) {
-          case OBJECT:
-          case STRING:
-            Object o = rawRows.getObject( columnIndex + 1 );
-            if ( o == null ) {
-              o = Util.nullValue; // convert to placeholder
-            } else if ( numeric[i] ) {
-              if ( o instanceof Double ) {
-                // nothing to do
-              } else if ( o instanceof BigDecimal ) {
-                // nothing to do // PDI-16761 if we cast it to double type we lose precision
-              } else if ( o instanceof Number ) {
-                o = ( (Number) o ).doubleValue();
-              } else if ( o instanceof byte[] ) {
-                // On MySQL 5.0 in German locale, values can come
-                // out as byte arrays. Don't know why. Bug 1594119.
-                o = Double.parseDouble( new String( (byte[]) o ) );
-              } else {
-                o = Double.parseDouble( o.toString() );
-              }
-            }
-            processedRows.setObject( columnIndex, o );
-            break;
-          case INT:
-            final int intValue = rawRows.getInt( columnIndex + 1 );
-            processedRows.setInt( columnIndex, intValue );
-            if ( intValue == 0 && rawRows.wasNull() ) {
-              processedRows.setNull( columnIndex, true );
-            }
-            break;
-          case LONG:
-            final long longValue = rawRows.getLong( columnIndex + 1 );
-            processedRows.setLong( columnIndex, longValue );
-            if ( longValue == 0 && rawRows.wasNull() ) {
-              processedRows.setNull( columnIndex, true );
-            }
-            break;
-          case DOUBLE:
-            final double doubleValue = rawRows.getDouble( columnIndex + 1 );
-            processedRows.setDouble( columnIndex, doubleValue );
-            if ( doubleValue == 0 && rawRows.wasNull() ) {
-              processedRows.setNull( columnIndex, true );
-            }
-            break;
-          case DECIMAL:
-            final BigDecimal decimal = rawRows.getBigDecimal( columnIndex + 1 );
-            if ( decimal == null && rawRows.wasNull() ) {
-              // processedRows.setDouble( columnIndex, 0 );
-              processedRows.setNull( columnIndex, true );
-            } else {
-              final double val = rawRows.getBigDecimal( columnIndex + 1 ).doubleValue();
-              if ( val == Double.NEGATIVE_INFINITY || val == Double.POSITIVE_INFINITY ) {
-                throw MondrianResource.instance().JavaDoubleOverflow.ex( rawRows.getMetaData().getColumnName(
-                    columnIndex + 1 ) );
-              }
-              processedRows.setDouble( columnIndex, val );
-            }
-            break;
-          default:
-            throw Util.unexpected( type );
+        if ( type != SqlStatement.Type.OBJECT && type != SqlStatement.Type.STRING ) {
+          processedRows.copyFrom( columnIndex, firstRow, batch, batchRowCount );
         }
       }
+    } while ( batchRowCount == batch.getCapacity() );
 
-      if ( groupingSetsList.useGroupingSets() ) {
-        processedRows.setObject( columnIndex, getRollupBitKey( groupingSetsList.getRollupColumns().size(), rawRows,
-            columnIndex ) );
+    // Each axis's distinct values are now in its dictionary; sort them once.
+    for ( int axisIndex = 0; axisIndex < arity; axisIndex++ ) {
+      for ( Object o : processedRows.getDictionary( axisIndex ) ) {
+        if ( o != RolapUtil.sqlNullValue ) {
+          axisValueSets[axisIndex].add( (Comparable) o );
+        }
       }
     }
     return processedRows;
@@ -706,34 +712,55 @@ public class SegmentLoader {
   }
 
   /**
-   * Generates bit key representing roll up columns
+   * Returns the bulk fetcher that reads the rows of a segment load.
    */
-  BitKey getRollupBitKey( int arity, ResultSet rowList, int k ) throws SQLException {
+  BulkFetcher getBulkFetcher( GroupingSetsList groupingSetsList ) {
+    final BulkFetcher fetcher = groupingSetsList.getStar().getSqlQueryDialect().getBulkFetcher();
+    return fetcher == null ? JdbcBulkFetcher.INSTANCE : fetcher;
+  }
+
+  /**
+   * Generates bit key representing roll up columns, from a row of a batch.
+   */
+  private BitKey getRollupBitKey( int arity, ColumnBatch batch, int row, int k ) {
     BitKey groupingBitKey = BitKey.Factory.makeBitKey( arity );
     for ( int i = 0; i < arity; i++ ) {
-      int o = rowList.getInt( k + i + 1 );
-      if ( o == 1 ) {
+      if ( batch.getInt( k + i, row ) == 1 ) {
         groupingBitKey.set( i );
       }
     }
     return groupingBitKey;
   }
 
-  private boolean isAggregateNull( ResultSet rowList, int groupingColumnStartIndex, GroupingSetsList groupingSetsList,
-      int axisIndex ) throws SQLException {
+  private boolean isAggregateNull( ColumnBatch batch, int row, int groupingColumnStartIndex,
+      GroupingSetsList groupingSetsList, int axisIndex ) {
     int groupingFunctionIndex = groupingSetsList.findGroupingFunctionIndex( axisIndex );
     if ( groupingFunctionIndex == -1 ) {
       // Not a rollup column
       return false;
     }
-    return rowList.getInt( groupingColumnStartIndex + groupingFunctionIndex + 1 ) == 1;
+    return batch.getInt( groupingColumnStartIndex + groupingFunctionIndex, row ) == 1;
+  }
+
+  /**
+   * Generates bit key representing roll up columns
+   */
+  BitKey getRollupBitKey( int arity, ResultSet rowList, int k ) throws SQLException {
+    BitKey groupingBitKey = BitKey.Factory.makeBitKey( arity );
+    for ( int i = 0; i < arity; i++ ) {
+      int o = rowList.getInt( k + i + 1 );
+      if ( o == 1 ) {
+        groupingBitKey.set( i );
+      }
+    }
+    return groupingBitKey;
   }
 
-  ResultSet loadData( SqlStatement stmt, GroupingSetsList groupingSetsList ) throws SQLException {
+  ResultSet loadData( SqlStatement stmt, GroupingSetsList groupingSetsList, List<SqlStatement.Type> types )
+      throws SQLException {
     int arity = groupingSetsList.getDefaultColumns().length;
     int measureCount = groupingSetsList.getDefaultSegments().size();
     int groupingFunctionsCount = groupingSetsList.getRollupColumns().size();
-    List<SqlStatement.Type> types = stmt.guessTypes();
     assert arity + measureCount + groupingFunctionsCount == types.size();
 
     return stmt.getResultSet();
@@ -811,6 +838,9 @@ public class SegmentLoader {
 
   /**
    * Collection of rows, each with a set of columns of type Object, double, or int. Native types are not boxed.
+   *
+   * <p>Leading columns may be dictionary-encoded: each distinct value is stored once, and each row holds the
+   * {@code int} ordinal of its value.
    */
   protected static class RowList {
     private final Column[] columns;
@@ -837,13 +867,44 @@ public class SegmentLoader {
      *          Initial capacity
      */
     RowList( List<SqlStatement.Type> types, int capacity ) {
+      this( types, capacity, 0 );
+    }
+
+    /**
+     * Creates a RowList with a specified initial capacity, whose first few columns are dictionary-encoded.
+     *
+     * @param types
+     *          Column types
+     * @param capacity
+     *          Initial capacity
+     * @param dictionaryColumnCount
+     *          Number of leading columns to encode using a dictionary
+     */
+    RowList( List<SqlStatement.Type> types, int capacity, int dictionaryColumnCount ) {
       this.columns = new Column[types.size()];
       this.capacity = capacity;
       for ( int i = 0; i < columns.length; i++ ) {
-        columns[i] = Column.forType( i, types.get( i ), capacity );
+        columns[i] =
+            i < dictionaryColumnCount
+                ? new DictionaryColumn( i, types.get( i ), capacity )
+                : Column.forType( i, types.get( i ), capacity );
       }
     }
 
+    /**
+     * Creates a RowList that shares the rows of another but has its own cursor, positioned before the first row.
+     *
+     * <p>The rows must not be modified while the RowList is in use.
+     *
+     * @param rowList
+     *          Row list
+     */
+    RowList( RowList rowList ) {
+      this.columns = rowList.columns;
+      this.rowCount = rowList.rowCount;
+      this.capacity = rowList.capacity;
+    }
+
     void createRow() {
       currentRow = rowCount++;
       if ( rowCount > capacity ) {
@@ -956,10 +1017,47 @@ public class SegmentLoader {
       return columns[columnIndex].isNull( currentRow );
     }
 
+    /**
+     * Returns the ordinal, in its column's dictionary, of the value in the given dictionary-encoded column of the
+     * current row.
+     *
+     * @param columnIndex
+     *          Column index
+     * @return Ordinal of the value
+     */
+    public int getOrdinal( int columnIndex ) {
+      return ( (DictionaryColumn) columns[columnIndex] ).getOrdinal( currentRow );
+    }
+
+    /**
+     * Returns the distinct values of a dictionary-encoded column, in order of first occurrence. A value's position
+     * in the list is its ordinal.
+     *
+     * @param columnIndex
+     *          Column index
+     * @return Distinct values
+     */
+    public List<Object> getDictionary( int columnIndex ) {
+      return Collections.unmodifiableList( ( (DictionaryColumn) columns[columnIndex] ).values );
+    }
+
     public void setNull( int columnIndex, boolean b ) {
       columns[columnIndex].setNull( currentRow, b );
     }
 
+    /**
+     * Copies the values of a column of a batch into this list, starting at a given row. The rows must exist.
+     *
+     * @param column   Column ordinal, in this list and in the batch
+     * @param firstRow Row of this list that receives the first row of the batch
+     * @param batch    Batch
+     * @param count    Number of rows to copy
+     */
+    void copyFrom( int column, int firstRow, ColumnBatch batch, int count ) {
+      assert firstRow + count <= rowCount;
+      columns[column].copyFrom( firstRow, batch, column, count );
+    }
+
     static abstract class Column {
       final int ordinal;
       final SqlStatement.Type type;
@@ -1010,6 +1108,10 @@ public class SegmentLoader {
 
       public abstract void populateFrom( int row, ResultSet resultSet ) throws SQLException;
 
+      public void copyFrom( int row, ColumnBatch batch, int column, int count ) {
+        throw new UnsupportedOperationException();
+      }
+
       public Object getObject( int row ) {
         throw new UnsupportedOperationException();
       }
@@ -1060,6 +1162,51 @@ public class SegmentLoader {
       }
     }
 
+    static class DictionaryColumn extends Column {
+      private int[] ordinals;
+      private final List<Object> values = new ArrayList<Object>();
+      private final Map<Object, Integer> valueOrdinals = new HashMap<Object, Integer>();
+
+      DictionaryColumn( int ordinal, SqlStatement.Type type, int size ) {
+        super( ordinal, type );
+        ordinals = new int[size];
+      }
+
+      protected int getCapacity() {
+        return ordinals.length;
+      }
+
+      public boolean isNull( int row ) {
+        return values.get( ordinals[row] ) == null;
+      }
+
+      public void resize( int newSize ) {
+        ordinals = Util.copyOf( ordinals, newSize );
+      }
+
+      public void populateFrom( int row, ResultSet resultSet ) throws SQLException {
+        setObject( row, resultSet.getObject( ordinal + 1 ) );
+      }
+
+      public void setObject( int row, Object value ) {
+        Integer valueOrdinal = valueOrdinals.get( value );
+        if ( valueOrdinal == null ) {
+          valueOrdinal = values.size();
+          values.add( value );
+          valueOrdinals.put( value, valueOrdinal );
+        }
+        ordinals[row] = valueOrdinal;
+      }
+
+      public Object getObject( int row ) {
+        return values.get( ordinals[row] );
+      }
+
+      int getOrdinal( int row ) {
+        return ordinals[row];
+      }
+    }
+
     static abstract class NativeColumn extends Column {
       protected BitSet nullIndicators;
 
@@ -1077,6 +1224,16 @@ public class SegmentLoader {
         }
         return nullIndicators;
       }
+
+      /**
+       * Sets the null indicators of rows copied from a batch.
+       */
+      protected void copyNulls( int row, ColumnBatch batch, int column, int count ) {
+        final BitSet nulls = batch.getNulls( column );
+        for ( int i = nulls.nextSetBit( 0 ); i >= 0 && i < count; i = nulls.nextSetBit( i + 1 ) ) {
+          getNullIndicators().set( row + i );
+        }
+      }
     }
 
     static class IntColumn extends NativeColumn {
@@ -1091,6 +1248,11 @@ public class SegmentLoader {
         ints = Util.copyOf( ints, newSize );
       }
 
+      public void copyFrom( int row, ColumnBatch batch, int column, int count ) {
+        System.arraycopy( batch.getInts( column ), 0, ints, row, count );
+        copyNulls( row, batch, column, count );
+      }
+
       public void populateFrom( int row, ResultSet resultSet ) throws SQLException {
         int i = ints[row] = resultSet.getInt( ordinal + 1 );
         if ( i == 0 ) {
@@ -1131,6 +1293,11 @@ public class SegmentLoader {
         longs = Util.copyOf( longs, newSize );
       }
 
+      public void copyFrom( int row, ColumnBatch batch, int column, int count ) {
+        System.arraycopy( batch.getLongs( column ), 0, longs, row, count );
+        copyNulls( row, batch, column, count );
+      }
+
       public void populateFrom( int row, ResultSet resultSet ) throws SQLException {
         long i = longs[row] = resultSet.getLong( ordinal + 1 );
         if ( i == 0 ) {
@@ -1171,6 +1338,11 @@ public class SegmentLoader {
         doubles = Util.copyOf( doubles, newSize );
       }
 
+      public void copyFrom( int row, ColumnBatch batch, int column, int count ) {
+        System.arraycopy( batch.getDoubles( column ), 0, doubles, row, count );
+        copyNulls( row, batch, column, count );
+      }
+
       public void populateFrom( int row, ResultSet resultSet ) throws SQLException {
         double d = doubles[row] = resultSet.getDouble( ordinal + 1 );
         if ( d == 0d ) {
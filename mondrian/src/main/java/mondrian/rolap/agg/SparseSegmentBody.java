@@ -24,7 +24,7 @@ import java.util.*;
  *
  * @author LBoudreau
  */
-class SparseSegmentBody extends AbstractSegmentBody {
+public class SparseSegmentBody extends AbstractSegmentBody {
     private static final long serialVersionUID = -6684830985364895836L;
     final CellKey[] keys;
     final Object[] data;
@@ -45,11 +45,44 @@ class SparseSegmentBody extends AbstractSegmentBody {
         }
     }
 
+    /**
+     * Creates a SparseSegmentBody from a cell map, without creating an
+     * intermediate map.
+     *
+     * @param dataToSave Values of cells
+     * @param axes Axes
+     */
+    SparseSegmentBody(
+        CellMap dataToSave,
+        List<Pair<SortedSet<Comparable>, Boolean>> axes)
+    {
+        super(axes);
+
+        this.keys = new CellKey[dataToSave.size()];
+        this.data = new Object[dataToSave.size()];
+        int i = 0;
+        for (CellMap.Cursor cursor = dataToSave.cursor(); cursor.next();) {
+            keys[i] = cursor.getKey();
+            data[i] = cursor.getValue();
+            ++i;
+        }
+    }
+
     @Override
     protected int getSize() {
         return keys.length;
     }
 
+    /**
+     * Returns the number of cells that have a value. Unlike
+     * {@link #getValueMap()}, does not copy the cells.
+     *
+     * @return Number of cells
+     */
+    public int getCellCount() {
+        return keys.length;
+    }
+
     @Override
     protected Object getObject(int i) {
         throw new UnsupportedOperationException();
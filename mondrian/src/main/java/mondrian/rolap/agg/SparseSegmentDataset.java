@@ -24,10 +24,10 @@ import java.util.*;
  * A <code>SparseSegmentDataset</code> is a means of storing segment values
  * which is suitable when few of the combinations of keys have a value present.
  *
- * <p>The storage requirements are as follows. Key is 1 word for each
- * dimension. Hashtable entry is 3 words. Value is 1 word. Total space is (4 +
- * d) * v. (May also need hash table to ensure that values are only stored
- * once.)</p>
+ * <p>Values are held in a {@link CellMap}, which stores the coordinates of
+ * each cell packed into a {@code long}, so the storage requirement is about
+ * 2 words per cell for the key and 1 or 2 words for the value, with no
+ * per-cell objects while all values are doubles.</p>
  *
  * <p>NOTE: This class is not synchronized.</p>
  *
@@ -35,24 +35,37 @@ import java.util.*;
  * @since 21 March, 2002
  */
 class SparseSegmentDataset implements SegmentDataset {
-    private final Map<CellKey, Object> values;
+    private final CellMap values;
 
     /**
      * Creates an empty SparseSegmentDataset.
+     *
+     * @param axes Segment axes
      */
-    SparseSegmentDataset() {
-        this(new HashMap<CellKey, Object>());
+    SparseSegmentDataset(SegmentAxis[] axes) {
+        this.values = new CellMap(axisSizes(axes));
     }
 
     /**
-     * Creates a SparseSegmentDataset with a given value map. The map is not
-     * copied; a reference to the map is retained inside the dataset, and
-     * therefore the contents of the dataset will change if the map is modified.
+     * Creates a SparseSegmentDataset containing the values of a segment
+     * body.
      *
-     * @param values Value map
+     * @param axes Segment axes
+     * @param body Segment body
      */
-    SparseSegmentDataset(Map<CellKey, Object> values) {
-        this.values = values;
+    SparseSegmentDataset(SegmentAxis[] axes, SparseSegmentBody body) {
+        this.values = new CellMap(axisSizes(axes), body.keys.length);
+        for (int i = 0; i < body.keys.length; i++) {
+            values.put(body.keys[i], body.data[i]);
+        }
+    }
+
+    private static int[] axisSizes(SegmentAxis[] axes) {
+        final int[] axisSizes = new int[axes.length];
+        for (int i = 0; i < axes.length; i++) {
+            axisSizes[i] = axes[i].getKeys().length;
+        }
+        return axisSizes;
     }
 
     public Object getObject(CellKey pos) {
@@ -81,23 +94,21 @@ class SparseSegmentDataset implements SegmentDataset {
     }
 
     public Iterator<Map.Entry<CellKey, Object>> iterator() {
-        return values.entrySet().iterator();
+        return values.iterator();
     }
 
     public double getBytes() {
-        // assume a slot, key, and value are each 4 bytes
-        return values.size() * 12;
+        return values.getBytes();
     }
 
     public void populateFrom(int[] pos, SegmentDataset data, CellKey key) {
-        values.put(CellKey.Generator.newCellKey(pos), data.getObject(key));
+        values.put(pos, data.getObject(key));
     }
 
     public void populateFrom(
         int[] pos, SegmentLoader.RowList rowList, int column)
     {
-        final Object o = rowList.getObject(column);
-        put(CellKey.Generator.newCellKey(pos), o);
+        values.put(pos, rowList.getObject(column));
     }
 
     public SqlStatement.Type getType() {
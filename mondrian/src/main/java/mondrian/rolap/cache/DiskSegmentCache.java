@@ -0,0 +1,468 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.cache;
+
+import mondrian.rolap.agg.SegmentCodec;
+import mondrian.rolap.agg.SegmentDecoder;
+import mondrian.rolap.agg.SegmentEncoder;
+import mondrian.spi.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of {@link mondrian.spi.SegmentCache} that stores segments
+ * in files in a local directory, so that they survive a restart of the JVM.
+ *
+ * <p>Each segment is stored in its own file, named after the
+ * {@link SegmentHeader#getUniqueID() unique ID} of its header. A file holds
+ * the header followed by the body, both in the binary format of
+ * {@link SegmentCodec}. Files are read through memory mapping, so a body is
+ * decoded straight from the page cache without intermediate copies.</p>
+ *
+ * <p>When the cache is created, it reads the header of every file in the
+ * directory, but not the bodies, to rebuild its index. Files that are
+ * corrupt or were written in a different version of the format are
+ * deleted.</p>
+ *
+ * <p>If a maximum size is given, the cache deletes the least recently used
+ * files when the total size of its files would exceed it. It also deletes
+ * files that it cannot read. For each of these deletions, it fires an
+ * {@link SegmentCacheListener.SegmentCacheEvent.EventType#ENTRY_DELETED}
+ * event that is not
+ * {@link SegmentCacheListener.SegmentCacheEvent#isLocal() local}, because
+ * Mondrian did not ask for the segment to be removed; the cache manager
+ * needs to hear about them to keep its segment index consistent.</p>
+ *
+ * <p>If a segment cannot be written, {@link #put} returns false.</p>
+ *
+ * @see mondrian.olap.MondrianProperties#DiskSegmentCacheDirectory
+ * @see mondrian.olap.MondrianProperties#DiskSegmentCacheMaxSize
+ */
+public class DiskSegmentCache implements SegmentCache {
+    private static final Logger LOGGER =
+        LogManager.getLogger(DiskSegmentCache.class);
+
+    /** First four bytes of every segment file: "MSEG". */
+    private static final int MAGIC = 0x4D534547;
+    private static final String SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Use a thread-safe map because the SegmentCache
+    // interface requires thread safety.
+    private final Map<SegmentHeader, Entry> map =
+        new ConcurrentHashMap<SegmentHeader, Entry>();
+    private final List<SegmentCacheListener> listeners =
+        new CopyOnWriteArrayList<SegmentCacheListener>();
+    private final File directory;
+    private final long maxBytes;
+
+    /** Logical clock; ticks on every access. */
+    private final AtomicLong clock = new AtomicLong();
+
+    /** Total size of all files in the cache. Guarded by this. */
+    private long totalBytes;
+
+    /**
+     * Creates a DiskSegmentCache, and loads the headers of segments
+     * already in the directory.
+     *
+     * @param directory Directory to hold segment files; created if it does
+     *     not exist
+     * @param maxBytes Maximum total size of segment files, in bytes; zero or
+     *     negative means no limit
+     */
+    public DiskSegmentCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.warn(
+                "Could not create segment cache directory " + directory);
+        }
+        loadIndex();
+    }
+
+    /**
+     * Reads the header of each segment file in the directory.
+     *
+     * <p>Files are visited oldest first, so that the least recently used
+     * order survives a restart.</p>
+     */
+    private void loadIndex() {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(
+            files,
+            new Comparator<File>() {
+                public int compare(File o1, File o2) {
+                    return Long.compare(o1.lastModified(), o2.lastModified());
+                }
+            });
+        for (File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // Left behind by a write that did not complete.
+                delete(file);
+            } else if (name.endsWith(SUFFIX)) {
+                final SegmentHeader header;
+                try {
+                    header = readHeader(file);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Discarding unreadable segment " + file, e);
+                    delete(file);
+                    continue;
+                }
+                if (header == null) {
+                    // Written by a different version of the format.
+                    delete(file);
+                    continue;
+                }
+                map.put(
+                    header,
+                    new Entry(file, file.length(), clock.incrementAndGet()));
+                totalBytes += file.length();
+            }
+        }
+        LOGGER.debug(
+            "Loaded " + map.size() + " segments (" + totalBytes
+            + " bytes) from " + directory);
+    }
+
+    public SegmentBody get(SegmentHeader header) {
+        final Entry entry = map.get(header);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            final ByteBuffer buffer = map(entry.file);
+            if (!readPreamble(buffer)) {
+                throw new IOException("Bad preamble");
+            }
+            final int headerLength = buffer.getInt();
+            buffer.position(buffer.position() + headerLength);
+            final SegmentBody body = new SegmentDecoder(buffer).readBody();
+            entry.lastAccess = clock.incrementAndGet();
+            // Preserve the order of use across restarts.
+            //noinspection ResultOfMethodCallIgnored
+            entry.file.setLastModified(System.currentTimeMillis());
+            return body;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not read segment from " + entry.file, e);
+            discard(header, entry);
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether this cache holds a segment, without reading it.
+     *
+     * @param header Segment header
+     * @return Whether the segment is in this cache
+     */
+    public boolean contains(SegmentHeader header) {
+        return map.containsKey(header);
+    }
+
+    public List<SegmentHeader> getSegmentHeaders() {
+        return new ArrayList<SegmentHeader>(map.keySet());
+    }
+
+    public boolean put(final SegmentHeader header, SegmentBody body) {
+        assert header != null;
+        assert body != null;
+        final File file =
+            new File(directory, header.getUniqueID().toString() + SUFFIX);
+        final File tempFile =
+            new File(
+                directory,
+                header.getUniqueID().toString() + '.'
+                + Thread.currentThread().getId() + TEMP_SUFFIX);
+        final long bytes;
+        try {
+            bytes = write(tempFile, header, body);
+            Files.move(
+                tempFile.toPath(),
+                file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The segment is still usable from faster tiers; failing to
+            // persist it must not fail the query.
+            LOGGER.warn("Could not write segment to " + file, e);
+            delete(tempFile);
+            return false;
+        }
+        final List<SegmentHeader> evicted;
+        synchronized (this) {
+            final Entry previous =
+                map.put(
+                    header,
+                    new Entry(file, bytes, clock.incrementAndGet()));
+            if (previous != null) {
+                totalBytes -= previous.bytes;
+            }
+            totalBytes += bytes;
+            evicted = evict(header);
+        }
+        fireSegmentCacheEvent(
+            header,
+            true,
+            SegmentCacheListener.SegmentCacheEvent.EventType.ENTRY_CREATED);
+        for (SegmentHeader evictedHeader : evicted) {
+            fireSegmentCacheEvent(
+                evictedHeader,
+                false,
+                SegmentCacheListener.SegmentCacheEvent.EventType
+                    .ENTRY_DELETED);
+        }
+        return true;
+    }
+
+    public boolean remove(final SegmentHeader header) {
+        final Entry entry;
+        synchronized (this) {
+            entry = map.remove(header);
+            if (entry == null) {
+                return false;
+            }
+            totalBytes -= entry.bytes;
+            delete(entry.file);
+        }
+        fireSegmentCacheEvent(
+            header,
+            true,
+            SegmentCacheListener.SegmentCacheEvent.EventType.ENTRY_DELETED);
+        return true;
+    }
+
+    /**
+     * Returns the total size of the segment files in this cache.
+     *
+     * @return Size in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void tearDown() {
+        // Leave the files in place; that is the point of this cache.
+        map.clear();
+        listeners.clear();
+    }
+
+    public void addListener(SegmentCacheListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SegmentCacheListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean supportsRichIndex() {
+        return true;
+    }
+
+    /**
+     * Deletes least recently used files until the cache is within its
+     * size limit. Never deletes the segment that has just been written.
+     * Caller must hold the lock, and must fire events for the deleted
+     * segments after releasing it.
+     *
+     * @param justWritten Header of segment just written
+     * @return Headers of the segments deleted
+     */
+    private List<SegmentHeader> evict(SegmentHeader justWritten) {
+        if (maxBytes <= 0 || totalBytes <= maxBytes) {
+            return Collections.emptyList();
+        }
+        final List<SegmentHeader> evicted = new ArrayList<SegmentHeader>();
+        final List<Map.Entry<SegmentHeader, Entry>> entries =
+            new ArrayList<Map.Entry<SegmentHeader, Entry>>(map.entrySet());
+        Collections.sort(
+            entries,
+            new Comparator<Map.Entry<SegmentHeader, Entry>>() {
+                public int compare(
+                    Map.Entry<SegmentHeader, Entry> o1,
+                    Map.Entry<SegmentHeader, Entry> o2)
+                {
+                    return Long.compare(
+                        o1.getValue().lastAccess, o2.getValue().lastAccess);
+                }
+            });
+        for (Map.Entry<SegmentHeader, Entry> e : entries) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            if (e.getKey().equals(justWritten)) {
+                continue;
+            }
+            map.remove(e.getKey());
+            totalBytes -= e.getValue().bytes;
+            delete(e.getValue().file);
+            evicted.add(e.getKey());
+        }
+        return evicted;
+    }
+
+    /**
+     * Deletes the file of a segment that could not be read, and tells the
+     * listeners that the segment is gone.
+     */
+    private void discard(SegmentHeader header, Entry entry) {
+        final boolean removed;
+        synchronized (this) {
+            removed = map.remove(header) != null;
+            if (removed) {
+                totalBytes -= entry.bytes;
+            }
+            delete(entry.file);
+        }
+        if (removed) {
+            fireSegmentCacheEvent(
+                header,
+                false,
+                SegmentCacheListener.SegmentCacheEvent.EventType
+                    .ENTRY_DELETED);
+        }
+    }
+
+    /**
+     * Writes a segment to a file.
+     *
+     * @return Number of bytes written
+     */
+    private static long write(
+        File file,
+        SegmentHeader header,
+        SegmentBody body)
+        throws IOException
+    {
+        final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        new SegmentEncoder(headerBytes).writeHeader(header);
+
+        final DataOutputStream out =
+            new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 65536));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(SegmentCodec.VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            new SegmentEncoder(out).writeBody(body);
+        } finally {
+            out.close();
+        }
+        return file.length();
+    }
+
+    /**
+     * Reads the header of a segment file.
+     *
+     * @return Header, or null if the file was written in a different version
+     * of the format
+     */
+    private static SegmentHeader readHeader(File file) throws IOException {
+        final ByteBuffer buffer = map(file);
+        if (!readPreamble(buffer)) {
+            return null;
+        }
+        final int headerLength = buffer.getInt();
+        final ByteBuffer headerBuffer = buffer.slice();
+        headerBuffer.limit(headerLength);
+        return new SegmentDecoder(headerBuffer).readHeader();
+    }
+
+    /**
+     * Reads the magic number and version from the start of a file.
+     *
+     * @return Whether the file is a segment file of the current version
+     */
+    private static boolean readPreamble(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a segment file");
+        }
+        return buffer.getInt() == SegmentCodec.VERSION;
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        final FileChannel channel =
+            FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void delete(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete segment file " + file, e);
+        }
+    }
+
+    private void fireSegmentCacheEvent(
+        final SegmentHeader header,
+        final boolean local,
+        final SegmentCacheListener.SegmentCacheEvent.EventType eventType)
+    {
+        final SegmentCacheListener.SegmentCacheEvent event =
+            new SegmentCacheListener.SegmentCacheEvent() {
+                public boolean isLocal() {
+                    return local;
+                }
+
+                public SegmentHeader getSource() {
+                    return header;
+                }
+
+                public EventType getEventType() {
+                    return eventType;
+                }
+            };
+        for (SegmentCacheListener listener : listeners) {
+            listener.handle(event);
+        }
+    }
+
+    /**
+     * Location and bookkeeping for a segment file.
+     */
+    private static class Entry {
+        final File file;
+        final long bytes;
+        volatile long lastAccess;
+
+        Entry(File file, long bytes, long lastAccess) {
+            this.file = file;
+            this.bytes = bytes;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
+
+// End DiskSegmentCache.java
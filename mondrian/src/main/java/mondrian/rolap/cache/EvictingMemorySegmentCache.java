@@ -0,0 +1,490 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package mondrian.rolap.cache;
+
+import mondrian.rolap.agg.OffHeapSegmentBody;
+import mondrian.rolap.agg.SparseSegmentBody;
+import mondrian.spi.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Implementation of {@link mondrian.spi.SegmentCache} that stores segments
+ * in memory, within a fixed budget of bytes.
+ *
+ * <p>Unlike {@link MemorySegmentCache}, which holds bodies via soft
+ * references and lets the garbage collector decide what to discard, this
+ * cache estimates the size of each body (see {@link #estimateSize}) and, as
+ * soon as the total would exceed the budget, evicts segments in the order
+ * given by its {@link EvictionPolicy}.</p>
+ *
+ * <p>Entries are kept in the order in which the policy would evict them, so
+ * that making room does not require sorting the cache: under
+ * {@link EvictionPolicy#LRU} the map itself is in access order; under the
+ * other policies a sorted set is updated whenever an entry's statistics
+ * change. All access is synchronized on the cache.</p>
+ *
+ * <p>Evictions are announced to listeners as
+ * {@link SegmentCacheListener.SegmentCacheEvent.EventType#ENTRY_DELETED}
+ * events. Those events are not
+ * {@link SegmentCacheListener.SegmentCacheEvent#isLocal() local}, because
+ * Mondrian did not ask for the segment to be removed; the cache manager
+ * needs to hear about them to keep its segment index consistent.</p>
+ *
+ * @see mondrian.olap.MondrianProperties#LocalSegmentCacheMaxMemory
+ * @see mondrian.olap.MondrianProperties#LocalSegmentCacheEvictionPolicy
+ */
+public class EvictingMemorySegmentCache implements SegmentCache {
+    private static final Logger LOGGER =
+        LogManager.getLogger(EvictingMemorySegmentCache.class);
+
+    // Rough sizes, in bytes, used to estimate the footprint of a body. They
+    // assume a 64-bit JVM with compressed references.
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int BOXED_VALUE_SIZE = 16;
+    private static final int AXIS_VALUE_SIZE = 40 + BOXED_VALUE_SIZE;
+    private static final int SPARSE_ENTRY_SIZE =
+        48 + OBJECT_OVERHEAD + BOXED_VALUE_SIZE;
+
+    /**
+     * Entries by header. Under {@link EvictionPolicy#LRU}, iterates in
+     * access order, least recently used first. Guarded by this.
+     */
+    private final Map<SegmentHeader, Entry> map;
+
+    /**
+     * Entries in the order of the policy's comparator, first to be evicted
+     * first; null under {@link EvictionPolicy#LRU}. An entry's statistics
+     * are only changed while it is out of the set. Guarded by this.
+     */
+    private final NavigableSet<Entry> queue;
+
+    private final List<SegmentCacheListener> listeners =
+        new CopyOnWriteArrayList<SegmentCacheListener>();
+    private final long maxBytes;
+    private final EvictionPolicy policy;
+
+    /** Logical clock; ticks on every access. Guarded by this. */
+    private long clock;
+
+    /** Estimated size of all bodies in the cache. Guarded by this. */
+    private long totalBytes;
+
+    /**
+     * Priority of the last entry evicted under the
+     * {@link EvictionPolicy#COST} policy. New priorities are computed
+     * relative to it, which ages entries that are no longer used. Guarded
+     * by this.
+     */
+    private double inflation;
+
+    /**
+     * Creates an EvictingMemorySegmentCache.
+     *
+     * @param maxBytes Maximum estimated size of all segment bodies, in bytes
+     * @param policy Policy that decides which segments to evict first
+     */
+    public EvictingMemorySegmentCache(long maxBytes, EvictionPolicy policy) {
+        assert maxBytes > 0;
+        assert policy != null;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        if (policy.comparator == null) {
+            this.map = new LinkedHashMap<SegmentHeader, Entry>(16, 0.75f, true);
+            this.queue = null;
+        } else {
+            this.map = new HashMap<SegmentHeader, Entry>();
+            this.queue = new TreeSet<Entry>(policy.comparator);
+        }
+    }
+
+    public synchronized SegmentBody get(SegmentHeader header) {
+        final Entry entry = map.get(header);
+        if (entry == null) {
+            return null;
+        }
+        touch(entry);
+        return entry.body;
+    }
+
+    public synchronized boolean contains(SegmentHeader header) {
+        return map.containsKey(header);
+    }
+
+    public synchronized List<SegmentHeader> getSegmentHeaders() {
+        return new ArrayList<SegmentHeader>(map.keySet());
+    }
+
+    public boolean put(final SegmentHeader header, SegmentBody body) {
+        assert header != null;
+        assert body != null;
+        final long bytes = estimateSize(body);
+        if (bytes > maxBytes) {
+            // Caching it would mean evicting everything else, and it
+            // still would not fit.
+            LOGGER.debug(
+                "Segment too large for local cache ("
+                + bytes + " bytes, limit " + maxBytes + "): " + header);
+            return false;
+        }
+        final List<SegmentHeader> evicted;
+        synchronized (this) {
+            removeEntry(header);
+            evicted = evict(bytes);
+            final Entry entry = new Entry(header, body, bytes);
+            map.put(header, entry);
+            touch(entry);
+            totalBytes += bytes;
+        }
+        fireSegmentCacheEvent(
+            new Event(
+                header, true,
+                SegmentCacheListener.SegmentCacheEvent.EventType
+                    .ENTRY_CREATED));
+        for (SegmentHeader evictedHeader : evicted) {
+            fireSegmentCacheEvent(
+                new Event(
+                    evictedHeader, false,
+                    SegmentCacheListener.SegmentCacheEvent.EventType
+                        .ENTRY_DELETED));
+        }
+        return true; // success
+    }
+
+    public boolean remove(final SegmentHeader header) {
+        final boolean result;
+        synchronized (this) {
+            result = removeEntry(header) != null;
+        }
+        if (result) {
+            fireSegmentCacheEvent(
+                new Event(
+                    header, true,
+                    SegmentCacheListener.SegmentCacheEvent.EventType
+                        .ENTRY_DELETED));
+        }
+        return result;
+    }
+
+    /**
+     * Records how long it took to load a segment from the database. Under the
+     * {@link EvictionPolicy#COST} policy, segments that were expensive to
+     * load are kept in preference to cheap ones of the same size.
+     *
+     * <p>Does nothing if the segment is not in the cache.</p>
+     *
+     * @param header Segment header
+     * @param loadMillis Time taken to load the segment, in milliseconds
+     */
+    public synchronized void recordLoadCost(
+        SegmentHeader header,
+        long loadMillis)
+    {
+        final Entry entry = map.get(header);
+        if (entry != null) {
+            if (queue != null) {
+                queue.remove(entry);
+            }
+            entry.loadMillis = loadMillis;
+            entry.prioritize(inflation);
+            if (queue != null) {
+                queue.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated size of all segment bodies in this cache.
+     *
+     * @return Size in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void tearDown() {
+        synchronized (this) {
+            map.clear();
+            if (queue != null) {
+                queue.clear();
+            }
+            totalBytes = 0;
+        }
+        listeners.clear();
+    }
+
+    public void addListener(SegmentCacheListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SegmentCacheListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean supportsRichIndex() {
+        return true;
+    }
+
+    public void fireSegmentCacheEvent(
+        SegmentCache.SegmentCacheListener.SegmentCacheEvent evt)
+    {
+        for (SegmentCacheListener listener : listeners) {
+            listener.handle(evt);
+        }
+    }
+
+    /**
+     * Records an access to an entry, and moves it to its new place in
+     * policy order. Must be called while holding the lock.
+     */
+    private void touch(Entry entry) {
+        if (queue != null) {
+            queue.remove(entry);
+        }
+        entry.touch(++clock, inflation);
+        if (queue != null) {
+            queue.add(entry);
+        }
+    }
+
+    /**
+     * Removes an entry, if present. Must be called while holding the lock.
+     *
+     * @param header Segment header
+     * @return Removed entry, or null
+     */
+    private Entry removeEntry(SegmentHeader header) {
+        final Entry entry = map.remove(header);
+        if (entry != null) {
+            if (queue != null) {
+                queue.remove(entry);
+            }
+            totalBytes -= entry.bytes;
+        }
+        return entry;
+    }
+
+    /**
+     * Removes entries, in policy order, until there is room for a body of
+     * the given size. Must be called while holding the lock.
+     *
+     * <p>Entries are already in policy order, so this takes time
+     * proportional to the number of entries evicted.</p>
+     *
+     * @param required Size of the body about to be added
+     * @return Headers of the evicted segments
+     */
+    private List<SegmentHeader> evict(long required) {
+        if (totalBytes + required <= maxBytes) {
+            return Collections.emptyList();
+        }
+        final List<SegmentHeader> evicted = new ArrayList<SegmentHeader>();
+        final Iterator<Entry> iterator =
+            queue == null ? map.values().iterator() : queue.iterator();
+        while (totalBytes + required > maxBytes && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            if (queue != null) {
+                map.remove(entry.header);
+            }
+            totalBytes -= entry.bytes;
+            evicted.add(entry.header);
+            if (policy == EvictionPolicy.COST) {
+                inflation = Math.max(inflation, entry.priority);
+            }
+        }
+        LOGGER.debug(
+            "Evicted " + evicted.size() + " segment(s) from local cache; "
+            + totalBytes + " of " + maxBytes + " bytes in use");
+        return evicted;
+    }
+
+    /**
+     * Estimates the number of bytes of memory used by a segment body.
+     *
+     * <p>The estimate covers the value array (or the cell map of a sparse
+     * body), the null indicators and the axis value sets. It is only as
+     * accurate as an eviction budget needs it to be. The direct buffers of
+     * an {@link OffHeapSegmentBody} count towards the budget, even though
+     * they are not on the heap.</p>
+     *
+     * @param body Segment body
+     * @return Estimated size in bytes
+     */
+    static long estimateSize(SegmentBody body) {
+        long size = OBJECT_OVERHEAD;
+        final SortedSet<Comparable>[] axisValueSets = body.getAxisValueSets();
+        if (axisValueSets != null) {
+            for (SortedSet<Comparable> axisValueSet : axisValueSets) {
+                size += OBJECT_OVERHEAD
+                    + (long) axisValueSet.size() * AXIS_VALUE_SIZE;
+            }
+        }
+        if (body instanceof OffHeapSegmentBody) {
+            // Don't call getValueArray; it would copy the buffer onto the
+            // heap.
+            return size + ((OffHeapSegmentBody) body).getOffHeapBytes();
+        }
+        Object values;
+        try {
+            values = body.getValueArray();
+        } catch (UnsupportedOperationException e) {
+            // Sparse body.
+            values = null;
+        }
+        if (values instanceof double[]) {
+            size += OBJECT_OVERHEAD + 8L * ((double[]) values).length;
+        } else if (values instanceof int[]) {
+            size += OBJECT_OVERHEAD + 4L * ((int[]) values).length;
+        } else if (values instanceof Object[]) {
+            size += OBJECT_OVERHEAD
+                + (long) ((Object[]) values).length
+                * (REFERENCE_SIZE + BOXED_VALUE_SIZE);
+        } else if (body instanceof SparseSegmentBody) {
+            // Don't call getValueMap; it would copy the cells into a new
+            // map.
+            size += (long) ((SparseSegmentBody) body).getCellCount()
+                * SPARSE_ENTRY_SIZE;
+        } else if (values == null) {
+            size += (long) body.getValueMap().size() * SPARSE_ENTRY_SIZE;
+        }
+        try {
+            final BitSet nullIndicators = body.getNullValueIndicators();
+            if (nullIndicators != null) {
+                size += OBJECT_OVERHEAD + nullIndicators.size() / 8;
+            }
+        } catch (UnsupportedOperationException e) {
+            // Body does not hold native values.
+        }
+        return size;
+    }
+
+    /**
+     * Policy that decides which segments to evict first when the cache is
+     * full.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evicts the least recently used segment first. Has no comparator,
+         * because the cache's map is kept in access order.
+         */
+        LRU(null),
+
+        /**
+         * Evicts the least frequently used segment first. Ties are broken
+         * by recency.
+         */
+        LFU(
+            new Comparator<Entry>() {
+                public int compare(Entry o1, Entry o2) {
+                    final int c = Long.compare(o1.hits, o2.hits);
+                    return c != 0
+                        ? c
+                        : Long.compare(o1.lastAccess, o2.lastAccess);
+                }
+            }),
+
+        /**
+         * Evicts the segment whose loss is cheapest first: the one with the
+         * lowest SQL load time per byte, weighted by how often it is used.
+         * Priorities are aged "GreedyDual-Size-Frequency" style, so that
+         * segments that were expensive but are no longer used are
+         * eventually evicted.
+         */
+        COST(
+            new Comparator<Entry>() {
+                public int compare(Entry o1, Entry o2) {
+                    final int c = Double.compare(o1.priority, o2.priority);
+                    return c != 0
+                        ? c
+                        : Long.compare(o1.lastAccess, o2.lastAccess);
+                }
+            });
+
+        private final Comparator<Entry> comparator;
+
+        EvictionPolicy(Comparator<Entry> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    /**
+     * Cached segment body, with the statistics used by the eviction policy.
+     * Statistics are guarded by the cache.
+     *
+     * <p>Every access ticks the cache's clock, so no two entries have the
+     * same {@link #lastAccess}, and the comparators, which break ties by it,
+     * are consistent with equals.</p>
+     */
+    private static class Entry {
+        final SegmentHeader header;
+        final SegmentBody body;
+        final long bytes;
+        long loadMillis;
+        long lastAccess;
+        long hits;
+        double priority;
+
+        Entry(SegmentHeader header, SegmentBody body, long bytes) {
+            this.header = header;
+            this.body = body;
+            this.bytes = bytes;
+        }
+
+        void touch(long tick, double inflation) {
+            lastAccess = tick;
+            ++hits;
+            prioritize(inflation);
+        }
+
+        void prioritize(double inflation) {
+            priority =
+                inflation
+                + (double) hits * (1 + loadMillis) / Math.max(bytes, 1);
+        }
+    }
+
+    private static class Event
+        implements SegmentCacheListener.SegmentCacheEvent
+    {
+        private final SegmentHeader header;
+        private final boolean local;
+        private final EventType eventType;
+
+        Event(SegmentHeader header, boolean local, EventType eventType) {
+            this.header = header;
+            this.local = local;
+            this.eventType = eventType;
+        }
+
+        public boolean isLocal() {
+            return local;
+        }
+
+        public SegmentHeader getSource() {
+            return header;
+        }
+
+        public EventType getEventType() {
+            return eventType;
+        }
+    }
+}
+
+// End EvictingMemorySegmentCache.java
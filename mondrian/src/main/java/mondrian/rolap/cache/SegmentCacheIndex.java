@@ -27,7 +27,11 @@ import java.util.concurrent.Future;
 /**
  * Data structure that identifies which segments contain cells.
  *
- * <p>Not thread-safe.</p>
+ * <p>Not thread-safe, except that {@link #locate},
+ * {@link #findRollupCandidates} and {@link #getConverter} may be called
+ * from any thread. Their result reflects the modifications made before
+ * the call, or soon after it; a header that they return may have been
+ * removed by the time the caller uses it.</p>
  *
  * @author Julian Hyde
  */
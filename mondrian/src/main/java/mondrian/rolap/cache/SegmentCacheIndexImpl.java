@@ -36,7 +36,12 @@ import java.util.concurrent.Future;
 /**
  * Data structure that identifies which segments contain cells.
  *
- * <p>Not thread safe.</p>
+ * <p>Modifications must be made by the thread given to the constructor,
+ * usually the thread of the cache manager's actor. The methods that find
+ * segments, {@link #locate}, {@link #findRollupCandidates} and
+ * {@link #getConverter}, may be called from any thread; they read the
+ * bitkey map and the fact map, whose values are replaced, never modified,
+ * once they have been published.</p>
  *
  * @author Julian Hyde
  */
@@ -45,15 +50,19 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
     private static final Logger LOGGER =
         LogManager.getLogger(SegmentCacheIndexImpl.class);
 
+    /**
+     * Map from dimensionality to the headers that have it. Each value is an
+     * immutable list.
+     */
     private final Map<List, List<SegmentHeader>> bitkeyMap =
-        new HashMap<List, List<SegmentHeader>>();
+        new ConcurrentHashMap<List, List<SegmentHeader>>();
 
     /**
      * The fact map allows us to spot quickly which
      * segments have facts relating to a given header.
      */
     private final Map<List, FactInfo> factMap =
-        new HashMap<List, FactInfo>();
+        new ConcurrentHashMap<List, FactInfo>();
 
     /**
      * The fuzzy fact map allows us to spot quickly which
@@ -113,8 +122,6 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         Map<String, Comparable> coordinates,
         List<String> compoundPredicates)
     {
-        checkThread();
-
         if (LOGGER.isTraceEnabled()) {
             LOGGER.trace(
                 "SegmentCacheIndexImpl("
@@ -198,13 +205,11 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         }
 
         final List bitkeyKey = makeBitkeyKey(header);
-        List<SegmentHeader> headerList = bitkeyMap.get(bitkeyKey);
+        final List<SegmentHeader> headerList = bitkeyMap.get(bitkeyKey);
         if (headerList == null) {
-            headerList = new ArrayList<SegmentHeader>();
-            bitkeyMap.put(bitkeyKey, headerList);
-        }
-        if (!headerList.contains(header)) {
-            headerList.add(header);
+            bitkeyMap.put(bitkeyKey, Collections.singletonList(header));
+        } else if (!headerList.contains(header)) {
+            bitkeyMap.put(bitkeyKey, plus(headerList, header));
         }
 
         final List factKey = makeFactKey(header);
@@ -216,11 +221,7 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         if (!factInfo.headerList.contains(header)) {
             factInfo.headerList.add(header);
         }
-        if (!factInfo.bitkeyPoset
-            .contains(header.getConstrainedColumnsBitKey()))
-        {
-            factInfo.bitkeyPoset.add(header.getConstrainedColumnsBitKey());
-        }
+        factInfo.addBitKey(header.getConstrainedColumnsBitKey());
         if (converter != null) {
             factInfo.converter = converter;
         }
@@ -231,9 +232,7 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
             fuzzyFactInfo = new FuzzyFactInfo();
             fuzzyFactMap.put(fuzzyFactKey, fuzzyFactInfo);
         }
-        if (!fuzzyFactInfo.headerList.contains(header)) {
-            fuzzyFactInfo.headerList.add(header);
-        }
+        fuzzyFactInfo.regionIndex.add(header);
     }
 
     public void update(
@@ -252,9 +251,9 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         headerMap.put(newHeader, headerInfo);
 
         final List oldBitkeyKey = makeBitkeyKey(oldHeader);
-        List<SegmentHeader> headerList = bitkeyMap.get(oldBitkeyKey);
-        headerList.remove(oldHeader);
-        headerList.add(newHeader);
+        final List<SegmentHeader> headerList = bitkeyMap.get(oldBitkeyKey);
+        bitkeyMap.put(
+            oldBitkeyKey, plus(minus(headerList, oldHeader), newHeader));
 
         final List oldFactKey = makeFactKey(oldHeader);
         final FactInfo factInfo = factMap.get(oldFactKey);
@@ -263,8 +262,8 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
 
         final List oldFuzzyFactKey = makeFuzzyFactKey(oldHeader);
         final FuzzyFactInfo fuzzyFactInfo = fuzzyFactMap.get(oldFuzzyFactKey);
-        fuzzyFactInfo.headerList.remove(oldHeader);
-        fuzzyFactInfo.headerList.add(newHeader);
+        fuzzyFactInfo.regionIndex.remove(oldHeader);
+        fuzzyFactInfo.regionIndex.add(newHeader);
     }
 
     public void loadSucceeded(SegmentHeader header, SegmentBody body) {
@@ -348,7 +347,7 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         final FactInfo factInfo = factMap.get(factKey);
         if (factInfo != null) {
             factInfo.headerList.remove(header);
-            factInfo.bitkeyPoset.remove(header.getConstrainedColumnsBitKey());
+            factInfo.removeBitKey(header.getConstrainedColumnsBitKey());
             if (factInfo.headerList.size() == 0) {
                 factMap.remove(factKey);
             }
@@ -357,20 +356,41 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         final List fuzzyFactKey = makeFuzzyFactKey(header);
         final FuzzyFactInfo fuzzyFactInfo = fuzzyFactMap.get(fuzzyFactKey);
         if (fuzzyFactInfo != null) {
-            fuzzyFactInfo.headerList.remove(header);
-            if (fuzzyFactInfo.headerList.size() == 0) {
+            fuzzyFactInfo.regionIndex.remove(header);
+            if (fuzzyFactInfo.regionIndex.size() == 0) {
                 fuzzyFactMap.remove(fuzzyFactKey);
             }
         }
 
         final List bitkeyKey = makeBitkeyKey(header);
-        final List<SegmentHeader> headerList = bitkeyMap.get(bitkeyKey);
-        headerList.remove(header);
+        final List<SegmentHeader> headerList =
+            minus(bitkeyMap.get(bitkeyKey), header);
         if (headerList.size() == 0) {
             bitkeyMap.remove(bitkeyKey);
+        } else {
+            bitkeyMap.put(bitkeyKey, headerList);
         }
     }
 
+    /**
+     * Returns a copy of an immutable list with an element appended.
+     */
+    private static <E> List<E> plus(List<E> list, E e) {
+        final List<E> list2 = new ArrayList<E>(list.size() + 1);
+        list2.addAll(list);
+        list2.add(e);
+        return Collections.unmodifiableList(list2);
+    }
+
+    /**
+     * Returns a copy of an immutable list with an element removed.
+     */
+    private static <E> List<E> minus(List<E> list, E e) {
+        final List<E> list2 = new ArrayList<E>(list);
+        list2.remove(e);
+        return Collections.unmodifiableList(list2);
+    }
+
     private void checkThread() {
         assert thread == Thread.currentThread()
             : "expected " + thread + ", but was " + Thread.currentThread();
@@ -438,57 +458,21 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         if (factInfo == null) {
             return list;
         }
-        for (SegmentHeader header : factInfo.headerList) {
+        for (SegmentHeader header : factInfo.regionIndex.intersect(region)) {
             // Don't return stale segments.
             if (headerMap.get(header).removeAfterLoad) {
                 continue;
             }
-            if (intersects(header, region)) {
-                // Be lazy. Don't allocate a list unless there is at least one
-                // entry.
-                if (list.isEmpty()) {
-                    list = new ArrayList<SegmentHeader>();
-                }
-                list.add(header);
+            // Be lazy. Don't allocate a list unless there is at least one
+            // entry.
+            if (list.isEmpty()) {
+                list = new ArrayList<SegmentHeader>();
             }
+            list.add(header);
         }
         return list;
     }
 
-    private boolean intersects(
-        SegmentHeader header,
-        SegmentColumn[] region)
-    {
-        // most selective condition first
-        if (region.length == 0) {
-            return true;
-        }
-        for (SegmentColumn regionColumn : region) {
-            final SegmentColumn headerColumn =
-                header.getConstrainedColumn(regionColumn.getColumnExpression());
-            if (headerColumn == null) {
-                // If the segment header doesn't contain a column specified
-                // by the region, then it always implicitly intersects.
-                // This allows flush operations to be valid.
-                return true;
-            }
-            final SortedSet<Comparable> regionValues =
-                regionColumn.getValues();
-            final SortedSet<Comparable> headerValues =
-                headerColumn.getValues();
-            if (headerValues == null || regionValues == null) {
-                // This is a wildcard, so it always intersects.
-                return true;
-            }
-            for (Comparable myValue : regionValues) {
-                if (headerValues.contains(myValue)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     public void printCacheState(PrintWriter pw) {
         checkThread();
         final List<List<SegmentHeader>> values =
@@ -586,8 +570,6 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         String measureName,
         List<String> compoundPredicates)
     {
-        checkThread();
-
         final List factKey = makeFactKey(
             schemaName,
             schemaChecksum,
@@ -741,7 +723,7 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
         final List<List<SegmentHeader>> list =
             new ArrayList<List<SegmentHeader>>();
         final List<BitKey> ancestors =
-            factInfo.bitkeyPoset.getAncestors(constrainedColsBitKey);
+            factInfo.getAncestors(constrainedColsBitKey);
         for (BitKey bitKey : ancestors) {
             final List bitkeyKey = makeBitkeyKey(
                 schemaName,
@@ -752,7 +734,11 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
                 measureName,
                 compoundPredicates);
             final List<SegmentHeader> headers = bitkeyMap.get(bitkeyKey);
-            assert headers != null : "bitkeyPoset / bitkeyMap inconsistency";
+            if (headers == null) {
+                // The last segment with this dimensionality was removed
+                // after we read the poset.
+                continue;
+            }
 
             // For columns that are still present after roll up, make sure that
             // the required value is in the range covered by the segment.
@@ -1024,28 +1010,96 @@ public class SegmentCacheIndexImpl implements SegmentCacheIndex {
     }
 
     private static class FactInfo {
-        private static final PartiallyOrderedSet.Ordering<BitKey> ORDERING =
-            new PartiallyOrderedSet.Ordering<BitKey>() {
-                public boolean lessThan(BitKey e1, BitKey e2) {
-                    return e2.isSuperSetOf(e1);
-                }
-            };
+        private static final BitKey[] EMPTY_BIT_KEYS = new BitKey[0];
 
+        /**
+         * Headers of this fact. Only accessed by the index's thread.
+         */
         private final List<SegmentHeader> headerList =
             new ArrayList<SegmentHeader>();
 
-        private final PartiallyOrderedSet<BitKey> bitkeyPoset =
-            new PartiallyOrderedSet<BitKey>(ORDERING);
+        /**
+         * Dimensionalities of this fact's segments, in ascending order of
+         * the number of columns. Replaced, never modified, once published,
+         * so that it can be read by any thread. A flat array, rather than a
+         * {@link PartiallyOrderedSet}, so that replacing it on a change costs
+         * one copy, linear in the number of dimensionalities.
+         */
+        private volatile BitKey[] bitKeys = EMPTY_BIT_KEYS;
 
-        private SegmentBuilder.SegmentConverter converter;
+        private volatile SegmentBuilder.SegmentConverter converter;
 
         FactInfo() {
         }
+
+        /**
+         * Adds a dimensionality, if it is not already present. Only called
+         * by the index's thread.
+         */
+        void addBitKey(BitKey bitKey) {
+            final BitKey[] oldBitKeys = bitKeys;
+            final int cardinality = bitKey.cardinality();
+            int i = 0;
+            for (; i < oldBitKeys.length; i++) {
+                if (oldBitKeys[i].equals(bitKey)) {
+                    return;
+                }
+                if (oldBitKeys[i].cardinality() > cardinality) {
+                    break;
+                }
+            }
+            final BitKey[] newBitKeys = new BitKey[oldBitKeys.length + 1];
+            System.arraycopy(oldBitKeys, 0, newBitKeys, 0, i);
+            newBitKeys[i] = bitKey;
+            System.arraycopy(
+                oldBitKeys, i, newBitKeys, i + 1, oldBitKeys.length - i);
+            bitKeys = newBitKeys;
+        }
+
+        /**
+         * Removes a dimensionality, if it is present. Only called by the
+         * index's thread.
+         */
+        void removeBitKey(BitKey bitKey) {
+            final BitKey[] oldBitKeys = bitKeys;
+            for (int i = 0; i < oldBitKeys.length; i++) {
+                if (oldBitKeys[i].equals(bitKey)) {
+                    final BitKey[] newBitKeys =
+                        new BitKey[oldBitKeys.length - 1];
+                    System.arraycopy(oldBitKeys, 0, newBitKeys, 0, i);
+                    System.arraycopy(
+                        oldBitKeys, i + 1, newBitKeys, i,
+                        oldBitKeys.length - i - 1);
+                    bitKeys = newBitKeys;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the dimensionalities that are strict supersets of a given
+         * dimensionality, those with fewer columns first. May be called by
+         * any thread.
+         */
+        List<BitKey> getAncestors(BitKey bitKey) {
+            final List<BitKey> list = new ArrayList<BitKey>();
+            for (BitKey b : bitKeys) {
+                if (b.isSuperSetOf(bitKey) && !b.equals(bitKey)) {
+                    list.add(b);
+                }
+            }
+            return list;
+        }
     }
 
     private static class FuzzyFactInfo {
-        private final List<SegmentHeader> headerList =
-            new ArrayList<SegmentHeader>();
+        /**
+         * Headers of this fact, indexed by the values of their constrained
+         * columns, so that {@link #intersectRegion} does not need to test
+         * every header.
+         */
+        private final SegmentRegionIndex regionIndex =
+            new SegmentRegionIndex();
 
         FuzzyFactInfo() {
         }
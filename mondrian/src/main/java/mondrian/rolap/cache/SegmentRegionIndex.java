@@ -0,0 +1,222 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.cache;
+
+import mondrian.rolap.RolapUtil;
+import mondrian.spi.SegmentColumn;
+import mondrian.spi.SegmentHeader;
+
+import java.util.*;
+
+/**
+ * Index of segment headers by the values of their constrained columns.
+ *
+ * <p>Finds the headers that intersect a region without testing every
+ * header. For each column, the index holds an inverted list from each value
+ * to the headers whose constraint on that column includes the value, and the
+ * set of headers that are wildcarded on the column. Headers are also grouped
+ * by the set of columns they constrain; there are few such groups, so
+ * finding the headers that do not constrain a given column is cheap.</p>
+ *
+ * <p>The result of {@link #intersect} is the same as if each header had been
+ * tested individually: a header intersects a region if, for at least one
+ * column of the region, the header does not constrain the column, is
+ * wildcarded on it, or has at least one of the region's values for it.</p>
+ *
+ * <p>Not thread-safe.</p>
+ */
+class SegmentRegionIndex {
+    /**
+     * Headers, grouped by the names of the columns they constrain. Values
+     * are in order of insertion.
+     */
+    private final Map<Set<String>, Set<SegmentHeader>> columnSetMap =
+        new HashMap<Set<String>, Set<SegmentHeader>>();
+
+    /**
+     * For each column, the headers that are wildcarded on it.
+     */
+    private final Map<String, Set<SegmentHeader>> wildcardMap =
+        new HashMap<String, Set<SegmentHeader>>();
+
+    /**
+     * For each column, a map from each value to the headers whose constraint
+     * on the column includes that value. Values are compared the same way
+     * as in segment headers.
+     */
+    private final Map<String, SortedMap<Comparable, Set<SegmentHeader>>>
+        valueMap =
+        new HashMap<String, SortedMap<Comparable, Set<SegmentHeader>>>();
+
+    private int size;
+
+    /**
+     * Adds a header to the index. Does nothing if it is already present.
+     *
+     * @param header Header
+     */
+    public void add(SegmentHeader header) {
+        final Set<SegmentHeader> headers =
+            columnSetMap.computeIfAbsent(
+                columnNames(header),
+                k -> new LinkedHashSet<SegmentHeader>());
+        if (!headers.add(header)) {
+            return;
+        }
+        ++size;
+        for (SegmentColumn column : header.getConstrainedColumns()) {
+            final String name = column.getColumnExpression();
+            final SortedSet<Comparable> values = column.getValues();
+            if (values == null) {
+                wildcardMap.computeIfAbsent(
+                    name, k -> new HashSet<SegmentHeader>())
+                    .add(header);
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            final SortedMap<Comparable, Set<SegmentHeader>> map =
+                valueMap.computeIfAbsent(
+                    name,
+                    k -> new TreeMap<Comparable, Set<SegmentHeader>>(
+                        RolapUtil.ROLAP_COMPARATOR));
+            for (Comparable value : values) {
+                map.computeIfAbsent(value, k -> new HashSet<SegmentHeader>())
+                    .add(header);
+            }
+        }
+    }
+
+    /**
+     * Removes a header from the index. Does nothing if it is not present.
+     *
+     * @param header Header
+     */
+    public void remove(SegmentHeader header) {
+        final Set<String> columnNames = columnNames(header);
+        final Set<SegmentHeader> headers = columnSetMap.get(columnNames);
+        if (headers == null || !headers.remove(header)) {
+            return;
+        }
+        --size;
+        if (headers.isEmpty()) {
+            columnSetMap.remove(columnNames);
+        }
+        for (SegmentColumn column : header.getConstrainedColumns()) {
+            final String name = column.getColumnExpression();
+            final SortedSet<Comparable> values = column.getValues();
+            if (values == null) {
+                final Set<SegmentHeader> wildcards = wildcardMap.get(name);
+                wildcards.remove(header);
+                if (wildcards.isEmpty()) {
+                    wildcardMap.remove(name);
+                }
+                continue;
+            }
+            final SortedMap<Comparable, Set<SegmentHeader>> map =
+                valueMap.get(name);
+            for (Comparable value : values) {
+                final Set<SegmentHeader> valueHeaders = map.get(value);
+                valueHeaders.remove(header);
+                if (valueHeaders.isEmpty()) {
+                    map.remove(value);
+                }
+            }
+            if (map.isEmpty()) {
+                valueMap.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of headers in the index.
+     *
+     * @return Number of headers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns all headers in the index.
+     *
+     * @return Headers
+     */
+    public Collection<SegmentHeader> headers() {
+        final List<SegmentHeader> list = new ArrayList<SegmentHeader>(size);
+        for (Set<SegmentHeader> headers : columnSetMap.values()) {
+            list.addAll(headers);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the headers that intersect a region.
+     *
+     * @param region Region; an empty array intersects all headers
+     * @return Headers that intersect the region
+     */
+    public Collection<SegmentHeader> intersect(SegmentColumn[] region) {
+        if (region.length == 0) {
+            return headers();
+        }
+        final Set<SegmentHeader> result = new LinkedHashSet<SegmentHeader>();
+        for (SegmentColumn regionColumn : region) {
+            final String name = regionColumn.getColumnExpression();
+            final SortedSet<Comparable> regionValues =
+                regionColumn.getValues();
+            if (regionValues == null) {
+                // A wildcard region column intersects every header: those
+                // that constrain the column, and those that do not.
+                return headers();
+            }
+
+            // Headers that do not constrain the column always intersect.
+            for (Map.Entry<Set<String>, Set<SegmentHeader>> entry
+                : columnSetMap.entrySet())
+            {
+                if (!entry.getKey().contains(name)) {
+                    result.addAll(entry.getValue());
+                }
+            }
+            final Set<SegmentHeader> wildcards = wildcardMap.get(name);
+            if (wildcards != null) {
+                result.addAll(wildcards);
+            }
+            final SortedMap<Comparable, Set<SegmentHeader>> map =
+                valueMap.get(name);
+            if (map != null) {
+                for (Comparable value : regionValues) {
+                    final Set<SegmentHeader> headers = map.get(value);
+                    if (headers != null) {
+                        result.addAll(headers);
+                    }
+                }
+            }
+            if (result.size() == size) {
+                // Every header intersects; no need to look further.
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> columnNames(SegmentHeader header) {
+        final Set<String> names = new HashSet<String>();
+        for (SegmentColumn column : header.getConstrainedColumns()) {
+            names.add(column.getColumnExpression());
+        }
+        return names;
+    }
+}
+
+// End SegmentRegionIndex.java
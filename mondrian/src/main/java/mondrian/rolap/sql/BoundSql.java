@@ -0,0 +1,184 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.rolap.sql;
+
+import mondrian.spi.Dialect;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * SQL text with parameter markers, and the values to bind to them.
+ *
+ * <p>A {@link SqlQuery} whose values are to be bound does not write them as
+ * literals. Instead, {@link #appendValue} writes a marker that holds the
+ * datatype of the value, its text, and the literal the dialect would have
+ * written. The marker travels with the SQL text through the code that
+ * combines clauses and subqueries, so values always line up with their
+ * positions in the final statement. {@link #parse} then replaces each marker
+ * with a parameter marker ('?') and collects the values in order.</p>
+ *
+ * <p>A value that cannot be converted to its datatype is written as the
+ * literal instead, so the statement means the same whether or not values
+ * are bound.</p>
+ *
+ * <p>Binding values means that queries that differ only in their values
+ * have the same text, so the database, the JDBC driver and the connection
+ * pool can reuse the statement and its plan; see
+ * {@link mondrian.olap.MondrianProperties#SqlBindParameters}.</p>
+ */
+public class BoundSql {
+    private static final char START = '\u0001';
+    private static final char SEPARATOR = '\u0002';
+    private static final char END = '\u0003';
+
+    /** SQL text, with a parameter marker for each bound value. */
+    public final String sql;
+
+    /** Values to bind, in the order of their parameter markers. */
+    public final List<Object> values;
+
+    private BoundSql(String sql, List<Object> values) {
+        this.sql = sql;
+        this.values = values;
+    }
+
+    /**
+     * Appends a value to be bound to a SQL string, or its literal if the
+     * value cannot be bound.
+     *
+     * @param buf Buffer
+     * @param dialect Dialect
+     * @param value Value
+     * @param datatype Datatype of value
+     */
+    static void appendValue(
+        StringBuilder buf,
+        Dialect dialect,
+        Object value,
+        Dialect.Datatype datatype)
+    {
+        final String text = value == null ? null : String.valueOf(value);
+        if (text == null || containsMarker(text)) {
+            dialect.quote(buf, value, datatype);
+            return;
+        }
+        buf.append(START)
+            .append(datatype.name())
+            .append(SEPARATOR)
+            .append(text)
+            .append(SEPARATOR);
+        dialect.quote(buf, value, datatype);
+        buf.append(END);
+    }
+
+    private static boolean containsMarker(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == START || c == SEPARATOR || c == END) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the values marked in a SQL string with parameter markers.
+     *
+     * @param sql SQL string, possibly containing marked values
+     * @return SQL text and values to bind
+     */
+    public static BoundSql parse(String sql) {
+        if (sql.indexOf(START) < 0) {
+            return new BoundSql(sql, Collections.emptyList());
+        }
+        final StringBuilder buf = new StringBuilder(sql.length());
+        final List<Object> values = new ArrayList<Object>();
+        int i = 0;
+        while (true) {
+            final int start = sql.indexOf(START, i);
+            if (start < 0) {
+                buf.append(sql, i, sql.length());
+                break;
+            }
+            buf.append(sql, i, start);
+            final int separator = sql.indexOf(SEPARATOR, start);
+            final int separator2 = sql.indexOf(SEPARATOR, separator + 1);
+            final int end = sql.indexOf(END, separator2);
+            final Object value =
+                convert(
+                    Dialect.Datatype.valueOf(
+                        sql.substring(start + 1, separator)),
+                    sql.substring(separator + 1, separator2));
+            if (value == null) {
+                buf.append(sql, separator2 + 1, end);
+            } else {
+                buf.append('?');
+                values.add(value);
+            }
+            i = end + 1;
+        }
+        return new BoundSql(buf.toString(), values);
+    }
+
+    /**
+     * Converts the text of a value to the Java type that JDBC binds to its
+     * datatype, or returns null if the text is not valid.
+     */
+    private static Object convert(Dialect.Datatype datatype, String text) {
+        try {
+            switch (datatype) {
+            case String:
+                return text;
+            case Integer:
+                return Long.valueOf(text);
+            case Numeric:
+                return new BigDecimal(text);
+            case Boolean:
+                if (text.equalsIgnoreCase("true")
+                    || text.equalsIgnoreCase("false"))
+                {
+                    return Boolean.valueOf(text);
+                }
+                return null;
+            case Date:
+                return java.sql.Date.valueOf(text);
+            case Time:
+                return java.sql.Time.valueOf(text);
+            case Timestamp:
+                return java.sql.Timestamp.valueOf(text);
+            default:
+                return null;
+            }
+        } catch (IllegalArgumentException e) {
+            // Includes NumberFormatException. Use the literal.
+            return null;
+        }
+    }
+
+    /**
+     * Binds the values to the parameters of a prepared statement.
+     *
+     * @param statement Statement prepared from {@link #sql}
+     * @throws SQLException on error
+     */
+    public void bind(PreparedStatement statement) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            statement.setObject(i + 1, values.get(i));
+        }
+    }
+}
+
+// End BoundSql.java
@@ -91,6 +91,9 @@ public class SqlQuery {
     /** Controls whether table optimization hints are used */
     private boolean allowHints;
 
+    /** Controls whether values are bound as parameters */
+    private boolean bindParameters;
+
     /** Is query supported by database vendor. Default is true*/
     private boolean isSupported = true;
 
@@ -176,7 +179,9 @@ public class SqlQuery {
      */
     public SqlQuery cloneEmpty()
     {
-        return new SqlQuery(dialect);
+        final SqlQuery query = new SqlQuery(dialect);
+        query.bindParameters = bindParameters;
+        return query;
     }
 
     public void setDistinct(final boolean distinct) {
@@ -193,6 +198,42 @@ public class SqlQuery {
         this.allowHints = t;
     }
 
+    /**
+     * Chooses whether values written by {@link #quote} are bound as
+     * parameters, rather than written as literals. Values are only bound if
+     * {@link MondrianProperties#SqlBindParameters} is also true.
+     *
+     * <p>Only choose this for a query whose SQL is executed by
+     * {@link SqlStatement}, which converts the values into parameters; see
+     * {@link BoundSql}.</p>
+     *
+     * @param t True to bind values, false to write them as literals
+     */
+    public void setBindParameters(boolean t) {
+        this.bindParameters =
+            t && MondrianProperties.instance().SqlBindParameters.get();
+    }
+
+    /**
+     * Appends a value to a SQL string, as a literal or, if this query binds
+     * values, as a parameter.
+     *
+     * @param buf Buffer
+     * @param value Value
+     * @param datatype Datatype of value
+     */
+    public void quote(
+        StringBuilder buf,
+        Object value,
+        Dialect.Datatype datatype)
+    {
+        if (bindParameters) {
+            BoundSql.appendValue(buf, dialect, value, datatype);
+        } else {
+            dialect.quote(buf, value, datatype);
+        }
+    }
+
     /**
      * Adds a subquery to the FROM clause of this Query with a given alias.
      * If the query already exists it either, depending on
@@ -710,7 +751,9 @@ public class SqlQuery {
     public static SqlQuery newQuery(DataSource dataSource, String err) {
         final Dialect dialect =
             DialectManager.createDialect(dataSource, null);
-        return new SqlQuery(dialect);
+        final SqlQuery query = new SqlQuery(dialect);
+        query.setBindParameters(true);
+        return query;
     }
 
     public void addGroupingSet(List<String> groupingColumnsExpr) {
@@ -69,6 +69,7 @@ public class Execution {
   private long timeoutTimeMillis;
   private long timeoutIntervalMillis;
   private final QueryTiming queryTiming = new QueryTiming();
+  private final ExecutionProfile profile = new ExecutionProfile();
   private int phase;
   private int cellCacheHitCount;
   private int cellCacheMissCount;
@@ -116,6 +117,12 @@ public class Execution {
     this.timeoutTimeMillis = timeoutIntervalMillis > 0 ? this.startTimeMillis + timeoutIntervalMillis : 0L;
     this.state = State.RUNNING;
     this.queryTiming.init( this.statement.getProfileHandler() != null );
+    final Query query = statement.query;
+    if ( query != null ) {
+      // Parse, validate and compile happened when the query was prepared.
+      this.profile.addAll( query.getPreparationProfile() );
+    }
+    this.profile.begin();
     fireExecutionStartEvent();
   }
 
@@ -333,7 +340,7 @@ public class Execution {
     // We also have to cancel all requests for the current segments.
     final Locus locus = new Locus( this, "Execution.unregisterSegmentRequests", "cleaning up segment registrations" );
     final SegmentCacheManager mgr = locus.getServer().getAggregationManager().cacheMgr;
-    mgr.execute( new SegmentCacheManager.Command<Void>() {
+    mgr.executeOnAllShards( new SegmentCacheManager.Command<Void>() {
       public Void call() throws Exception {
         mgr.getIndexRegistry().cancelExecutionSegments( Execution.this );
         return null;
@@ -357,6 +364,15 @@ public class Execution {
     return queryTiming;
   }
 
+  /**
+   * Returns the breakdown of the time spent by this execution, by phase.
+   *
+   * @return Profile
+   */
+  public final ExecutionProfile getProfile() {
+    return profile;
+  }
+
   public final long getId() {
     return id;
   }
@@ -386,11 +402,12 @@ public class Execution {
   }
 
   private void fireExecutionEndEvent() {
+    profile.end( this, state );
     final RolapConnection connection = statement.getMondrianConnection();
     final MondrianServer server = connection.getServer();
     server.getMonitor().sendEvent( new ExecutionEndEvent( this.startTimeMillis, server.getId(), connection.getId(),
         this.statement.getId(), this.id, this.phase, this.state, this.cellCacheHitCount, this.cellCacheMissCount,
-        this.cellCachePendingCount, expCacheHitCount, expCacheMissCount ) );
+        this.cellCachePendingCount, expCacheHitCount, expCacheMissCount, getElapsedMillis() ) );
   }
 
   private void fireExecutionStartEvent() {
@@ -0,0 +1,197 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Breakdown of the time spent by an {@link Execution}, by phase.
+ *
+ * <p>The profile records how long the query took to parse, validate and
+ * compile (these phases happen once, when the query is prepared, and are
+ * copied into each execution of it), how long the execution spent
+ * evaluating axes and cells, waiting for the segment cache manager, and
+ * executing SQL statements and fetching their results.</p>
+ *
+ * <p>SQL statements often run in other threads, while the query thread
+ * waits for them, so the phases may overlap and their sum may exceed the
+ * elapsed time of the execution.</p>
+ *
+ * <p>Recording a phase costs a couple of atomic additions, and phases are
+ * recorded a few times per execution, not per cell; so profiles are always
+ * recorded. When an execution ends, its profile is also emitted as a Java
+ * Flight Recorder event, "mondrian.Execution", if that event is enabled.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @see Statement#getProfile()
+ */
+public class ExecutionProfile {
+    /**
+     * Phase of the preparation or execution of a query.
+     */
+    public enum Phase {
+        /** Parsing the MDX text. */
+        PARSE,
+        /** Resolving identifiers and type-checking. */
+        VALIDATE,
+        /** Compiling expressions into calcs. */
+        COMPILE,
+        /** Evaluating the slicer and the axes. */
+        AXES,
+        /** Evaluating cells, including the phases that load them. */
+        CELLS,
+        /** Waiting for commands of the segment cache manager. */
+        CACHE_WAIT,
+        /** Executing SQL statements, until their first row is ready. */
+        SQL_EXECUTE,
+        /** Reading the rows of SQL statements, until they are closed. */
+        SQL_FETCH
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final AtomicLongArray nanos = new AtomicLongArray(PHASES.length);
+    private final AtomicLongArray counts = new AtomicLongArray(PHASES.length);
+
+    /**
+     * Flight recorder event of the execution, between {@link #begin()} and
+     * {@link #end}; otherwise null.
+     */
+    private ExecutionProfileEvent event;
+
+    /**
+     * Records time spent in a phase.
+     *
+     * @param phase Phase
+     * @param nanos Duration, in nanoseconds
+     */
+    public void add(Phase phase, long nanos) {
+        this.nanos.addAndGet(phase.ordinal(), nanos);
+        this.counts.incrementAndGet(phase.ordinal());
+    }
+
+    /**
+     * Records the time spent in a phase by the execution of a locus, if the
+     * locus belongs to an execution.
+     *
+     * @param locus Locus, or null
+     * @param phase Phase
+     * @param startNanos Start of the phase, per {@link System#nanoTime()}; the
+     *     phase ends now
+     */
+    public static void add(Locus locus, Phase phase, long startNanos) {
+        if (locus != null
+            && locus.execution != null
+            && locus.execution != Execution.NONE)
+        {
+            locus.execution.getProfile().add(
+                phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Adds the phases recorded in another profile to this one.
+     *
+     * @param profile Other profile
+     */
+    public void addAll(ExecutionProfile profile) {
+        for (int i = 0; i < PHASES.length; i++) {
+            nanos.addAndGet(i, profile.nanos.get(i));
+            counts.addAndGet(i, profile.counts.get(i));
+        }
+    }
+
+    /**
+     * Returns the total time spent in a phase.
+     *
+     * @param phase Phase
+     * @return Time, in nanoseconds
+     */
+    public long getNanos(Phase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    /**
+     * Returns the number of times that a phase was recorded; for example, the
+     * number of SQL statements executed.
+     *
+     * @param phase Phase
+     * @return Number of times
+     */
+    public long getCount(Phase phase) {
+        return counts.get(phase.ordinal());
+    }
+
+    /**
+     * Starts the flight recorder event of an execution.
+     */
+    synchronized void begin() {
+        event = new ExecutionProfileEvent();
+        event.begin();
+    }
+
+    /**
+     * Ends the flight recorder event of an execution, and commits it if it is
+     * enabled. Does nothing if the event has already ended.
+     *
+     * @param execution Execution
+     * @param state State in which the execution ended
+     */
+    synchronized void end(Execution execution, Execution.State state) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.executionId = execution.getId();
+            event.statementId =
+                execution.statement == null ? -1 : execution.statement.getId();
+            event.state = String.valueOf(state);
+            event.parse = getNanos(Phase.PARSE);
+            event.validate = getNanos(Phase.VALIDATE);
+            event.compile = getNanos(Phase.COMPILE);
+            event.axes = getNanos(Phase.AXES);
+            event.cells = getNanos(Phase.CELLS);
+            event.cacheWait = getNanos(Phase.CACHE_WAIT);
+            event.sqlExecute = getNanos(Phase.SQL_EXECUTE);
+            event.sqlFetch = getNanos(Phase.SQL_FETCH);
+            event.sqlCount = getCount(Phase.SQL_EXECUTE);
+            event.commit();
+        }
+        event = null;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder("Profile:");
+        for (Phase phase : PHASES) {
+            final long count = getCount(phase);
+            if (count == 0) {
+                continue;
+            }
+            buf.append(' ')
+                .append(phase)
+                .append(' ')
+                .append(TimeUnit.NANOSECONDS.toMicros(getNanos(phase)))
+                .append("us");
+            if (count > 1) {
+                buf.append(" (").append(count).append(')');
+            }
+        }
+        return buf.toString();
+    }
+}
+
+// End ExecutionProfile.java
@@ -0,0 +1,79 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event that records the {@link ExecutionProfile} of an
+ * MDX execution. Its duration is that of the execution.
+ */
+@Name("mondrian.Execution")
+@Label("MDX Execution")
+@Category("Mondrian")
+@Description("Execution of an MDX statement, with the time spent in each "
+    + "phase")
+@StackTrace(false)
+class ExecutionProfileEvent extends Event {
+    @Label("Execution Id")
+    long executionId;
+
+    @Label("Statement Id")
+    long statementId;
+
+    @Label("State")
+    String state;
+
+    @Label("Parse")
+    @Timespan(Timespan.NANOSECONDS)
+    long parse;
+
+    @Label("Validate")
+    @Timespan(Timespan.NANOSECONDS)
+    long validate;
+
+    @Label("Compile")
+    @Timespan(Timespan.NANOSECONDS)
+    long compile;
+
+    @Label("Axes")
+    @Timespan(Timespan.NANOSECONDS)
+    long axes;
+
+    @Label("Cells")
+    @Timespan(Timespan.NANOSECONDS)
+    long cells;
+
+    @Label("Cache Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long cacheWait;
+
+    @Label("SQL Execute")
+    @Timespan(Timespan.NANOSECONDS)
+    long sqlExecute;
+
+    @Label("SQL Fetch")
+    @Timespan(Timespan.NANOSECONDS)
+    long sqlFetch;
+
+    @Label("SQL Statements")
+    long sqlCount;
+}
+
+// End ExecutionProfileEvent.java
@@ -164,6 +164,10 @@ class MondrianServerImpl extends MondrianServer implements CatalogFinder, XmlaHa
 
     this.shepherd = new RolapResultShepherd();
 
+    monitor.addScheduler( shepherd.getScheduler() );
+    monitor.addScheduler( aggMgr.cacheMgr.sqlExecutor );
+    monitor.addSegmentCacheManager( aggMgr.cacheMgr );
+
     if ( LOGGER.isDebugEnabled() ) {
       LOGGER.debug( "new MondrianServer: id={}", id );
     }
@@ -15,6 +15,7 @@ package mondrian.server;
 import mondrian.olap.MondrianProperties;
 import mondrian.olap.Util;
 import mondrian.rolap.RolapUtil;
+import mondrian.rolap.agg.SegmentCacheManager;
 import mondrian.server.monitor.*;
 import mondrian.server.monitor.MonitorMXBean;
 import mondrian.util.*;
@@ -23,8 +24,12 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Process that reads from the monitor stream and updates counters.
@@ -34,7 +39,20 @@ import java.util.concurrent.BlockingQueue;
  * "Active object" or "Actor" pattern means that the data structures that hold counters do not need to be locked.
  *
  * <p>
- * Command requests are treated like events. They place their result on a result queue.
+ * Each monitor has its own queue, a {@link Mailbox}, so the servers of a JVM do not contend with each other. Sending
+ * an event never blocks: the mailbox is a lock-free queue, and the monitor thread is woken only when the mailbox
+ * becomes non-empty. If the monitor thread falls behind, so that more than {@link Mailbox#CAPACITY} messages are
+ * waiting, the mailbox drops events that only update statistics ({@link ExecutionPhaseEvent},
+ * {@link SqlStatementExecuteEvent} and {@link CellCacheEvent cell cache events}). Events that start or end a
+ * connection, statement, execution or SQL statement are kept, so that the monitored objects stay consistent, until
+ * {@link Mailbox#HARD_CAPACITY} messages are waiting; above that, the mailbox drops every event, so that it cannot
+ * exhaust memory, and objects whose start or end events were dropped are missing or stay open. Commands are never
+ * dropped; each has a caller waiting for its response.
+ * </p>
+ *
+ * <p>
+ * Command requests are treated like events. They place their result on a result queue. Because they go through the
+ * same mailbox, a command sees every event that was sent to the monitor before it.
  * </p>
  *
  * <p>
@@ -42,6 +60,14 @@ import java.util.concurrent.BlockingQueue;
  * </p>
  *
  * <p>
+ * The handler also maintains {@link Histogram histograms} of the latency of executions, execution phases and SQL
+ * statements, of the time that SQL statements wait to execute (both by {@link SqlStatementEvent.Purpose purpose}), and
+ * of the number of cells in results and new segments (by {@link CellCacheEvent.Source source}). If the mailbox drops
+ * events, the histograms of phases, of SQL execution times and of segment sizes become samples, and the counts of
+ * segments of executions, statements, connections and the server are too low.
+ * </p>
+ *
+ * <p>
  * The monitored objects form a hierarchy. For each object type, there is a mutable workspace (whose members are private
  * and non-final) that is converted into a monitor object (whose members are public and final) when its {@code fix()}
  * method is called:
@@ -65,7 +91,7 @@ import java.util.concurrent.BlockingQueue;
  */
 class MonitorImpl implements Monitor, MonitorMXBean {
   private static final Logger LOGGER = LogManager.getLogger( MonitorImpl.class );
-  private final Handler handler = new Handler();
+  private final Mailbox mailbox = new Mailbox( new Handler() );
 
   protected static final Util.MemoryInfo MEMORY_INFO = Util.getMemoryInfo();
 
@@ -83,15 +109,46 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     // The actor is shut down with the JVM.
     final Thread thread = new Thread( ACTOR, "Mondrian Monitor" );
     thread.setDaemon( true );
+    ACTOR.thread = thread;
     thread.start();
   }
 
+  /**
+   * Schedulers whose queues are reported by {@link #getWorkloadQueues()}.
+   */
+  private final List<WorkloadScheduler> schedulers = new CopyOnWriteArrayList<WorkloadScheduler>();
+
+  /**
+   * Segment cache managers whose shards are reported by {@link #getSegmentCacheShards()}.
+   */
+  private final List<SegmentCacheManager> cacheManagers = new CopyOnWriteArrayList<SegmentCacheManager>();
+
   /**
    * Creates a Monitor.
    */
   public MonitorImpl() {
   }
 
+  /**
+   * Registers a scheduler, so that its queues are reported by {@link #getWorkloadQueues()}.
+   *
+   * @param scheduler
+   *          Scheduler
+   */
+  void addScheduler( WorkloadScheduler scheduler ) {
+    schedulers.add( scheduler );
+  }
+
+  /**
+   * Registers a segment cache manager, so that its shards are reported by {@link #getSegmentCacheShards()}.
+   *
+   * @param cacheMgr
+   *          Segment cache manager
+   */
+  void addSegmentCacheManager( SegmentCacheManager cacheMgr ) {
+    cacheManagers.add( cacheMgr );
+  }
+
   // Commands
 
   public void shutdown() {
@@ -100,19 +157,16 @@ class MonitorImpl implements Monitor, MonitorMXBean {
   }
 
   public void sendEvent( Event event ) {
-    // The implementation does not need to take any locks.
-    try {
-      if ( Thread.interrupted() ) {
-        // Interrupt should not happen. Mondrian uses cancel without
-        // setting interrupt. But if interrupts are happening, it's
-        // best to know now, rather than failing next time we make a
-        // blocking system call.
-        throw new AssertionError();
-      }
-      ACTOR.eventQueue.put( Pair.<Handler, Message> of( handler, event ) );
-    } catch ( InterruptedException e ) {
-      throw Util.newError( e, "Exception while sending event " + event );
+    // The implementation does not need to take any locks, and never
+    // blocks.
+    if ( Thread.interrupted() ) {
+      // Interrupt should not happen. Mondrian uses cancel without
+      // setting interrupt. But if interrupts are happening, it's
+      // best to know now, rather than failing next time we make a
+      // blocking system call.
+      throw new AssertionError();
     }
+    mailbox.send( event );
   }
 
   public ServerInfo getServer() {
@@ -134,8 +188,33 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     return (List<SqlStatementInfo>) execute( new SqlStatementsCommand() );
   }
 
+  public List<HistogramInfo> getHistograms() {
+    // noinspection unchecked
+    return (List<HistogramInfo>) execute( new HistogramsCommand() );
+  }
+
+  public List<WorkloadQueueInfo> getWorkloadQueues() {
+    // The schedulers are thread-safe, so there is no need to go through
+    // the actor.
+    final List<WorkloadQueueInfo> list = new ArrayList<WorkloadQueueInfo>();
+    for ( WorkloadScheduler scheduler : schedulers ) {
+      list.addAll( scheduler.getQueueInfos() );
+    }
+    return list;
+  }
+
+  public List<SegmentCacheShardInfo> getSegmentCacheShards() {
+    // Queue depths are read without going through the actors of the cache
+    // manager, or through the monitor's actor.
+    final List<SegmentCacheShardInfo> list = new ArrayList<SegmentCacheShardInfo>();
+    for ( SegmentCacheManager cacheMgr : cacheManagers ) {
+      list.addAll( cacheMgr.getShardInfos() );
+    }
+    return list;
+  }
+
   private Object execute( Command command ) {
-    return ACTOR.execute( handler, command );
+    return ACTOR.execute( mailbox, command );
   }
 
   // Command and response classes
@@ -178,6 +257,12 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     }
   }
 
+  static class HistogramsCommand extends Command {
+    public <T> T accept( Visitor<T> visitor ) {
+      return ( (CommandVisitor<T>) visitor ).visit( this );
+    }
+  }
+
   static class ShutdownCommand extends Command {
     public <T> T accept( Visitor<T> visitor ) {
       return ( (CommandVisitor<T>) visitor ).visit( this );
@@ -199,6 +284,8 @@ class MonitorImpl implements Monitor, MonitorMXBean {
 
     T visit( StatementsCommand command );
 
+    T visit( HistogramsCommand command );
+
     T visit( ShutdownCommand command );
   }
 
@@ -315,6 +402,11 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     private int expCacheHitCount;
     private int expCacheMissCount;
 
+    /**
+     * Time that the current phase started: the time of the previous phase event, or of the start event.
+     */
+    private long phaseStartTimestamp;
+
     public MutableExecutionInfo( MutableStatementInfo stmt, long executionId, String stack ) {
       this.stmt = stmt;
       this.executionId = executionId;
@@ -343,6 +435,7 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     private long rowFetchCount;
     private final String stack;
     private final String sql;
+    private long startTimestamp;
 
     public MutableSqlStatementInfo( MutableStatementInfo stmt, long sqlStatementId, String sql, String stack ) {
       this.sqlStatementId = sqlStatementId;
@@ -360,6 +453,11 @@ class MonitorImpl implements Monitor, MonitorMXBean {
 
     private final MutableServerInfo server = new MutableServerInfo( null );
 
+    /**
+     * Histograms of the server, by name.
+     */
+    private final Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+
     private final Map<Integer, MutableConnectionInfo> connectionMap =
         new LinkedHashMap<Integer, MutableConnectionInfo>( MondrianProperties.instance().ExecutionHistorySize.get(),
             0.8f, false ) {
@@ -466,6 +564,27 @@ class MonitorImpl implements Monitor, MonitorMXBean {
       return null;
     }
 
+    /**
+     * Records a value in a histogram, creating the histogram if necessary.
+     *
+     * @param name
+     *          Name of histogram
+     * @param value
+     *          Value
+     */
+    private void record( String name, long value ) {
+      Histogram histogram = histograms.get( name );
+      if ( histogram == null ) {
+        histogram = new Histogram();
+        histograms.put( name, histogram );
+      }
+      histogram.record( value );
+    }
+
+    private static String lower( Enum<?> e ) {
+      return e.name().toLowerCase( Locale.ROOT );
+    }
+
     public Object visit( ConnectionStartEvent event ) {
       final MutableConnectionInfo conn = new MutableConnectionInfo( event.stack );
       connectionMap.put( event.connectionId, conn );
@@ -546,6 +665,7 @@ class MonitorImpl implements Monitor, MonitorMXBean {
         return missing( event );
       }
       final MutableExecutionInfo exec = new MutableExecutionInfo( stmt, event.executionId, event.stack );
+      exec.phaseStartTimestamp = event.timestamp;
       executionMap.put( event.executionId, exec );
 
       foo( exec, event );
@@ -569,6 +689,8 @@ class MonitorImpl implements Monitor, MonitorMXBean {
         return missing( event );
       }
       executionMap.put( event.executionId, exec );
+      record( "execution.phase.nanos", TimeUnit.MILLISECONDS.toNanos( event.timestamp - exec.phaseStartTimestamp ) );
+      exec.phaseStartTimestamp = event.timestamp;
 
       foo( exec, event );
       foo( exec.stmt.aggExec, event );
@@ -585,6 +707,10 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     }
 
     public Object visit( ExecutionEndEvent event ) {
+      record( "execution.nanos", TimeUnit.MILLISECONDS.toNanos( event.elapsedMillis ) );
+      record( "execution.cells",
+          event.cellCacheHitCount + event.cellCacheMissCount + event.cellCachePendingCount );
+      record( "execution.cell_cache_misses", event.cellCacheMissCount );
       final MutableExecutionInfo exec = executionMap.remove( event.executionId );
       if ( exec == null ) {
         return missing( event );
@@ -622,6 +748,7 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     }
 
     public Object visit( CellCacheSegmentCreateEvent event ) {
+      record( "segment." + lower( event.source ) + ".cells", event.actualCellCount );
       MutableExecutionInfo exec = executionMap.get( event.executionId );
       if ( exec == null ) {
         // Cache events can sometimes arrive after the execution has
@@ -682,12 +809,14 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     }
 
     public Object visit( SqlStatementStartEvent event ) {
+      record( "sql.queue." + lower( event.purpose ) + ".nanos", event.queueNanos );
       final MutableStatementInfo stmt = statementMap.get( event.getStatementId() );
       if ( stmt == null ) {
         return missing( event );
       }
       final MutableSqlStatementInfo sql =
           new MutableSqlStatementInfo( stmt, event.sqlStatementId, event.sql, event.stack );
+      sql.startTimestamp = event.timestamp;
       sqlStatementMap.put( event.sqlStatementId, sql );
       foo( sql, event );
       foo( sql.stmt.aggSql, event );
@@ -705,6 +834,7 @@ class MonitorImpl implements Monitor, MonitorMXBean {
     }
 
     public Object visit( SqlStatementExecuteEvent event ) {
+      record( "sql.execute." + lower( event.purpose ) + ".nanos", event.executeNanos );
       final MutableSqlStatementInfo sql = sqlStatementMap.get( event.sqlStatementId );
       if ( sql == null ) {
         return missing( event );
@@ -722,9 +852,12 @@ class MonitorImpl implements Monitor, MonitorMXBean {
 
     public Object visit( SqlStatementEndEvent event ) {
       final MutableSqlStatementInfo sql = sqlStatementMap.remove( event.sqlStatementId );
+      record( "sql." + lower( event.purpose ) + ".rows", event.rowFetchCount );
       if ( sql == null ) {
         return missing( event );
       }
+      record( "sql." + lower( event.purpose ) + ".nanos",
+          TimeUnit.MILLISECONDS.toNanos( event.timestamp - sql.startTimestamp ) );
       foo( sql, event );
       foo( sql.stmt.aggSql, event );
       foo( server.aggSql, event );
@@ -768,44 +901,154 @@ class MonitorImpl implements Monitor, MonitorMXBean {
       return list;
     }
 
+    public Object visit( HistogramsCommand command ) {
+      List<HistogramInfo> list = new ArrayList<HistogramInfo>();
+      for ( Map.Entry<String, Histogram> entry : histograms.entrySet() ) {
+        final Histogram histogram = entry.getValue();
+        list.add( new HistogramInfo( null, entry.getKey(), histogram.getCount(), histogram.getSum(),
+            histogram.getMin(), histogram.getMax(), histogram.getValueAtPercentile( 50 ),
+            histogram.getValueAtPercentile( 90 ), histogram.getValueAtPercentile( 95 ),
+            histogram.getValueAtPercentile( 99 ), histogram.getValueAtPercentile( 99.9 ) ) );
+      }
+      return list;
+    }
+
     public Object visit( ShutdownCommand command ) {
       return "Shutdown succeeded";
     }
   }
 
+  /**
+   * Queue of the messages sent to one monitor, and the handler that processes them.
+   *
+   * <p>
+   * Any thread may send a message; only the actor's thread processes them. The mailbox is scheduled with the actor
+   * when its message count goes from zero to one, and stays scheduled until the actor has processed every message, so
+   * it is never scheduled twice at the same time, and its messages are processed in the order they were sent.
+   * </p>
+   */
+  private static class Mailbox {
+    /**
+     * Number of waiting messages above which the mailbox drops events that only update statistics.
+     */
+    static final int CAPACITY = 10000;
+
+    /**
+     * Number of waiting messages above which the mailbox drops all events.
+     */
+    static final int HARD_CAPACITY = 100000;
+
+    /**
+     * Maximum number of messages that the actor processes from one mailbox before it gives the other mailboxes a turn.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    private final Handler handler;
+    private final Queue<Message> queue = new ConcurrentLinkedQueue<Message>();
+
+    /**
+     * Number of messages that have been sent but not yet processed.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong hardDroppedCount = new AtomicLong();
+
+    Mailbox( Handler handler ) {
+      this.handler = handler;
+    }
+
+    void send( Message message ) {
+      final int waiting = size.get();
+      if ( waiting >= CAPACITY && isDroppable( message ) ) {
+        if ( droppedCount.getAndIncrement() == 0 ) {
+          LOGGER.warn( "Monitor is falling behind; dropping statistics events" );
+        }
+        return;
+      }
+      if ( waiting >= HARD_CAPACITY && message instanceof Event ) {
+        if ( hardDroppedCount.getAndIncrement() == 0 ) {
+          LOGGER.warn( "Monitor is " + waiting + " messages behind; dropping all events" );
+        }
+        return;
+      }
+      queue.offer( message );
+      if ( size.getAndIncrement() == 0 ) {
+        ACTOR.schedule( this );
+      }
+    }
+
+    /**
+     * Returns whether a message only updates statistics, and may therefore be dropped if the monitor falls behind.
+     *
+     * @param message
+     *          Message
+     * @return Whether message may be dropped
+     */
+    private static boolean isDroppable( Message message ) {
+      return message instanceof ExecutionPhaseEvent || message instanceof SqlStatementExecuteEvent
+          || message instanceof CellCacheEvent;
+    }
+
+    /**
+     * Processes up to {@link #BATCH_SIZE} messages. Called only from the actor's thread.
+     *
+     * @return Whether there are more messages to process
+     */
+    boolean process() {
+      for ( int i = 0; i < BATCH_SIZE; i++ ) {
+        final Message message = queue.poll();
+        ACTOR.process( handler, message );
+        if ( size.decrementAndGet() == 0 ) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   private static class Actor implements Runnable {
     private boolean running = true;
 
-    private final BlockingQueue<Pair<Handler, Message>> eventQueue =
-        new ArrayBlockingQueue<Pair<Handler, Message>>( 1000 );
+    /**
+     * Thread that runs this actor; set before the thread is started.
+     */
+    private volatile Thread thread;
+
+    /**
+     * Whether the actor's thread is waiting, or about to wait, for a mailbox to be scheduled.
+     */
+    private volatile boolean parked;
+
+    /**
+     * Mailboxes that have messages waiting. A mailbox is in this queue at most once.
+     */
+    private final Queue<Mailbox> readyQueue = new ConcurrentLinkedQueue<Mailbox>();
 
     private final BlockingHashMap<Command, Object> responseMap = new BlockingHashMap<Command, Object>( 1000 );
 
     public void run() {
       try {
         for ( ;; ) {
-          try {
-            final Pair<Handler, Message> entry = eventQueue.take();
-            final Handler handler = entry.left;
-            final Message message = entry.right;
-            message.setContextMap(); // Set MDC logging info into this thread
-            final Object result = message.accept( handler );
-            if ( message instanceof Command ) {
-              responseMap.put( (Command) message, result );
-            } else {
-              // Broadcast the event to anyone who is interested.
-              RolapUtil.MONITOR_LOGGER.debug( message );
+          final Mailbox mailbox = readyQueue.poll();
+          if ( mailbox == null ) {
+            // Announce that we are parking, then look again, so that a
+            // mailbox scheduled in between is not missed. The timeout is
+            // a safety net only.
+            parked = true;
+            if ( readyQueue.isEmpty() ) {
+              LockSupport.parkNanos( this, TimeUnit.SECONDS.toNanos( 1 ) );
             }
-            if ( message instanceof ShutdownCommand ) {
-              LOGGER.debug( "ShutdownCommand received. Monitor thread is shutting down." );
-              return;
-            }
-          } catch ( InterruptedException e ) {
-            Thread.currentThread().interrupt();
-            LOGGER.warn( "Monitor thread interrupted.", e );
+            parked = false;
+            continue;
+          }
+          if ( mailbox.process() ) {
+            // More messages; go to the back of the queue.
+            readyQueue.offer( mailbox );
+          }
+          if ( !running ) {
+            LOGGER.debug( "ShutdownCommand received. Monitor thread is shutting down." );
             return;
-          } catch ( Throwable t ) {
-            LOGGER.error( "Runtime error on the monitor thread.", t );
           }
         }
       } finally {
@@ -813,20 +1056,55 @@ class MonitorImpl implements Monitor, MonitorMXBean {
       }
     }
 
+    /**
+     * Schedules a mailbox that has become non-empty.
+     *
+     * @param mailbox
+     *          Mailbox
+     */
+    void schedule( Mailbox mailbox ) {
+      readyQueue.offer( mailbox );
+      if ( parked ) {
+        LockSupport.unpark( thread );
+      }
+    }
+
+    /**
+     * Processes a message. Called only from the actor's thread.
+     *
+     * @param handler
+     *          Handler of the mailbox that the message was sent to
+     * @param message
+     *          Message
+     */
+    void process( Handler handler, Message message ) {
+      try {
+        message.setContextMap(); // Set MDC logging info into this thread
+        final Object result = message.accept( handler );
+        if ( message instanceof Command ) {
+          responseMap.put( (Command) message, result );
+        } else {
+          // Broadcast the event to anyone who is interested.
+          RolapUtil.MONITOR_LOGGER.debug( message );
+        }
+        if ( message instanceof ShutdownCommand ) {
+          running = false;
+        }
+      } catch ( Throwable t ) {
+        LOGGER.error( "Runtime error on the monitor thread.", t );
+      }
+    }
+
     public void shutdown() {
       // No point sending a command if (for some reason) there's no thread
       // listening to the command queue.
       if ( running ) {
-        execute( null, new ShutdownCommand() );
+        execute( new Mailbox( new Handler() ), new ShutdownCommand() );
       }
     }
 
-    Object execute( Handler handler, Command command ) {
-      try {
-        eventQueue.put( Pair.<Handler, Message> of( handler, command ) );
-      } catch ( InterruptedException e ) {
-        throw Util.newError( e, "Interrupted while sending " + command );
-      }
+    Object execute( Mailbox mailbox, Command command ) {
+      mailbox.send( command );
       try {
         return responseMap.get( command );
       } catch ( InterruptedException e ) {
@@ -135,6 +135,15 @@ public interface Statement {
      */
     Execution getCurrentExecution();
 
+    /**
+     * Returns the breakdown of the time spent by the current execution, by
+     * phase; or, if not currently executing, of the most recent execution;
+     * or null if the statement has never executed.
+     *
+     * @return Profile of the current or most recent execution, or null
+     */
+    ExecutionProfile getProfile();
+
     /**
      * Ends the current execution.
      *
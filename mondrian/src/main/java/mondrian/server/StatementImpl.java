@@ -50,6 +50,11 @@ public abstract class StatementImpl implements Statement {
      */
     private Execution execution;
 
+    /**
+     * Profile of the most recent execution that has ended, or null.
+     */
+    private volatile ExecutionProfile lastProfile;
+
     /**
      * Whether {@link #cancel()} was called before the statement was started.
      * When the statement is started, it will immediately be marked canceled.
@@ -99,6 +104,7 @@ public abstract class StatementImpl implements Statement {
         }
         this.execution = null;
         execution.end();
+        lastProfile = execution.getProfile();
     }
 
     public void enableProfiling(ProfileHandler profileHandler) {
@@ -149,6 +155,14 @@ public abstract class StatementImpl implements Statement {
         return execution;
     }
 
+    public ExecutionProfile getProfile() {
+        final Execution execution0 = execution;
+        if (execution0 != null) {
+            return execution0.getProfile();
+        }
+        return lastProfile;
+    }
+
     public long getId() {
         return id;
     }
@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server;
+
+import mondrian.olap.Util;
+import mondrian.rolap.RolapConnection;
+import mondrian.rolap.RolapConnectionProperties;
+
+/**
+ * Class of work, and priority, of a task that is run by a
+ * {@link WorkloadScheduler}.
+ *
+ * <p>The class of a task that is caused by a connection is the name of the
+ * connection's schema, followed by a slash and the name of the connection's
+ * role if the connect string has a {@code Role} property; for example,
+ * "FoodMart/California manager". The priority comes from the
+ * {@code Priority} property of the connect string.</p>
+ */
+public final class Workload {
+    /**
+     * Workload of tasks that are not caused by a connection.
+     */
+    public static final Workload DEFAULT = new Workload("", 0);
+
+    /**
+     * Name of the class of work.
+     */
+    public final String name;
+
+    /**
+     * Priority. Tasks with a higher priority are started first.
+     */
+    public final int priority;
+
+    /**
+     * Creates a Workload.
+     *
+     * @param name Name of the class of work
+     * @param priority Priority
+     */
+    public Workload(String name, int priority) {
+        assert name != null;
+        this.name = name;
+        this.priority = priority;
+    }
+
+    /**
+     * Returns the workload of the tasks of an execution.
+     *
+     * @param execution Execution
+     * @return Workload
+     */
+    public static Workload of(Execution execution) {
+        final Statement statement = execution.getMondrianStatement();
+        if (statement == null) {
+            return DEFAULT;
+        }
+        final RolapConnection connection = statement.getMondrianConnection();
+        if (connection == null) {
+            return DEFAULT;
+        }
+        final Util.PropertyList connectInfo = connection.getConnectInfo();
+        final String catalog =
+            connection.getSchema() == null
+                ? ""
+                : connection.getSchema().getName();
+        final String role =
+            connectInfo.get(RolapConnectionProperties.Role.name());
+        final String priority =
+            connectInfo.get(RolapConnectionProperties.Priority.name());
+        return new Workload(
+            role == null ? catalog : catalog + '/' + role,
+            parsePriority(priority));
+    }
+
+    /**
+     * Returns the workload of the execution that the current thread is
+     * working on, or {@link #DEFAULT} if the thread is not working on an
+     * execution.
+     *
+     * @return Workload of current thread
+     */
+    public static Workload current() {
+        if (Locus.isEmpty()) {
+            return DEFAULT;
+        }
+        return of(Locus.peek().execution);
+    }
+
+    private static int parsePriority(String priority) {
+        if (priority == null || priority.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(priority.trim());
+        } catch (NumberFormatException e) {
+            throw Util.newError(
+                e,
+                "Connect string property '"
+                + RolapConnectionProperties.Priority.name()
+                + "' must be an integer; was '" + priority + "'");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " (priority " + priority + ")";
+    }
+}
+
+// End Workload.java
@@ -0,0 +1,400 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server;
+
+import mondrian.olap.MondrianProperties;
+import mondrian.olap.Util;
+import mondrian.server.monitor.WorkloadQueueInfo;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Executor that runs tasks on a fixed number of threads, and chooses which
+ * waiting task to start next by priority and by class of work.
+ *
+ * <p>Each task has a {@link Workload}. When a thread becomes free, the
+ * scheduler starts the waiting task with the highest priority. If the first
+ * tasks of several classes have the same priority, it starts the task of
+ * the class that it served least recently. So a class that submits many
+ * tasks, or long ones, cannot starve the other classes.</p>
+ *
+ * <p>A class may also have a quota: the maximum number of its tasks that
+ * may run at the same time. Quotas are set by
+ * {@link MondrianProperties#WorkloadQuotas} and
+ * {@link MondrianProperties#WorkloadDefaultQuota}, and are read when the
+ * scheduler first sees a class.</p>
+ *
+ * <p>For each class, the scheduler records how long tasks wait before they
+ * start; see {@link #getQueueInfos()}.</p>
+ *
+ * <p>Tasks submitted by {@link #execute(Runnable)} have the workload of the
+ * execution that the submitting thread is working on.</p>
+ */
+public class WorkloadScheduler extends AbstractExecutorService {
+    private final String name;
+    private final int threadCount;
+
+    /**
+     * Pool that runs the tasks. The scheduler never gives it more tasks than
+     * it has threads, so its queue is always empty.
+     */
+    private final ThreadPoolExecutor pool;
+
+    private final RejectedExecutionHandler rejectionPolicy;
+
+    private final Object lock = new Object();
+
+    /**
+     * Queue of each class of work, in order of first use. Guarded by
+     * {@link #lock}.
+     */
+    private final Map<String, ClassQueue> queues =
+        new LinkedHashMap<String, ClassQueue>();
+
+    private int runningCount;
+    private int queuedCount;
+    private long sequence;
+    private boolean shutdown;
+
+    /**
+     * Creates a WorkloadScheduler.
+     *
+     * @param name Name of the scheduler, and prefix of the names of its
+     *     threads
+     * @param threadCount Number of threads
+     * @param rejectionPolicy Called if a task is submitted after the
+     *     scheduler has been shut down, or null
+     */
+    public WorkloadScheduler(
+        String name,
+        int threadCount,
+        RejectedExecutionHandler rejectionPolicy)
+    {
+        assert threadCount > 0;
+        this.name = name;
+        this.threadCount = threadCount;
+        this.rejectionPolicy = rejectionPolicy;
+        this.pool =
+            (ThreadPoolExecutor) Util.getExecutorService(
+                threadCount, threadCount, 1, name, rejectionPolicy);
+    }
+
+    /**
+     * Returns the name of this scheduler.
+     *
+     * @return Name
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void execute(Runnable command) {
+        execute(command, Workload.current());
+    }
+
+    /**
+     * Executes a task of a given workload.
+     *
+     * @param command Task
+     * @param workload Class of work and priority of the task
+     */
+    public void execute(Runnable command, Workload workload) {
+        synchronized (lock) {
+            if (!shutdown) {
+                ClassQueue queue = queues.get(workload.name);
+                if (queue == null) {
+                    queue = new ClassQueue(workload.name, quota(workload.name));
+                    queues.put(workload.name, queue);
+                }
+                queue.entries.add(
+                    new Entry(
+                        command, workload.priority, sequence++,
+                        System.nanoTime()));
+                ++queuedCount;
+                dispatch();
+                return;
+            }
+        }
+        if (rejectionPolicy != null) {
+            rejectionPolicy.rejectedExecution(command, pool);
+        }
+        throw new RejectedExecutionException(
+            "Scheduler " + name + " has been shut down");
+    }
+
+    /**
+     * Submits a task of a given workload.
+     *
+     * @param task Task
+     * @param workload Class of work and priority of the task
+     * @return Future of the task's result
+     */
+    public <T> Future<T> submit(Callable<T> task, Workload workload) {
+        final FutureTask<T> future = new FutureTask<T>(task);
+        execute(future, workload);
+        return future;
+    }
+
+    /**
+     * Starts waiting tasks while there are free threads. Caller must hold
+     * {@link #lock}.
+     */
+    private void dispatch() {
+        while (runningCount < threadCount) {
+            ClassQueue best = null;
+            for (ClassQueue queue : queues.values()) {
+                if (queue.entries.isEmpty()
+                    || queue.quota > 0 && queue.runningCount >= queue.quota)
+                {
+                    continue;
+                }
+                if (best == null
+                    || queue.entries.peek().priority
+                    > best.entries.peek().priority
+                    || queue.entries.peek().priority
+                    == best.entries.peek().priority
+                    && queue.lastServed < best.lastServed)
+                {
+                    best = queue;
+                }
+            }
+            if (best == null) {
+                return;
+            }
+            final Entry entry = best.entries.poll();
+            final long waitNanos = System.nanoTime() - entry.queueNanos;
+            best.lastServed = sequence++;
+            ++best.runningCount;
+            ++best.startCount;
+            best.waitNanos += waitNanos;
+            best.maxWaitNanos = Math.max(best.maxWaitNanos, waitNanos);
+            --queuedCount;
+            ++runningCount;
+            pool.execute(new Worker(best, entry.command));
+        }
+    }
+
+    /**
+     * Returns the quota of a class of work.
+     *
+     * <p>{@link MondrianProperties#WorkloadQuotas} is a comma-separated
+     * list of entries of the form "class=quota", where class is the name of
+     * a schema, or of a schema and a role; an entry for the schema and role
+     * takes precedence over an entry for the schema.</p>
+     *
+     * @param workloadName Name of class of work
+     * @return Maximum number of tasks of the class that may run at the same
+     *     time, or 0 if there is no limit
+     */
+    static int quota(String workloadName) {
+        final MondrianProperties properties = MondrianProperties.instance();
+        final String quotas = properties.WorkloadQuotas.get();
+        if (quotas != null && !quotas.trim().isEmpty()) {
+            final int slash = workloadName.indexOf('/');
+            final String catalog =
+                slash < 0 ? workloadName : workloadName.substring(0, slash);
+            Integer catalogQuota = null;
+            for (String item : quotas.split(",")) {
+                final int eq = item.lastIndexOf('=');
+                if (eq < 0) {
+                    throw Util.newError(
+                        "Invalid entry '" + item + "' in property "
+                        + properties.WorkloadQuotas.getPath());
+                }
+                final String key = item.substring(0, eq).trim();
+                final int quota;
+                try {
+                    quota = Integer.parseInt(item.substring(eq + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw Util.newError(
+                        e,
+                        "Invalid entry '" + item + "' in property "
+                        + properties.WorkloadQuotas.getPath());
+                }
+                if (key.equals(workloadName)) {
+                    return quota;
+                }
+                if (key.equals(catalog)) {
+                    catalogQuota = quota;
+                }
+            }
+            if (catalogQuota != null) {
+                return catalogQuota;
+            }
+        }
+        return properties.WorkloadDefaultQuota.get();
+    }
+
+    /**
+     * Returns information about the queue of each class of work that this
+     * scheduler has seen.
+     *
+     * @return Information about each queue, in order of first use
+     */
+    public List<WorkloadQueueInfo> getQueueInfos() {
+        synchronized (lock) {
+            final List<WorkloadQueueInfo> list =
+                new ArrayList<WorkloadQueueInfo>(queues.size());
+            for (ClassQueue queue : queues.values()) {
+                list.add(
+                    new WorkloadQueueInfo(
+                        null,
+                        name,
+                        queue.name,
+                        queue.quota,
+                        queue.entries.size(),
+                        queue.runningCount,
+                        queue.startCount,
+                        queue.waitNanos,
+                        queue.maxWaitNanos));
+            }
+            return list;
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            if (queuedCount == 0) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    public List<Runnable> shutdownNow() {
+        final List<Runnable> list = new ArrayList<Runnable>();
+        synchronized (lock) {
+            shutdown = true;
+            for (ClassQueue queue : queues.values()) {
+                for (Entry entry : queue.entries) {
+                    list.add(entry.command);
+                }
+                queue.entries.clear();
+            }
+            queuedCount = 0;
+            lock.notifyAll();
+        }
+        pool.shutdownNow();
+        return list;
+    }
+
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return shutdown;
+        }
+    }
+
+    public boolean isTerminated() {
+        synchronized (lock) {
+            return shutdown && queuedCount == 0 && pool.isTerminated();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (!shutdown || queuedCount > 0) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+        }
+        return pool.awaitTermination(
+            deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs a task, then starts the next waiting task.
+     */
+    private class Worker implements Runnable {
+        private final ClassQueue queue;
+        private final Runnable command;
+
+        Worker(ClassQueue queue, Runnable command) {
+            this.queue = queue;
+            this.command = command;
+        }
+
+        public void run() {
+            try {
+                command.run();
+            } finally {
+                synchronized (lock) {
+                    --queue.runningCount;
+                    --runningCount;
+                    dispatch();
+                    if (shutdown && queuedCount == 0) {
+                        pool.shutdown();
+                        lock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Waiting tasks and statistics of a class of work.
+     */
+    private static class ClassQueue {
+        final String name;
+        final int quota;
+        final PriorityQueue<Entry> entries = new PriorityQueue<Entry>();
+        int runningCount;
+
+        /**
+         * Sequence number when a task of this class was last started, or -1.
+         */
+        long lastServed = -1;
+
+        long startCount;
+        long waitNanos;
+        long maxWaitNanos;
+
+        ClassQueue(String name, int quota) {
+            this.name = name;
+            this.quota = quota;
+        }
+    }
+
+    /**
+     * Waiting task. Tasks with higher priority come first; tasks of equal
+     * priority are in order of submission.
+     */
+    private static class Entry implements Comparable<Entry> {
+        final Runnable command;
+        final int priority;
+        final long sequence;
+        final long queueNanos;
+
+        Entry(Runnable command, int priority, long sequence, long queueNanos) {
+            this.command = command;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.queueNanos = queueNanos;
+        }
+
+        public int compareTo(Entry o) {
+            if (priority != o.priority) {
+                return priority > o.priority ? -1 : 1;
+            }
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+}
+
+// End WorkloadScheduler.java
@@ -26,6 +26,7 @@ public class ExecutionEndEvent extends ExecutionEvent {
   public final int cellCachePendingCount;
   public final int expCacheHitCount;
   public final int expCacheMissCount;
+  public final long elapsedMillis;
 
   /**
    * Creates an ExecutionEndEvent.
@@ -50,10 +51,16 @@ public class ExecutionEndEvent extends ExecutionEvent {
    *          Number of cell requests for which cell was not in cache
    * @param cellCachePendingCount
    *          Number of cell requests for which cell was
+   * @param expCacheHitCount
+   *          Number of expression cache hits
+   * @param expCacheMissCount
+   *          Number of expression cache misses
+   * @param elapsedMillis
+   *          Time from the start to the end of the execution, in milliseconds
    */
   public ExecutionEndEvent( long timestamp, int serverId, int connectionId, long statementId, long executionId,
       int phaseCount, Execution.State state, int cellCacheHitCount, int cellCacheMissCount, int cellCachePendingCount,
-      int expCacheHitCount, int expCacheMissCount ) {
+      int expCacheHitCount, int expCacheMissCount, long elapsedMillis ) {
     super( timestamp, serverId, connectionId, statementId, executionId );
     this.phaseCount = phaseCount;
     this.state = state;
@@ -62,6 +69,7 @@ public class ExecutionEndEvent extends ExecutionEvent {
     this.cellCachePendingCount = cellCachePendingCount;
     this.expCacheHitCount = expCacheHitCount;
     this.expCacheMissCount = expCacheMissCount;
+    this.elapsedMillis = elapsedMillis;
   }
 
   @Override
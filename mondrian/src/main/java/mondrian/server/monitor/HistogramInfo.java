@@ -0,0 +1,105 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server.monitor;
+
+/**
+ * Distribution of a quantity, such as the latency of MDX executions or of
+ * SQL statements, measured since the server started.
+ *
+ * <p>The name of the histogram says what is measured and in which unit; for
+ * example, "sql.execute.cell_segment.nanos" is the time taken to execute SQL
+ * statements that load segments, in nanoseconds. Percentiles are accurate to
+ * about 3%.</p>
+ *
+ * @see Monitor#getHistograms()
+ */
+public class HistogramInfo extends Info {
+    public final String name;
+    public final long count;
+    public final long sum;
+    public final long min;
+    public final long max;
+    public final long p50;
+    public final long p90;
+    public final long p95;
+    public final long p99;
+    public final long p999;
+
+    public HistogramInfo(
+        String stack,
+        String name,
+        long count,
+        long sum,
+        long min,
+        long max,
+        long p50,
+        long p90,
+        long p95,
+        long p99,
+        long p999)
+    {
+        super(stack);
+        this.name = name;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP95() {
+        return p95;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+}
+
+// End HistogramInfo.java
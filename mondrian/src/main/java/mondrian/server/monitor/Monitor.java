@@ -35,6 +35,32 @@ public interface Monitor {
 
     List<SqlStatementInfo> getSqlStatements();
 
+    /**
+     * Returns information about the queue of each class of work in each
+     * scheduler of the server: the scheduler of query executions, and the
+     * scheduler of SQL statements that load segments.
+     *
+     * @return Information about each workload queue
+     */
+    List<WorkloadQueueInfo> getWorkloadQueues();
+
+    /**
+     * Returns information about each shard of the segment cache manager,
+     * including the depth of its queue.
+     *
+     * @return Information about each shard, in shard order
+     */
+    List<SegmentCacheShardInfo> getSegmentCacheShards();
+
+    /**
+     * Returns the distributions of the latency of executions and SQL
+     * statements, and of the number of cells in results and segments, since
+     * the server started.
+     *
+     * @return Histograms, sorted by name
+     */
+    List<HistogramInfo> getHistograms();
+
     /**
      * Sends an event to the monitor.
      *
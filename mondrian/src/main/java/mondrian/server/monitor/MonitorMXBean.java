@@ -28,6 +28,12 @@ public interface MonitorMXBean {
     List<StatementInfo> getStatements();
 
     List<SqlStatementInfo> getSqlStatements();
+
+    List<WorkloadQueueInfo> getWorkloadQueues();
+
+    List<SegmentCacheShardInfo> getSegmentCacheShards();
+
+    List<HistogramInfo> getHistograms();
 }
 
 // End MonitorMXBean.java
\ No newline at end of file
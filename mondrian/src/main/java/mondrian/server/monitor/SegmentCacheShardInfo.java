@@ -0,0 +1,73 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server.monitor;
+
+/**
+ * Information about one shard of the segment cache manager: the actor that
+ * owns the segment indexes of some of the stars.
+ *
+ * @see mondrian.rolap.agg.SegmentCacheManager#getShardInfos()
+ */
+public class SegmentCacheShardInfo extends Info {
+    /**
+     * Id of the server that owns the segment cache manager.
+     *
+     * @see mondrian.olap.MondrianServer#getId()
+     */
+    public final int serverId;
+
+    /**
+     * Ordinal of the shard, 0-based.
+     */
+    public final int shard;
+
+    /**
+     * Number of commands and events waiting in the shard's queue.
+     */
+    public final int queueDepth;
+
+    /**
+     * Creates a SegmentCacheShardInfo.
+     *
+     * @param stack Stack trace, or null; a shard is not created on behalf
+     *     of a caller, so the cache manager passes null
+     * @param serverId Id of the server that owns the segment cache manager
+     * @param shard Ordinal of the shard
+     * @param queueDepth Number of commands and events in the shard's queue
+     */
+    public SegmentCacheShardInfo(
+        String stack,
+        int serverId,
+        int shard,
+        int queueDepth)
+    {
+        super(stack);
+        this.serverId = serverId;
+        this.shard = shard;
+        this.queueDepth = queueDepth;
+    }
+
+    public int getServerId() {
+        return serverId;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+}
+
+// End SegmentCacheShardInfo.java
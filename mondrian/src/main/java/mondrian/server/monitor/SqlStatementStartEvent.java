@@ -21,6 +21,12 @@ import mondrian.server.Locus;
 public class SqlStatementStartEvent extends SqlStatementEvent {
     public final int cellRequestCount;
 
+    /**
+     * Time that the statement waited for permission to execute, because
+     * too many statements were executing, in nanoseconds.
+     */
+    public final long queueNanos;
+
     /**
      * Creates a SqlStatementStartEvent.
      *
@@ -38,9 +44,37 @@ public class SqlStatementStartEvent extends SqlStatementEvent {
         String sql,
         Purpose purpose,
         int cellRequestCount)
+    {
+        this(
+            timestamp, sqlStatementId, locus, sql, purpose, cellRequestCount,
+            0);
+    }
+
+    /**
+     * Creates a SqlStatementStartEvent with the time the statement waited
+     * to execute.
+     *
+     * @param timestamp Timestamp
+     * @param sqlStatementId SQL Statement id
+     * @param locus Locus of event
+     * @param sql SQL
+     * @param purpose Why Mondrian is executing this statement
+     * @param cellRequestCount Number of missed cells that led to this request
+     * @param queueNanos Time waited for permission to execute, in
+     *     nanoseconds
+     */
+    public SqlStatementStartEvent(
+        long timestamp,
+        long sqlStatementId,
+        Locus locus,
+        String sql,
+        Purpose purpose,
+        int cellRequestCount,
+        long queueNanos)
     {
         super(timestamp, sqlStatementId, locus, sql, purpose);
         this.cellRequestCount = cellRequestCount;
+        this.queueNanos = queueNanos;
     }
 
     public String toString() {
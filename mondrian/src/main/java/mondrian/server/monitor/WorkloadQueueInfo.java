@@ -0,0 +1,125 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.server.monitor;
+
+/**
+ * Information about the tasks of one class of work in a
+ * {@link mondrian.server.WorkloadScheduler}.
+ */
+public class WorkloadQueueInfo extends Info {
+    /**
+     * Name of the scheduler.
+     */
+    public final String scheduler;
+
+    /**
+     * Name of the class of work; for example, "FoodMart/Analyst".
+     */
+    public final String workload;
+
+    /**
+     * Maximum number of tasks of the class that may run at the same time,
+     * or 0 if there is no limit.
+     */
+    public final int quota;
+
+    /**
+     * Number of tasks that are waiting to start.
+     */
+    public final int queuedCount;
+
+    /**
+     * Number of tasks that are running.
+     */
+    public final int runningCount;
+
+    /**
+     * Number of tasks that have been started since the server started.
+     */
+    public final long startCount;
+
+    /**
+     * Cumulative time that started tasks spent waiting to start.
+     */
+    public final long waitNanos;
+
+    /**
+     * Longest time that a started task spent waiting to start.
+     */
+    public final long maxWaitNanos;
+
+    public WorkloadQueueInfo(
+        String stack,
+        String scheduler,
+        String workload,
+        int quota,
+        int queuedCount,
+        int runningCount,
+        long startCount,
+        long waitNanos,
+        long maxWaitNanos)
+    {
+        super(stack);
+        this.scheduler = scheduler;
+        this.workload = workload;
+        this.quota = quota;
+        this.queuedCount = queuedCount;
+        this.runningCount = runningCount;
+        this.startCount = startCount;
+        this.waitNanos = waitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public String getScheduler() {
+        return scheduler;
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    public int getQuota() {
+        return quota;
+    }
+
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    public int getRunningCount() {
+        return runningCount;
+    }
+
+    public long getStartCount() {
+        return startCount;
+    }
+
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * Returns the average time that started tasks spent waiting to start.
+     *
+     * @return Average wait, in nanoseconds
+     */
+    public long getAverageWaitNanos() {
+        return startCount == 0 ? 0 : waitNanos / startCount;
+    }
+}
+
+// End WorkloadQueueInfo.java
@@ -0,0 +1,66 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.spi;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the rows of a result set in batches, as column vectors.
+ *
+ * <p>Mondrian uses a bulk fetcher to read the result of each SQL statement
+ * that loads cell segments. It copies the vectors of each batch into the
+ * buffers of the segments, a column at a time, so that a fetcher which
+ * receives columnar data from its driver need not produce rows at all. For
+ * example, a fetcher for a database whose driver returns data in a columnar
+ * format can {@link ResultSet#unwrap unwrap} the result set and copy whole
+ * columns into the batch.</p>
+ *
+ * <p>Mondrian finds the bulk fetcher via the
+ * {@link Dialect#getBulkFetcher} method on the dialect object for the
+ * current connection. The default implementation of that method looks first
+ * at the "mondrian.rolap.bulkFetcher.DATABASE" property (substituting the
+ * current database name, e.g. SNOWFLAKE or VERTICA, for <i>DATABASE</i>),
+ * then at the
+ * {@link mondrian.olap.MondrianProperties#BulkFetcher "mondrian.rolap.bulkFetcher"}
+ * property, and otherwise uses
+ * {@link mondrian.spi.impl.JdbcBulkFetcher}.</p>
+ *
+ * <p>An implementation must have a public default constructor, and must be
+ * thread-safe, because one instance reads the results of all statements of a
+ * dialect.</p>
+ *
+ * @see ColumnBatch
+ * @see mondrian.spi.impl.JdbcBulkFetcher
+ */
+public interface BulkFetcher {
+    /**
+     * Reads the next rows of a result set into a batch.
+     *
+     * <p>Clears the batch, then reads rows until the batch is full or there
+     * are no more rows, and sets the batch's row count. The types of the
+     * batch's columns are the types Mondrian chose for the columns of the
+     * result set.</p>
+     *
+     * <p>A batch that is not full is the last: the caller does not call this
+     * method again for the same result set.</p>
+     *
+     * @param resultSet Result set, positioned before the first row to read
+     * @param batch Batch to fill
+     * @return Number of rows read
+     * @throws SQLException on error
+     */
+    int fetch(ResultSet resultSet, ColumnBatch batch) throws SQLException;
+}
+
+// End BulkFetcher.java
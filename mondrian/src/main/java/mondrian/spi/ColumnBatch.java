@@ -0,0 +1,233 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.spi;
+
+import mondrian.olap.Util;
+import mondrian.rolap.SqlStatement;
+
+import java.util.*;
+
+/**
+ * Batch of rows from a result set, held as one vector per column.
+ *
+ * <p>A {@link BulkFetcher} fills a batch with up to {@link #getCapacity()}
+ * rows at a time. The vector of each column is an array of the Java type that
+ * suits the column's {@link SqlStatement.Type}:</p>
+ *
+ * <ul>
+ * <li>{@link SqlStatement.Type#OBJECT OBJECT} and
+ *     {@link SqlStatement.Type#STRING STRING}: {@link #getObjects},
+ *     holding null for a null value;</li>
+ * <li>{@link SqlStatement.Type#INT INT}: {@link #getInts};</li>
+ * <li>{@link SqlStatement.Type#LONG LONG}: {@link #getLongs};</li>
+ * <li>{@link SqlStatement.Type#DOUBLE DOUBLE} and
+ *     {@link SqlStatement.Type#DECIMAL DECIMAL}: {@link #getDoubles}.</li>
+ * </ul>
+ *
+ * <p>The value of row <i>i</i> is at index <i>i</i> of the vector. A null
+ * value of a numeric column is held as 0, and bit <i>i</i> of the column's
+ * {@link #getNulls null indicators} is set.</p>
+ */
+public class ColumnBatch {
+    private final SqlStatement.Type[] types;
+    private final int capacity;
+    private final Object[] vectors;
+    private final BitSet[] nulls;
+    private int rowCount;
+
+    /**
+     * Creates a ColumnBatch.
+     *
+     * @param types Types of columns
+     * @param capacity Maximum number of rows
+     */
+    public ColumnBatch(List<SqlStatement.Type> types, int capacity) {
+        assert capacity > 0;
+        this.types = types.toArray(new SqlStatement.Type[types.size()]);
+        this.capacity = capacity;
+        this.vectors = new Object[this.types.length];
+        this.nulls = new BitSet[this.types.length];
+        for (int i = 0; i < this.types.length; i++) {
+            vectors[i] = createVector(this.types[i], capacity);
+            nulls[i] = new BitSet(capacity);
+        }
+    }
+
+    private static Object createVector(SqlStatement.Type type, int capacity) {
+        switch (type) {
+        case OBJECT:
+        case STRING:
+            return new Object[capacity];
+        case INT:
+            return new int[capacity];
+        case LONG:
+            return new long[capacity];
+        case DOUBLE:
+        case DECIMAL:
+            return new double[capacity];
+        default:
+            throw Util.unexpected(type);
+        }
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    /**
+     * Returns the type of a column.
+     *
+     * @param column Column ordinal, 0-based
+     * @return Type of column
+     */
+    public SqlStatement.Type getType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Returns the maximum number of rows this batch can hold.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of rows in this batch.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Sets the number of rows in this batch.
+     *
+     * @param rowCount Number of rows; not greater than the capacity
+     */
+    public void setRowCount(int rowCount) {
+        assert rowCount >= 0 && rowCount <= capacity;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Removes all rows, so that the batch can be filled again. Resets the
+     * values of the vectors to null or 0, and clears the null indicators.
+     */
+    public void clear() {
+        for (int i = 0; i < types.length; i++) {
+            nulls[i].clear();
+            final Object vector = vectors[i];
+            if (vector instanceof Object[]) {
+                Arrays.fill((Object[]) vector, 0, rowCount, null);
+            } else if (vector instanceof int[]) {
+                Arrays.fill((int[]) vector, 0, rowCount, 0);
+            } else if (vector instanceof long[]) {
+                Arrays.fill((long[]) vector, 0, rowCount, 0L);
+            } else {
+                Arrays.fill((double[]) vector, 0, rowCount, 0d);
+            }
+        }
+        rowCount = 0;
+    }
+
+    /**
+     * Returns the vector of a column of type OBJECT or STRING.
+     */
+    public Object[] getObjects(int column) {
+        return (Object[]) vectors[column];
+    }
+
+    /**
+     * Returns the vector of a column of type INT.
+     */
+    public int[] getInts(int column) {
+        return (int[]) vectors[column];
+    }
+
+    /**
+     * Returns the vector of a column of type LONG.
+     */
+    public long[] getLongs(int column) {
+        return (long[]) vectors[column];
+    }
+
+    /**
+     * Returns the vector of a column of type DOUBLE or DECIMAL.
+     */
+    public double[] getDoubles(int column) {
+        return (double[]) vectors[column];
+    }
+
+    /**
+     * Returns the null indicators of a column. Bit <i>i</i> is set if the
+     * value of row <i>i</i> is null.
+     */
+    public BitSet getNulls(int column) {
+        return nulls[column];
+    }
+
+    /**
+     * Returns the value of a column in a given row as an object, boxing
+     * numeric values, or null if the value is null.
+     *
+     * @param column Column ordinal, 0-based
+     * @param row Row ordinal, 0-based
+     * @return Value
+     */
+    public Object getObject(int column, int row) {
+        final SqlStatement.Type type = types[column];
+        if (type == SqlStatement.Type.OBJECT
+            || type == SqlStatement.Type.STRING)
+        {
+            return getObjects(column)[row];
+        }
+        if (nulls[column].get(row)) {
+            return null;
+        }
+        switch (type) {
+        case INT:
+            return getInts(column)[row];
+        case LONG:
+            return getLongs(column)[row];
+        default:
+            return getDoubles(column)[row];
+        }
+    }
+
+    /**
+     * Returns the value of a column in a given row as an int, or 0 if the
+     * value is null.
+     *
+     * @param column Column ordinal, 0-based
+     * @param row Row ordinal, 0-based
+     * @return Value
+     */
+    public int getInt(int column, int row) {
+        switch (types[column]) {
+        case INT:
+            return getInts(column)[row];
+        case LONG:
+            return (int) getLongs(column)[row];
+        case DOUBLE:
+        case DECIMAL:
+            return (int) getDoubles(column)[row];
+        default:
+            final Object o = getObjects(column)[row];
+            return o == null ? 0 : ((Number) o).intValue();
+        }
+    }
+}
+
+// End ColumnBatch.java
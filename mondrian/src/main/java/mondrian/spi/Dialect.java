@@ -13,6 +13,7 @@
 package mondrian.spi;
 
 import mondrian.rolap.SqlStatement;
+import mondrian.server.monitor.SqlStatementEvent;
 
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -646,6 +647,44 @@ public interface Dialect {
         int type,
         int concurrency);
 
+    /**
+     * Returns the number of rows that the JDBC driver should fetch per round
+     * trip when it reads the result of a statement.
+     *
+     * <p>Returns 0 to use the driver's default. A dialect whose driver
+     * streams rows given a special value may return it if {@code streamable}
+     * is true; for example, the MySQL driver streams rows if the fetch size
+     * is {@link Integer#MIN_VALUE}.</p>
+     *
+     * <p>The default implementation returns the value of
+     * {@link mondrian.olap.MondrianProperties#SqlFetchSize} for statements
+     * that read members, load cell segments or drill through, and 0 for
+     * other statements.</p>
+     *
+     * @param purpose Purpose of statement
+     * @param streamable Whether the statement's result set is forward-only
+     *     and read-only, and
+     *     {@link mondrian.olap.MondrianProperties#SqlStreaming} is true
+     * @return Fetch size, or 0
+     */
+    int getFetchSize(
+        SqlStatementEvent.Purpose purpose,
+        boolean streamable);
+
+    /**
+     * Returns whether the JDBC driver fetches rows in batches of the fetch
+     * size, rather than reading the whole result into memory, only if the
+     * connection is not in auto-commit mode.
+     *
+     * <p>The PostgreSQL driver, for example, uses a cursor only inside a
+     * transaction. If this method returns true, Mondrian turns off
+     * auto-commit while it reads the result of a streamable statement, and
+     * turns it back on before it releases the connection.</p>
+     *
+     * @return whether the driver requires a transaction to use a cursor
+     */
+    boolean requiresTransactionForCursor();
+
     /**
      * Returns the maximum length of the name of a database column or query
      * alias allowed by this dialect.
@@ -792,6 +831,23 @@ public interface Dialect {
      */
     List<StatisticsProvider> getStatisticsProviders();
 
+    /**
+     * Returns the bulk fetcher that reads the results of the statements that
+     * load cell segments.
+     *
+     * <p>The default implementation looks for the value of the property
+     * {@code mondrian.rolap.bulkFetcher.PRODUCT} where product is the
+     * current dialect's product name (for example "SNOWFLAKE"). If that
+     * property has no value, looks at the property
+     * {@code mondrian.rolap.bulkFetcher}. The property value should be the
+     * name of a class that implements the {@link BulkFetcher} interface. If
+     * neither property has a value, returns a
+     * {@link mondrian.spi.impl.JdbcBulkFetcher}.</p>
+     *
+     * @return Bulk fetcher, never null
+     */
+    BulkFetcher getBulkFetcher();
+
     /**
      * <p>Chooses the most appropriate type for accessing the values of a
      * column in a result set for a dialect.</p>
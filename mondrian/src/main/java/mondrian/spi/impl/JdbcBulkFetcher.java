@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.spi.impl;
+
+import mondrian.olap.Util;
+import mondrian.rolap.SqlStatement;
+import mondrian.spi.BulkFetcher;
+import mondrian.spi.ColumnBatch;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Implementation of {@link BulkFetcher} that reads rows one at a time using
+ * JDBC.
+ *
+ * <p>It asks the driver to fetch as many rows per round trip as a batch
+ * holds, unless the statement already fetches more, or streams its rows (a
+ * negative fetch size, as MySQL uses). Each column is read with the {@link SqlStatement.Accessor} that suits its type,
+ * so numeric values are copied into the batch without boxing.</p>
+ */
+public class JdbcBulkFetcher implements BulkFetcher {
+    private static final Log LOGGER = LogFactory.getLog(JdbcBulkFetcher.class);
+
+    /** Shared instance. This class has no state. */
+    public static final JdbcBulkFetcher INSTANCE = new JdbcBulkFetcher();
+
+    public int fetch(ResultSet resultSet, ColumnBatch batch)
+        throws SQLException
+    {
+        batch.clear();
+        final int capacity = batch.getCapacity();
+        final int columnCount = batch.getColumnCount();
+        setFetchSize(resultSet, capacity);
+        final SqlStatement.Accessor[] accessors =
+            new SqlStatement.Accessor[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            accessors[i] = batch.getType(i).createAccessor(resultSet, i);
+        }
+        int row = 0;
+        while (row < capacity && resultSet.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                final SqlStatement.Accessor accessor = accessors[i];
+                switch (batch.getType(i)) {
+                case OBJECT:
+                case STRING:
+                    batch.getObjects(i)[row] = accessor.get();
+                    break;
+                case INT:
+                    final int intValue =
+                        batch.getInts(i)[row] = accessor.getInt();
+                    if (intValue == 0 && accessor.wasNull()) {
+                        batch.getNulls(i).set(row);
+                    }
+                    break;
+                case LONG:
+                    final long longValue =
+                        batch.getLongs(i)[row] = accessor.getLong();
+                    if (longValue == 0 && accessor.wasNull()) {
+                        batch.getNulls(i).set(row);
+                    }
+                    break;
+                case DOUBLE:
+                case DECIMAL:
+                    final double doubleValue =
+                        batch.getDoubles(i)[row] = accessor.getDouble();
+                    if (doubleValue == 0 && accessor.wasNull()) {
+                        batch.getNulls(i).set(row);
+                    }
+                    break;
+                default:
+                    throw Util.unexpected(batch.getType(i));
+                }
+            }
+            ++row;
+        }
+        batch.setRowCount(row);
+        return row;
+    }
+
+    private static void setFetchSize(ResultSet resultSet, int batchSize) {
+        try {
+            final int fetchSize = resultSet.getFetchSize();
+            if (fetchSize >= 0 && fetchSize < batchSize) {
+                resultSet.setFetchSize(batchSize);
+            }
+        } catch (SQLException e) {
+            // The fetch size is only a hint, and some drivers do not
+            // support it.
+            LOGGER.debug("Could not set fetch size", e);
+        }
+    }
+}
+
+// End JdbcBulkFetcher.java
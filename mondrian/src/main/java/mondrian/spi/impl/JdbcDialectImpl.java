@@ -39,6 +39,8 @@ import org.apache.commons.logging.LogFactory;
 import mondrian.olap.MondrianProperties;
 import mondrian.olap.Util;
 import mondrian.rolap.SqlStatement;
+import mondrian.server.monitor.SqlStatementEvent;
+import mondrian.spi.BulkFetcher;
 import mondrian.spi.Dialect;
 import mondrian.spi.StatisticsProvider;
 import mondrian.util.ClassResolver;
@@ -108,6 +110,11 @@ public class JdbcDialectImpl implements Dialect {
      */
     private final List<StatisticsProvider> statisticsProviders;
 
+    /**
+     * Bulk fetcher; created on first use.
+     */
+    private volatile BulkFetcher bulkFetcher;
+
     private static final int[] RESULT_SET_TYPE_VALUES = {
         ResultSet.TYPE_FORWARD_ONLY,
         ResultSet.TYPE_SCROLL_INSENSITIVE,
@@ -918,6 +925,25 @@ public class JdbcDialectImpl implements Dialect {
             Arrays.asList(type, concurrency));
     }
 
+    public int getFetchSize(
+        SqlStatementEvent.Purpose purpose,
+        boolean streamable)
+    {
+        switch (purpose) {
+        case TUPLES:
+        case CELL_SEGMENT:
+        case DRILL_THROUGH:
+            return Math.max(
+                0, MondrianProperties.instance().SqlFetchSize.get());
+        default:
+            return 0;
+        }
+    }
+
+    public boolean requiresTransactionForCursor() {
+        return false;
+    }
+
     public String toString() {
         return productName;
     }
@@ -945,6 +971,13 @@ public class JdbcDialectImpl implements Dialect {
         return statisticsProviders;
     }
 
+    public BulkFetcher getBulkFetcher() {
+        if (bulkFetcher == null) {
+            bulkFetcher = computeBulkFetcher();
+        }
+        return bulkFetcher;
+    }
+
     public SqlStatement.Type getType(
         ResultSetMetaData metaData, int columnIndex)
         throws SQLException
@@ -1019,6 +1052,32 @@ public class JdbcDialectImpl implements Dialect {
         return providerList;
     }
 
+    protected BulkFetcher computeBulkFetcher() {
+        final MondrianProperties properties = MondrianProperties.instance();
+        String name = null;
+        if (getDatabaseProduct() != null) {
+            // Dialect-specific path, e.g. "mondrian.rolap.bulkFetcher.VERTICA"
+            name = properties.getProperty(
+                properties.BulkFetcher.getPath()
+                + "."
+                + getDatabaseProduct().name());
+        }
+        if (name == null || name.length() == 0) {
+            // Generic property, "mondrian.rolap.bulkFetcher"
+            name = properties.BulkFetcher.get();
+        }
+        if (name != null && name.length() > 0) {
+            try {
+                return ClassResolver.INSTANCE.instantiateSafe(name);
+            } catch (Exception e) {
+                LOGGER.info(
+                    "Error instantiating bulk fetcher (class=" + name + ")",
+                    e);
+            }
+        }
+        return JdbcBulkFetcher.INSTANCE;
+    }
+
     private List<String> getStatisticsProviderNames() {
         // Dialect-specific path, e.g. "mondrian.statistics.providers.MYSQL"
         final String path =
@@ -13,6 +13,7 @@
 package mondrian.spi.impl;
 
 import mondrian.olap.Util;
+import mondrian.server.monitor.SqlStatementEvent;
 import mondrian.spi.DialectUtil;
 
 import java.sql.*;
@@ -203,6 +204,26 @@ public class MySqlDialect extends JdbcDialectImpl {
         return true;
     }
 
+    @Override
+    public int getFetchSize(
+        SqlStatementEvent.Purpose purpose,
+        boolean streamable)
+    {
+        // The MySQL driver reads the whole result into memory unless the
+        // fetch size is Integer.MIN_VALUE, in which case it streams rows one
+        // at a time. It ignores any other fetch size.
+        switch (purpose) {
+        case TUPLES:
+        case CELL_SEGMENT:
+        case DRILL_THROUGH:
+            if (streamable) {
+                return Integer.MIN_VALUE;
+            }
+            break;
+        }
+        return super.getFetchSize(purpose, streamable);
+    }
+
     @Override
     public boolean allowsFromQuery() {
         // MySQL before 4.0 does not allow FROM
@@ -57,6 +57,12 @@ public class NetezzaDialect extends PostgreSqlDialect {
         return false;
     }
 
+    @Override
+    public boolean requiresTransactionForCursor() {
+        // Netezza does not use the PostgreSQL driver.
+        return false;
+    }
+
     @Override
     public String generateRegularExpression(String source, String javaRegex) {
         throw new UnsupportedOperationException();
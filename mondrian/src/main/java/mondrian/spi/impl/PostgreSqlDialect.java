@@ -55,6 +55,13 @@ public class PostgreSqlDialect extends JdbcDialectImpl {
         return true;
     }
 
+    @Override
+    public boolean requiresTransactionForCursor() {
+        // The driver reads the whole result into memory unless auto-commit
+        // is off, whatever the fetch size.
+        return true;
+    }
+
     @Override
     protected String generateOrderByNulls(
         String expr,
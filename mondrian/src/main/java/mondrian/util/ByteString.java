@@ -42,6 +42,15 @@ public class ByteString implements Comparable<ByteString>, Serializable {
         this.bytes = bytes.clone();
     }
 
+    /**
+     * Returns a copy of the bytes in this byte string.
+     *
+     * @return Bytes
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
     @Override
     public int hashCode() {
         return Arrays.hashCode(bytes);
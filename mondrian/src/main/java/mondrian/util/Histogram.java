@@ -0,0 +1,155 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.util;
+
+/**
+ * Histogram of non-negative long values, such as latencies in nanoseconds,
+ * from which percentiles can be read.
+ *
+ * <p>Values are counted in buckets whose width grows with the value, in the
+ * style of an HDR histogram: values less than 32 each have their own bucket,
+ * and each larger power of two is divided into 32 buckets. A percentile is
+ * therefore accurate to about 3% of its value, whatever the range of values,
+ * and the histogram uses a fixed amount of memory.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class Histogram {
+    /**
+     * Number of bits of a value that determine its bucket within its power
+     * of two.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts =
+        new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT];
+
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value Value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        ++counts[bucket(value)];
+        ++count;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return Number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return Sum of values
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the smallest recorded value, or 0 if there are no values.
+     *
+     * @return Smallest value
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns the largest recorded value, or 0 if there are no values.
+     *
+     * @return Largest value
+     */
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * Returns the value below which a given percentage of the recorded
+     * values fall, or 0 if there are no values.
+     *
+     * <p>The result is the largest value in the bucket that contains the
+     * percentile, but no larger than the largest recorded value.</p>
+     *
+     * @param percentile Percentage, between 0 and 100
+     * @return Value at percentile
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank =
+            Math.max(1L, (long) Math.ceil(percentile / 100d * count));
+        long n = 0;
+        for (int i = 0; i < counts.length; i++) {
+            n += counts[i];
+            if (n >= rank) {
+                return Math.min(max, Math.max(min, highestValue(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the bucket that a value belongs to.
+     *
+     * @param value Non-negative value
+     * @return Bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the largest value that belongs to a bucket.
+     *
+     * @param bucket Bucket index
+     * @return Largest value in bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKET_COUNT - 1;
+        final long subBucket = bucket % SUB_BUCKET_COUNT;
+        final long lowest = (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
+
+// End Histogram.java
@@ -0,0 +1,151 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package mondrian.web.servlet;
+
+import mondrian.olap.MondrianServer;
+import mondrian.server.monitor.HistogramInfo;
+import mondrian.server.monitor.SegmentCacheShardInfo;
+import mondrian.server.monitor.ServerInfo;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.*;
+
+/**
+ * <code>MetricsServlet</code> is a servlet that writes the counters and
+ * latency histograms of a Mondrian server as plain text, in the exposition
+ * format read by Prometheus and similar monitoring systems.
+ *
+ * <p>It is intended to be deployed in the same web application as the XMLA
+ * servlet, for example:</p>
+ *
+ * <blockquote><pre>
+ * &lt;servlet&gt;
+ *   &lt;servlet-name&gt;MondrianMetrics&lt;/servlet-name&gt;
+ *   &lt;servlet-class&gt;mondrian.web.servlet.MetricsServlet&lt;/servlet-class&gt;
+ * &lt;/servlet&gt;
+ * &lt;servlet-mapping&gt;
+ *   &lt;servlet-name&gt;MondrianMetrics&lt;/servlet-name&gt;
+ *   &lt;url-pattern&gt;/metrics&lt;/url-pattern&gt;
+ * &lt;/servlet-mapping&gt;</pre></blockquote>
+ *
+ * <p>The server is the one whose id is given by the "server" request
+ * parameter or, failing that, by the "server" init parameter; if neither is
+ * given, it is the catalog-less server.</p>
+ *
+ * @see mondrian.server.monitor.Monitor#getHistograms()
+ */
+public class MetricsServlet extends HttpServlet {
+    private String serverId;
+
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        serverId = config.getInitParameter("server");
+    }
+
+    protected void doGet(
+        HttpServletRequest request, HttpServletResponse response)
+        throws ServletException, IOException
+    {
+        String id = request.getParameter("server");
+        if (id == null) {
+            id = serverId;
+        }
+        final MondrianServer server = MondrianServer.forId(id);
+        if (server == null) {
+            response.sendError(
+                HttpServletResponse.SC_NOT_FOUND, "Unknown server " + id);
+            return;
+        }
+        response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        final PrintWriter pw = response.getWriter();
+        write(
+            pw,
+            server.getMonitor().getServer(),
+            server.getMonitor().getHistograms(),
+            server.getMonitor().getSegmentCacheShards());
+        pw.flush();
+    }
+
+    /**
+     * Writes server counters, histograms and the queue depth of each shard of
+     * the segment cache manager in text exposition format.
+     *
+     * <p>Each histogram becomes a summary whose name is the histogram's name
+     * with dots replaced by underscores, prefixed "mondrian_"; for example,
+     * histogram "sql.execute.cell_segment.nanos" becomes
+     * "mondrian_sql_execute_cell_segment_nanos".</p>
+     *
+     * @param pw Writer
+     * @param serverInfo Counters of the server
+     * @param histograms Histograms of the server
+     * @param shards Shards of the segment cache manager
+     */
+    static void write(
+        PrintWriter pw,
+        ServerInfo serverInfo,
+        List<HistogramInfo> histograms,
+        List<SegmentCacheShardInfo> shards)
+    {
+        counter(
+            pw, "mondrian_execution_start_total", serverInfo.executeStartCount);
+        counter(pw, "mondrian_execution_end_total", serverInfo.executeEndCount);
+        counter(
+            pw, "mondrian_sql_statement_start_total",
+            serverInfo.sqlStatementStartCount);
+        counter(
+            pw, "mondrian_sql_statement_end_total",
+            serverInfo.sqlStatementEndCount);
+        counter(
+            pw, "mondrian_cell_cache_hit_total", serverInfo.cellCacheHitCount);
+        counter(
+            pw, "mondrian_cell_cache_miss_total",
+            serverInfo.getCellCacheMissCount());
+        for (HistogramInfo histogram : histograms) {
+            final String name = "mondrian_" + histogram.name.replace('.', '_');
+            pw.println("# TYPE " + name + " summary");
+            quantile(pw, name, "0.5", histogram.p50);
+            quantile(pw, name, "0.9", histogram.p90);
+            quantile(pw, name, "0.95", histogram.p95);
+            quantile(pw, name, "0.99", histogram.p99);
+            quantile(pw, name, "0.999", histogram.p999);
+            pw.println(name + "_sum " + histogram.sum);
+            pw.println(name + "_count " + histogram.count);
+        }
+        if (!shards.isEmpty()) {
+            final String name = "mondrian_segment_cache_queue_depth";
+            pw.println("# TYPE " + name + " gauge");
+            for (SegmentCacheShardInfo shard : shards) {
+                pw.println(
+                    name + "{shard=\"" + shard.shard + "\"} "
+                    + shard.queueDepth);
+            }
+        }
+    }
+
+    private static void counter(PrintWriter pw, String name, long value) {
+        pw.println("# TYPE " + name + " counter");
+        pw.println(name + " " + value);
+    }
+
+    private static void quantile(
+        PrintWriter pw, String name, String quantile, long value)
+    {
+        pw.println(name + "{quantile=\"" + quantile + "\"} " + value);
+    }
+}
+
+// End MetricsServlet.java